@@ -17,7 +17,7 @@ function ContactInfoPanel({ currentRoom, onClose }) {
 
       // Get room members to find the other user
       const membersRes = await api.get(`/api/rooms/${currentRoom.id}/members`);
-      const members = membersRes.data?.content || membersRes.data || [];
+      const members = membersRes.data?.members || [];
       const otherMember = Array.isArray(members)
         ? members.find((m) => {
             const memberId = m.userId || m.id;
@@ -7,6 +7,8 @@ function MembersPanel({ currentRoom, onClose, onRoomUpdated }) {
   const { user } = useAuth();
   const { showToast } = useToast();
   const [members, setMembers] = useState([]);
+  const [total, setTotal] = useState(0);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(false);
 
   const loadMembers = useCallback(async () => {
@@ -14,8 +16,10 @@ function MembersPanel({ currentRoom, onClose, onRoomUpdated }) {
     try {
       setLoading(true);
       const response = await api.get(`/api/rooms/${currentRoom.id}/members`);
-      const data = response.data?.content || response.data || [];
+      const data = response.data?.members || [];
       setMembers(Array.isArray(data) ? data : []);
+      setTotal(response.data?.total ?? data.length);
+      setNextCursor(response.data?.nextCursor || null);
     } catch (error) {
       console.error('Error loading members:', error);
       showToast('Failed to load room members', 'error');
@@ -28,6 +32,19 @@ function MembersPanel({ currentRoom, onClose, onRoomUpdated }) {
     loadMembers();
   }, [loadMembers]);
 
+  const loadMoreMembers = async () => {
+    if (!currentRoom || !nextCursor) return;
+    try {
+      const response = await api.get(`/api/rooms/${currentRoom.id}/members`, { params: { cursor: nextCursor } });
+      const data = response.data?.members || [];
+      setMembers((prev) => [...prev, ...data]);
+      setNextCursor(response.data?.nextCursor || null);
+    } catch (error) {
+      console.error('Error loading members:', error);
+      showToast('Failed to load room members', 'error');
+    }
+  };
+
   const handleAdminAction = async (userId, action) => {
     try {
       if (action === 'remove') {
@@ -77,7 +94,7 @@ function MembersPanel({ currentRoom, onClose, onRoomUpdated }) {
     >
       <div style={{ padding: '1rem', borderBottom: '1px solid var(--border-light)', display: 'flex', justifyContent: 'space-between', alignItems: 'center' }}>
         <h3 style={{ margin: 0, fontSize: '0.95rem', color: 'var(--text-primary)' }}>
-          Members ({members.length})
+          Members ({total})
         </h3>
         <button onClick={onClose} style={{ background: 'none', border: 'none', cursor: 'pointer', color: 'var(--text-secondary)' }}>
           <i className="fas fa-times"></i>
@@ -162,6 +179,14 @@ function MembersPanel({ currentRoom, onClose, onRoomUpdated }) {
             );
           })
         )}
+        {nextCursor && (
+          <button
+            onClick={loadMoreMembers}
+            style={{ width: '100%', padding: '0.5rem', background: 'none', border: 'none', color: 'var(--text-secondary)', cursor: 'pointer', fontSize: '0.8rem' }}
+          >
+            Show more members
+          </button>
+        )}
       </div>
 
       <div style={{ padding: '1rem', borderTop: '1px solid var(--border-light)' }}>
@@ -0,0 +1,261 @@
+package com.example.chatservice.Controller;
+
+import com.example.chatservice.Dto.request.CreateUploadRequest;
+import com.example.chatservice.Dto.response.UploadStatusResponse;
+import com.example.chatservice.Model.Attachment;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.attachment.AttachmentService;
+import com.example.chatservice.attachment.AttachmentStorage;
+import com.example.chatservice.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/attachments")
+@CrossOrigin(origins = "*")
+@Tag(name = "Attachments", description = "Resumable chunked uploads and ranged downloads of files shared in rooms")
+public class AttachmentController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    // Tomcat's sendfile hand-off: the connector writes the file straight from the page cache after the
+    // servlet returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final AttachmentService attachmentService;
+    private final AttachmentStorage attachmentStorage;
+    private final UserService userService;
+
+    public AttachmentController(AttachmentService attachmentService,
+            AttachmentStorage attachmentStorage,
+            UserService userService) {
+        this.attachmentService = attachmentService;
+        this.attachmentStorage = attachmentStorage;
+        this.userService = userService;
+    }
+
+    @PostMapping("/uploads")
+    @Operation(summary = "Start an upload", description = "Declares a file to upload into a room. If sha256 matches content already shared in a room you can read, the upload completes immediately.")
+    public ResponseEntity<?> createUpload(@RequestBody CreateUploadRequest request,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        try {
+            UploadStatusResponse status = attachmentService.createUpload(user, request);
+            return ResponseEntity.status(status.complete() ? 200 : 201)
+                    .header(UPLOAD_OFFSET, String.valueOf(status.offset()))
+                    .body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(403).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @RequestMapping(value = "/uploads/{uploadId}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    @Operation(summary = "Get upload offset", description = "Returns how many bytes of the upload have been received; the next chunk starts there.")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        UploadStatusResponse status = attachmentService.getStatus(user, uploadId);
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET, String.valueOf(status.offset()))
+                .cacheControl(CacheControl.noStore())
+                .body(status);
+    }
+
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Upload a chunk", description = "Appends the raw request body at the Upload-Offset header, which must equal the current offset. The final chunk completes the upload and posts the message.")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            @AuthenticationPrincipal UserDetails principal,
+            HttpServletRequest request) throws IOException {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        try {
+            UploadStatusResponse status = attachmentService.appendChunk(user, uploadId, offset, request.getInputStream());
+            return ResponseEntity.ok()
+                    .header(UPLOAD_OFFSET, String.valueOf(status.offset()))
+                    .body(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(403).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    @Operation(summary = "Abort an upload", description = "Discards an unfinished upload and the bytes received so far.")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        attachmentService.abort(user, uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Streams an attachment. The ETag is the content hash, so revalidation is a header comparison; a
+     * single byte range (optionally guarded by If-Range) is honoured, anything else gets the whole file.
+     * The body is handed to Tomcat's sendfile when the connector supports it and otherwise copied with
+     * {@link FileChannel#transferTo}, so the file never passes through the heap.
+     */
+    @GetMapping("/{attachmentId}")
+    @Operation(summary = "Download an attachment", description = "Streams an attachment you can read. Supports Range, If-Range and If-None-Match.")
+    public ResponseEntity<?> download(@PathVariable String attachmentId,
+            @AuthenticationPrincipal UserDetails principal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        Attachment attachment = attachmentService.findReadable(user, attachmentId);
+        String etag = "\"" + attachment.getSha256() + "\"";
+        long size = attachment.getSize();
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(304).eTag(etag).build();
+        }
+
+        long start = 0;
+        long end = size - 1;
+        boolean partial = false;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == null) {
+                return ResponseEntity.status(416)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                partial = true;
+            }
+        }
+        long length = end - start + 1;
+
+        boolean inline = attachment.isImage() && !attachment.getContentType().contains("svg");
+        response.setStatus(partial ? 206 : 200);
+        response.setContentType(attachment.getContentType());
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                (inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                        .filename(attachment.getFileName(), StandardCharsets.UTF_8).build().toString());
+        if (partial) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            return null;
+        }
+
+        Path blob = attachmentStorage.blobPath(attachment.getSha256());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, blob.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return null;
+        }
+        try (FileChannel file = FileChannel.open(blob, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long limit = end + 1;
+            while (position < limit) {
+                long sent = file.transferTo(position, limit - position, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@code {start, end}} for a satisfiable single range, an empty array to ignore the header, or null if
+     * the range cannot be satisfied.
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, size - suffix), size - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.example.chatservice.Dto.response.UserSummaryResponse;
 import com.example.chatservice.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -36,9 +37,11 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    @Operation(summary = "User login", description = "Authenticates user credentials and returns a JWT token.")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
-        AuthResponse response = authService.login(request.getUsername(), request.getPassword());
+    @Operation(summary = "User login", description = "Authenticates user credentials and returns a JWT token. Repeated failures for an account or from an address are answered with 429 and Retry-After.")
+    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request,
+            HttpServletRequest httpRequest) {
+        AuthResponse response = authService.login(request.getUsername(), request.getPassword(),
+                httpRequest.getRemoteAddr());
         return ResponseEntity.ok(response);
     }
 
@@ -1,17 +1,25 @@
 package com.example.chatservice.Controller;
 
 import com.example.chatservice.Model.DataEntity;
+import com.example.chatservice.Dto.request.DataPatchRequest;
 import com.example.chatservice.Dto.request.DataRequest;
+import com.example.chatservice.Dto.response.DataImportResult;
 import com.example.chatservice.Dto.response.DataResponse;
 import com.example.chatservice.service.DataService;
+import com.example.chatservice.service.ResponseStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,9 +28,11 @@ import java.util.stream.Collectors;
 public class DataController {
 
     private final DataService dataService;
+    private final ResponseStreamer responseStreamer;
 
-    public DataController(DataService dataService) {
+    public DataController(DataService dataService, ResponseStreamer responseStreamer) {
         this.dataService = dataService;
+        this.responseStreamer = responseStreamer;
     }
 
     @GetMapping
@@ -34,6 +44,20 @@ public class DataController {
         return ResponseEntity.ok(responses);
     }
 
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @Operation(summary = "Export data", description = "Streams every data entry as NDJSON, one entry per line, read through a database cursor. The output can be posted to /api/data/import as is.")
+    public ResponseEntity<StreamingResponseBody> exportData() {
+        return ResponseEntity.ok()
+                .contentType(ResponseStreamer.NDJSON)
+                .body(responseStreamer.body(dataService::streamAllData, this::mapToResponse, true));
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/plain"})
+    @Operation(summary = "Import data", description = "Reads NDJSON entries with title and content, and optionally id, createdAt and updatedAt. Inserts them in ordered batches as the body arrives. Invalid or duplicate lines are skipped and reported by line number.")
+    public ResponseEntity<DataImportResult> importData(InputStream body) throws IOException {
+        return ResponseEntity.ok(dataService.importData(body));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get data by ID", description = "Retrieves a specific data entry by its ID.")
     public ResponseEntity<DataResponse> getDataById(@PathVariable String id) {
@@ -61,6 +85,20 @@ public class DataController {
         }
     }
 
+    @PatchMapping("/{id}")
+    @Operation(summary = "Patch data", description = "Sets the given fields in one update without reading the entry first. With expectedUpdatedAt, returns 412 if the entry has changed since then.")
+    public ResponseEntity<?> patchData(@PathVariable String id, @RequestBody DataPatchRequest request) {
+        Optional<DataEntity> patched = dataService.patchData(id, request);
+        if (patched.isPresent()) {
+            return ResponseEntity.ok(mapToResponse(patched.get()));
+        }
+        if (request.expectedUpdatedAt() != null && dataService.getDataById(id).isPresent()) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(Map.of("error", "Data entry has changed since " + request.expectedUpdatedAt()));
+        }
+        return ResponseEntity.notFound().build();
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete data", description = "Deletes a specific data entry by its ID.")
     public ResponseEntity<Void> deleteData(@PathVariable String id) {
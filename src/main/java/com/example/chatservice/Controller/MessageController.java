@@ -3,15 +3,20 @@ package com.example.chatservice.Controller;
 import com.example.chatservice.Dto.response.MessageDto;
 import com.example.chatservice.Dto.response.MessageReceiptDto;
 import com.example.chatservice.Model.User;
+import com.example.chatservice.service.ChatRoomService;
 import com.example.chatservice.service.MessageService;
+import com.example.chatservice.service.ResponseStreamer;
 import com.example.chatservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -23,10 +28,20 @@ public class MessageController {
 
     private final MessageService messageService;
     private final UserService userService;
+    private final ChatRoomService chatRoomService;
+    private final ResponseStreamer responseStreamer;
+    private final int maxStreamedMessages;
 
-    public MessageController(MessageService messageService, UserService userService) {
+    public MessageController(MessageService messageService,
+            UserService userService,
+            ChatRoomService chatRoomService,
+            ResponseStreamer responseStreamer,
+            @Value("${app.streaming.max-messages:10000}") int maxStreamedMessages) {
         this.messageService = messageService;
         this.userService = userService;
+        this.chatRoomService = chatRoomService;
+        this.responseStreamer = responseStreamer;
+        this.maxStreamedMessages = maxStreamedMessages;
     }
 
     @GetMapping("/rooms/{roomId}")
@@ -44,6 +59,28 @@ public class MessageController {
         return ResponseEntity.ok(dtos);
     }
 
+    @GetMapping(value = "/rooms/{roomId}/stream", produces = {"application/x-ndjson", "application/json"})
+    @Operation(summary = "Stream room messages", description = "Writes up to limit messages, newest first, as they are read and decrypted: NDJSON by default, or a JSON array with format=json. Does not hold a request thread while the history loads.")
+    public ResponseEntity<StreamingResponseBody> streamRoomMessages(
+            @PathVariable String roomId,
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        if (!chatRoomService.canUserAccessRoom(user.getId(), roomId)) {
+            return ResponseEntity.status(403).build();
+        }
+        int max = Math.max(1, Math.min(limit, maxStreamedMessages));
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? ResponseStreamer.NDJSON : MediaType.APPLICATION_JSON)
+                .body(responseStreamer.body(() -> messageService.streamMessages(roomId, user.getId(), max),
+                        messageService::toMessageDto, ndjson));
+    }
+
     @GetMapping("/{messageId}/receipts")
     @Operation(summary = "Get message receipts", description = "Returns per-member delivery/seen receipt details for a specific message.")
     public ResponseEntity<List<MessageReceiptDto>> getMessageReceipts(@PathVariable String messageId) {
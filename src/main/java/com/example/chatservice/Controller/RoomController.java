@@ -6,18 +6,29 @@ import com.example.chatservice.Dto.request.DirectMessageRequest;
 import com.example.chatservice.Dto.request.JoinRoomRequest;
 import com.example.chatservice.Dto.request.RenameRoomRequest;
 import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.DataKey;
 import com.example.chatservice.Model.RoomMembership;
 import com.example.chatservice.Model.User;
+import com.example.chatservice.exception.TooManyRequestsException;
 import com.example.chatservice.service.ChatRoomService;
+import com.example.chatservice.service.CryptoService;
 import com.example.chatservice.service.MessageService;
+import com.example.chatservice.service.ResponseStreamer;
+import com.example.chatservice.service.RoomCatalog;
 import com.example.chatservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -29,16 +40,36 @@ import java.util.Map;
 @Tag(name = "Chat Room Management", description = "Endpoints for creating, joining, leaving, and managing chat rooms and direct messages")
 public class RoomController {
 
+    private static final String CATALOG_VERSION = "X-Catalog-Version";
+
     private final ChatRoomService chatRoomService;
     private final UserService userService;
     private final MessageService messageService;
+    private final ResponseStreamer responseStreamer;
+    private final RoomCatalog roomCatalog;
+    private final CryptoService cryptoService;
+    private final int membersPageSize;
+    private final int maxMembersPageSize;
+
+    // Member lists show small avatars; the 48 px variant is enough
+    private static final int MEMBER_AVATAR_SIZE = 48;
 
     public RoomController(ChatRoomService chatRoomService,
             UserService userService,
-            MessageService messageService) {
+            MessageService messageService,
+            ResponseStreamer responseStreamer,
+            RoomCatalog roomCatalog,
+            CryptoService cryptoService,
+            @Value("${app.rooms.members.page-size:100}") int membersPageSize,
+            @Value("${app.rooms.members.max-page-size:500}") int maxMembersPageSize) {
         this.chatRoomService = chatRoomService;
         this.userService = userService;
         this.messageService = messageService;
+        this.responseStreamer = responseStreamer;
+        this.roomCatalog = roomCatalog;
+        this.cryptoService = cryptoService;
+        this.membersPageSize = membersPageSize;
+        this.maxMembersPageSize = maxMembersPageSize;
     }
 
     @PostMapping
@@ -107,6 +138,8 @@ public class RoomController {
 
             chatRoomService.broadcastUserJoined(roomId, user);
             return ResponseEntity.ok(Map.of("message", "Successfully joined the room"));
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (RuntimeException e) {
             return ResponseEntity.status(403).body(Map.of("error", e.getMessage()));
         }
@@ -126,20 +159,31 @@ public class RoomController {
     }
 
     @GetMapping("/available")
-    @Operation(summary = "Get available public rooms", description = "Lists all public chat rooms that users can join.")
-    public ResponseEntity<?> getAvailableRooms() {
-        List<ChatRoom> rooms = chatRoomService.listPublicRooms();
-        List<Map<String, Object>> result = rooms.stream().map(room -> {
-            Map<String, Object> data = new HashMap<>();
-            data.put("id", room.getId());
-            data.put("name", room.getName());
-            data.put("description", room.getDescription() != null ? room.getDescription() : "");
-            data.put("roomType", room.getRoomType().name());
-            data.put("isPrivate", room.isPrivate());
-            data.put("memberCount", chatRoomService.getRoomMemberCount(room.getId()));
-            return data;
-        }).toList();
-        return ResponseEntity.ok(result);
+    @Operation(summary = "Get available public rooms", description = "Lists all public chat rooms that users can join. "
+            + "Without page, returns the whole list; with page, returns that page of the catalog with its totals. "
+            + "Responses carry an ETag; send it back in If-None-Match to get 304 while the list or page is unchanged. "
+            + "The X-Catalog-Version header changes whenever anything in the catalog does.")
+    public ResponseEntity<byte[]> getAvailableRooms(@RequestParam(required = false) Integer page,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        RoomCatalog.Body body;
+        try {
+            body = page == null ? roomCatalog.all() : roomCatalog.page(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        if (roomCatalog.notModified(body, ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(body.etag())
+                    .header(CATALOG_VERSION, body.version())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(body.etag())
+                .header(CATALOG_VERSION, body.version())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body.json());
     }
 
     @GetMapping("/search")
@@ -225,47 +269,9 @@ public class RoomController {
             User user = userService.resolveUserByUsername(principal.getUsername());
             List<RoomMembership> memberships = chatRoomService.listMembershipsForUser(user.getId());
 
-            List<Map<String, Object>> result = memberships.stream().map(membership -> {
-                ChatRoom room = membership.getRoom();
-                Map<String, Object> roomData = new HashMap<>();
-                roomData.put("id", room.getId());
-                String displayName = room.getName();
-                if (room.getRoomType() == ChatRoom.RoomType.DIRECT_MESSAGE) {
-                    List<RoomMembership> roomMembers = chatRoomService.getRoomMembers(room.getId());
-                    User otherUser = roomMembers.stream()
-                            .map(RoomMembership::getUser)
-                            .filter(u -> !u.getId().equals(user.getId()))
-                            .findFirst()
-                            .orElse(null);
-                    if (otherUser != null) {
-                        displayName = otherUser.getPhoneNumber() != null ? otherUser.getPhoneNumber() : otherUser.getUsername();
-                    }
-                }
-
-                roomData.put("name", displayName);
-                roomData.put("description", room.getDescription() != null ? room.getDescription() : "");
-                roomData.put("roomType", room.getRoomType().name());
-                roomData.put("isPrivate", room.isPrivate());
-
-                List<com.example.chatservice.Model.Message> recentMessages = messageService.getRecentMessages(room.getId(), user.getId(), 1);
-                if (!recentMessages.isEmpty()) {
-                    com.example.chatservice.Model.Message lastMsg = recentMessages.get(0);
-                    String decryptedText = messageService.decrypt(lastMsg.getEncryptedContent());
-                    Map<String, Object> lastMessageData = new HashMap<>();
-                    lastMessageData.put("text", decryptedText);
-                    lastMessageData.put("createdAt", lastMsg.getCreatedAt());
-                    lastMessageData.put("senderName", lastMsg.getSender().getDisplayName());
-                    roomData.put("lastMessage", lastMessageData);
-                }
-
-                Map<String, Object> membershipData = new HashMap<>();
-                membershipData.put("room", roomData);
-                membershipData.put("role", membership.getRole().name());
-                membershipData.put("joinedAt",
-                        membership.getJoinedAt() != null ? membership.getJoinedAt().toString() : null);
-
-                return membershipData;
-            }).toList();
+            List<Map<String, Object>> result = memberships.stream()
+                    .map(membership -> toMyRoomEntry(membership, user))
+                    .toList();
 
             return ResponseEntity.ok(result);
         } catch (Exception e) {
@@ -273,6 +279,74 @@ public class RoomController {
         }
     }
 
+    @GetMapping(value = "/my-rooms/stream", produces = {"application/x-ndjson", "application/json"})
+    @Operation(summary = "Stream my rooms", description = "Same entries as /my-rooms, written as they are built: NDJSON by default, or a JSON array with format=json. Does not hold a request thread while rooms are loaded.")
+    public ResponseEntity<StreamingResponseBody> streamMyRooms(@RequestParam(defaultValue = "ndjson") String format,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        return ResponseEntity.ok()
+                .contentType(ndjson ? ResponseStreamer.NDJSON : MediaType.APPLICATION_JSON)
+                .body(responseStreamer.body(
+                        () -> chatRoomService.listMembershipsForUser(user.getId()).stream(),
+                        membership -> toMyRoomEntry(membership, user), ndjson));
+    }
+
+    private Map<String, Object> toMyRoomEntry(RoomMembership membership, User user) {
+        ChatRoom room = membership.getRoom();
+        Map<String, Object> roomData = new HashMap<>();
+        roomData.put("id", room.getId());
+        String displayName = room.getName();
+        if (room.getRoomType() == ChatRoom.RoomType.DIRECT_MESSAGE) {
+            List<RoomMembership> roomMembers = chatRoomService.getRoomMembers(room.getId());
+            User otherUser = roomMembers.stream()
+                    .map(RoomMembership::getUser)
+                    .filter(u -> !u.getId().equals(user.getId()))
+                    .findFirst()
+                    .orElse(null);
+            if (otherUser != null) {
+                displayName = otherUser.getPhoneNumber() != null ? otherUser.getPhoneNumber() : otherUser.getUsername();
+            }
+        }
+
+        roomData.put("name", displayName);
+        roomData.put("description", room.getDescription() != null ? room.getDescription() : "");
+        roomData.put("roomType", room.getRoomType().name());
+        roomData.put("isPrivate", room.isPrivate());
+
+        List<com.example.chatservice.Model.Message> recentMessages = messageService.getRecentMessages(room.getId(), user.getId(), 1);
+        if (!recentMessages.isEmpty()) {
+            com.example.chatservice.Model.Message lastMsg = recentMessages.get(0);
+            String decryptedText = messageService.decrypt(lastMsg.getEncryptedContent());
+            Map<String, Object> lastMessageData = new HashMap<>();
+            lastMessageData.put("text", decryptedText);
+            lastMessageData.put("createdAt", lastMsg.getCreatedAt());
+            lastMessageData.put("senderName", lastMsg.getSender().getDisplayName());
+            roomData.put("lastMessage", lastMessageData);
+        }
+
+        Map<String, Object> membershipData = new HashMap<>();
+        membershipData.put("room", roomData);
+        membershipData.put("role", membership.getRole().name());
+        membershipData.put("joinedAt",
+                membership.getJoinedAt() != null ? membership.getJoinedAt().toString() : null);
+
+        return membershipData;
+    }
+
+    private static Map<String, Object> keyStatus(DataKey key) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("keyId", key.getId());
+        status.put("version", key.getVersion());
+        status.put("state", key.getState().name());
+        status.put("migratedCount", key.getMigratedCount());
+        status.put("createdAt", key.getCreatedAt());
+        return status;
+    }
+
     @PostMapping("/direct-message")
     @Operation(summary = "Create or get DM room", description = "Creates a new direct message room or retrieves an existing one between the current user and target user.")
     public ResponseEntity<?> createDirectMessage(@AuthenticationPrincipal UserDetails principal,
@@ -307,49 +381,27 @@ public class RoomController {
     }
 
     @GetMapping("/{roomId}/members")
-    @Operation(summary = "Get room members", description = "Retrieves a list of all members in a specific chat room.")
+    @Operation(summary = "Get room members", description = "Lists the members of a room a page at a time: admins first, then members who are online, then everyone else, alphabetically. Pass nextCursor back as cursor for the next page.")
     public ResponseEntity<?> getRoomMembers(@PathVariable String roomId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
             @AuthenticationPrincipal UserDetails principal) {
-        List<RoomMembership> members = chatRoomService.getRoomMembers(roomId);
-        if (members == null) {
-            return ResponseEntity.status(404).body(Map.of("error", "Room not found"));
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
         }
-
+        User requestingUser = userService.resolveUserByUsername(principal.getUsername());
         ChatRoom room = chatRoomService.findRoomById(roomId).orElse(null);
-        boolean roomMuted = room != null && room.isAllMembersMuted();
-
-        // Get requesting user for privacy filtering
-        User requestingUser = null;
-        if (principal != null) {
-            requestingUser = userService.findByUsername(principal.getUsername()).orElse(null);
+        if (room == null || !chatRoomService.canUserAccessRoom(requestingUser.getId(), roomId)) {
+            return ResponseEntity.status(404).body(Map.of("error", "Room not found"));
         }
-        final boolean requesterLastSeenVisible = requestingUser != null && requestingUser.isLastSeenVisible();
-
-        return ResponseEntity.ok(Map.of(
-            "allMembersMuted", roomMuted,
-            "members", members.stream().map(membership -> {
-                User memberUser = membership.getUser();
-                String effectiveStatus = memberUser.isShowOnlineStatus()
-                        ? memberUser.getStatus().toString()
-                        : "OFFLINE";
-                Object effectiveLastSeen = "";
-                if (memberUser.isLastSeenVisible() && requesterLastSeenVisible
-                        && memberUser.getLastSeenAt() != null) {
-                    effectiveLastSeen = memberUser.getLastSeenAt();
-                }
 
-                return Map.of(
-                    "id", membership.getUser().getId(),
-                    "username", membership.getUser().getUsername(),
-                    "displayName", membership.getUser().getDisplayName(),
-                    "status", effectiveStatus,
-                    "phoneNumber", membership.getUser().getPhoneNumber() != null ? membership.getUser().getPhoneNumber() : "",
-                    "lastSeenAt", effectiveLastSeen,
-                    "role", membership.getRole(),
-                    "canSendMessages", membership.isCanSendMessages(),
-                    "joinedAt", membership.getJoinedAt());
-            }).toList()
-        ));
+        int pageSize = limit != null ? Math.max(1, Math.min(limit, maxMembersPageSize)) : membersPageSize;
+        try {
+            return ResponseEntity.ok(chatRoomService.listMembers(room, requestingUser, cursor, pageSize,
+                    MEMBER_AVATAR_SIZE));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     // --- Admin Endpoints ---
@@ -424,6 +476,43 @@ public class RoomController {
         }
     }
 
+    @PutMapping("/{roomId}/slow-mode")
+    @Operation(summary = "Set slow mode", description = "Allows an admin to limit each member to one message every N seconds (0 turns it off).")
+    public ResponseEntity<?> setSlowMode(@PathVariable String roomId, @RequestParam int seconds,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        try {
+            User admin = userService.resolveUserByUsername(principal.getUsername());
+            ChatRoom updated = chatRoomService.setSlowMode(roomId, seconds, admin.getId());
+            chatRoomService.broadcastSlowModeChanged(roomId, admin, updated.getSlowModeSeconds());
+            return ResponseEntity.ok(Map.of("message", "Slow mode updated", "slowModeSeconds", updated.getSlowModeSeconds()));
+        } catch (Exception e) {
+            return ResponseEntity.status(403).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{roomId}/message-ttl")
+    @Operation(summary = "Set disappearing messages", description = "Allows an admin to have new messages deleted N seconds after they are sent (0 turns it off). Messages already sent keep their expiry.")
+    public ResponseEntity<?> setMessageTtl(@PathVariable String roomId, @RequestParam long seconds,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        try {
+            User admin = userService.resolveUserByUsername(principal.getUsername());
+            ChatRoom updated = chatRoomService.setMessageTtl(roomId, seconds, admin.getId());
+            chatRoomService.broadcastMessageTtlChanged(roomId, admin, updated.getMessageTtlSeconds());
+            return ResponseEntity.ok(Map.of("message", "Disappearing messages updated",
+                    "messageTtlSeconds", updated.getMessageTtlSeconds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(403).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/create-with-options")
     @Operation(summary = "Create room with extended options", description = "Creates a room with custom descriptions and initial members.")
     public ResponseEntity<?> createRoomWithOptions(@AuthenticationPrincipal UserDetails principal,
@@ -523,7 +612,7 @@ public class RoomController {
             }
 
             messageService.deleteAllMessagesInRoom(roomId);
-            chatRoomService.deleteRoom(roomId);
+            chatRoomService.deleteRoom(roomId, user.getId());
             chatRoomService.broadcastRoomDeleted(roomId, user);
 
             return ResponseEntity.ok(Map.of("message", "Room deleted successfully"));
@@ -554,6 +643,39 @@ public class RoomController {
         }
     }
 
+    @GetMapping("/{roomId}/keys")
+    @Operation(summary = "Get the room's data key", description = "Version and state of the key new messages in the room are encrypted with, and how many older messages have been re-encrypted under it. Admin only.")
+    public ResponseEntity<?> getRoomKey(@PathVariable String roomId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        if (!chatRoomService.isUserRoomAdmin(user.getId(), roomId)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Only admins can view the room's key"));
+        }
+        return cryptoService.currentKey(roomId)
+                .<ResponseEntity<?>>map(key -> ResponseEntity.ok(keyStatus(key)))
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "The room has no data key yet")));
+    }
+
+    @PostMapping("/{roomId}/keys/rotate")
+    @Operation(summary = "Rotate the room's data key", description = "Creates a new data key for the room. New messages use it right away; older messages are re-encrypted under it in the background, at a throttled rate. Admin only.")
+    public ResponseEntity<?> rotateRoomKey(@PathVariable String roomId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        if (chatRoomService.findRoomById(roomId).isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "Room not found"));
+        }
+        if (!chatRoomService.isUserRoomAdmin(user.getId(), roomId)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Only admins can rotate the room's key"));
+        }
+        return ResponseEntity.accepted().body(keyStatus(cryptoService.rotate(roomId)));
+    }
+
     @DeleteMapping("/{roomId}/messages/{messageId}")
     @Operation(summary = "Delete a specific message", description = "Deletes a specific message. Admin can delete any message. Sender can delete their own message.")
     public ResponseEntity<?> deleteMessage(@PathVariable String roomId,
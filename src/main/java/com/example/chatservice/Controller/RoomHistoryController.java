@@ -0,0 +1,147 @@
+package com.example.chatservice.Controller;
+
+import com.example.chatservice.Dto.response.RoomImportResult;
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.history.ExportJob;
+import com.example.chatservice.history.HistoryExporter;
+import com.example.chatservice.history.HistoryImporter;
+import com.example.chatservice.service.ChatRoomService;
+import com.example.chatservice.service.ResponseStreamer;
+import com.example.chatservice.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/rooms/{roomId}")
+@CrossOrigin(origins = "*")
+@Tag(name = "Room History", description = "Streamed export and bulk import of a room's whole message history, for room admins")
+public class RoomHistoryController {
+
+    private static final String EXPORT_ID = "X-Export-Id";
+    private static final MediaType ZIP = MediaType.parseMediaType("application/zip");
+
+    private final HistoryExporter historyExporter;
+    private final HistoryImporter historyImporter;
+    private final ChatRoomService chatRoomService;
+    private final UserService userService;
+
+    public RoomHistoryController(HistoryExporter historyExporter,
+            HistoryImporter historyImporter,
+            ChatRoomService chatRoomService,
+            UserService userService) {
+        this.historyExporter = historyExporter;
+        this.historyImporter = historyImporter;
+        this.chatRoomService = chatRoomService;
+        this.userService = userService;
+    }
+
+    @GetMapping(value = "/export", produces = {"application/x-ndjson", "application/zip"})
+    @Operation(summary = "Export room history", description = "Streams every message in the room, oldest first, decrypted and with sender names: NDJSON by default, or a zip with room.json and messages.ndjson with format=zip. The X-Export-Id header identifies the export for progress and cancellation.")
+    public ResponseEntity<StreamingResponseBody> exportHistory(@PathVariable String roomId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        Optional<ChatRoom> room = chatRoomService.findRoomById(roomId);
+        if (room.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        if (!chatRoomService.isUserRoomAdmin(user.getId(), roomId)) {
+            return ResponseEntity.status(403).build();
+        }
+        boolean zip = "zip".equalsIgnoreCase(format);
+        ExportJob job = historyExporter.start(room.get(), user.getId(),
+                zip ? HistoryExporter.Format.ZIP : HistoryExporter.Format.NDJSON);
+        return ResponseEntity.ok()
+                .header(EXPORT_ID, job.getId())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("room-" + roomId + (zip ? ".zip" : ".ndjson"))
+                        .build()
+                        .toString())
+                .contentType(zip ? ZIP : ResponseStreamer.NDJSON)
+                .body(historyExporter.body(room.get(), job));
+    }
+
+    @GetMapping("/export/{exportId}")
+    @Operation(summary = "Get export progress", description = "Messages written so far, the room's message count when the export started, and whether it is still running.")
+    public ResponseEntity<?> getExport(@PathVariable String roomId,
+            @PathVariable String exportId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        Optional<ExportJob> job = ownJob(roomId, exportId, user);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "Export not found"));
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(job.get().toProgress());
+    }
+
+    @DeleteMapping("/export/{exportId}")
+    @Operation(summary = "Cancel an export", description = "Stops a running export before its next batch. The download ends early and the export's state becomes CANCELLED.")
+    public ResponseEntity<?> cancelExport(@PathVariable String roomId,
+            @PathVariable String exportId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        Optional<ExportJob> job = ownJob(roomId, exportId, user);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "Export not found"));
+        }
+        job.get().cancel();
+        return ResponseEntity.accepted().body(job.get().toProgress());
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "application/zip", "text/plain"})
+    @Operation(summary = "Import room history", description = "Loads an export, as NDJSON or the exported zip, into the room in ordered batches. Content is encrypted under the room's current data key, senders are matched among the room's members by id or username (anyone else becomes the importing admin), attachments from other rooms are dropped, and receipts are rebuilt for the current members. Messages already present are skipped and reported.")
+    public ResponseEntity<?> importHistory(@PathVariable String roomId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @AuthenticationPrincipal UserDetails principal,
+            InputStream body) throws IOException {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        Optional<ChatRoom> room = chatRoomService.findRoomById(roomId);
+        if (room.isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "Room not found"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        if (!chatRoomService.isUserRoomAdmin(user.getId(), roomId)) {
+            return ResponseEntity.status(403).body(Map.of("error", "Only room admins can import history"));
+        }
+        try {
+            boolean zip = ZIP.isCompatibleWith(MediaType.parseMediaType(contentType));
+            RoomImportResult result = historyImporter.importHistory(room.get(), user, body, zip);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private Optional<ExportJob> ownJob(String roomId, String exportId, User user) {
+        return historyExporter.find(exportId)
+                .filter(job -> job.getRoomId().equals(roomId) && job.getUserId().equals(user.getId()));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.chatservice.Controller;
+
+import com.example.chatservice.Dto.request.ScheduleMessageRequest;
+import com.example.chatservice.Dto.response.ScheduledMessageDto;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.exception.ResourceNotFoundException;
+import com.example.chatservice.scheduled.ScheduledMessageService;
+import com.example.chatservice.service.UserService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/rooms/{roomId}/scheduled")
+@CrossOrigin(origins = "*")
+@Tag(name = "Scheduled Messages", description = "Messages sent later, at a time chosen by their sender")
+public class ScheduledMessageController {
+
+    private final ScheduledMessageService scheduledMessageService;
+    private final UserService userService;
+
+    public ScheduledMessageController(ScheduledMessageService scheduledMessageService,
+            UserService userService) {
+        this.scheduledMessageService = scheduledMessageService;
+        this.userService = userService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Schedule a message", description = "Sends content to the room at sendAt, as if typed then. ttlSeconds makes the message disappear that long after it is sent.")
+    public ResponseEntity<?> schedule(@PathVariable String roomId,
+            @RequestBody ScheduleMessageRequest request,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        try {
+            ScheduledMessageDto scheduled = scheduledMessageService.schedule(user, roomId, request);
+            return ResponseEntity.status(201).body(scheduled);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(403).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "List scheduled messages", description = "Your messages in this room that have not been sent yet, soonest first.")
+    public ResponseEntity<?> listPending(@PathVariable String roomId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        return ResponseEntity.ok(scheduledMessageService.listPending(user, roomId));
+    }
+
+    @GetMapping("/{scheduledId}")
+    @Operation(summary = "Get a scheduled message", description = "One of your scheduled messages in any state, with the id of the message it became once sent.")
+    public ResponseEntity<?> get(@PathVariable String roomId,
+            @PathVariable String scheduledId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        return ResponseEntity.ok(scheduledMessageService.get(user, roomId, scheduledId));
+    }
+
+    @PatchMapping("/{scheduledId}")
+    @Operation(summary = "Edit a scheduled message", description = "Changes the content, sendAt or ttlSeconds of a message not sent yet; omitted fields are kept. 409 if it has been sent or cancelled, or is being sent.")
+    public ResponseEntity<?> edit(@PathVariable String roomId,
+            @PathVariable String scheduledId,
+            @RequestBody ScheduleMessageRequest request,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        try {
+            return ResponseEntity.ok(scheduledMessageService.edit(user, roomId, scheduledId, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{scheduledId}")
+    @Operation(summary = "Cancel a scheduled message", description = "Drops a message that has not been sent yet. 409 if it has been sent or cancelled, or is being sent.")
+    public ResponseEntity<?> cancel(@PathVariable String roomId,
+            @PathVariable String scheduledId,
+            @AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        User user = userService.resolveUserByUsername(principal.getUsername());
+        try {
+            return ResponseEntity.ok(scheduledMessageService.cancel(user, roomId, scheduledId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.chatservice.Controller;
 
+import com.example.chatservice.Dto.request.UserSummariesRequest;
 import com.example.chatservice.Model.User;
 import com.example.chatservice.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -22,10 +24,15 @@ import java.util.Optional;
 @Tag(name = "User Management", description = "Endpoints for managing user profiles and searching users")
 public class UserController {
 
+    private static final int DEFAULT_AVATAR_SIZE = 48;
+
     private final UserService userService;
+    private final int batchLimit;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService,
+            @Value("${app.users.batch-limit:500}") int batchLimit) {
         this.userService = userService;
+        this.batchLimit = batchLimit;
     }
 
     @GetMapping("/search")
@@ -183,6 +190,24 @@ public class UserController {
         return ResponseEntity.ok(result);
     }
 
+    @PostMapping("/summaries")
+    @Operation(summary = "Batch user summaries", description = "Returns display name, avatar URL, status and last seen for up to app.users.batch-limit user ids in one call, with each user's privacy settings applied.")
+    public ResponseEntity<?> getUserSummaries(@AuthenticationPrincipal UserDetails userDetails,
+            @RequestBody UserSummariesRequest request) {
+        if (userDetails == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        }
+        if (request.ids() == null || request.ids().isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        if (request.ids().size() > batchLimit) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + batchLimit + " ids per request"));
+        }
+        User viewer = userService.resolveUserByUsername(userDetails.getUsername());
+        int avatarSize = request.avatarSize() != null ? request.avatarSize() : DEFAULT_AVATAR_SIZE;
+        return ResponseEntity.ok(userService.getUserSummaries(viewer, request.ids(), avatarSize));
+    }
+
     // ---- CRUD Endpoints ----
 
     @GetMapping
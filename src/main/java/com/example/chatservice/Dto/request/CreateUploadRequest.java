@@ -0,0 +1,4 @@
+package com.example.chatservice.Dto.request;
+
+public record CreateUploadRequest(String roomId, String fileName, String contentType, Long size, String sha256) {
+}
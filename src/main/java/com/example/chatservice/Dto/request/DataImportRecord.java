@@ -0,0 +1,11 @@
+package com.example.chatservice.Dto.request;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of an NDJSON import. Matches the lines written by the export, so an export can be imported
+ * elsewhere as is; {@code id} and the timestamps are optional.
+ */
+public record DataImportRecord(String id, String title, String content, LocalDateTime createdAt,
+                               LocalDateTime updatedAt) {
+}
@@ -0,0 +1,10 @@
+package com.example.chatservice.Dto.request;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fields to change on a data entry; null fields are left alone. With {@code expectedUpdatedAt} the update
+ * only applies if the entry has not changed since that time.
+ */
+public record DataPatchRequest(String title, String content, LocalDateTime expectedUpdatedAt) {
+}
@@ -0,0 +1,9 @@
+package com.example.chatservice.Dto.request;
+
+import java.time.Instant;
+
+/**
+ * A message to send at {@code sendAt}. When editing, null fields are left as they are.
+ */
+public record ScheduleMessageRequest(String content, Instant sendAt, Long ttlSeconds) {
+}
@@ -0,0 +1,6 @@
+package com.example.chatservice.Dto.request;
+
+import java.util.List;
+
+public record UserSummariesRequest(List<String> ids, Integer avatarSize) {
+}
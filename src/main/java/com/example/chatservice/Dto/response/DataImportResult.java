@@ -0,0 +1,13 @@
+package com.example.chatservice.Dto.response;
+
+import java.util.List;
+
+/**
+ * Outcome of an NDJSON import. {@code errors} lists the first rejected lines, by line number; {@code failed}
+ * counts all of them.
+ */
+public record DataImportResult(long lines, long inserted, long failed, List<LineError> errors) {
+
+    public record LineError(long line, String error) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.chatservice.Dto.response;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One line of a room history export, and of an import. {@code content} is the decrypted text, or null if it
+ * could not be decrypted; an import encrypts it again under the room's current data key.
+ */
+public record ExportedMessage(
+        String id,
+        Long seq,
+        String senderId,
+        String senderUsername,
+        String senderDisplayName,
+        String messageType,
+        String content,
+        String attachmentId,
+        Instant createdAt,
+        Instant editedAt,
+        Long viewCount,
+        List<Receipt> receipts,
+        List<String> deletedForUsers) {
+
+    public record Receipt(String userId, String status, Instant deliveredAt, Instant seenAt) {
+    }
+}
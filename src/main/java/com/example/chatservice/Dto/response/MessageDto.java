@@ -12,9 +12,15 @@ public record MessageDto(
         String status,
         Instant createdAt,
         Long timestamp,
-        Instant editedAt) {
-    public MessageDto(String id, SenderDto sender, String text, String status, Instant createdAt, Instant editedAt) {
-        this(id, sender, text, text, status, createdAt, createdAt != null ? createdAt.toEpochMilli() : null, editedAt);
+        Instant editedAt,
+        String messageType,
+        String attachmentId,
+        long viewCount,
+        Instant expiresAt) {
+    public MessageDto(String id, SenderDto sender, String text, String status, Instant createdAt, Instant editedAt,
+                      String messageType, String attachmentId, long viewCount, Instant expiresAt) {
+        this(id, sender, text, text, status, createdAt, createdAt != null ? createdAt.toEpochMilli() : null, editedAt,
+                messageType, attachmentId, viewCount, expiresAt);
     }
 
     public record SenderDto(String username, String displayName, User.UserStatus status) {
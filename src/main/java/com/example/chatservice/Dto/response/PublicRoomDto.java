@@ -0,0 +1,13 @@
+package com.example.chatservice.Dto.response;
+
+/**
+ * A room as listed in the public room catalog.
+ */
+public record PublicRoomDto(
+        String id,
+        String name,
+        String description,
+        String roomType,
+        boolean isPrivate,
+        long memberCount) {
+}
@@ -0,0 +1,14 @@
+package com.example.chatservice.Dto.response;
+
+import java.util.List;
+
+/**
+ * One page of the public room catalog. The catalog version travels in a response header, so a page's
+ * body, and its ETag, only change when the page does.
+ */
+public record PublicRoomsPage(
+        int page,
+        int totalPages,
+        int totalRooms,
+        List<PublicRoomDto> rooms) {
+}
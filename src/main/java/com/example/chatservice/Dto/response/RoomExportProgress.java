@@ -0,0 +1,18 @@
+package com.example.chatservice.Dto.response;
+
+import java.time.Instant;
+
+/**
+ * Where a room history export stands. {@code total} is the room's message count when the export started.
+ */
+public record RoomExportProgress(
+        String exportId,
+        String roomId,
+        String format,
+        String state,
+        long total,
+        long written,
+        Instant startedAt,
+        Instant finishedAt,
+        String error) {
+}
@@ -0,0 +1,13 @@
+package com.example.chatservice.Dto.response;
+
+import java.util.List;
+
+/**
+ * Outcome of a room history import. {@code errors} lists the first rejected lines, by line number;
+ * {@code failed} counts all of them.
+ */
+public record RoomImportResult(long lines, long imported, long failed, List<LineError> errors) {
+
+    public record LineError(long line, String error) {
+    }
+}
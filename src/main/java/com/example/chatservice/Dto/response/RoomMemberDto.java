@@ -0,0 +1,21 @@
+package com.example.chatservice.Dto.response;
+
+import com.example.chatservice.Model.RoomMembership;
+
+import java.time.Instant;
+
+/**
+ * A room member as other members see them; status and last seen follow the member's privacy settings.
+ */
+public record RoomMemberDto(
+        String id,
+        String username,
+        String displayName,
+        String phoneNumber,
+        String status,
+        Instant lastSeenAt,
+        String avatarUrl,
+        RoomMembership.Role role,
+        boolean canSendMessages,
+        Instant joinedAt) {
+}
@@ -0,0 +1,15 @@
+package com.example.chatservice.Dto.response;
+
+import java.util.List;
+
+/**
+ * One page of a room's members. {@code total} counts all active members; {@code nextCursor} is null on the
+ * last page.
+ */
+public record RoomMembersPage(
+        boolean allMembersMuted,
+        int slowModeSeconds,
+        long total,
+        List<RoomMemberDto> members,
+        String nextCursor) {
+}
@@ -0,0 +1,20 @@
+package com.example.chatservice.Dto.response;
+
+import java.time.Instant;
+
+/**
+ * A scheduled message as its sender sees it. Once SENT, {@code messageId} is the message it became; a FAILED
+ * one carries the reason in {@code failure}.
+ */
+public record ScheduledMessageDto(
+        String id,
+        String roomId,
+        String content,
+        Instant sendAt,
+        Long ttlSeconds,
+        String state,
+        String messageId,
+        String failure,
+        Instant createdAt,
+        Instant updatedAt) {
+}
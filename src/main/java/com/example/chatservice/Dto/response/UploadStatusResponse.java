@@ -0,0 +1,16 @@
+package com.example.chatservice.Dto.response;
+
+/**
+ * State of a chunked upload. {@code offset} is where the next chunk must start; once the upload is complete,
+ * {@code attachmentId} and {@code messageId} identify the stored file and the message announcing it.
+ */
+public record UploadStatusResponse(
+        String uploadId,
+        String roomId,
+        String fileName,
+        long size,
+        long offset,
+        boolean complete,
+        String attachmentId,
+        String messageId) {
+}
@@ -0,0 +1,16 @@
+package com.example.chatservice.Dto.response;
+
+import java.time.Instant;
+
+/**
+ * What other users see of a user in lists: privacy settings are already applied, so {@code avatarUrl}
+ * and {@code lastSeenAt} may be null and {@code status} reads OFFLINE for users who hide it.
+ */
+public record UserSummaryDto(
+        String id,
+        String username,
+        String displayName,
+        String avatarUrl,
+        String status,
+        Instant lastSeenAt) {
+}
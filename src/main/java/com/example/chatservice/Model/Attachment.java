@@ -0,0 +1,53 @@
+package com.example.chatservice.Model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A file shared in a room. The bytes live once on disk under their SHA-256; every upload of the same
+ * content gets its own record with its own name and room.
+ */
+@Document(collection = "attachments")
+@Data
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class Attachment {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private String id;
+
+    @Indexed
+    private String sha256;
+
+    @Indexed
+    private String roomId;
+
+    private String uploaderId;
+
+    private String fileName;
+
+    private String contentType;
+
+    private long size;
+
+    @CreatedDate
+    private Instant createdAt;
+
+    // The expiry of the disappearing message that posted it; the TTL index is a safety net like Message's
+    @Indexed(expireAfter = "10m")
+    private Instant expiresAt;
+
+    public boolean isImage() {
+        return contentType != null && contentType.startsWith("image/");
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+}
@@ -41,6 +41,12 @@ public class ChatRoom {
     // Indicates if only admins can send messages
     private boolean allMembersMuted = false;
 
+    // Slow mode: minimum seconds between messages from each non-admin member (0 = off)
+    private int slowModeSeconds = 0;
+
+    // Disappearing messages: seconds a new message lives before it is deleted (0 = kept forever)
+    private long messageTtlSeconds = 0;
+
     @DBRef
     @JsonIgnoreProperties({ "passwordHash", "roles", "email", "lastSeenAt", "createdAt", "updatedAt" })
     private User createdBy;
@@ -129,6 +135,22 @@ public class ChatRoom {
         this.allMembersMuted = allMembersMuted;
     }
 
+    public int getSlowModeSeconds() {
+        return slowModeSeconds;
+    }
+
+    public void setSlowModeSeconds(int slowModeSeconds) {
+        this.slowModeSeconds = slowModeSeconds;
+    }
+
+    public long getMessageTtlSeconds() {
+        return messageTtlSeconds;
+    }
+
+    public void setMessageTtlSeconds(long messageTtlSeconds) {
+        this.messageTtlSeconds = messageTtlSeconds;
+    }
+
     public String getPasswordHash() {
         return passwordHash;
     }
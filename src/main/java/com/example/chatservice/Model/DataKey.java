@@ -0,0 +1,61 @@
+package com.example.chatservice.Model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A room's AES data key, stored wrapped (encrypted) under a master key. The id is {@code roomId.version}, so
+ * two instances creating the same version collide on {@code _id} instead of both succeeding.
+ *
+ * <p>The newest version of a room encrypts new messages. It starts out {@link State#MIGRATING} while the
+ * room's older messages are re-encrypted under it, then becomes {@link State#ACTIVE}; superseded versions
+ * are {@link State#RETIRED} and are kept so anything still encrypted under them can be read.
+ */
+@Document(collection = "data_keys")
+@CompoundIndex(name = "idx_room_version", def = "{'roomId': 1, 'version': -1}")
+@Data
+public class DataKey {
+
+    public enum State {
+        MIGRATING, ACTIVE, RETIRED
+    }
+
+    @Id
+    private String id;
+
+    private String roomId;
+
+    private int version;
+
+    /**
+     * Base64 of the 12-byte IV followed by the key encrypted under the master key.
+     */
+    private String wrappedKey;
+
+    /**
+     * Which master key wrapped {@link #wrappedKey}; see {@code CryptoService#masterKeyId}.
+     */
+    @Indexed
+    private String masterKeyId;
+
+    @Indexed
+    private State state;
+
+    /**
+     * While migrating, the id of the last message already re-encrypted; null before the first batch.
+     */
+    private String migratedUpTo;
+
+    private long migratedCount;
+
+    private Instant createdAt;
+
+    public static String idOf(String roomId, int version) {
+        return roomId + "." + version;
+    }
+}
@@ -15,6 +15,8 @@ import java.util.List;
 
 @Document(collection = "messages")
 @CompoundIndex(name = "idx_room_created", def = "{'roomId': 1, 'createdAt': -1}")
+@CompoundIndex(name = "idx_room_seq", def = "{'roomId': 1, 'seq': 1}")
+@CompoundIndex(name = "idx_room_id", def = "{'roomId': 1, '_id': 1}")
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Message {
@@ -35,10 +37,19 @@ public class Message {
     @Indexed
     private String senderId;
 
+    // Per-room position, assigned when the message is persisted; 0 for messages stored before sequencing
+    private long seq;
+
     private String encryptedContent;
 
     private MessageType messageType = MessageType.TEXT;
 
+    // Set on IMAGE and FILE messages; the content is then the attachment's file name or caption
+    private String attachmentId;
+
+    // Readers who acked this message; only kept for broadcast channels, which have no receipts
+    private long viewCount;
+
     private MessageStatus status = MessageStatus.SENT;
 
     private List<MessageReceipt> receipts = new ArrayList<>();
@@ -48,6 +59,11 @@ public class Message {
 
     private Instant editedAt;
 
+    // Disappearing messages: deleted by MessageExpiry at this time. The TTL index is only a safety net for
+    // messages no instance got to, so it waits a while longer and does not race the broadcast deletes.
+    @Indexed(expireAfter = "10m")
+    private Instant expiresAt;
+
     private List<String> deletedForUsers = new ArrayList<>();
 
     public enum MessageType {
@@ -125,6 +141,13 @@ public class Message {
         }
     }
 
+    /**
+     * Past its expiry but possibly not deleted yet; reads treat it as gone.
+     */
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
     /**
      * Recalculates the overall message status based on all receipts.
      * Uses MAX logic: status is the MINIMUM across all receipts
@@ -174,6 +197,14 @@ public class Message {
         }
     }
 
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
     public String getEncryptedContent() {
         return encryptedContent;
     }
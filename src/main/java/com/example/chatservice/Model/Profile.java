@@ -9,6 +9,7 @@ import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.Map;
 
 @Document(collection = "profiles")
 @Data
@@ -24,6 +25,9 @@ public class Profile {
 
     private String avatarUrl;
 
+    // Resized copies of the avatar keyed by edge length in pixels ("48", "96", ...), once processed
+    private Map<String, String> avatarVariants;
+
     private String bio;
 
     private String profilePicVisibility = "PUBLIC";
@@ -58,6 +62,36 @@ public class Profile {
         this.avatarUrl = avatarUrl;
     }
 
+    public Map<String, String> getAvatarVariants() {
+        return avatarVariants;
+    }
+
+    public void setAvatarVariants(Map<String, String> avatarVariants) {
+        this.avatarVariants = avatarVariants;
+    }
+
+    /**
+     * The smallest avatar variant at least {@code size} pixels wide, or the largest one if none is, falling
+     * back to {@link #getAvatarUrl()} until variants exist.
+     */
+    public String avatarUrlFor(int size) {
+        if (avatarVariants == null || avatarVariants.isEmpty()) {
+            return avatarUrl;
+        }
+        String best = null;
+        int bestSize = 0;
+        for (Map.Entry<String, String> variant : avatarVariants.entrySet()) {
+            int variantSize = Integer.parseInt(variant.getKey());
+            boolean better = best == null
+                    || (bestSize < size ? variantSize > bestSize : variantSize >= size && variantSize < bestSize);
+            if (better) {
+                best = variant.getValue();
+                bestSize = variantSize;
+            }
+        }
+        return best;
+    }
+
     public String getBio() {
         return bio;
     }
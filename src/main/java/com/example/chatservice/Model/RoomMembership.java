@@ -11,9 +11,11 @@ import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
+import java.util.Locale;
 
 @Document(collection = "room_memberships")
 @CompoundIndex(name = "uk_room_user", def = "{'roomId': 1, 'userId': 1}", unique = true)
+@CompoundIndex(name = "room_member_list", def = "{'roomId': 1, 'isActive': 1, 'listTier': 1, 'sortName': 1, 'userId': 1}")
 @Data
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class RoomMembership {
@@ -48,10 +50,52 @@ public class RoomMembership {
 
     private Instant leftAt;
 
+    // Position in the member list, copied from the role and the user so a page can be read off an index.
+    // Null on memberships saved before it was kept.
+    private Integer listTier;
+
+    private String sortName;
+
     public enum Role {
         ADMIN, MODERATOR, MEMBER
     }
 
+    /**
+     * Member list tier: admins, moderators, members who show as online, then everyone else.
+     */
+    public static int listTier(Role role, User user) {
+        if (role == Role.ADMIN) {
+            return 0;
+        }
+        if (role == Role.MODERATOR) {
+            return 1;
+        }
+        return isListedOnline(user) ? 2 : 3;
+    }
+
+    /**
+     * Online as anyone but the user themselves sees it.
+     */
+    public static boolean isListedOnline(User user) {
+        return user.isShowOnlineStatus() && user.getStatus() == User.UserStatus.ONLINE;
+    }
+
+    public static String sortName(User user) {
+        String name = user.getDisplayName() != null ? user.getDisplayName() : user.getUsername();
+        return name != null ? name.toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Recomputes the member list position from the role and the loaded user. Without a user the current
+     * position is kept.
+     */
+    public void refreshListing() {
+        if (user != null) {
+            listTier = listTier(role, user);
+            sortName = sortName(user);
+        }
+    }
+
     public void setRoom(ChatRoom room) {
         this.room = room;
         if (room != null) {
@@ -0,0 +1,67 @@
+package com.example.chatservice.Model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A message a user asked to have sent later. It stays {@link State#PENDING} until {@link #dueAt}, when an
+ * instance claims it with a short lease, sends it like any other message and marks it {@link State#SENT}, or
+ * {@link State#FAILED} if it could no longer be sent. The lease keeps other instances, and edits, away while
+ * it is being sent.
+ */
+@Document(collection = "scheduled_messages")
+@CompoundIndex(name = "idx_state_due", def = "{'state': 1, 'dueAt': 1}")
+@CompoundIndex(name = "idx_sender_room_state", def = "{'senderId': 1, 'roomId': 1, 'state': 1}")
+@Data
+public class ScheduledMessage {
+
+    public enum State {
+        PENDING, SENT, CANCELLED, FAILED
+    }
+
+    @Id
+    private String id;
+
+    private String roomId;
+
+    private String senderId;
+
+    private String senderUsername;
+
+    // Encrypted like message content, under the room's data key at the time it was scheduled or edited
+    private String encryptedContent;
+
+    // Optional disappearing-message TTL for the message once sent
+    private Long ttlSeconds;
+
+    private Instant dueAt;
+
+    private State state = State.PENDING;
+
+    /**
+     * Identifies the claim that currently holds the message; only that claim can complete it.
+     */
+    private String leaseToken;
+
+    private Instant leaseUntil;
+
+    // Set once SENT
+    private String messageId;
+
+    private Instant sentAt;
+
+    private String failure;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    // Finished entries are dropped a week after they were sent, cancelled or failed
+    @Indexed(expireAfter = "7d")
+    private Instant completedAt;
+}
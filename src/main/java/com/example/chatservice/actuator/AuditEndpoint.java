@@ -0,0 +1,54 @@
+package com.example.chatservice.actuator;
+
+import com.example.chatservice.audit.AuditJournal;
+import com.example.chatservice.audit.AuditRecord;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/audit?roomId=&actorId=&from=&to=&limit=}: admin and moderation actions, newest first.
+ * {@code from} / {@code to} are ISO-8601 instants.
+ */
+@Component
+@Endpoint(id = "audit")
+public class AuditEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final AuditJournal auditJournal;
+
+    public AuditEndpoint(AuditJournal auditJournal) {
+        this.auditJournal = auditJournal;
+    }
+
+    @ReadOperation
+    public Map<String, Object> query(@Nullable String roomId, @Nullable String actorId,
+                                     @Nullable String from, @Nullable String to, @Nullable Integer limit) {
+        int max = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<AuditRecord> records = auditJournal.query(roomId, actorId, parse("from", from), parse("to", to), max);
+        return Map.of(
+                "count", records.size(),
+                "records", records.stream().map(AuditRecord::toMap).toList());
+    }
+
+    private static Instant parse(String name, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidEndpointRequestException("Invalid '" + name + "': " + value,
+                    "'" + name + "' must be an ISO-8601 instant");
+        }
+    }
+}
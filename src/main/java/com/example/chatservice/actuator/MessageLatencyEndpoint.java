@@ -0,0 +1,27 @@
+package com.example.chatservice.actuator;
+
+import com.example.chatservice.service.MessageLatencyTracker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/messagelatency}: rolling lifecycle percentiles per room-size bucket and recent slow messages.
+ */
+@Component
+@Endpoint(id = "messagelatency")
+public class MessageLatencyEndpoint {
+
+    private final MessageLatencyTracker tracker;
+
+    public MessageLatencyEndpoint(MessageLatencyTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @ReadOperation
+    public Map<String, Object> latency() {
+        return tracker.report();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.chatservice.actuator;
+
+import com.example.chatservice.querystats.MongoCommandTracker;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/mongoqueries?source=}: MongoDB command statistics per repository method and caller,
+ * recent slow commands and their explain plans. {@code source} filters by prefix, e.g.
+ * {@code MessageRepository}. {@code DELETE} clears everything.
+ */
+@Component
+@Endpoint(id = "mongoqueries")
+public class MongoQueriesEndpoint {
+
+    private final MongoCommandTracker tracker;
+
+    public MongoQueriesEndpoint(MongoCommandTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @ReadOperation
+    public Map<String, Object> queries(@Nullable String source) {
+        return tracker.report(source);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        tracker.reset();
+    }
+}
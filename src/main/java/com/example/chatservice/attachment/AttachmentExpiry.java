@@ -0,0 +1,56 @@
+package com.example.chatservice.attachment;
+
+import com.example.chatservice.Model.Attachment;
+import com.example.chatservice.store.AttachmentStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Removes the files of disappearing messages. An attachment posted to a room with a message TTL takes the
+ * expiry of the message announcing it; once that has passed, the record is deleted, and the blob with it
+ * unless another record still points at the same content.
+ */
+@Component
+public class AttachmentExpiry {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentExpiry.class);
+
+    private final AttachmentStore attachmentStore;
+    private final AttachmentStorage storage;
+
+    public AttachmentExpiry(AttachmentStore attachmentStore, AttachmentStorage storage) {
+        this.attachmentStore = attachmentStore;
+        this.storage = storage;
+    }
+
+    /**
+     * Removes those of the attachments whose expiry has passed. Attachments without one, such as a file an
+     * import refers to, are left alone.
+     */
+    public void removeExpired(Collection<String> attachmentIds) {
+        Instant now = Instant.now();
+        for (String attachmentId : attachmentIds) {
+            attachmentStore.findById(attachmentId)
+                    .filter(attachment -> attachment.isExpired(now))
+                    .ifPresent(this::remove);
+        }
+    }
+
+    private void remove(Attachment attachment) {
+        attachmentStore.deleteById(attachment.getId());
+        if (!attachmentStore.findBySha256(attachment.getSha256()).isEmpty()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(storage.blobPath(attachment.getSha256()));
+        } catch (IOException e) {
+            log.warn("Failed to delete blob {}: {}", attachment.getSha256(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.example.chatservice.attachment;
+
+import com.example.chatservice.Dto.request.CreateUploadRequest;
+import com.example.chatservice.Dto.response.UploadStatusResponse;
+import com.example.chatservice.Model.Attachment;
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.exception.ResourceNotFoundException;
+import com.example.chatservice.exception.UploadOffsetConflictException;
+import com.example.chatservice.service.ChatRoomService;
+import com.example.chatservice.service.MessageService;
+import com.example.chatservice.store.AttachmentStore;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable chunked uploads. A client declares the file, then PUTs chunks in order, each starting at the
+ * offset the server reports; after an interruption it asks for the offset and continues from there. The
+ * SHA-256 is computed while the bytes stream to disk, so completing an upload never re-reads the file
+ * unless the server restarted in between. The finished file is stored under its hash and announced in
+ * the room as an IMAGE or FILE message.
+ *
+ * <p>If the client sends the hash up front and that content is already stored in a room the user can read,
+ * the upload completes immediately without any bytes being sent.
+ *
+ * <p>Uploads left idle for {@code app.attachments.upload-ttl-hours} are dropped, with their part files, every
+ * {@code app.attachments.sweep-interval-ms}.
+ */
+@Service
+public class AttachmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentService.class);
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("[0-9a-f]{24}");
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final int MAX_FILE_NAME_LENGTH = 255;
+
+    private final AttachmentStorage storage;
+    private final AttachmentStore attachmentStore;
+    private final ChatRoomService chatRoomService;
+    private final MessageService messageService;
+    private final long maxSizeBytes;
+    private final long maxChunkBytes;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public AttachmentService(AttachmentStorage storage,
+                             AttachmentStore attachmentStore,
+                             ChatRoomService chatRoomService,
+                             MessageService messageService,
+                             @Value("${app.attachments.max-size-mb:100}") long maxSizeMb,
+                             @Value("${app.attachments.max-chunk-mb:8}") long maxChunkMb) {
+        this.storage = storage;
+        this.attachmentStore = attachmentStore;
+        this.chatRoomService = chatRoomService;
+        this.messageService = messageService;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.maxChunkBytes = maxChunkMb * 1024 * 1024;
+    }
+
+    /**
+     * In-progress upload. The digest covers exactly the first {@code offset} bytes of the part, or is null
+     * when it has to be rebuilt from disk.
+     */
+    private static final class UploadSession {
+        final PendingUpload upload;
+        final ReentrantLock lock = new ReentrantLock();
+        MessageDigest digest;
+        long offset;
+        volatile long lastActivityMillis = System.currentTimeMillis();
+
+        UploadSession(PendingUpload upload) {
+            this.upload = upload;
+        }
+    }
+
+    /**
+     * Starts an upload. Throws {@link IllegalArgumentException} for an invalid request and
+     * {@link IllegalStateException} if the user may not post in the room.
+     */
+    public UploadStatusResponse createUpload(User user, CreateUploadRequest request) {
+        if (request.roomId() == null || request.roomId().isBlank()) {
+            throw new IllegalArgumentException("roomId is required");
+        }
+        if (request.size() == null || request.size() <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        if (request.size() > maxSizeBytes) {
+            throw new IllegalArgumentException("File exceeds the maximum size of " + maxSizeBytes + " bytes");
+        }
+        String sha256 = request.sha256() != null ? request.sha256().toLowerCase() : null;
+        if (sha256 != null && !SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("sha256 must be 64 hex characters");
+        }
+        checkCanPost(user, request.roomId());
+
+        PendingUpload upload = new PendingUpload(new ObjectId().toHexString(), request.roomId(), user.getId(),
+                sanitizeFileName(request.fileName()), contentType(request.contentType()), request.size(), sha256,
+                Instant.now());
+
+        if (sha256 != null && storage.hasBlob(sha256) && canReuse(user, sha256, request.size())) {
+            log.debug("Upload {} in room {} deduplicated against existing content {}", upload.id(), upload.roomId(), sha256);
+            return publish(upload, sha256, user);
+        }
+
+        storage.create(upload);
+        UploadSession session = new UploadSession(upload);
+        session.digest = AttachmentStorage.newDigest();
+        sessions.put(upload.id(), session);
+        return status(session);
+    }
+
+    public UploadStatusResponse getStatus(User user, String uploadId) {
+        UploadSession session = session(user, uploadId);
+        return status(session);
+    }
+
+    /**
+     * Writes one chunk starting at {@code offset}, which must be the current end of the upload. The last
+     * chunk completes the upload, provided the user may still post in the room; if not, the upload is discarded.
+     */
+    public UploadStatusResponse appendChunk(User user, String uploadId, long offset, InputStream body) {
+        UploadSession session = session(user, uploadId);
+        if (!session.lock.tryLock()) {
+            throw new UploadOffsetConflictException("Another chunk is being written", session.offset);
+        }
+        try {
+            if (sessions.get(uploadId) != session) {
+                // Swept or aborted while this request waited
+                throw new ResourceNotFoundException("Upload not found");
+            }
+            session.lastActivityMillis = System.currentTimeMillis();
+            if (offset != session.offset) {
+                throw new UploadOffsetConflictException("Chunk must start at offset " + session.offset, session.offset);
+            }
+            PendingUpload upload = session.upload;
+            long remaining = upload.size() - offset;
+            long limit = Math.min(remaining, maxChunkBytes);
+            try {
+                if (session.digest == null) {
+                    session.digest = storage.hashPart(uploadId);
+                }
+                long written = storage.append(uploadId, offset, body, limit, session.digest);
+                session.offset = offset + written;
+                session.lastActivityMillis = System.currentTimeMillis();
+                if (written == limit && body.read() != -1) {
+                    // Too much data: the bytes past the limit were never read, the digest stays in step
+                    throw new IllegalArgumentException(limit == remaining
+                            ? "Chunk runs past the declared size of " + upload.size() + " bytes"
+                            : "Chunk exceeds the maximum of " + maxChunkBytes + " bytes");
+                }
+            } catch (IOException e) {
+                // Keep whatever reached the disk and rebuild the hash from it on the next chunk
+                session.digest = null;
+                session.offset = partSize(uploadId);
+                throw new UncheckedIOException("Chunk interrupted at offset " + session.offset, e);
+            }
+
+            if (session.offset < upload.size()) {
+                return status(session);
+            }
+            return complete(user, session);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    public void abort(User user, String uploadId) {
+        UploadSession session = session(user, uploadId);
+        session.lock.lock();
+        try {
+            sessions.remove(uploadId);
+            storage.discard(uploadId);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops sessions idle for longer than the upload TTL and deletes their files, then removes part files
+     * without a session by the same rule the startup sweep uses. A session mid-chunk is left for next time.
+     */
+    @Scheduled(fixedDelayString = "${app.attachments.sweep-interval-ms:600000}",
+            initialDelayString = "${app.attachments.sweep-interval-ms:600000}")
+    public void sweepIdleUploads() {
+        long cutoff = System.currentTimeMillis() - storage.uploadTtl().toMillis();
+        int expired = 0;
+        for (Map.Entry<String, UploadSession> entry : sessions.entrySet()) {
+            UploadSession session = entry.getValue();
+            if (session.lastActivityMillis >= cutoff || !session.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (session.lastActivityMillis < cutoff && sessions.remove(entry.getKey(), session)) {
+                    storage.discard(entry.getKey());
+                    expired++;
+                }
+            } finally {
+                session.lock.unlock();
+            }
+        }
+        int orphaned;
+        try {
+            orphaned = storage.sweepStaleUploads(sessions::containsKey);
+        } catch (IOException e) {
+            log.warn("Failed to sweep stale uploads: {}", e.getMessage());
+            orphaned = 0;
+        }
+        if (expired + orphaned > 0) {
+            log.info("Removed {} idle upload session(s) and {} stale upload file(s)", expired, orphaned);
+        }
+    }
+
+    /**
+     * The attachment, if it exists, has not expired with its message, and the user can read the room it was
+     * posted in.
+     */
+    public Attachment findReadable(User user, String attachmentId) {
+        Instant now = Instant.now();
+        return attachmentStore.findById(attachmentId)
+                .filter(a -> !a.isExpired(now))
+                .filter(a -> chatRoomService.canUserAccessRoom(user.getId(), a.getRoomId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Attachment not found"));
+    }
+
+    private UploadStatusResponse complete(User user, UploadSession session) {
+        PendingUpload upload = session.upload;
+        String actual;
+        try {
+            if (session.digest == null) {
+                session.digest = storage.hashPart(upload.id());
+            }
+            actual = AttachmentStorage.hex(session.digest);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sessions.remove(upload.id());
+        try {
+            // Access may have been lost since the upload started, possibly before a restart
+            checkCanPost(user, upload.roomId());
+        } catch (RuntimeException e) {
+            storage.discard(upload.id());
+            throw e;
+        }
+        if (upload.sha256() != null && !upload.sha256().equals(actual)) {
+            storage.discard(upload.id());
+            throw new IllegalArgumentException("Content does not match the declared sha256; the upload was discarded");
+        }
+        try {
+            storage.commit(upload.id(), actual);
+        } catch (IOException e) {
+            storage.discard(upload.id());
+            throw new UncheckedIOException(e);
+        }
+        return publish(upload, actual, user);
+    }
+
+    private UploadStatusResponse publish(PendingUpload upload, String sha256, User user) {
+        Attachment attachment = new Attachment();
+        attachment.setSha256(sha256);
+        attachment.setRoomId(upload.roomId());
+        attachment.setUploaderId(upload.uploaderId());
+        attachment.setFileName(upload.fileName());
+        attachment.setContentType(upload.contentType());
+        attachment.setSize(upload.size());
+        attachment = attachmentStore.save(attachment);
+
+        Message message = messageService.saveAttachmentMessage(attachment, user);
+        if (message.getExpiresAt() != null) {
+            // The file disappears with the message
+            attachment.setExpiresAt(message.getExpiresAt());
+            attachment = attachmentStore.save(attachment);
+        }
+        messageService.broadcastNewMessage(message, user, attachment.getFileName(), null);
+        log.debug("📎 Attachment {} ({} bytes) posted to room {}", attachment.getId(), attachment.getSize(), upload.roomId());
+
+        return new UploadStatusResponse(upload.id(), upload.roomId(), upload.fileName(), upload.size(), upload.size(),
+                true, attachment.getId(), message.getId());
+    }
+
+    /**
+     * Throws {@link ResourceNotFoundException} if the user cannot see the room and
+     * {@link IllegalStateException} if they may not post in it.
+     */
+    private void checkCanPost(User user, String roomId) {
+        if (!chatRoomService.canUserAccessRoom(user.getId(), roomId)) {
+            throw new ResourceNotFoundException("Room not found");
+        }
+        try {
+            chatRoomService.assertCanSendMessages(user.getId(), roomId);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Content may be reused only by someone who could already read it, so knowing a hash does not give
+     * access to the file behind it.
+     */
+    private boolean canReuse(User user, String sha256, long size) {
+        return attachmentStore.findBySha256(sha256).stream()
+                .anyMatch(a -> a.getSize() == size && chatRoomService.canUserAccessRoom(user.getId(), a.getRoomId()));
+    }
+
+    private UploadSession session(User user, String uploadId) {
+        if (uploadId == null || !UPLOAD_ID.matcher(uploadId).matches()) {
+            throw new ResourceNotFoundException("Upload not found");
+        }
+        UploadSession session = sessions.computeIfAbsent(uploadId, id -> {
+            // Not in memory after a restart: resume from what is on disk
+            Optional<PendingUpload> upload = storage.readMeta(id);
+            if (upload.isEmpty()) {
+                return null;
+            }
+            UploadSession resumed = new UploadSession(upload.get());
+            resumed.offset = partSize(id);
+            return resumed;
+        });
+        if (session == null || !session.upload.uploaderId().equals(user.getId())) {
+            throw new ResourceNotFoundException("Upload not found");
+        }
+        return session;
+    }
+
+    private long partSize(String uploadId) {
+        try {
+            return storage.partSize(uploadId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static UploadStatusResponse status(UploadSession session) {
+        PendingUpload upload = session.upload;
+        return new UploadStatusResponse(upload.id(), upload.roomId(), upload.fileName(), upload.size(),
+                session.offset, false, null, null);
+    }
+
+    private static String sanitizeFileName(String fileName) {
+        if (fileName == null) {
+            return "file";
+        }
+        String name = fileName.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1).replaceAll("[\\p{Cntrl}\"]", "").trim();
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            return "file";
+        }
+        return name.length() > MAX_FILE_NAME_LENGTH ? name.substring(name.length() - MAX_FILE_NAME_LENGTH) : name;
+    }
+
+    private static String contentType(String contentType) {
+        if (contentType == null || contentType.isBlank() || !contentType.contains("/")) {
+            return "application/octet-stream";
+        }
+        return contentType.trim().toLowerCase();
+    }
+}
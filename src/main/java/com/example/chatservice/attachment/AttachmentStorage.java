@@ -0,0 +1,232 @@
+package com.example.chatservice.attachment;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * On-disk layout for attachment content.
+ *
+ * <pre>
+ * blobs/ab/cd/abcd…   finished content, named by its SHA-256 and sharded on the first two bytes
+ * uploads/{id}.part   bytes received so far for an upload in progress
+ * uploads/{id}.json   the upload's metadata, so it can be resumed after a restart
+ * </pre>
+ *
+ * Every transfer goes through a channel with a small fixed buffer, so memory use does not depend on the
+ * size of the file.
+ */
+@Component
+public class AttachmentStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(AttachmentStorage.class);
+
+    private static final int HASH_BUFFER_BYTES = 64 * 1024;
+    private static final long TRANSFER_STEP_BYTES = 1024 * 1024;
+
+    private final Path blobs;
+    private final Path uploads;
+    private final Duration uploadTtl;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    public AttachmentStorage(@Value("${app.attachments.dir:data/attachments}") String directory,
+                             @Value("${app.attachments.upload-ttl-hours:24}") long uploadTtlHours) {
+        Path root = Path.of(directory).toAbsolutePath().normalize();
+        this.blobs = root.resolve("blobs");
+        this.uploads = root.resolve("uploads");
+        this.uploadTtl = Duration.ofHours(uploadTtlHours);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(blobs);
+        Files.createDirectories(uploads);
+        int removed = sweepStaleUploads(uploadId -> false);
+        log.info("Attachment storage at {} ({} stale upload(s) removed)", blobs.getParent(), removed);
+    }
+
+    public Path blobPath(String sha256) {
+        return blobs.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    boolean hasBlob(String sha256) {
+        return Files.isRegularFile(blobPath(sha256));
+    }
+
+    private Path partPath(String uploadId) {
+        return uploads.resolve(uploadId + ".part");
+    }
+
+    private Path metaPath(String uploadId) {
+        return uploads.resolve(uploadId + ".json");
+    }
+
+    void create(PendingUpload upload) {
+        try {
+            Files.write(metaPath(upload.id()), jsonMapper.writeValueAsBytes(upload));
+            Files.createFile(partPath(upload.id()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    Optional<PendingUpload> readMeta(String uploadId) {
+        Path meta = metaPath(uploadId);
+        if (!Files.isRegularFile(meta)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(jsonMapper.readValue(Files.readAllBytes(meta), PendingUpload.class));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unreadable upload metadata {}: {}", meta, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    long partSize(String uploadId) throws IOException {
+        Path part = partPath(uploadId);
+        return Files.exists(part) ? Files.size(part) : 0;
+    }
+
+    /**
+     * Appends up to {@code maxBytes} from {@code in} at {@code offset}, feeding every byte through
+     * {@code digest}. Returns the number of bytes written; on failure the part may hold a prefix of them.
+     */
+    long append(String uploadId, long offset, InputStream in, long maxBytes, MessageDigest digest) throws IOException {
+        // The source is not closed: the caller still owns the request stream
+        ReadableByteChannel source = Channels.newChannel(new DigestInputStream(in, digest));
+        try (FileChannel part = FileChannel.open(partPath(uploadId), StandardOpenOption.WRITE)) {
+            long position = offset;
+            long end = offset + maxBytes;
+            while (position < end) {
+                long transferred = part.transferFrom(source, position, Math.min(TRANSFER_STEP_BYTES, end - position));
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            return position - offset;
+        }
+    }
+
+    void truncate(String uploadId, long size) throws IOException {
+        try (FileChannel part = FileChannel.open(partPath(uploadId), StandardOpenOption.WRITE)) {
+            part.truncate(size);
+        }
+    }
+
+    /**
+     * Rebuilds the running hash of a part, for uploads resumed after a restart or a failed chunk.
+     */
+    MessageDigest hashPart(String uploadId) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_BYTES);
+        try (FileChannel part = FileChannel.open(partPath(uploadId), StandardOpenOption.READ)) {
+            while (part.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Moves a finished part to its content address. If the content is already stored the part is simply
+     * dropped, so identical files share one blob.
+     */
+    void commit(String uploadId, String sha256) throws IOException {
+        Path part = partPath(uploadId);
+        Path blob = blobPath(sha256);
+        if (Files.exists(blob)) {
+            Files.delete(part);
+        } else {
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.move(part, blob, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, blob);
+            } catch (FileAlreadyExistsException e) {
+                // Someone committed the same content concurrently
+                Files.delete(part);
+            }
+        }
+        Files.deleteIfExists(metaPath(uploadId));
+    }
+
+    void discard(String uploadId) {
+        try {
+            Files.deleteIfExists(partPath(uploadId));
+            Files.deleteIfExists(metaPath(uploadId));
+        } catch (IOException e) {
+            log.warn("Failed to delete upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    Duration uploadTtl() {
+        return uploadTtl;
+    }
+
+    /**
+     * Deletes uploads nobody has written to within the upload TTL, except those {@code inUse} claims.
+     */
+    int sweepStaleUploads(Predicate<String> inUse) throws IOException {
+        FileTime cutoff = FileTime.from(Instant.now().minus(uploadTtl));
+        int removed = 0;
+        try (Stream<Path> files = Files.list(uploads)) {
+            for (Path meta : files.filter(p -> p.getFileName().toString().endsWith(".json")).toList()) {
+                String name = meta.getFileName().toString();
+                String uploadId = name.substring(0, name.length() - ".json".length());
+                if (inUse.test(uploadId)) {
+                    continue;
+                }
+                Path part = partPath(uploadId);
+                FileTime lastWrite = Files.exists(part) ? Files.getLastModifiedTime(part) : Files.getLastModifiedTime(meta);
+                if (lastWrite.compareTo(cutoff) < 0) {
+                    discard(uploadId);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
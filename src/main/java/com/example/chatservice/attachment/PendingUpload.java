@@ -0,0 +1,11 @@
+package com.example.chatservice.attachment;
+
+import java.time.Instant;
+
+/**
+ * What the client declared when it started an upload. Stored next to the part file as JSON. {@code sha256}
+ * is optional; when given, the finished content must match it.
+ */
+record PendingUpload(String id, String roomId, String uploaderId, String fileName, String contentType,
+                     long size, String sha256, Instant createdAt) {
+}
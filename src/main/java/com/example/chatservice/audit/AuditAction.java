@@ -0,0 +1,16 @@
+package com.example.chatservice.audit;
+
+/**
+ * Admin and moderation actions recorded in the audit journal. The ordinal is stored on disk, so only
+ * append new values.
+ */
+public enum AuditAction {
+    MEMBER_REMOVED,
+    MEMBER_MUTE_TOGGLED,
+    ROOM_MUTE_TOGGLED,
+    ADMIN_ROLE_TOGGLED,
+    ROOM_DELETED,
+    INVITE_TOKEN_REGENERATED,
+    SLOW_MODE_CHANGED,
+    MESSAGE_TTL_CHANGED
+}
@@ -0,0 +1,217 @@
+package com.example.chatservice.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Append-only audit trail for admin and moderation actions.
+ *
+ * <p>Callers hand records to a lock-free ring and return immediately; a single writer thread assigns
+ * sequence numbers and copies them into memory-mapped segment files, rotating when a segment fills and
+ * deleting the oldest segments beyond the retention limit. If the ring is full the record is dropped and
+ * counted rather than blocking the request thread.
+ */
+@Component
+public class AuditJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditJournal.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int maxSegments;
+    private final AuditRing ring;
+
+    private final Counter written;
+    private final Counter dropped;
+
+    private AuditSegment current;
+    private long nextSequence = 1;
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditJournal(@Value("${app.audit.dir:data/audit}") String directory,
+                        @Value("${app.audit.segment-records:65536}") int segmentRecords,
+                        @Value("${app.audit.max-segments:16}") int maxSegments,
+                        @Value("${app.audit.ring-capacity:8192}") int ringCapacity,
+                        MeterRegistry registry) {
+        this.directory = Path.of(directory).toAbsolutePath();
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+        this.ring = new AuditRing(ringCapacity);
+
+        this.written = Counter.builder("chat.audit.records").tag("result", "written").register(registry);
+        this.dropped = Counter.builder("chat.audit.records").tag("result", "dropped").register(registry);
+        Gauge.builder("chat.audit.backlog", ring, AuditRing::size)
+                .description("Audit records waiting for the writer thread")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments();
+        if (!segments.isEmpty()) {
+            current = AuditSegment.reopen(segments.get(segments.size() - 1), segmentRecords);
+            long last = current.lastSequence();
+            nextSequence = last > 0 ? last + 1 : firstSequenceOf(current.path());
+        }
+        if (current == null || current.isFull()) {
+            rotate();
+        }
+        log.info("Audit journal at {} resuming at sequence {}", directory, nextSequence);
+
+        running = true;
+        writer = new Thread(this::runWriter, "audit-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Non-blocking; safe to call from any thread.
+     */
+    public void record(AuditAction action, String roomId, String actorId, String targetId, String detail) {
+        AuditRecord record = new AuditRecord(0, Instant.now(), action, roomId, actorId, targetId, detail);
+        if (ring.offer(record)) {
+            Thread thread = writer;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            boolean stopping = !running;
+            int batch = drain();
+            if (batch > 0) {
+                current.force();
+            } else if (stopping) {
+                break;
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            log.warn("Failed to close audit segment {}", current.path(), e);
+        }
+    }
+
+    private int drain() {
+        int count = 0;
+        AuditRecord record;
+        while ((record = ring.poll()) != null) {
+            try {
+                if (current.isFull()) {
+                    rotate();
+                }
+                current.append(record.withSequence(nextSequence++));
+                written.increment();
+                count++;
+            } catch (IOException | RuntimeException e) {
+                dropped.increment();
+                log.error("Failed to write audit record {}", record, e);
+            }
+        }
+        return count;
+    }
+
+    private void rotate() throws IOException {
+        if (current != null) {
+            current.close();
+        }
+        current = AuditSegment.create(directory, nextSequence, segmentRecords);
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    // --- Reader API ---
+
+    /**
+     * Returns matching records newest first. Null filters match everything; {@code from} is inclusive and
+     * {@code to} exclusive.
+     */
+    public List<AuditRecord> query(String roomId, String actorId, Instant from, Instant to, int limit) {
+        List<AuditRecord> results = new ArrayList<>();
+        List<Path> segments = listSegments();
+        for (int i = segments.size() - 1; i >= 0 && results.size() < limit; i--) {
+            List<AuditRecord> records;
+            try {
+                records = AuditSegment.readAll(segments.get(i));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read audit segment " + segments.get(i), e);
+            }
+            for (int j = records.size() - 1; j >= 0 && results.size() < limit; j--) {
+                AuditRecord record = records.get(j);
+                if (matches(record, roomId, actorId, from, to)) {
+                    results.add(record);
+                }
+            }
+            // Segments are in write order, so once a whole segment predates the range we can stop
+            if (from != null && !records.isEmpty() && records.get(records.size() - 1).timestamp().isBefore(from)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private static boolean matches(AuditRecord record, String roomId, String actorId, Instant from, Instant to) {
+        return (roomId == null || roomId.equals(record.roomId()))
+                && (actorId == null || actorId.equals(record.actorId()))
+                && (from == null || !record.timestamp().isBefore(from))
+                && (to == null || record.timestamp().isBefore(to));
+    }
+
+    private List<Path> listSegments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(AuditSegment.PREFIX) && name.endsWith(AuditSegment.SUFFIX);
+                    })
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list audit segments in " + directory, e);
+        }
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(AuditSegment.PREFIX.length(), name.length() - AuditSegment.SUFFIX.length()));
+    }
+}
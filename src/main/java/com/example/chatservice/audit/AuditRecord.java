@@ -0,0 +1,130 @@
+package com.example.chatservice.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * One audit entry and its fixed 256-byte on-disk layout:
+ *
+ * <pre>
+ *   0  long   sequence (0 marks an unused slot)
+ *   8  long   timestamp, epoch millis
+ *  16  short  action ordinal
+ *  18  short  detail length
+ *  20  24B    room id    (ASCII, zero padded)
+ *  44  24B    actor id
+ *  68  24B    target id
+ *  92  160B   detail     (UTF-8, truncated)
+ * 252  int    CRC32 of bytes 0..251
+ * </pre>
+ */
+public record AuditRecord(long sequence, Instant timestamp, AuditAction action,
+                          String roomId, String actorId, String targetId, String detail) {
+
+    public static final int SIZE = 256;
+
+    private static final int ID_LENGTH = 24;
+    private static final int DETAIL_LENGTH = 160;
+    private static final int ROOM_OFFSET = 20;
+    private static final int ACTOR_OFFSET = ROOM_OFFSET + ID_LENGTH;
+    private static final int TARGET_OFFSET = ACTOR_OFFSET + ID_LENGTH;
+    private static final int DETAIL_OFFSET = TARGET_OFFSET + ID_LENGTH;
+    private static final int CRC_OFFSET = SIZE - Integer.BYTES;
+
+    AuditRecord withSequence(long sequence) {
+        return new AuditRecord(sequence, timestamp, action, roomId, actorId, targetId, detail);
+    }
+
+    /**
+     * Writes this record into {@code buffer} at {@code offset} using absolute puts.
+     */
+    void encode(ByteBuffer buffer, int offset, byte[] scratch) {
+        Arrays.fill(scratch, (byte) 0);
+        ByteBuffer record = ByteBuffer.wrap(scratch);
+        record.putLong(0, sequence);
+        record.putLong(8, timestamp.toEpochMilli());
+        record.putShort(16, (short) action.ordinal());
+
+        putAscii(scratch, ROOM_OFFSET, roomId);
+        putAscii(scratch, ACTOR_OFFSET, actorId);
+        putAscii(scratch, TARGET_OFFSET, targetId);
+
+        byte[] detailBytes = detail != null ? detail.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int detailLength = Math.min(detailBytes.length, DETAIL_LENGTH);
+        System.arraycopy(detailBytes, 0, scratch, DETAIL_OFFSET, detailLength);
+        record.putShort(18, (short) detailLength);
+
+        CRC32 crc = new CRC32();
+        crc.update(scratch, 0, CRC_OFFSET);
+        record.putInt(CRC_OFFSET, (int) crc.getValue());
+
+        buffer.put(offset, scratch, 0, SIZE);
+    }
+
+    /**
+     * Reads the record at {@code offset}; returns null for an unused slot or a torn/corrupt write.
+     */
+    static AuditRecord decode(ByteBuffer buffer, int offset, byte[] scratch) {
+        buffer.get(offset, scratch, 0, SIZE);
+        ByteBuffer record = ByteBuffer.wrap(scratch);
+        long sequence = record.getLong(0);
+        if (sequence == 0) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(scratch, 0, CRC_OFFSET);
+        if ((int) crc.getValue() != record.getInt(CRC_OFFSET)) {
+            return null;
+        }
+        int actionOrdinal = record.getShort(16);
+        AuditAction[] actions = AuditAction.values();
+        if (actionOrdinal < 0 || actionOrdinal >= actions.length) {
+            return null;
+        }
+        int detailLength = record.getShort(18);
+        return new AuditRecord(
+                sequence,
+                Instant.ofEpochMilli(record.getLong(8)),
+                actions[actionOrdinal],
+                getAscii(scratch, ROOM_OFFSET),
+                getAscii(scratch, ACTOR_OFFSET),
+                getAscii(scratch, TARGET_OFFSET),
+                detailLength > 0 ? new String(scratch, DETAIL_OFFSET, detailLength, StandardCharsets.UTF_8) : null);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("sequence", sequence);
+        map.put("timestamp", timestamp.toString());
+        map.put("action", action.name());
+        map.put("roomId", roomId);
+        map.put("actorId", actorId);
+        map.put("targetId", targetId);
+        map.put("detail", detail);
+        return map;
+    }
+
+    // Ids are Mongo ObjectIds (24 hex chars); anything longer is truncated.
+    private static void putAscii(byte[] target, int offset, String value) {
+        if (value == null) {
+            return;
+        }
+        int length = Math.min(value.length(), ID_LENGTH);
+        for (int i = 0; i < length; i++) {
+            target[offset + i] = (byte) value.charAt(i);
+        }
+    }
+
+    private static String getAscii(byte[] source, int offset) {
+        int length = 0;
+        while (length < ID_LENGTH && source[offset + length] != 0) {
+            length++;
+        }
+        return length == 0 ? null : new String(source, offset, length, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.chatservice.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer / single-consumer ring. Producers claim a slot with a CAS on the tail and never
+ * block; when the ring is full {@link #offer} returns false and the caller drops the record.
+ */
+final class AuditRing {
+
+    private final AtomicReferenceArray<AuditRecord> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    AuditRing(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    boolean offer(AuditRecord record) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head.get() > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.lazySet((int) (claimed & mask), record);
+        return true;
+    }
+
+    /**
+     * Consumer side only. Returns null when empty or when the next slot is claimed but not yet published.
+     */
+    AuditRecord poll() {
+        long current = head.get();
+        int index = (int) (current & mask);
+        AuditRecord record = slots.get(index);
+        if (record == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head.lazySet(current + 1);
+        return record;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.chatservice.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A preallocated, memory-mapped file of fixed-size {@link AuditRecord} slots. Only the journal writer
+ * thread appends; readers map the file separately in read-only mode.
+ * Files are named {@code audit-<first sequence>.seg} so lexical order is write order.
+ */
+final class AuditSegment implements Closeable {
+
+    static final String PREFIX = "audit-";
+    static final String SUFFIX = ".seg";
+
+    private final Path path;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final byte[] scratch = new byte[AuditRecord.SIZE];
+    private int count;
+
+    private AuditSegment(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * AuditRecord.SIZE);
+    }
+
+    static Path fileName(Path directory, long firstSequence) {
+        return directory.resolve(PREFIX + String.format("%020d", firstSequence) + SUFFIX);
+    }
+
+    static AuditSegment create(Path directory, long firstSequence, int capacity) throws IOException {
+        return new AuditSegment(fileName(directory, firstSequence), capacity);
+    }
+
+    /**
+     * Reopens an existing segment for appending after the last intact record. A torn record left by a
+     * crash is overwritten.
+     */
+    static AuditSegment reopen(Path path, int capacity) throws IOException {
+        AuditSegment segment = new AuditSegment(path, capacity);
+        while (segment.count < capacity
+                && AuditRecord.decode(segment.buffer, segment.count * AuditRecord.SIZE, segment.scratch) != null) {
+            segment.count++;
+        }
+        return segment;
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Sequence of the last intact record, or 0 if the segment is empty.
+     */
+    long lastSequence() {
+        if (count == 0) {
+            return 0;
+        }
+        AuditRecord last = AuditRecord.decode(buffer, (count - 1) * AuditRecord.SIZE, scratch);
+        return last != null ? last.sequence() : 0;
+    }
+
+    void append(AuditRecord record) {
+        record.encode(buffer, count * AuditRecord.SIZE, scratch);
+        count++;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Reads every intact record in {@code path}, oldest first, stopping at the first unused slot.
+     */
+    static List<AuditRecord> readAll(Path path) throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = readChannel.size();
+            if (size < AuditRecord.SIZE) {
+                return records;
+            }
+            MappedByteBuffer view = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] readScratch = new byte[AuditRecord.SIZE];
+            int slots = (int) (size / AuditRecord.SIZE);
+            for (int slot = 0; slot < slots; slot++) {
+                if (view.getLong(slot * AuditRecord.SIZE) == 0) {
+                    break;
+                }
+                AuditRecord record = AuditRecord.decode(view, slot * AuditRecord.SIZE, readScratch);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+}
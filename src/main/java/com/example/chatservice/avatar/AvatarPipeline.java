@@ -0,0 +1,283 @@
+package com.example.chatservice.avatar;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+/**
+ * Turns an uploaded avatar into a fixed set of square thumbnails. The original is stored first under its
+ * content hash and used as-is until the variants are ready; a single background worker then decodes it once,
+ * center-crops it and scales it down to every configured size.
+ *
+ * <p>Every file is named by the SHA-256 of its bytes and kept in a directory per user, so a URL never
+ * changes meaning and can be cached as immutable, while deleting one user's avatar cannot affect anyone
+ * else's.
+ */
+@Component
+public class AvatarPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(AvatarPipeline.class);
+
+    private static final String URL_PREFIX = "/uploads/avatars/";
+
+    private final Path directory;
+    private final List<Integer> sizes;
+    private final String format;
+    private final float quality;
+    private final long maxPixels;
+    private final ThreadPoolTaskExecutor worker;
+
+    public AvatarPipeline(@Value("${app.upload.dir:uploads/avatars}") String directory,
+                          @Value("${app.avatars.sizes:48,96,256}") List<Integer> sizes,
+                          @Value("${app.avatars.format:jpeg}") String format,
+                          @Value("${app.avatars.quality:0.85}") float quality,
+                          @Value("${app.avatars.max-pixels:40000000}") long maxPixels,
+                          @Value("${app.avatars.queue-capacity:100}") int queueCapacity) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.sizes = sizes.stream().sorted().toList();
+        this.format = resolveFormat(format);
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+
+        this.worker = new ThreadPoolTaskExecutor();
+        worker.setCorePoolSize(1);
+        worker.setMaxPoolSize(1);
+        worker.setQueueCapacity(queueCapacity);
+        worker.setThreadNamePrefix("avatar-");
+        // When the queue is full the uploading request does the work itself, which slows down bursts
+        worker.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        worker.initialize();
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdown();
+    }
+
+    /**
+     * A finished variant: its URL and its edge length in pixels.
+     */
+    public record Variant(int size, String url) {
+    }
+
+    /**
+     * Copies an upload to {@code {userId}/{sha256}.{extension}} and returns its URL.
+     */
+    public String storeOriginal(String userId, InputStream in, String extension) throws IOException {
+        Path userDirectory = userDirectory(userId);
+        Files.createDirectories(userDirectory);
+        Path temp = Files.createTempFile(userDirectory, "upload-", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            try (InputStream hashing = new DigestInputStream(in, digest)) {
+                Files.copy(hashing, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String name = HexFormat.of().formatHex(digest.digest()) + extension;
+            Files.move(temp, userDirectory.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return URL_PREFIX + userId + "/" + name;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Queues the variants of {@code originalUrl} to be generated. {@code onComplete} receives them in
+     * ascending size, or an empty list if the image could not be decoded.
+     */
+    public void process(String userId, String originalUrl, Consumer<List<Variant>> onComplete) {
+        worker.execute(() -> {
+            List<Variant> variants = List.of();
+            try {
+                variants = generate(userId, originalUrl);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not process avatar {}: {}", originalUrl, e.getMessage());
+            }
+            onComplete.accept(variants);
+        });
+    }
+
+    private List<Variant> generate(String userId, String originalUrl) throws IOException {
+        long started = System.nanoTime();
+        BufferedImage source = decode(resolve(originalUrl));
+        if (source == null) {
+            log.info("No decoder for avatar {}; serving the original", originalUrl);
+            return List.of();
+        }
+
+        int edge = Math.min(source.getWidth(), source.getHeight());
+        BufferedImage square = source.getSubimage((source.getWidth() - edge) / 2, (source.getHeight() - edge) / 2,
+                edge, edge);
+
+        // Largest first, each step scaling the previous result, which keeps downscaling sharp and cheap
+        Map<Integer, Variant> bySize = new LinkedHashMap<>();
+        BufferedImage previous = square;
+        for (int i = sizes.size() - 1; i >= 0; i--) {
+            int size = Math.min(sizes.get(i), edge);
+            BufferedImage scaled = scale(previous, size);
+            previous = scaled;
+            byte[] encoded = encode(scaled);
+            String name = HexFormat.of().formatHex(newDigest().digest(encoded)) + "." + extension();
+            Path target = userDirectory(userId).resolve(name);
+            if (!Files.exists(target)) {
+                Path temp = Files.createTempFile(userDirectory(userId), "variant-", ".tmp");
+                Files.write(temp, encoded);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            bySize.put(sizes.get(i), new Variant(sizes.get(i), URL_PREFIX + userId + "/" + name));
+        }
+        log.debug("🖼️ Avatar {} resized to {} in {} ms", originalUrl, sizes,
+                (System.nanoTime() - started) / 1_000_000);
+        return sizes.stream().map(bySize::get).toList();
+    }
+
+    /**
+     * Decodes the first frame, refusing images whose declared dimensions exceed {@code app.avatars.max-pixels}
+     * before any pixel data is read.
+     */
+    private BufferedImage decode(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IOException("Image of " + pixels + " pixels exceeds the limit of " + maxPixels);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage source, int size) {
+        BufferedImage current = source;
+        int currentSize = source.getWidth();
+        do {
+            currentSize = Math.max(size, currentSize / 2);
+            BufferedImage next = new BufferedImage(currentSize, currentSize, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                // Variants are opaque RGB; transparent areas become white
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, currentSize, currentSize);
+                g.drawImage(current, 0, 0, currentSize, currentSize, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentSize > size);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0 && param.getCompressionType() == null) {
+                    param.setCompressionType(types[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private String extension() {
+        return "jpeg".equals(format) ? "jpg" : format;
+    }
+
+    /**
+     * Deletes the files behind avatar URLs, skipping any in {@code keep} and anything not under
+     * {@code /uploads/avatars/}.
+     */
+    public void delete(List<String> urls, List<String> keep) {
+        for (String url : urls) {
+            if (url == null || keep.contains(url) || !url.startsWith(URL_PREFIX)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(resolve(url));
+            } catch (IOException | RuntimeException e) {
+                log.debug("Could not delete avatar file {}: {}", url, e.getMessage());
+            }
+        }
+    }
+
+    private Path resolve(String url) {
+        Path file = directory.resolve(url.substring(URL_PREFIX.length())).normalize();
+        if (!file.startsWith(directory)) {
+            throw new IllegalArgumentException("Avatar path outside the upload directory: " + url);
+        }
+        return file;
+    }
+
+    private Path userDirectory(String userId) {
+        return resolve(URL_PREFIX + userId);
+    }
+
+    private static String resolveFormat(String configured) {
+        String format = configured.toLowerCase();
+        if (!ImageIO.getImageWritersByFormatName(format).hasNext()) {
+            log.warn("No ImageIO writer for avatar format '{}' (available: {}); using jpeg", configured,
+                    Arrays.toString(ImageIO.getWriterFormatNames()));
+            return "jpeg";
+        }
+        return format;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.example.chatservice.config;
 
+import com.example.chatservice.querystats.MongoCommandTracker;
+import org.springframework.boot.mongodb.autoconfigure.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 
 @Configuration
 @EnableMongoAuditing
 public class MongoConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoCommandTracking(MongoCommandTracker tracker) {
+        return settings -> settings.addCommandListener(tracker);
+    }
 }
@@ -0,0 +1,124 @@
+package com.example.chatservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the indexes declared with {@code @Indexed} and {@code @CompoundIndex} on a background thread once
+ * the application has started, rather than while the context refreshes. Creating an index that already
+ * exists is a no-op, so on a normal restart this only confirms them.
+ *
+ * <p>Until every collection has been checked this reports OUT_OF_SERVICE. The {@code mongoIndexes}
+ * indicator is part of the readiness group, so a load balancer keeps traffic away while an index is still
+ * being built. If MongoDB cannot be reached the check is retried with backoff.
+ */
+@Component("mongoIndexes")
+public class MongoIndexVerifier implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexVerifier.class);
+
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+    private final boolean enabled;
+
+    private volatile boolean verified;
+    private volatile String lastError;
+    private final Map<String, Integer> indexesByCollection = new TreeMap<>();
+
+    public MongoIndexVerifier(MongoTemplate mongoTemplate,
+                              MongoMappingContext mappingContext,
+                              @Value("${app.mongo.index-verification.enabled:true}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+        this.enabled = enabled;
+        this.verified = !enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread worker = new Thread(this::verifyWithRetry, "mongo-index-verifier");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void verifyWithRetry() {
+        long backoff = 1000;
+        while (!verified) {
+            long started = System.nanoTime();
+            try {
+                verifyAll();
+                verified = true;
+                lastError = null;
+                log.info("Verified MongoDB indexes on {} collection(s) in {} ms", indexesByCollection.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } catch (RuntimeException e) {
+                lastError = e.getMessage();
+                log.warn("MongoDB index verification failed, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void verifyAll() {
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getCollection());
+            int count = 0;
+            for (IndexDefinition definition : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                indexOps.createIndex(definition);
+                count++;
+            }
+            synchronized (indexesByCollection) {
+                indexesByCollection.put(entity.getCollection(), count);
+            }
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (!enabled) {
+            return Health.up().withDetail("verification", "disabled").build();
+        }
+        if (verified) {
+            synchronized (indexesByCollection) {
+                return Health.up().withDetail("collections", Map.copyOf(indexesByCollection)).build();
+            }
+        }
+        Health.Builder builder = Health.outOfService().withDetail("verification", "in progress");
+        if (lastError != null) {
+            builder.withDetail("lastError", lastError);
+        }
+        return builder.build();
+    }
+}
@@ -5,12 +5,34 @@ import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.security.SecurityRequirement;
 import io.swagger.v3.oas.models.security.SecurityScheme;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class OpenApiConfig {
 
+    /**
+     * Marks springdoc's own beans lazy, so scanning controllers and building the OpenAPI model happens on the
+     * first request to {@code /v3/api-docs} or the Swagger UI instead of at startup.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor deferSpringdoc() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String type = definition.getBeanClassName() != null ? definition.getBeanClassName()
+                        : definition.getFactoryBeanName() != null
+                                ? beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName()
+                                : null;
+                if (type != null && type.startsWith("org.springdoc.")) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
     @Bean
     public OpenAPI chatServiceOpenAPI() {
         final String securitySchemeName = "bearerAuth";
@@ -1,12 +1,20 @@
 package com.example.chatservice.config;
 
+import com.example.chatservice.ratelimit.RestRateLimitInterceptor;
+import com.example.chatservice.service.ResponseStreamer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -14,10 +22,47 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${app.upload.dir:uploads/avatars}")
     private String uploadDir;
 
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${app.streaming.timeout-ms:300000}")
+    private long streamingTimeoutMillis;
+
+    private final RestRateLimitInterceptor rateLimitInterceptor;
+    private final ResponseStreamer responseStreamer;
+
+    public WebConfig(RestRateLimitInterceptor rateLimitInterceptor, ResponseStreamer responseStreamer) {
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.responseStreamer = responseStreamer;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Streamed responses run here, off the Tomcat request threads
+        configurer.setTaskExecutor(responseStreamer.requestExecutor());
+        configurer.setDefaultTimeout(streamingTimeoutMillis);
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        // Avatar files are named by the SHA-256 of their content, so a URL always means the same bytes:
+        // cache for a year without revalidation, and use the hash as a strong ETag
         registry.addResourceHandler("/uploads/avatars/**")
-                .addResourceLocations(uploadPath.toUri().toString() + "/");
+                .addResourceLocations(uploadPath.toUri().toString() + "/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .setEtagGenerator(WebConfig::contentHash);
+    }
+
+    private static String contentHash(Resource resource) {
+        String name = resource.getFilename();
+        int dot = name != null ? name.indexOf('.') : -1;
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        // Files stored before content addressing fall back to Last-Modified
+        return stem != null && CONTENT_HASH.matcher(stem).matches() ? stem : null;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/api/**");
     }
 }
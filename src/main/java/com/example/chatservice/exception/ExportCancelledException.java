@@ -0,0 +1,12 @@
+package com.example.chatservice.exception;
+
+/**
+ * A history export was cancelled while its response was being written. The response is already committed,
+ * so the download just ends early; the export's progress reports it as cancelled.
+ */
+public class ExportCancelledException extends RuntimeException {
+
+    public ExportCancelledException(String exportId) {
+        super("Export " + exportId + " was cancelled");
+    }
+}
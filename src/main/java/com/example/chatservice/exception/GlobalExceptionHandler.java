@@ -1,6 +1,8 @@
 package com.example.chatservice.exception;
 
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -44,6 +46,13 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", ex.getMessage()));
     }
 
+    @ExceptionHandler(UploadOffsetConflictException.class)
+    public ResponseEntity<?> handleUploadOffsetConflictException(UploadOffsetConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header("Upload-Offset", String.valueOf(ex.getOffset()))
+                .body(Map.of("error", ex.getMessage(), "offset", ex.getOffset()));
+    }
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<?> handleResourceNotFoundException(ResourceNotFoundException ex) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", ex.getMessage()));
@@ -66,6 +75,26 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", customMessage));
     }
 
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<?> handleTaskRejectedException(TaskRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Server busy, try again shortly"));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<?> handleTooManyRequestsException(TooManyRequestsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString((ex.getRetryAfterMillis() + 999) / 1000))
+                .body(Map.of("error", ex.getMessage(), "retryAfterMs", ex.getRetryAfterMillis()));
+    }
+
+    @ExceptionHandler(ExportCancelledException.class)
+    public ResponseEntity<Void> handleExportCancelledException(ExportCancelledException ex) {
+        // The download has already started; there is no room for an error body
+        return ResponseEntity.status(HttpStatus.GONE).build();
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<?> handleRuntimeException(RuntimeException ex) {
         ex.printStackTrace(); // Log the full stack trace
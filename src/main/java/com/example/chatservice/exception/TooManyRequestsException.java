@@ -0,0 +1,19 @@
+package com.example.chatservice.exception;
+
+/**
+ * The request was refused before doing any work, because its caller failed too often or the server is
+ * saturated. Answered with 429 and a {@code Retry-After} of {@link #getRetryAfterMillis()}.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public TooManyRequestsException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
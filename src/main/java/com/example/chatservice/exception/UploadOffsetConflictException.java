@@ -0,0 +1,19 @@
+package com.example.chatservice.exception;
+
+/**
+ * A chunk did not start where the upload currently ends, or another chunk is still being written.
+ * The client resumes from {@link #getOffset()}.
+ */
+public class UploadOffsetConflictException extends RuntimeException {
+
+    private final long offset;
+
+    public UploadOffsetConflictException(String message, long offset) {
+        super(message);
+        this.offset = offset;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.chatservice.expiry;
+
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.attachment.AttachmentExpiry;
+import com.example.chatservice.service.RoomSequencer;
+import com.example.chatservice.store.MessageStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Deletes disappearing messages when their time is up.
+ *
+ * <p>A message gets an {@code expiresAt} when it is written, from its own TTL or its room's
+ * {@link ChatRoom#getMessageTtlSeconds()}, whichever is shorter, and is scheduled on a {@link TimingWheel}
+ * with {@code app.expiry.tick-ms} ticks. Once a second, by default, the "message-expiry" thread advances the
+ * wheel, deletes whatever came due in batches of {@code app.expiry.batch-size}, and sends MESSAGE_DELETED
+ * for each message on {@code /topic/rooms/{roomId}/events}, along with the files of IMAGE and FILE messages.
+ * A message is never deleted before its time, and normally within one tick after it.
+ *
+ * <p>The wheel is held in memory only. It is rebuilt from the store when the thread starts, and anything
+ * that came due while no instance was running is deleted on the first tick. Messages no instance gets to,
+ * for instance those written by an instance that then went away, are removed by the TTL index on
+ * {@code expiresAt}, without a broadcast.
+ */
+@Component
+public class MessageExpiry {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageExpiry.class);
+
+    private record Expiring(String messageId, String roomId, long seq, String attachmentId) {
+    }
+
+    private final MessageStore messageStore;
+    private final RoomSequencer roomSequencer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final AttachmentExpiry attachmentExpiry;
+    private final boolean enabled;
+    private final long tickMillis;
+    private final int batchSize;
+    private final long maxTtlSeconds;
+    private final Counter deleted;
+
+    // Both guarded by the wheel
+    private final TimingWheel<Expiring> wheel;
+    private List<Expiring> overdue = new ArrayList<>();
+
+    private volatile boolean running;
+    private Thread worker;
+    private Instant rebuildFrom;
+
+    public MessageExpiry(MessageStore messageStore,
+                         RoomSequencer roomSequencer,
+                         SimpMessagingTemplate messagingTemplate,
+                         AttachmentExpiry attachmentExpiry,
+                         @Value("${app.expiry.enabled:true}") boolean enabled,
+                         @Value("${app.expiry.tick-ms:1000}") long tickMillis,
+                         @Value("${app.expiry.batch-size:500}") int batchSize,
+                         @Value("${app.expiry.max-ttl-seconds:2592000}") long maxTtlSeconds,
+                         MeterRegistry registry) {
+        this.messageStore = messageStore;
+        this.roomSequencer = roomSequencer;
+        this.messagingTemplate = messagingTemplate;
+        this.attachmentExpiry = attachmentExpiry;
+        this.enabled = enabled;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.maxTtlSeconds = maxTtlSeconds;
+        this.wheel = new TimingWheel<>(System.currentTimeMillis() / tickMillis);
+        this.deleted = Counter.builder("chat.expiry.deleted")
+                .description("Disappearing messages deleted when their time was up")
+                .register(registry);
+        Gauge.builder("chat.expiry.pending", this, MessageExpiry::pendingCount)
+                .description("Disappearing messages scheduled for deletion on this instance")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Messages written from here on are scheduled as they are saved; the rebuild leaves them out
+        rebuildFrom = Instant.now();
+        running = true;
+        worker = new Thread(this::runWorker, "message-expiry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException unless {@code seconds} is between 1 and
+     *                                  {@code app.expiry.max-ttl-seconds}
+     */
+    public void checkTtl(long seconds) {
+        if (seconds < 1 || seconds > maxTtlSeconds) {
+            throw new IllegalArgumentException("Message TTL must be between 1 and " + maxTtlSeconds + " seconds");
+        }
+    }
+
+    /**
+     * When a message written now to {@code room} should disappear, or null if it is kept. A message may ask
+     * for a shorter life than its room's setting, never a longer one.
+     *
+     * @param ttlSeconds the message's own TTL, or null
+     */
+    public Instant expiryFor(ChatRoom room, Long ttlSeconds) {
+        long ttl = room.getMessageTtlSeconds();
+        if (ttlSeconds != null) {
+            checkTtl(ttlSeconds);
+            ttl = ttl > 0 ? Math.min(ttl, ttlSeconds) : ttlSeconds;
+        }
+        return ttl > 0 ? Instant.now().plusSeconds(ttl) : null;
+    }
+
+    /**
+     * Schedules a saved message for deletion if it has an expiry.
+     */
+    public void schedule(Message message) {
+        if (!enabled || message.getExpiresAt() == null) {
+            return;
+        }
+        add(message);
+    }
+
+    private void add(Message message) {
+        Expiring expiring = new Expiring(message.getId(), message.getRoomId(), message.getSeq(),
+                message.getAttachmentId());
+        // Rounded up, so a message is never deleted early
+        long deadline = (message.getExpiresAt().toEpochMilli() + tickMillis - 1) / tickMillis;
+        synchronized (wheel) {
+            if (!wheel.schedule(expiring, deadline)) {
+                overdue.add(expiring);
+            }
+        }
+    }
+
+    private void runWorker() {
+        rebuild();
+        while (running) {
+            long now = System.currentTimeMillis();
+            List<Expiring> due;
+            synchronized (wheel) {
+                due = overdue;
+                overdue = new ArrayList<>();
+                wheel.advance(now / tickMillis, due::add);
+            }
+            if (!due.isEmpty()) {
+                delete(due);
+            }
+            long nextTick = (now / tickMillis + 1) * tickMillis;
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.max(1, nextTick - now)));
+        }
+    }
+
+    private void rebuild() {
+        long started = System.nanoTime();
+        int count = 0;
+        try (Stream<Message> expiring = messageStore.streamExpiring()) {
+            for (Message message : (Iterable<Message>) expiring::iterator) {
+                if (!running) {
+                    return;
+                }
+                if (message.getCreatedAt() != null && !message.getCreatedAt().isBefore(rebuildFrom)) {
+                    continue;
+                }
+                add(message);
+                count++;
+            }
+            log.info("⏳ Scheduled {} disappearing messages in {} ms", count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException e) {
+            // The TTL index still removes them, only later and without a broadcast
+            log.warn("Could not schedule existing disappearing messages: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes and announces due messages a batch at a time. A batch the store refuses is retried on the
+     * next tick, with everything after it.
+     */
+    private void delete(List<Expiring> due) {
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Expiring> batch = due.subList(from, Math.min(due.size(), from + batchSize));
+            try {
+                messageStore.deleteByIds(batch.stream().map(Expiring::messageId).toList());
+            } catch (RuntimeException e) {
+                log.warn("Deleting {} expired messages failed, retrying: {}", due.size() - from, e.getMessage());
+                synchronized (wheel) {
+                    overdue.addAll(due.subList(from, due.size()));
+                }
+                return;
+            }
+            List<String> attachmentIds = new ArrayList<>();
+            for (Expiring expiring : batch) {
+                roomSequencer.removed(expiring.roomId(), expiring.seq());
+                broadcastExpired(expiring);
+                if (expiring.attachmentId() != null) {
+                    attachmentIds.add(expiring.attachmentId());
+                }
+            }
+            deleted.increment(batch.size());
+            removeAttachments(attachmentIds);
+        }
+    }
+
+    private void removeAttachments(List<String> attachmentIds) {
+        if (attachmentIds.isEmpty()) {
+            return;
+        }
+        try {
+            attachmentExpiry.removeExpired(attachmentIds);
+        } catch (RuntimeException e) {
+            // Downloads already refuse them, and the TTL index removes the records
+            log.warn("Removing {} expired attachments failed: {}", attachmentIds.size(), e.getMessage());
+        }
+    }
+
+    private void broadcastExpired(Expiring expiring) {
+        Map<String, Object> event = Map.of(
+                "type", "MESSAGE_DELETED",
+                "roomId", expiring.roomId(),
+                "messageId", expiring.messageId(),
+                "reason", "EXPIRED",
+                "timestamp", System.currentTimeMillis());
+        messagingTemplate.convertAndSend("/topic/rooms/" + expiring.roomId() + "/events", (Object) event);
+    }
+
+    private int pendingCount() {
+        synchronized (wheel) {
+            return wheel.size() + overdue.size();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.chatservice.expiry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel over absolute ticks: {@value #LEVELS} levels of {@value #SLOTS} slots, each level
+ * a slot of the one below wide, so level 0 spans 64 ticks and level 3 about 16.7 million. Deadlines further
+ * out than that wait in an overflow list.
+ *
+ * <p>A timer goes into the lowest level whose current span contains its deadline. When a higher slot's span
+ * begins, its timers are cascaded down, so each timer moves at most {@value #LEVELS} times and a tick does a
+ * constant amount of work however many timers are pending. Not thread-safe.
+ */
+final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private record Timer<T>(T item, long deadline) {
+    }
+
+    // Slots are created on first use and dropped once drained or cascaded
+    private final List<List<Timer<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private List<Timer<T>> overflow = new ArrayList<>();
+    private long current;
+    private int size;
+
+    TimingWheel(long startTick) {
+        this.current = startTick;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(null);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedules {@code item} to come due at {@code deadline}. Returns false, without scheduling it, if that
+     * tick has already passed.
+     */
+    boolean schedule(T item, long deadline) {
+        if (deadline <= current) {
+            return false;
+        }
+        place(new Timer<>(item, deadline));
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward one tick at a time up to {@code tick}, handing every item that comes due to
+     * {@code due}.
+     */
+    void advance(long tick, Consumer<T> due) {
+        while (current < tick) {
+            current++;
+            cascade();
+            int index = (int) (current & MASK);
+            List<Timer<T>> expired = slots.get(index);
+            if (expired != null) {
+                slots.set(index, null);
+                size -= expired.size();
+                for (Timer<T> timer : expired) {
+                    due.accept(timer.item());
+                }
+            }
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * (level + 1);
+            if (timer.deadline() >>> shift == current >>> shift) {
+                int index = level * SLOTS + (int) ((timer.deadline() >>> (SLOT_BITS * level)) & MASK);
+                List<Timer<T>> slot = slots.get(index);
+                if (slot == null) {
+                    slot = new ArrayList<>();
+                    slots.set(index, slot);
+                }
+                slot.add(timer);
+                return;
+            }
+        }
+        overflow.add(timer);
+    }
+
+    /**
+     * Re-places the timers of every slot whose span starts at the current tick, highest level first, so a
+     * timer can fall through several levels in one tick.
+     */
+    private void cascade() {
+        if ((current & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0 && !overflow.isEmpty()) {
+            List<Timer<T>> timers = overflow;
+            overflow = new ArrayList<>();
+            timers.forEach(this::place);
+        }
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((current & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                continue;
+            }
+            int index = level * SLOTS + (int) ((current >>> (SLOT_BITS * level)) & MASK);
+            List<Timer<T>> timers = slots.get(index);
+            if (timers != null) {
+                slots.set(index, null);
+                timers.forEach(this::place);
+            }
+        }
+    }
+}
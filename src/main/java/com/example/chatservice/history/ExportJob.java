@@ -0,0 +1,87 @@
+package com.example.chatservice.history;
+
+import com.example.chatservice.Dto.response.RoomExportProgress;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A running or recently finished room history export. The writer advances it a batch at a time; a cancel
+ * request is seen before the next batch is written.
+ */
+public class ExportJob {
+
+    public enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    private final String id;
+    private final String roomId;
+    private final String userId;
+    private final HistoryExporter.Format format;
+    private final long total;
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong written = new AtomicLong();
+    private volatile boolean cancelRequested;
+    private volatile State state = State.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    ExportJob(String id, String roomId, String userId, HistoryExporter.Format format, long total) {
+        this.id = id;
+        this.roomId = roomId;
+        this.userId = userId;
+        this.format = format;
+        this.total = total;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public HistoryExporter.Format getFormat() {
+        return format;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Asks the writer to stop before its next batch. No effect once the export has finished.
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void advance(long count) {
+        written.addAndGet(count);
+    }
+
+    void finish(State state, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = state;
+    }
+
+    public RoomExportProgress toProgress() {
+        return new RoomExportProgress(id, roomId, format.name().toLowerCase(), state.name(), total, written.get(),
+                startedAt, finishedAt, error);
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.chatservice.history;
+
+import com.example.chatservice.Dto.response.ExportedMessage;
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.exception.ExportCancelledException;
+import com.example.chatservice.service.CryptoService;
+import com.example.chatservice.store.MessageStore;
+import com.example.chatservice.store.UserStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a room's whole history as NDJSON, one {@link ExportedMessage} per line, or as a zip holding
+ * {@value #ROOM_ENTRY} and {@value #MESSAGES_ENTRY}.
+ *
+ * <p>Messages come off a store cursor oldest first and are handled {@code app.history.export.batch-size} at a
+ * time: the batch's senders are looked up in one query, its content is decrypted, and it is written and
+ * flushed before the next batch is read. Senders are cached up to {@code app.history.export.sender-cache}
+ * entries, so heap use does not grow with the size of the room.
+ *
+ * <p>Each export is tracked as an {@link ExportJob} that reports progress and can be cancelled. Finished jobs
+ * are kept for {@code app.history.export.retention-ms}.
+ */
+@Component
+public class HistoryExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryExporter.class);
+
+    public static final String ROOM_ENTRY = "room.json";
+    public static final String MESSAGES_ENTRY = "messages.ndjson";
+
+    public enum Format {
+        NDJSON, ZIP
+    }
+
+    private final MessageStore messageStore;
+    private final UserStore userStore;
+    private final CryptoService cryptoService;
+    private final JsonMapper jsonMapper;
+    private final int batchSize;
+    private final int senderCacheSize;
+    private final long retentionMillis;
+    private final Counter exported;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public HistoryExporter(MessageStore messageStore,
+                           UserStore userStore,
+                           CryptoService cryptoService,
+                           JsonMapper jsonMapper,
+                           @Value("${app.history.export.batch-size:500}") int batchSize,
+                           @Value("${app.history.export.sender-cache:10000}") int senderCacheSize,
+                           @Value("${app.history.export.retention-ms:600000}") long retentionMillis,
+                           MeterRegistry registry) {
+        this.messageStore = messageStore;
+        this.userStore = userStore;
+        this.cryptoService = cryptoService;
+        this.jsonMapper = jsonMapper;
+        this.batchSize = batchSize;
+        this.senderCacheSize = senderCacheSize;
+        this.retentionMillis = retentionMillis;
+        this.exported = Counter.builder("chat.history.messages").tag("direction", "export")
+                .description("Messages written by room history exports or read by imports")
+                .register(registry);
+    }
+
+    /**
+     * Registers an export of {@code room}; the returned job starts writing when {@link #body} is run.
+     */
+    public ExportJob start(ChatRoom room, String userId, Format format) {
+        purgeFinished();
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), room.getId(), userId, format,
+                messageStore.countByRoom(room.getId()));
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    public Optional<ExportJob> find(String exportId) {
+        return Optional.ofNullable(jobs.get(exportId));
+    }
+
+    public StreamingResponseBody body(ChatRoom room, ExportJob job) {
+        return out -> {
+            try {
+                write(room, job, out);
+                job.finish(ExportJob.State.COMPLETED, null);
+                log.info("Exported room {} ({}): {} messages", room.getId(), job.getFormat(),
+                        job.toProgress().written());
+            } catch (CancellationException e) {
+                job.finish(ExportJob.State.CANCELLED, null);
+                log.info("Export {} of room {} cancelled after {} messages", job.getId(), room.getId(),
+                        job.toProgress().written());
+                throw new ExportCancelledException(job.getId());
+            } catch (IOException | RuntimeException e) {
+                job.finish(ExportJob.State.FAILED, e.getMessage());
+                throw e;
+            }
+        };
+    }
+
+    private void write(ChatRoom room, ExportJob job, OutputStream out) throws IOException {
+        try (Stream<Message> messages = messageStore.streamRoom(room.getId())) {
+            if (job.getFormat() == Format.ZIP) {
+                ZipOutputStream zip = new ZipOutputStream(out);
+                zip.putNextEntry(new ZipEntry(ROOM_ENTRY));
+                zip.write(jsonMapper.writeValueAsBytes(manifest(room, job)));
+                zip.closeEntry();
+                zip.putNextEntry(new ZipEntry(MESSAGES_ENTRY));
+                writeMessages(messages.iterator(), job, zip);
+                zip.closeEntry();
+                zip.finish();
+            } else {
+                writeMessages(messages.iterator(), job, out);
+            }
+            out.flush();
+        }
+    }
+
+    private void writeMessages(Iterator<Message> source, ExportJob job, OutputStream out) throws IOException {
+        Map<String, User> senders = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, User> eldest) {
+                return size() > senderCacheSize;
+            }
+        };
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (source.hasNext()) {
+            if (job.isCancelRequested()) {
+                throw new CancellationException();
+            }
+            batch.clear();
+            while (batch.size() < batchSize && source.hasNext()) {
+                batch.add(source.next());
+            }
+            resolveSenders(batch, senders);
+            for (Message message : batch) {
+                out.write(jsonMapper.writeValueAsBytes(toExported(message, senders.get(message.getSenderId()))));
+                out.write('\n');
+            }
+            out.flush();
+            job.advance(batch.size());
+            exported.increment(batch.size());
+        }
+    }
+
+    private void resolveSenders(List<Message> batch, Map<String, User> senders) {
+        Set<String> missing = new HashSet<>();
+        for (Message message : batch) {
+            if (message.getSenderId() != null && !senders.containsKey(message.getSenderId())) {
+                missing.add(message.getSenderId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (User user : userStore.findByIds(missing)) {
+                senders.put(user.getId(), user);
+            }
+        }
+    }
+
+    private ExportedMessage toExported(Message message, User sender) {
+        String content;
+        try {
+            content = message.getEncryptedContent() != null ? cryptoService.decrypt(message.getEncryptedContent()) : null;
+        } catch (RuntimeException e) {
+            content = null;
+        }
+        List<ExportedMessage.Receipt> receipts = new ArrayList<>();
+        if (message.getReceipts() != null) {
+            for (Message.MessageReceipt receipt : message.getReceipts()) {
+                receipts.add(new ExportedMessage.Receipt(receipt.getUserId(),
+                        receipt.getStatus() != null ? receipt.getStatus().name() : null,
+                        receipt.getDeliveredAt(), receipt.getSeenAt()));
+            }
+        }
+        return new ExportedMessage(
+                message.getId(),
+                message.getSeq(),
+                message.getSenderId(),
+                sender != null ? sender.getUsername() : null,
+                sender != null ? sender.getDisplayName() : null,
+                message.getMessageType() != null ? message.getMessageType().name() : null,
+                content,
+                message.getAttachmentId(),
+                message.getCreatedAt(),
+                message.getEditedAt(),
+                message.getViewCount(),
+                receipts,
+                message.getDeletedForUsers());
+    }
+
+    private static Map<String, Object> manifest(ChatRoom room, ExportJob job) {
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("roomId", room.getId());
+        manifest.put("name", room.getName());
+        manifest.put("description", room.getDescription());
+        manifest.put("roomType", room.getRoomType().name());
+        manifest.put("exportId", job.getId());
+        manifest.put("exportedAt", Instant.now());
+        manifest.put("messageCount", job.toProgress().total());
+        return manifest;
+    }
+
+    private void purgeFinished() {
+        Instant cutoff = Instant.now().minusMillis(retentionMillis);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+}
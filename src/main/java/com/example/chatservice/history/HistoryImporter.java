@@ -0,0 +1,330 @@
+package com.example.chatservice.history;
+
+import com.example.chatservice.Dto.response.ExportedMessage;
+import com.example.chatservice.Dto.response.RoomImportResult;
+import com.example.chatservice.Model.Attachment;
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.Model.RoomMembership;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.expiry.MessageExpiry;
+import com.example.chatservice.service.BroadcastRooms;
+import com.example.chatservice.service.CryptoService;
+import com.example.chatservice.service.RoomSequencer;
+import com.example.chatservice.store.AttachmentStore;
+import com.example.chatservice.store.MembershipStore;
+import com.example.chatservice.store.MessageStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Loads a history written by {@link HistoryExporter} into a room, as NDJSON or as the exported zip.
+ *
+ * <p>Lines are parsed as they arrive and inserted in ordered batches of
+ * {@code app.history.import.batch-size}. Content is encrypted under the room's current data key. Senders are
+ * matched against the room's current members by id, then by username, so an export from another deployment
+ * can be loaded; a message from anyone else is attributed to the admin running the import, so an import
+ * cannot put words in the mouth of someone who is not in the room. Attachment ids are kept only for
+ * attachments uploaded to this room. Every message gets a new sequence number in file order.
+ *
+ * <p>Receipts are rebuilt for the room's current members: a member keeps the exported receipt if there is
+ * one, and anyone else counts as having seen the message. A message keeps its exported id if that is a valid
+ * ObjectId and gets a new one otherwise. Messages whose id is already stored are skipped, so an interrupted
+ * import can be run again. In a room with a message TTL, imported messages expire that long after the import.
+ */
+@Component
+public class HistoryImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryImporter.class);
+
+    private final MessageStore messageStore;
+    private final AttachmentStore attachmentStore;
+    private final MembershipStore membershipStore;
+    private final CryptoService cryptoService;
+    private final RoomSequencer roomSequencer;
+    private final BroadcastRooms broadcastRooms;
+    private final MessageExpiry messageExpiry;
+    private final JsonMapper jsonMapper;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final Counter imported;
+
+    public HistoryImporter(MessageStore messageStore,
+                           AttachmentStore attachmentStore,
+                           MembershipStore membershipStore,
+                           CryptoService cryptoService,
+                           RoomSequencer roomSequencer,
+                           BroadcastRooms broadcastRooms,
+                           MessageExpiry messageExpiry,
+                           JsonMapper jsonMapper,
+                           @Value("${app.history.import.batch-size:500}") int batchSize,
+                           @Value("${app.history.import.max-errors:100}") int maxReportedErrors,
+                           MeterRegistry registry) {
+        this.messageStore = messageStore;
+        this.attachmentStore = attachmentStore;
+        this.membershipStore = membershipStore;
+        this.cryptoService = cryptoService;
+        this.roomSequencer = roomSequencer;
+        this.broadcastRooms = broadcastRooms;
+        this.messageExpiry = messageExpiry;
+        this.jsonMapper = jsonMapper;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.imported = Counter.builder("chat.history.messages").tag("direction", "import")
+                .description("Messages written by room history exports or read by imports")
+                .register(registry);
+    }
+
+    /**
+     * Imports {@code body} into {@code room} on behalf of {@code importer}, a room admin. With {@code zip},
+     * the body is an export archive and its {@value HistoryExporter#MESSAGES_ENTRY} entry is read.
+     *
+     * @throws IllegalArgumentException if the archive has no messages entry
+     */
+    public RoomImportResult importHistory(ChatRoom room, User importer, InputStream body, boolean zip)
+            throws IOException {
+        InputStream source = zip ? messagesEntry(body) : body;
+        Import run = new Import(room, importer);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            run.lines++;
+            if (line.isBlank()) {
+                continue;
+            }
+            ExportedMessage exported;
+            try {
+                exported = jsonMapper.readValue(line, ExportedMessage.class);
+            } catch (JacksonException e) {
+                run.reject(run.lines, "Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            if (exported.content() == null) {
+                run.reject(run.lines, "No content");
+                continue;
+            }
+            run.batch.add(exported);
+            run.batchLines.add(run.lines);
+            if (run.batch.size() >= batchSize) {
+                run.flush();
+            }
+        }
+        run.flush();
+        // Imported messages took sequence numbers the replay window does not hold
+        roomSequencer.cleared(room.getId());
+        log.info("Imported {} messages into room {} from {} lines, {} rejected, {} attributed to importer {}",
+                run.imported, room.getId(), run.lines, run.failed, run.reattributed, importer.getId());
+        return new RoomImportResult(run.lines, run.imported, run.failed, run.errors);
+    }
+
+    private static InputStream messagesEntry(InputStream body) throws IOException {
+        ZipInputStream zip = new ZipInputStream(body);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (HistoryExporter.MESSAGES_ENTRY.equals(entry.getName())) {
+                return zip;
+            }
+        }
+        throw new IllegalArgumentException("Archive has no " + HistoryExporter.MESSAGES_ENTRY);
+    }
+
+    private final class Import {
+        private final ChatRoom room;
+        private final User importer;
+        private final boolean broadcast;
+        private final List<User> members;
+        private final Map<String, User> membersById = new HashMap<>();
+        private final Map<String, User> membersByUsername = new HashMap<>();
+        // Attachment id -> whether it belongs to this room
+        private final Map<String, Boolean> attachments = new HashMap<>();
+        private final List<ExportedMessage> batch = new ArrayList<>(batchSize);
+        private final List<Long> batchLines = new ArrayList<>(batchSize);
+        private long lines;
+        private long imported;
+        private long failed;
+        private long reattributed;
+        private final List<RoomImportResult.LineError> errors = new ArrayList<>();
+
+        private Import(ChatRoom room, User importer) {
+            this.room = room;
+            this.importer = importer;
+            this.broadcast = broadcastRooms.isBroadcast(room.getId());
+            this.members = membershipStore.findActiveByRoom(room.getId()).stream()
+                    .map(RoomMembership::getUser)
+                    .toList();
+            for (User member : members) {
+                membersById.put(member.getId(), member);
+                membersByUsername.put(member.getUsername(), member);
+            }
+        }
+
+        private void reject(long line, String error) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new RoomImportResult.LineError(line, error));
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<Message> messages = new ArrayList<>(batch.size());
+            List<Long> messageLines = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                messages.add(toMessage(batch.get(i)));
+                messageLines.add(batchLines.get(i));
+            }
+            List<Integer> skipped;
+            try {
+                skipped = messageStore.insertAll(messages);
+            } finally {
+                // Imported messages are not broadcast
+                for (Message message : messages) {
+                    roomSequencer.settled(room.getId(), message.getSeq());
+                }
+            }
+            for (int index : skipped) {
+                reject(messageLines.get(index), "Message " + messages.get(index).getId() + " already exists");
+            }
+            Set<Integer> notInserted = new HashSet<>(skipped);
+            for (int i = 0; i < messages.size(); i++) {
+                if (!notInserted.contains(i)) {
+                    messageExpiry.schedule(messages.get(i));
+                }
+            }
+            imported += messages.size() - skipped.size();
+            HistoryImporter.this.imported.increment(messages.size() - skipped.size());
+            batch.clear();
+            batchLines.clear();
+        }
+
+        /**
+         * The current member the message was exported from, matched by id and then by username, or the importer
+         * if that user is not in the room.
+         */
+        private User sender(ExportedMessage exported) {
+            User sender = exported.senderId() != null ? membersById.get(exported.senderId()) : null;
+            if (sender == null && exported.senderUsername() != null) {
+                sender = membersByUsername.get(exported.senderUsername());
+            }
+            if (sender == null) {
+                reattributed++;
+                return importer;
+            }
+            return sender;
+        }
+
+        private boolean inRoom(String attachmentId) {
+            return attachments.computeIfAbsent(attachmentId, id -> attachmentStore.findById(id)
+                    .map(Attachment::getRoomId)
+                    .filter(room.getId()::equals)
+                    .isPresent());
+        }
+
+        private Message toMessage(ExportedMessage exported) {
+            User sender = sender(exported);
+            Message message = new Message();
+            // The id becomes _id; anything but an ObjectId would be stored as a string and break id-ordered reads
+            message.setId(exported.id() != null && ObjectId.isValid(exported.id())
+                    ? exported.id() : new ObjectId().toHexString());
+            message.setRoom(room);
+            message.setSender(sender);
+            message.setSeq(roomSequencer.next(room.getId()));
+            message.setEncryptedContent(cryptoService.encrypt(room.getId(), exported.content()));
+            message.setMessageType(messageType(exported.messageType()));
+            if (exported.attachmentId() != null && inRoom(exported.attachmentId())) {
+                message.setAttachmentId(exported.attachmentId());
+            } else if (message.getMessageType() == Message.MessageType.IMAGE
+                    || message.getMessageType() == Message.MessageType.FILE) {
+                // The file is not in this room; keep the caption as text
+                message.setMessageType(Message.MessageType.TEXT);
+            }
+            Instant now = Instant.now();
+            message.setCreatedAt(exported.createdAt() != null && exported.createdAt().isBefore(now)
+                    ? exported.createdAt() : now);
+            message.setEditedAt(exported.editedAt());
+            // The room's TTL counts from the import, as if the message had been sent now
+            message.setExpiresAt(messageExpiry.expiryFor(room, null));
+            message.setViewCount(exported.viewCount() != null ? exported.viewCount() : 0);
+            if (exported.deletedForUsers() != null) {
+                message.setDeletedForUsers(new ArrayList<>(exported.deletedForUsers()));
+            }
+            message.setReceipts(broadcast ? new ArrayList<>() : receipts(exported, sender));
+            message.recalculateStatus();
+            return message;
+        }
+
+        private List<Message.MessageReceipt> receipts(ExportedMessage exported, User sender) {
+            Map<String, ExportedMessage.Receipt> previous = new HashMap<>();
+            if (exported.receipts() != null) {
+                for (ExportedMessage.Receipt receipt : exported.receipts()) {
+                    previous.put(receipt.userId(), receipt);
+                }
+            }
+            List<Message.MessageReceipt> receipts = new ArrayList<>(members.size());
+            for (User member : members) {
+                if (member.getId().equals(sender.getId())) {
+                    continue;
+                }
+                Message.MessageReceipt receipt = new Message.MessageReceipt(member.getId(), member.getUsername(),
+                        member.getDisplayName());
+                ExportedMessage.Receipt old = previous.get(member.getId());
+                if (old != null && status(old.status()) != null) {
+                    receipt.setStatus(status(old.status()));
+                    receipt.setDeliveredAt(old.deliveredAt());
+                    receipt.setSeenAt(old.seenAt());
+                } else {
+                    // The member was not in the room when this was written; do not count it as unread
+                    receipt.setStatus(Message.MessageStatus.SEEN);
+                }
+                receipts.add(receipt);
+            }
+            return receipts;
+        }
+    }
+
+    private static Message.MessageStatus status(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Message.MessageStatus.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Message.MessageType messageType(String name) {
+        if (name == null) {
+            return Message.MessageType.TEXT;
+        }
+        try {
+            return Message.MessageType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return Message.MessageType.TEXT;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.chatservice.journal;
+
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.Model.User;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal form of a {@link Message}: the stored fields with the room and sender reduced to their ids, so a
+ * record is self-contained and does not drag the {@code @DBRef} documents along.
+ */
+public record JournalEntry(String id, String roomId, String senderId, String encryptedContent,
+                           Message.MessageType messageType, Message.MessageStatus status,
+                           Instant createdAt, Instant editedAt, List<Receipt> receipts,
+                           List<String> deletedForUsers, Long seq, String attachmentId,
+                           Instant expiresAt) {
+
+    public record Receipt(String userId, String username, String displayName, Message.MessageStatus status,
+                          Instant deliveredAt, Instant seenAt) {
+    }
+
+    public static JournalEntry from(Message message) {
+        List<Receipt> receipts = new ArrayList<>();
+        if (message.getReceipts() != null) {
+            for (Message.MessageReceipt r : message.getReceipts()) {
+                receipts.add(new Receipt(r.getUserId(), r.getUsername(), r.getDisplayName(), r.getStatus(),
+                        r.getDeliveredAt(), r.getSeenAt()));
+            }
+        }
+        return new JournalEntry(message.getId(), message.getRoomId(), message.getSenderId(),
+                message.getEncryptedContent(), message.getMessageType(), message.getStatus(),
+                message.getCreatedAt(), message.getEditedAt(), receipts,
+                message.getDeletedForUsers() != null ? List.copyOf(message.getDeletedForUsers()) : List.of(),
+                message.getSeq(), message.getAttachmentId(), message.getExpiresAt());
+    }
+
+    /**
+     * Builds a fresh, mutable {@link Message}. Every call returns a new instance so callers can modify it
+     * without touching the journaled state.
+     */
+    public Message toMessage(ChatRoom room, User sender) {
+        Message message = new Message();
+        message.setId(id);
+        message.setRoom(room);
+        message.setRoomId(roomId);
+        message.setSender(sender);
+        message.setSenderId(senderId);
+        message.setEncryptedContent(encryptedContent);
+        message.setMessageType(messageType);
+        message.setStatus(status);
+        message.setCreatedAt(createdAt);
+        message.setEditedAt(editedAt);
+        // Records journaled before sequencing have none
+        message.setSeq(seq != null ? seq : 0L);
+        message.setAttachmentId(attachmentId);
+        message.setExpiresAt(expiresAt);
+        List<Message.MessageReceipt> copies = new ArrayList<>();
+        if (receipts != null) {
+            for (Receipt r : receipts) {
+                Message.MessageReceipt copy = new Message.MessageReceipt(r.userId(), r.username(), r.displayName());
+                copy.setStatus(r.status());
+                copy.setDeliveredAt(r.deliveredAt());
+                copy.setSeenAt(r.seenAt());
+                copies.add(copy);
+            }
+        }
+        message.setReceipts(copies);
+        message.setDeletedForUsers(deletedForUsers != null ? new ArrayList<>(deletedForUsers) : new ArrayList<>());
+        return message;
+    }
+
+    long sequence() {
+        return seq != null ? seq : 0L;
+    }
+
+    boolean isDeletedFor(String userId) {
+        return deletedForUsers != null && deletedForUsers.contains(userId);
+    }
+
+    boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.chatservice.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A preallocated, memory-mapped log file of variable-length records:
+ *
+ * <pre>
+ *   int   payload length (0 marks the end of the log)
+ *   int   CRC32 of sequence + payload
+ *   long  sequence
+ *   byte[] payload
+ * </pre>
+ *
+ * Only the journal's appending thread (under its write lock) writes. Files are named
+ * {@code wal-<first sequence>.log} so lexical order is write order.
+ */
+final class JournalSegment implements Closeable {
+
+    static final String PREFIX = "wal-";
+    static final String SUFFIX = ".log";
+    static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+    private int forcedPosition;
+    private long lastSequence;
+
+    private JournalSegment(Path path, int size) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        // Make the new file's directory entry and size durable before anything is acknowledged from it
+        channel.force(true);
+    }
+
+    static Path fileName(Path directory, long firstSequence) {
+        return directory.resolve(PREFIX + String.format("%020d", firstSequence) + SUFFIX);
+    }
+
+    static JournalSegment create(Path directory, long firstSequence, int size) throws IOException {
+        return new JournalSegment(fileName(directory, firstSequence), size);
+    }
+
+    /**
+     * Appends a record; returns false without writing if it does not fit in the remaining space.
+     * The length word is written last so a reader never sees a header for a half-copied payload.
+     */
+    boolean append(long sequence, byte[] payload) {
+        int end = position + HEADER_SIZE + payload.length;
+        // Keep room for the terminating zero length
+        if (end + Integer.BYTES > buffer.capacity()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+        crc.update(payload);
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.putLong(position + 2 * Integer.BYTES, sequence);
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.putInt(position, payload.length);
+        position = end;
+        lastSequence = sequence;
+        return true;
+    }
+
+    static int maxPayload(int segmentSize) {
+        return segmentSize - HEADER_SIZE - Integer.BYTES;
+    }
+
+    int position() {
+        return position;
+    }
+
+    /**
+     * Syncs the bytes written since the last force up to {@code upTo}, rather than the whole mapping.
+     */
+    synchronized void force(int upTo) {
+        if (upTo > forcedPosition) {
+            buffer.force(forcedPosition, upTo - forcedPosition);
+            forcedPosition = upTo;
+        }
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    record Entry(long sequence, byte[] payload) {
+    }
+
+    /**
+     * Reads every intact record in {@code path}, oldest first, stopping at the end marker or at the
+     * first torn/corrupt record.
+     */
+    static List<Entry> readAll(Path path) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = readChannel.size();
+            MappedByteBuffer view = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int offset = 0;
+            while (offset + HEADER_SIZE <= size) {
+                int length = view.getInt(offset);
+                if (length <= 0 || offset + HEADER_SIZE + (long) length > size) {
+                    break;
+                }
+                int expectedCrc = view.getInt(offset + Integer.BYTES);
+                long sequence = view.getLong(offset + 2 * Integer.BYTES);
+                byte[] payload = new byte[length];
+                view.get(offset + HEADER_SIZE, payload);
+
+                CRC32 crc = new CRC32();
+                crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                entries.add(new Entry(sequence, payload));
+                offset += HEADER_SIZE + length;
+            }
+        }
+        return entries;
+    }
+}
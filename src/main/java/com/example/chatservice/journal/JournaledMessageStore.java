@@ -0,0 +1,612 @@
+package com.example.chatservice.journal;
+
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.store.MessageStore;
+import com.example.chatservice.store.RoomStore;
+import com.example.chatservice.store.UserStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link MessageStore} that acknowledges new messages once they are in the local {@link MessageJournal}
+ * rather than once the backend has committed them.
+ *
+ * <p>New messages are journaled and kept in memory as pending until a replayer thread has inserted them
+ * into the backend, idempotently by message id. Reads merge pending messages with the backend's results,
+ * and updates or deletes of a pending message are applied to the pending copy and carried over once it
+ * lands. Deleting a pending message also journals a tombstone for it, so a crash before it is replayed
+ * does not bring it back. Messages that already exist in the backend pass straight through.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true", matchIfMissing = true)
+public class JournaledMessageStore implements MessageStore {
+
+    private static final Logger log = LoggerFactory.getLogger(JournaledMessageStore.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+    private static final Comparator<Message> OLDEST_FIRST =
+            Comparator.comparing(Message::getCreatedAt).thenComparing(Message::getId);
+
+    private final MessageStore delegate;
+    private final MessageJournal journal;
+    private final RoomStore roomStore;
+    private final UserStore userStore;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private final Counter replayed;
+    private final Counter replayFailures;
+
+    // All three maps are guarded by lock
+    private final Object lock = new Object();
+    private final TreeMap<Long, Pending> bySequence = new TreeMap<>();
+    private final Map<String, Pending> byId = new HashMap<>();
+    private final Map<String, Map<String, Pending>> byRoom = new HashMap<>();
+
+    private volatile boolean running;
+    private Thread replayer;
+
+    public JournaledMessageStore(@Qualifier(MessageStore.BACKEND) MessageStore delegate,
+                                 MessageJournal journal,
+                                 RoomStore roomStore,
+                                 UserStore userStore,
+                                 MeterRegistry registry) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.roomStore = roomStore;
+        this.userStore = userStore;
+
+        this.replayed = Counter.builder("chat.journal.replayed")
+                .description("Journaled messages written to the backing store")
+                .register(registry);
+        this.replayFailures = Counter.builder("chat.journal.replay.failures")
+                .description("Failed attempts to write a journaled message to the backing store")
+                .register(registry);
+        Gauge.builder("chat.journal.pending", this, JournaledMessageStore::pendingCount)
+                .description("Acknowledged messages not yet in the backing store")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (JournalSegment.Entry record : journal.recovered()) {
+            JournalEntry entry = jsonMapper.readValue(record.payload(), JournalEntry.class);
+            ChatRoom room = roomStore.findById(entry.roomId()).orElseGet(() -> stubRoom(entry.roomId()));
+            User sender = userStore.findById(entry.senderId()).orElseGet(() -> stubUser(entry.senderId()));
+            register(new Pending(record.sequence(), entry, room, sender));
+        }
+
+        running = true;
+        replayer = new Thread(this::runReplayer, "message-journal-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (replayer != null) {
+            LockSupport.unpark(replayer);
+            replayer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    @Override
+    public Message save(Message message) {
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+            if (message.getCreatedAt() == null) {
+                message.setCreatedAt(Instant.now());
+            }
+            JournalEntry entry = JournalEntry.from(message);
+            byte[] payload = jsonMapper.writeValueAsBytes(entry);
+            Pending[] registered = new Pending[1];
+            try {
+                journal.append(payload, sequence -> {
+                    registered[0] = new Pending(sequence, entry, message.getRoom(), message.getSender());
+                    register(registered[0]);
+                });
+            } catch (RuntimeException e) {
+                // Not acknowledged, so not replayed either
+                if (registered[0] != null) {
+                    synchronized (lock) {
+                        unregister(registered[0]);
+                    }
+                }
+                message.setId(null);
+                throw e;
+            }
+            LockSupport.unpark(replayer);
+            return message;
+        }
+        synchronized (lock) {
+            Pending pending = byId.get(message.getId());
+            if (pending != null) {
+                pending.entry = JournalEntry.from(message);
+                return message;
+            }
+        }
+        return delegate.save(message);
+    }
+
+    @Override
+    public void markDelivered(List<DeliveryAck> acks, Instant deliveredAt) {
+        List<DeliveryAck> stored = new ArrayList<>(acks.size());
+        synchronized (lock) {
+            Map<String, Message> changed = new LinkedHashMap<>();
+            for (DeliveryAck ack : acks) {
+                Pending pending = byId.get(ack.messageId());
+                if (pending == null) {
+                    stored.add(ack);
+                    continue;
+                }
+                // Applied to the current pending copy under the lock, so nothing written since the read is lost
+                Message message = changed.computeIfAbsent(ack.messageId(), id -> pending.toMessage());
+                for (Message.MessageReceipt receipt : message.getReceipts()) {
+                    if (ack.userId().equals(receipt.getUserId())
+                            && receipt.getStatus() == Message.MessageStatus.SENT) {
+                        receipt.setStatus(Message.MessageStatus.DELIVERED);
+                        receipt.setDeliveredAt(deliveredAt);
+                    }
+                }
+            }
+            for (Message message : changed.values()) {
+                message.recalculateStatus();
+                byId.get(message.getId()).entry = JournalEntry.from(message);
+            }
+        }
+        delegate.markDelivered(stored, deliveredAt);
+    }
+
+    @Override
+    public boolean insertIfAbsent(Message message) {
+        synchronized (lock) {
+            if (byId.containsKey(message.getId())) {
+                return false;
+            }
+        }
+        return delegate.insertIfAbsent(message);
+    }
+
+    @Override
+    public List<Integer> insertAll(List<Message> messages) {
+        List<Integer> skipped = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>(messages.size());
+        List<Message> absent = new ArrayList<>(messages.size());
+        synchronized (lock) {
+            for (int i = 0; i < messages.size(); i++) {
+                if (byId.containsKey(messages.get(i).getId())) {
+                    skipped.add(i);
+                } else {
+                    positions.add(i);
+                    absent.add(messages.get(i));
+                }
+            }
+        }
+        for (int index : delegate.insertAll(absent)) {
+            skipped.add(positions.get(index));
+        }
+        skipped.sort(null);
+        return skipped;
+    }
+
+    @Override
+    public Optional<Message> findById(String messageId) {
+        synchronized (lock) {
+            Pending pending = byId.get(messageId);
+            if (pending != null) {
+                return Optional.of(pending.toMessage());
+            }
+        }
+        return delegate.findById(messageId);
+    }
+
+    @Override
+    public List<Message> findByReceiptStatus(String roomId, String userId, Message.MessageStatus status) {
+        List<Message> pending = pendingInRoom(roomId, entry -> !userId.equals(entry.senderId())
+                && entry.receipts() != null
+                && entry.receipts().stream().anyMatch(r -> userId.equals(r.userId()) && r.status() == status));
+        return merge(delegate.findByReceiptStatus(roomId, userId, status), pending);
+    }
+
+    @Override
+    public List<Message> findAwaitingDelivery(String roomId, Collection<String> userIds, long maxSeq) {
+        List<Message> pending = pendingInRoom(roomId, entry -> entry.sequence() > 0 && entry.sequence() <= maxSeq
+                && entry.receipts() != null
+                && entry.receipts().stream().anyMatch(r -> userIds.contains(r.userId())
+                        && r.status() == Message.MessageStatus.SENT));
+        return merge(delegate.findAwaitingDelivery(roomId, userIds, maxSeq), pending);
+    }
+
+    @Override
+    public Page<Message> findVisible(String roomId, String userId, Pageable pageable) {
+        Instant now = Instant.now();
+        List<Message> pending = pendingInRoom(roomId, entry -> !entry.isDeletedFor(userId) && !entry.isExpired(now));
+        if (pending.isEmpty()) {
+            return delegate.findVisible(roomId, userId, pageable);
+        }
+        // Pending messages push every stored one down the list, so merge from the top before paging
+        long end = pageable.getOffset() + pageable.getPageSize();
+        Page<Message> top = delegate.findVisible(roomId, userId,
+                PageRequest.of(0, Math.toIntExact(Math.min(end, Integer.MAX_VALUE)), pageable.getSort()));
+        Set<String> landed = top.getContent().stream().map(Message::getId).collect(Collectors.toSet());
+        long extra = pending.stream().filter(m -> !landed.contains(m.getId())).count();
+        List<Message> merged = merge(top.getContent(), pending);
+        merged.sort(OLDEST_FIRST.reversed());
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = (int) Math.min(end, merged.size());
+        return new PageImpl<>(new ArrayList<>(merged.subList(from, to)), pageable, top.getTotalElements() + extra);
+    }
+
+    @Override
+    public List<Message> findRecentVisible(String roomId, String userId, int limit) {
+        Instant now = Instant.now();
+        List<Message> pending = pendingInRoom(roomId, entry -> !entry.isDeletedFor(userId) && !entry.isExpired(now));
+        List<Message> merged = merge(delegate.findRecentVisible(roomId, userId, limit), pending);
+        merged.sort(OLDEST_FIRST.reversed());
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    @Override
+    public Stream<Message> streamVisible(String roomId, String userId, int limit) {
+        Instant now = Instant.now();
+        List<Message> pending = pendingInRoom(roomId, entry -> !entry.isDeletedFor(userId) && !entry.isExpired(now));
+        if (pending.isEmpty()) {
+            return delegate.streamVisible(roomId, userId, limit);
+        }
+        // Pending messages are the newest in the room, so they come first; skip any that landed meanwhile
+        pending.sort(OLDEST_FIRST.reversed());
+        Set<String> pendingIds = pending.stream().map(Message::getId).collect(Collectors.toSet());
+        return Stream.concat(pending.stream(),
+                        delegate.streamVisible(roomId, userId, limit).filter(m -> !pendingIds.contains(m.getId())))
+                .limit(limit);
+    }
+
+    @Override
+    public List<Message> findAllInRoom(String roomId) {
+        Instant now = Instant.now();
+        List<Message> merged = merge(delegate.findAllInRoom(roomId),
+                pendingInRoom(roomId, entry -> !entry.isExpired(now)));
+        merged.sort(OLDEST_FIRST);
+        return merged;
+    }
+
+    @Override
+    public Stream<Message> streamRoom(String roomId) {
+        Instant now = Instant.now();
+        List<Message> pending = pendingInRoom(roomId, entry -> !entry.isExpired(now));
+        if (pending.isEmpty()) {
+            return delegate.streamRoom(roomId);
+        }
+        // Pending messages are the newest in the room, so they go last; skip any that landed meanwhile
+        pending.sort(OLDEST_FIRST);
+        Set<String> pendingIds = pending.stream().map(Message::getId).collect(Collectors.toSet());
+        return Stream.concat(delegate.streamRoom(roomId).filter(m -> !pendingIds.contains(m.getId())),
+                pending.stream());
+    }
+
+    @Override
+    public List<Message> findAfterSequence(String roomId, long afterSeq, int limit) {
+        Instant now = Instant.now();
+        List<Message> pending = pendingInRoom(roomId, entry -> entry.sequence() > afterSeq && !entry.isExpired(now));
+        if (pending.isEmpty()) {
+            return delegate.findAfterSequence(roomId, afterSeq, limit);
+        }
+        return merge(delegate.findAfterSequence(roomId, afterSeq, limit), pending).stream()
+                .sorted(Comparator.comparingLong(Message::getSeq))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Stream<Message> streamExpiring() {
+        List<Message> pending = new ArrayList<>();
+        synchronized (lock) {
+            for (Pending p : byId.values()) {
+                if (!p.deleted && p.entry.expiresAt() != null) {
+                    pending.add(p.toMessage());
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return delegate.streamExpiring();
+        }
+        Set<String> pendingIds = pending.stream().map(Message::getId).collect(Collectors.toSet());
+        return Stream.concat(delegate.streamExpiring().filter(m -> !pendingIds.contains(m.getId())),
+                pending.stream());
+    }
+
+    @Override
+    public long countByRoom(String roomId) {
+        long notLanded;
+        synchronized (lock) {
+            Map<String, Pending> room = byRoom.get(roomId);
+            notLanded = room == null ? 0 : room.values().stream().filter(p -> !p.inserted).count();
+        }
+        return delegate.countByRoom(roomId) + notLanded;
+    }
+
+    /**
+     * Backend messages only. A message still waiting for the replayer lands with the content it was written
+     * with, which stays readable because superseded data keys are kept.
+     */
+    @Override
+    public List<Message> findContentPage(String roomId, String afterId, int limit) {
+        return delegate.findContentPage(roomId, afterId, limit);
+    }
+
+    @Override
+    public long replaceContent(List<ContentChange> changes) {
+        return delegate.replaceContent(changes);
+    }
+
+    /**
+     * Goes straight to the backend. Views of a message still waiting for the replayer are dropped; acks
+     * normally arrive long after it has landed.
+     */
+    @Override
+    public void incrementViews(String roomId, long fromSeq, long toSeq, long delta) {
+        delegate.incrementViews(roomId, fromSeq, toSeq, delta);
+    }
+
+    @Override
+    public void deleteById(String messageId) {
+        List<Pending> pending = new ArrayList<>(1);
+        synchronized (lock) {
+            Pending p = byId.get(messageId);
+            if (p != null) {
+                pending.add(p);
+            }
+        }
+        deletePending(pending);
+        delegate.deleteById(messageId);
+    }
+
+    @Override
+    public void deleteByIds(Collection<String> messageIds) {
+        List<Pending> pending = new ArrayList<>();
+        synchronized (lock) {
+            for (String messageId : messageIds) {
+                Pending p = byId.get(messageId);
+                if (p != null) {
+                    pending.add(p);
+                }
+            }
+        }
+        deletePending(pending);
+        delegate.deleteByIds(messageIds);
+    }
+
+    @Override
+    public void deleteByRoom(String roomId) {
+        List<Pending> pending;
+        synchronized (lock) {
+            Map<String, Pending> room = byRoom.get(roomId);
+            pending = room != null ? new ArrayList<>(room.values()) : List.of();
+        }
+        deletePending(pending);
+        delegate.deleteByRoom(roomId);
+    }
+
+    /**
+     * Journals a tombstone for each pending message and waits for it to be durable before marking them
+     * deleted, so a crash before replay cannot bring them back. One that lands meanwhile is still removed
+     * from the backend by the caller.
+     */
+    private void deletePending(List<Pending> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        journal.discard(pending.stream().map(p -> p.sequence).toList());
+        synchronized (lock) {
+            pending.forEach(p -> p.deleted = true);
+        }
+    }
+
+    // --- Replay ---
+
+    private void runReplayer() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (running) {
+            long durable = journal.durableSequence();
+            long last = 0;
+            Pending next;
+            try {
+                while (running && (next = nextReplayable(durable)) != null) {
+                    replay(next);
+                    last = next.sequence;
+                    backoff = MIN_BACKOFF_MILLIS;
+                }
+            } catch (RuntimeException e) {
+                replayFailures.increment();
+                log.warn("Failed to replay journaled message; retrying in {} ms", backoff, e);
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoff));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+            if (last > 0) {
+                journal.replayed(last);
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Oldest pending record that is already durable. Records are registered in sequence order under the
+     * journal's write lock, so nothing older can appear later and the checkpoint may advance past it.
+     */
+    private Pending nextReplayable(long durable) {
+        synchronized (lock) {
+            Map.Entry<Long, Pending> first = bySequence.firstEntry();
+            return first != null && first.getKey() <= durable ? first.getValue() : null;
+        }
+    }
+
+    private void replay(Pending pending) {
+        JournalEntry written = null;
+        while (true) {
+            JournalEntry snapshot;
+            boolean deleted;
+            synchronized (lock) {
+                snapshot = pending.entry;
+                deleted = pending.deleted;
+                if (snapshot == written || deleted && written == null) {
+                    // Up to date in the backend, or deleted before it ever got there
+                    unregister(pending);
+                    break;
+                }
+            }
+            if (deleted) {
+                delegate.deleteById(pending.entry.id());
+                synchronized (lock) {
+                    unregister(pending);
+                }
+                break;
+            }
+            Message message = snapshot.toMessage(pending.room, pending.sender);
+            if (written == null) {
+                // A false result means an earlier run already inserted it before crashing
+                delegate.insertIfAbsent(message);
+                pending.inserted = true;
+                replayed.increment();
+            } else {
+                delegate.save(message);
+            }
+            written = snapshot;
+        }
+    }
+
+    // --- Pending bookkeeping ---
+
+    // Called under the journal's write lock, or during startup
+    private void register(Pending pending) {
+        synchronized (lock) {
+            bySequence.put(pending.sequence, pending);
+            byId.put(pending.entry.id(), pending);
+            byRoom.computeIfAbsent(pending.entry.roomId(), id -> new LinkedHashMap<>()).put(pending.entry.id(), pending);
+        }
+    }
+
+    // Called under lock
+    private void unregister(Pending pending) {
+        bySequence.remove(pending.sequence);
+        byId.remove(pending.entry.id());
+        Map<String, Pending> room = byRoom.get(pending.entry.roomId());
+        if (room != null) {
+            room.remove(pending.entry.id());
+            if (room.isEmpty()) {
+                byRoom.remove(pending.entry.roomId());
+            }
+        }
+    }
+
+    private List<Message> pendingInRoom(String roomId, Predicate<JournalEntry> filter) {
+        List<Message> result = new ArrayList<>();
+        synchronized (lock) {
+            Map<String, Pending> room = byRoom.get(roomId);
+            if (room == null) {
+                return result;
+            }
+            for (Pending pending : room.values()) {
+                if (!pending.deleted && filter.test(pending.entry)) {
+                    result.add(pending.toMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Backend results with pending copies substituted, since a pending copy may hold newer edits than what
+     * the replayer has written so far.
+     */
+    private static List<Message> merge(List<Message> stored, List<Message> pending) {
+        if (pending.isEmpty()) {
+            return new ArrayList<>(stored);
+        }
+        Set<String> pendingIds = pending.stream().map(Message::getId).collect(Collectors.toSet());
+        List<Message> merged = new ArrayList<>(stored.size() + pending.size());
+        for (Message message : stored) {
+            if (!pendingIds.contains(message.getId())) {
+                merged.add(message);
+            }
+        }
+        merged.addAll(pending);
+        return merged;
+    }
+
+    private int pendingCount() {
+        synchronized (lock) {
+            return bySequence.size();
+        }
+    }
+
+    private static ChatRoom stubRoom(String roomId) {
+        ChatRoom room = new ChatRoom();
+        room.setId(roomId);
+        return room;
+    }
+
+    private static User stubUser(String userId) {
+        User user = new User();
+        user.setId(userId);
+        return user;
+    }
+
+    private static final class Pending {
+        final long sequence;
+        final ChatRoom room;
+        final User sender;
+        // Guarded by the store lock
+        JournalEntry entry;
+        boolean deleted;
+        volatile boolean inserted;
+
+        Pending(long sequence, JournalEntry entry, ChatRoom room, User sender) {
+            this.sequence = sequence;
+            this.entry = entry;
+            this.room = room;
+            this.sender = sender;
+        }
+
+        Message toMessage() {
+            return entry.toMessage(room, sender);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.chatservice.journal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Crash-safe local write-ahead log for outgoing messages.
+ *
+ * <p>{@link #append} copies a record into the current memory-mapped segment and blocks until a single
+ * flusher thread has fsynced it. Concurrent senders share one fsync (group commit), so the cost of a sync
+ * is amortised over everything appended while the previous one was in flight. Once the consumer has
+ * persisted records elsewhere it reports the highest sequence via {@link #replayed}, which is checkpointed
+ * and lets fully replayed segments be deleted. On startup, records past the checkpoint are handed back
+ * through {@link #recovered()}.
+ *
+ * <p>If a record is not durable within {@code app.journal.sync-timeout-ms}, the append fails and an abort
+ * marker for it is written behind it, so a record whose sender was told it failed is not recovered later.
+ * The same marker, written through {@link #discard}, keeps a record deleted before it was replayed from
+ * coming back.
+ */
+@Component
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true", matchIfMissing = true)
+public class MessageJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageJournal.class);
+
+    private static final String CHECKPOINT = "checkpoint";
+    // JSON payloads never start with a zero byte; a marker is the zero byte and the aborted sequence
+    private static final byte ABORT_MARKER = 0;
+    private static final int ABORT_MARKER_SIZE = 1 + Long.BYTES;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long syncTimeoutMillis;
+
+    private final Timer syncTimer;
+    private final Timer appendTimer;
+
+    private final Object writeLock = new Object();
+    private final Object durableMonitor = new Object();
+
+    // Guarded by writeLock. Rotated segments stay mapped until replayed so the flusher can still force them.
+    private JournalSegment current;
+    private long lastSequence;
+    private final Deque<Retained> retained = new ArrayDeque<>();
+
+    private volatile long durableSequence;
+    private long checkpoint;
+    private List<JournalSegment.Entry> recovered = List.of();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessageJournal(@Value("${app.journal.dir:data/journal}") String directory,
+                          @Value("${app.journal.segment-size-mb:64}") int segmentSizeMb,
+                          @Value("${app.journal.sync-timeout-ms:5000}") long syncTimeoutMillis,
+                          MeterRegistry registry) {
+        this.directory = Path.of(directory).toAbsolutePath();
+        this.segmentSize = Math.toIntExact((long) segmentSizeMb * 1024 * 1024);
+        this.syncTimeoutMillis = syncTimeoutMillis;
+
+        this.syncTimer = Timer.builder("chat.journal.sync")
+                .description("Time spent in one group-commit fsync")
+                .register(registry);
+        this.appendTimer = Timer.builder("chat.journal.append")
+                .description("Time from append until the record is durable")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        checkpoint = readCheckpoint();
+        lastSequence = checkpoint;
+
+        List<JournalSegment.Entry> pending = new ArrayList<>();
+        Set<Long> aborted = new HashSet<>();
+        for (Path segment : listSegments()) {
+            List<JournalSegment.Entry> entries = JournalSegment.readAll(segment);
+            long segmentLast = entries.isEmpty() ? 0 : entries.get(entries.size() - 1).sequence();
+            if (segmentLast <= checkpoint) {
+                Files.deleteIfExists(segment);
+                continue;
+            }
+            retained.addLast(new Retained(segment, segmentLast, null));
+            for (JournalSegment.Entry entry : entries) {
+                if (isAbortMarker(entry.payload())) {
+                    aborted.add(ByteBuffer.wrap(entry.payload(), 1, Long.BYTES).getLong());
+                } else if (entry.sequence() > checkpoint) {
+                    pending.add(entry);
+                }
+            }
+            lastSequence = Math.max(lastSequence, segmentLast);
+        }
+        pending.removeIf(entry -> aborted.contains(entry.sequence()));
+        recovered = pending;
+        durableSequence = lastSequence;
+
+        // Never append after a possibly torn tail; always start a fresh segment
+        current = JournalSegment.create(directory, lastSequence + 1, segmentSize);
+        log.info("Message journal at {} resuming at sequence {} with {} unreplayed record(s)",
+                directory, lastSequence + 1, pending.size());
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "message-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        synchronized (writeLock) {
+            try {
+                current.close();
+                for (Retained segment : retained) {
+                    if (segment.segment() != null) {
+                        segment.segment().close();
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Failed to close message journal segments", e);
+            }
+        }
+    }
+
+    /**
+     * Records found past the checkpoint at startup, in sequence order. The consumer must re-apply them
+     * and report them through {@link #replayed} like any other record.
+     */
+    List<JournalSegment.Entry> recovered() {
+        List<JournalSegment.Entry> entries = recovered;
+        recovered = List.of();
+        return entries;
+    }
+
+    /**
+     * Appends a record and returns its sequence once it is on disk. {@code onSequenced} runs under the
+     * journal's write lock, so callers can register the record in sequence order before anyone can
+     * observe a later one. If the sync times out, the record is marked aborted before this throws.
+     */
+    public long append(byte[] payload, LongConsumer onSequenced) {
+        if (payload.length > JournalSegment.maxPayload(segmentSize)) {
+            throw new RuntimeException("Message too large for the journal: " + payload.length + " bytes");
+        }
+        long started = System.nanoTime();
+        long sequence;
+        synchronized (writeLock) {
+            if (!running) {
+                throw new RuntimeException("Message journal is not running");
+            }
+            sequence = lastSequence + 1;
+            if (!current.append(sequence, payload)) {
+                rotate(sequence);
+                current.append(sequence, payload);
+            }
+            lastSequence = sequence;
+            onSequenced.accept(sequence);
+        }
+        LockSupport.unpark(flusher);
+        try {
+            awaitDurable(sequence);
+        } catch (RuntimeException e) {
+            abort(sequence);
+            throw e;
+        }
+        appendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return sequence;
+    }
+
+    public long durableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Marks every record up to {@code sequence} as persisted downstream. Advances the checkpoint and deletes
+     * rotated segments that hold nothing newer. Called from a single consumer thread.
+     */
+    public void replayed(long sequence) {
+        if (sequence <= checkpoint) {
+            return;
+        }
+        try {
+            writeCheckpoint(sequence);
+            checkpoint = sequence;
+        } catch (IOException e) {
+            log.warn("Failed to write message journal checkpoint {}", sequence, e);
+            return;
+        }
+        synchronized (writeLock) {
+            while (!retained.isEmpty() && retained.peekFirst().lastSequence() <= sequence) {
+                Retained segment = retained.pollFirst();
+                try {
+                    if (segment.segment() != null) {
+                        segment.segment().close();
+                    }
+                    Files.deleteIfExists(segment.path());
+                } catch (IOException e) {
+                    log.warn("Failed to delete replayed journal segment {}", segment.path(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the given records from being recovered, returning once that is on disk: for records deleted
+     * before they were replayed.
+     */
+    public void discard(Collection<Long> sequences) {
+        if (sequences.isEmpty()) {
+            return;
+        }
+        long last;
+        synchronized (writeLock) {
+            if (!running) {
+                throw new RuntimeException("Message journal is not running");
+            }
+            for (long sequence : sequences) {
+                appendMarker(sequence);
+            }
+            last = lastSequence;
+        }
+        LockSupport.unpark(flusher);
+        awaitDurable(last);
+    }
+
+    /**
+     * Appends a marker that keeps {@code sequence} from being recovered. It is not waited for: it is synced
+     * with whatever the flusher writes next, and a record that becomes durable before it is still replayed.
+     */
+    private void abort(long sequence) {
+        synchronized (writeLock) {
+            if (!running) {
+                return;
+            }
+            try {
+                appendMarker(sequence);
+            } catch (RuntimeException e) {
+                log.warn("Failed to write journal abort marker for sequence {}", sequence, e);
+                return;
+            }
+        }
+        LockSupport.unpark(flusher);
+    }
+
+    // Called under writeLock
+    private void appendMarker(long sequence) {
+        byte[] marker = ByteBuffer.allocate(ABORT_MARKER_SIZE).put(ABORT_MARKER).putLong(sequence).array();
+        long markerSequence = lastSequence + 1;
+        if (!current.append(markerSequence, marker)) {
+            rotate(markerSequence);
+            current.append(markerSequence, marker);
+        }
+        lastSequence = markerSequence;
+    }
+
+    private static boolean isAbortMarker(byte[] payload) {
+        return payload.length == ABORT_MARKER_SIZE && payload[0] == ABORT_MARKER;
+    }
+
+    private void awaitDurable(long sequence) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(syncTimeoutMillis);
+        synchronized (durableMonitor) {
+            while (durableSequence < sequence) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new RuntimeException("Timed out waiting for message journal sync");
+                }
+                try {
+                    durableMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted waiting for message journal sync");
+                }
+            }
+        }
+    }
+
+    private void runFlusher() {
+        while (running || durableSequence < lastAppended()) {
+            JournalSegment segment;
+            long target;
+            int upTo;
+            synchronized (writeLock) {
+                segment = current;
+                target = lastSequence;
+                upTo = segment.position();
+            }
+            if (target <= durableSequence) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            // Everything up to target is either in this segment or in one already forced by rotate()
+            long started = System.nanoTime();
+            try {
+                segment.force(upTo);
+            } catch (RuntimeException e) {
+                log.error("Message journal fsync failed", e);
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            syncTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            synchronized (durableMonitor) {
+                durableSequence = target;
+                durableMonitor.notifyAll();
+            }
+        }
+    }
+
+    private long lastAppended() {
+        synchronized (writeLock) {
+            return lastSequence;
+        }
+    }
+
+    // Called under writeLock
+    private void rotate(long firstSequence) {
+        try {
+            current.force(current.position());
+            retained.addLast(new Retained(current.path(), current.lastSequence(), current));
+            current = JournalSegment.create(directory, firstSequence, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rotate message journal segment", e);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        String value = Files.readString(file, StandardCharsets.US_ASCII).trim();
+        return value.isEmpty() ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file, fsyncs it and renames it over the old one, then fsyncs the
+     * directory so the rename survives a crash.
+     */
+    private void writeCheckpoint(long sequence) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = StandardCharsets.US_ASCII.encode(Long.toString(sequence));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not every platform lets a directory be opened for sync
+            log.debug("Could not fsync journal directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private List<Path> listSegments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(JournalSegment.PREFIX) && name.endsWith(JournalSegment.SUFFIX);
+                    })
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list journal segments in " + directory, e);
+        }
+    }
+
+    /**
+     * A segment that is no longer appended to but may still hold unreplayed records. {@code segment} is
+     * null for files left over from a previous run.
+     */
+    private record Retained(Path path, long lastSequence, JournalSegment segment) {
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.chatservice.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares loading a room's history through the paged endpoint ({@code GET /api/messages/rooms/{roomId}})
+ * with the streamed one ({@code GET /api/messages/rooms/{roomId}/stream}).
+ *
+ * <p>{@code --clients} concurrent clients each fetch {@code --limit} messages {@code --requests} times per
+ * mode. For every request the report has the time to the first byte and to the last byte. While a mode runs,
+ * the server's {@code jvm.threads.live} is sampled from Actuator, so it also shows how many threads each
+ * approach holds. The user must be able to read the room; seed it with {@link StompLoadGenerator} first.</p>
+ *
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass=com.example.chatservice.loadtest.HistoryBenchmark \
+ *     -Dexec.args="--roomId=... --clients=50 --requests=20 --limit=1000"
+ * </pre>
+ *
+ * The report is written to {@code target/history-benchmark.json}. This class is not a Spring bean and never
+ * runs inside the application context.
+ */
+public class HistoryBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryBenchmark.class);
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final String baseUrl;
+    private final String roomId;
+    private final int clients;
+    private final int requests;
+    private final int limit;
+    private final String token;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    public HistoryBenchmark(Map<String, String> values) throws Exception {
+        this.baseUrl = values.getOrDefault("baseUrl", "http://localhost:8081");
+        this.roomId = values.get("roomId");
+        this.clients = Integer.parseInt(values.getOrDefault("clients", "20"));
+        this.requests = Integer.parseInt(values.getOrDefault("requests", "10"));
+        this.limit = Integer.parseInt(values.getOrDefault("limit", "1000"));
+        if (roomId == null) {
+            throw new IllegalArgumentException("--roomId is required");
+        }
+        if (clients < 1 || requests < 1 || limit < 1) {
+            throw new IllegalArgumentException("clients, requests and limit must be at least 1");
+        }
+        this.token = login(values.getOrDefault("username", "loadtest-0"),
+                values.getOrDefault("password", "loadtest-password"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        Map<String, Object> report = new HistoryBenchmark(values).run();
+        String path = values.getOrDefault("report", "target/history-benchmark.json");
+        LoadTestMetrics.write(report, JsonMapper.builder().build(), path);
+        log.info("History benchmark report written to {}", path);
+        System.exit(0);
+    }
+
+    public Map<String, Object> run() throws Exception {
+        Map<String, Object> modes = new LinkedHashMap<>();
+        modes.put("paged", runMode("/api/messages/rooms/" + roomId + "?page=0&size=" + limit));
+        modes.put("streamed", runMode("/api/messages/rooms/" + roomId + "/stream?limit=" + limit));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("baseUrl", baseUrl);
+        report.put("roomId", roomId);
+        report.put("clients", clients);
+        report.put("requestsPerClient", requests);
+        report.put("limit", limit);
+        report.put("modes", modes);
+        return report;
+    }
+
+    private Map<String, Object> runMode(String path) throws Exception {
+        fetch(path, new Histogram(HIGHEST_TRACKABLE_MICROS, 3), new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+
+        Histogram firstByte = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        Histogram lastByte = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        AtomicLong bytes = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Long> threadSamples = new ArrayList<>();
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                Long threads = serverThreads();
+                if (threads != null) {
+                    synchronized (threadSamples) {
+                        threadSamples.add(threads);
+                    }
+                }
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "history-benchmark-sampler");
+        Long threadsBefore = serverThreads();
+        sampler.start();
+
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < requests; i++) {
+                        try {
+                            bytes.addAndGet(fetch(path, firstByte, lastByte));
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }, pool));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            pool.shutdown();
+            running.set(false);
+            sampler.interrupt();
+            sampler.join();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", path);
+        result.put("seconds", seconds);
+        result.put("requestsPerSecond", (clients * requests - errors.get()) / seconds);
+        result.put("errors", errors.get());
+        result.put("bytes", bytes.get());
+        result.put("firstByte", summarize(firstByte));
+        result.put("lastByte", summarize(lastByte));
+        Map<String, Object> threads = new LinkedHashMap<>();
+        threads.put("before", threadsBefore);
+        synchronized (threadSamples) {
+            threads.put("max", threadSamples.stream().mapToLong(Long::longValue).max().orElse(0));
+            threads.put("mean", threadSamples.stream().mapToLong(Long::longValue).average().orElse(0));
+        }
+        result.put("serverThreads", threads);
+        log.info("{}: {} req/s, last byte p99 {} ms, errors {}", path, result.get("requestsPerSecond"),
+                lastByte.getValueAtPercentile(99) / 1000.0, errors.get());
+        return result;
+    }
+
+    /**
+     * Fetches {@code path}, reading the body as it arrives, and returns its size.
+     */
+    private long fetch(String path, Histogram firstByte, Histogram lastByte) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofMinutes(5))
+                .GET()
+                .build();
+        long started = System.nanoTime();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IllegalStateException(path + " returned " + response.statusCode());
+        }
+        long size = 0;
+        byte[] buffer = new byte[16 * 1024];
+        try (InputStream body = response.body()) {
+            int read = body.read(buffer);
+            synchronized (firstByte) {
+                firstByte.recordValue(micros(started));
+            }
+            while (read >= 0) {
+                size += read;
+                read = body.read(buffer);
+            }
+        }
+        synchronized (lastByte) {
+            lastByte.recordValue(micros(started));
+        }
+        return size;
+    }
+
+    private Long serverThreads() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/jvm.threads.live"))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(2))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            JsonNode measurements = jsonMapper.readTree(response.body()).get("measurements");
+            return measurements != null && !measurements.isEmpty() ? measurements.get(0).get("value").asLong() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String login(String username, String password) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(Map.of(
+                        "username", username,
+                        "password", password))))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed for " + username + ": " + response.body());
+        }
+        return jsonMapper.readTree(response.body()).get("token").asString();
+    }
+
+    private static long micros(long startedNanos) {
+        return Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedNanos), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static Map<String, Object> summarize(Histogram histogram) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getTotalCount());
+        summary.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p95Millis", histogram.getValueAtPercentile(95) / 1000.0);
+        summary.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("maxMillis", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+}
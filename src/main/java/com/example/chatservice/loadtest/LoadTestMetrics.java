@@ -0,0 +1,192 @@
+package com.example.chatservice.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters and latency recorder shared by every load-test session.
+ * Latencies are recorded in microseconds; the report converts them to milliseconds.
+ */
+public class LoadTestMetrics {
+
+    public enum FrameKind {
+        SEND, TYPING, DELIVERED, SEEN
+    }
+
+    // 1us .. 60s with 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final Recorder latencyRecorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram totalLatency = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final Map<FrameKind, LongAdder> framesSent = new EnumMap<>(FrameKind.class);
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder errorFrames = new LongAdder();
+    private final LongAdder transportErrors = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+
+    private final List<Map<String, Object>> timeline = new ArrayList<>();
+    private long lastSent;
+    private long lastReceived;
+    private long lastErrors;
+
+    private volatile boolean recording;
+
+    public LoadTestMetrics() {
+        for (FrameKind kind : FrameKind.values()) {
+            framesSent.put(kind, new LongAdder());
+        }
+    }
+
+    /**
+     * Warm-up traffic is still sent but ignored; recording starts here.
+     */
+    public void startRecording() {
+        latencyRecorder.reset();
+        recording = true;
+    }
+
+    public void stopRecording() {
+        recording = false;
+    }
+
+    public void frameSent(FrameKind kind) {
+        if (recording) {
+            framesSent.get(kind).increment();
+        }
+    }
+
+    public void frameReceived() {
+        if (recording) {
+            framesReceived.increment();
+        }
+    }
+
+    public void messageLatency(long sentAtNanos, long receivedAtNanos) {
+        if (!recording) {
+            return;
+        }
+        messagesReceived.increment();
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(receivedAtNanos - sentAtNanos));
+        latencyRecorder.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    public void errorFrame() {
+        errorFrames.increment();
+    }
+
+    public void transportError() {
+        transportErrors.increment();
+    }
+
+    public void connectFailure() {
+        connectFailures.increment();
+    }
+
+    /**
+     * Called once per second by the driver to roll the interval histogram and append a timeline point.
+     */
+    public synchronized void tick(long elapsedSeconds) {
+        Histogram interval = latencyRecorder.getIntervalHistogram();
+        totalLatency.add(interval);
+
+        long sent = totalSent();
+        long received = framesReceived.sum();
+        long errors = errorFrames.sum() + transportErrors.sum();
+
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("second", elapsedSeconds);
+        point.put("sent", sent - lastSent);
+        point.put("received", received - lastReceived);
+        point.put("errors", errors - lastErrors);
+        point.put("p99Millis", millis(interval.getValueAtPercentile(99.0)));
+        timeline.add(point);
+
+        lastSent = sent;
+        lastReceived = received;
+        lastErrors = errors;
+    }
+
+    public synchronized Map<String, Object> summary(LoadTestOptions options, double measuredSeconds, int connectedSessions) {
+        tick(timeline.size() + 1L);
+
+        Map<String, Object> sent = new LinkedHashMap<>();
+        framesSent.forEach((kind, count) -> sent.put(kind.name().toLowerCase(), count.sum()));
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("count", totalLatency.getTotalCount());
+        latency.put("minMillis", millis(totalLatency.getMinValue()));
+        latency.put("meanMillis", totalLatency.getMean() / 1000.0);
+        latency.put("p50Millis", millis(totalLatency.getValueAtPercentile(50.0)));
+        latency.put("p90Millis", millis(totalLatency.getValueAtPercentile(90.0)));
+        latency.put("p99Millis", millis(totalLatency.getValueAtPercentile(99.0)));
+        latency.put("p999Millis", millis(totalLatency.getValueAtPercentile(99.9)));
+        latency.put("maxMillis", millis(totalLatency.getMaxValue()));
+        latency.put("histogramBase64", encode(totalLatency));
+
+        Map<String, Object> rates = new LinkedHashMap<>();
+        rates.put("sentPerSecond", totalSent() / measuredSeconds);
+        rates.put("receivedPerSecond", framesReceived.sum() / measuredSeconds);
+        rates.put("messagesDeliveredPerSecond", messagesReceived.sum() / measuredSeconds);
+
+        Map<String, Object> errors = new LinkedHashMap<>();
+        errors.put("errorFrames", errorFrames.sum());
+        errors.put("transportErrors", transportErrors.sum());
+        errors.put("connectFailures", connectFailures.sum());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toMap());
+        report.put("connectedSessions", connectedSessions);
+        report.put("measuredSeconds", measuredSeconds);
+        report.put("framesSent", sent);
+        report.put("framesReceived", framesReceived.sum());
+        report.put("rates", rates);
+        report.put("sendToReceiveLatency", latency);
+        report.put("errors", errors);
+        report.put("timeline", timeline);
+        return report;
+    }
+
+    public static void write(Map<String, Object> report, ObjectMapper mapper, String path) throws IOException {
+        Path target = Path.of(path).toAbsolutePath();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Files.writeString(target, mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+    }
+
+    private long totalSent() {
+        return framesSent.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * Compressed histogram so runs can be merged or re-plotted later with HdrHistogram tooling.
+     */
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
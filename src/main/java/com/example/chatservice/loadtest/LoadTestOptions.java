@@ -0,0 +1,96 @@
+package com.example.chatservice.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line options for {@link StompLoadGenerator}.
+ * Every option is passed as {@code --name=value}; anything not given falls back to the defaults below.
+ */
+public record LoadTestOptions(
+        String baseUrl,
+        int sessions,
+        int rooms,
+        Duration duration,
+        Duration warmup,
+        double framesPerSecondPerSession,
+        int sendWeight,
+        int typingWeight,
+        int deliveredWeight,
+        int seenWeight,
+        int messageBytes,
+        String userPrefix,
+        String password,
+        String reportPath) {
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                values.getOrDefault("baseUrl", "http://localhost:8081"),
+                Integer.parseInt(values.getOrDefault("sessions", "50")),
+                Integer.parseInt(values.getOrDefault("rooms", "5")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("durationSeconds", "60"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmupSeconds", "5"))),
+                Double.parseDouble(values.getOrDefault("rate", "2")),
+                Integer.parseInt(values.getOrDefault("sendWeight", "60")),
+                Integer.parseInt(values.getOrDefault("typingWeight", "25")),
+                Integer.parseInt(values.getOrDefault("deliveredWeight", "10")),
+                Integer.parseInt(values.getOrDefault("seenWeight", "5")),
+                Integer.parseInt(values.getOrDefault("messageBytes", "64")),
+                values.getOrDefault("userPrefix", "loadtest"),
+                values.getOrDefault("password", "loadtest-password"),
+                values.getOrDefault("report", "target/loadtest-report.json"));
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (sessions < 1 || rooms < 1) {
+            throw new IllegalArgumentException("sessions and rooms must be at least 1");
+        }
+        if (framesPerSecondPerSession <= 0) {
+            throw new IllegalArgumentException("rate must be positive");
+        }
+        if (sendWeight < 0 || typingWeight < 0 || deliveredWeight < 0 || seenWeight < 0 || totalWeight() == 0) {
+            throw new IllegalArgumentException("Frame mix weights must be non-negative and not all zero");
+        }
+    }
+
+    public int totalWeight() {
+        return sendWeight + typingWeight + deliveredWeight + seenWeight;
+    }
+
+    /**
+     * SockJS exposes a raw WebSocket transport under {@code /ws/websocket}, which avoids the
+     * SockJS framing overhead on the client side.
+     */
+    public String webSocketUrl() {
+        return baseUrl.replaceFirst("^http", "ws") + "/ws/websocket";
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("baseUrl", baseUrl);
+        map.put("sessions", sessions);
+        map.put("rooms", rooms);
+        map.put("durationSeconds", duration.toSeconds());
+        map.put("warmupSeconds", warmup.toSeconds());
+        map.put("framesPerSecondPerSession", framesPerSecondPerSession);
+        map.put("mix", Map.of(
+                "send", sendWeight,
+                "typing", typingWeight,
+                "delivered", deliveredWeight,
+                "seen", seenWeight));
+        map.put("messageBytes", messageBytes);
+        return map;
+    }
+}
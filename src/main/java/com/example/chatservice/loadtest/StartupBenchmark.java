@@ -0,0 +1,223 @@
+package com.example.chatservice.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the packaged application takes to become ready under different JVM options, so the
+ * effect of AOT processing and class-data sharing can be tracked over time.
+ *
+ * <p>Every variant is launched {@code --runs} times as {@code java <options> -jar <jar>}, each on its own
+ * port and with its own data directories, and timed from process start until
+ * {@code /actuator/health/readiness} reports UP. Variants are given as {@code --variant.<name>=<jvm options>}
+ * (space separated); without any, {@code default} and {@code aot} are compared. With {@code --cdsArchive}
+ * a training run first writes the archive if it does not exist yet, and an {@code aot+cds} variant using it
+ * is added.</p>
+ *
+ * <pre>
+ * mvn -Paot package -DskipTests
+ * mvn exec:java \
+ *     -Dexec.mainClass=com.example.chatservice.loadtest.StartupBenchmark \
+ *     -Dexec.args="--runs=5 --cdsArchive=target/application.jsa"
+ * </pre>
+ *
+ * The report is written to {@code target/startup-report.json}. This class is not a Spring bean and never
+ * runs inside the application context.
+ */
+public class StartupBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+
+    private static final String AOT = "-Dspring.aot.enabled=true";
+
+    private final String jar;
+    private final int runs;
+    private final int port;
+    private final Duration timeout;
+    private final List<String> appArgs;
+    private final Map<String, List<String>> variants = new LinkedHashMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    public StartupBenchmark(Map<String, String> values) {
+        this.jar = values.getOrDefault("jar", "target/chat-service-app-0.0.1-SNAPSHOT.jar");
+        this.runs = Integer.parseInt(values.getOrDefault("runs", "3"));
+        this.port = Integer.parseInt(values.getOrDefault("port", "18081"));
+        this.timeout = Duration.ofSeconds(Long.parseLong(values.getOrDefault("timeoutSeconds", "120")));
+        this.appArgs = split(values.getOrDefault("appArgs", "--spring.profiles.active=inmemory"));
+        if (runs < 1) {
+            throw new IllegalArgumentException("runs must be at least 1");
+        }
+        if (!Files.isRegularFile(Path.of(jar))) {
+            throw new IllegalArgumentException("No jar at " + jar + "; build it with mvn -Paot package first");
+        }
+
+        values.forEach((key, value) -> {
+            if (key.startsWith("variant.")) {
+                variants.put(key.substring("variant.".length()), split(value));
+            }
+        });
+        if (variants.isEmpty()) {
+            variants.put("default", List.of());
+            variants.put("aot", List.of(AOT));
+        }
+        String archive = values.get("cdsArchive");
+        if (archive != null) {
+            variants.put("aot+cds", List.of(AOT, "-XX:SharedArchiveFile=" + archive));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        StartupBenchmark benchmark = new StartupBenchmark(values);
+        String archive = values.get("cdsArchive");
+        if (archive != null && !Files.exists(Path.of(archive))) {
+            benchmark.train(archive);
+        }
+        Map<String, Object> report = benchmark.run();
+        String path = values.getOrDefault("report", "target/startup-report.json");
+        LoadTestMetrics.write(report, JsonMapper.builder().build(), path);
+        log.info("Startup report written to {}", path);
+        System.exit(0);
+    }
+
+    public Map<String, Object> run() throws Exception {
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            List<Long> millis = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                long elapsed = timeStartup(variant.getValue());
+                log.info("{} run {}: ready in {} ms", variant.getKey(), i + 1, elapsed);
+                millis.add(elapsed);
+            }
+            results.put(variant.getKey(), summarize(variant.getValue(), millis));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("jar", jar);
+        report.put("runs", runs);
+        report.put("appArgs", appArgs);
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("variants", results);
+        return report;
+    }
+
+    /**
+     * Starts the application once with {@code -XX:ArchiveClassesAtExit}, stopping right after the context
+     * refreshes, so the classes loaded during startup end up in the archive.
+     */
+    public void train(String archive) throws Exception {
+        log.info("Training run to create CDS archive {}", archive);
+        List<String> jvmOptions = List.of(AOT, "-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh");
+        Process process = launch(jvmOptions, Files.createTempDirectory("startup-train-"));
+        if (!process.waitFor(timeout.toSeconds(), TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Training run did not finish within " + timeout);
+        }
+        if (!Files.exists(Path.of(archive))) {
+            throw new IllegalStateException("Training run exited with " + process.exitValue() + " but wrote no archive");
+        }
+    }
+
+    private long timeStartup(List<String> jvmOptions) throws Exception {
+        Path workDir = Files.createTempDirectory("startup-run-");
+        long started = System.nanoTime();
+        Process process = launch(jvmOptions, workDir);
+        try {
+            long deadline = started + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue()
+                            + " before becoming ready; see " + workDir.resolve("app.log"));
+                }
+                if (isReady()) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                }
+                Thread.sleep(20);
+            }
+            throw new IllegalStateException("Application not ready within " + timeout);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private Process launch(List<String> jvmOptions, Path workDir) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-jar");
+        command.add(Path.of(jar).toAbsolutePath().toString());
+        command.addAll(appArgs);
+        command.add("--server.port=" + port);
+        command.add("--app.journal.dir=" + workDir.resolve("journal"));
+        command.add("--app.audit.dir=" + workDir.resolve("audit"));
+        command.add("--app.attachments.dir=" + workDir.resolve("attachments"));
+        command.add("--app.upload.dir=" + workDir.resolve("avatars"));
+        File logFile = workDir.resolve("app.log").toFile();
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile)
+                .start();
+    }
+
+    private boolean isReady() {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(1))
+                .GET()
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 && response.body().contains("\"UP\"");
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Map<String, Object> summarize(List<String> jvmOptions, List<Long> millis) {
+        List<Long> sorted = millis.stream().sorted().toList();
+        Map<String, Object> summary = new TreeMap<>();
+        summary.put("jvmOptions", jvmOptions);
+        summary.put("readyMillis", millis);
+        summary.put("min", sorted.get(0));
+        summary.put("median", sorted.get(sorted.size() / 2));
+        summary.put("max", sorted.get(sorted.size() - 1));
+        return summary;
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.trim().split("\\s+")).filter(part -> !part.isEmpty()).toList();
+    }
+}
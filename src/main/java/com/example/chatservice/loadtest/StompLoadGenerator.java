@@ -0,0 +1,406 @@
+package com.example.chatservice.loadtest;
+
+import com.example.chatservice.loadtest.LoadTestMetrics.FrameKind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.converter.JacksonJsonMessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless STOMP load generator for the chat service.
+ *
+ * <p>Registers (or reuses) N users through {@code /api/auth}, creates M public rooms, joins every
+ * user to every room, opens one STOMP session per user against {@code /ws} and then drives a
+ * weighted mix of send / typing / delivered / seen frames through the {@code /app/...} endpoints of
+ * {@code ChatMessagingController}. Delivered frames are batched acks on {@code /app/acks} carrying the
+ * highest sequence the session has received per room, as a real client would send them. Send-to-receive latency is measured from the
+ * nanosecond stamp embedded in each message text, so the generator and its receivers must share
+ * one JVM (which is the case here).</p>
+ *
+ * <pre>
+ * mvn compile exec:java \
+ *     -Dexec.mainClass=com.example.chatservice.loadtest.StompLoadGenerator \
+ *     -Dexec.args="--sessions=200 --rooms=10 --rate=2 --durationSeconds=120"
+ * </pre>
+ *
+ * This class is not a Spring bean and never runs inside the application context.
+ */
+public class StompLoadGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(StompLoadGenerator.class);
+
+    static final String LATENCY_MARKER = "[lt:";
+
+    private final LoadTestOptions options;
+    private final LoadTestMetrics metrics = new LoadTestMetrics();
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    // Per session: roomId -> highest message seq received
+    private final Map<StompSession, Map<String, Long>> receivedSeqs = new ConcurrentHashMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public StompLoadGenerator(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        Map<String, Object> report = new StompLoadGenerator(options).run();
+        LoadTestMetrics.write(report, JsonMapper.builder().build(), options.reportPath());
+        log.info("Load test report written to {}", options.reportPath());
+        System.exit(0);
+    }
+
+    public Map<String, Object> run() throws Exception {
+        log.info("Preparing {} users and {} rooms against {}", options.sessions(), options.rooms(), options.baseUrl());
+        List<String> tokens = loginUsers();
+        List<String> roomIds = createRooms(tokens.get(0));
+        joinRooms(tokens, roomIds);
+
+        ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.setPoolSize(2);
+        heartbeatScheduler.setThreadNamePrefix("loadtest-heartbeat-");
+        heartbeatScheduler.initialize();
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new JacksonJsonMessageConverter(jsonMapper));
+        stompClient.setTaskScheduler(heartbeatScheduler);
+        stompClient.setInboundMessageSizeLimit(1024 * 1024);
+
+        List<StompSession> sessions = connectSessions(stompClient, tokens, roomIds);
+        log.info("{} of {} sessions connected", sessions.size(), tokens.size());
+        if (sessions.isEmpty()) {
+            throw new IllegalStateException("No STOMP session could be established");
+        }
+
+        ScheduledExecutorService driver = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()));
+        List<ScheduledFuture<?>> tasks = new ArrayList<>();
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.framesPerSecondPerSession());
+        for (StompSession session : sessions) {
+            long jitter = ThreadLocalRandom.current().nextLong(periodNanos);
+            tasks.add(driver.scheduleAtFixedRate(() -> driveOnce(session, roomIds),
+                    jitter, periodNanos, TimeUnit.NANOSECONDS));
+        }
+
+        log.info("Warming up for {}s", options.warmup().toSeconds());
+        Thread.sleep(options.warmup().toMillis());
+        metrics.startRecording();
+        long startedAt = System.nanoTime();
+
+        long seconds = options.duration().toSeconds();
+        for (long second = 1; second <= seconds; second++) {
+            Thread.sleep(1000);
+            metrics.tick(second);
+        }
+
+        tasks.forEach(task -> task.cancel(false));
+        // Let in-flight broadcasts land before closing the books
+        Thread.sleep(2000);
+        double measuredSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        metrics.stopRecording();
+
+        driver.shutdownNow();
+        sessions.forEach(session -> {
+            try {
+                session.disconnect();
+            } catch (Exception e) {
+                // Session may already be gone
+            }
+        });
+        stompClient.stop();
+        heartbeatScheduler.shutdown();
+
+        return metrics.summary(options, measuredSeconds, sessions.size());
+    }
+
+    // ---- Traffic ----
+
+    private void driveOnce(StompSession session, List<String> roomIds) {
+        if (!session.isConnected()) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String roomId = roomIds.get(random.nextInt(roomIds.size()));
+        FrameKind kind = pickFrame(random.nextInt(options.totalWeight()));
+        try {
+            switch (kind) {
+                case SEND -> session.send("/app/rooms/" + roomId + "/send", Map.of("text", messageText()));
+                case TYPING -> session.send("/app/rooms/" + roomId + "/typing", Map.of("isTyping", random.nextBoolean()));
+                case DELIVERED -> {
+                    Map<String, Long> received = receivedSeqs.get(session);
+                    if (received == null || received.isEmpty()) {
+                        return;
+                    }
+                    session.send("/app/acks", Map.of("rooms", Map.copyOf(received)));
+                }
+                case SEEN -> session.send("/app/rooms/" + roomId + "/seen", Map.of());
+            }
+            metrics.frameSent(kind);
+        } catch (Exception e) {
+            metrics.transportError();
+        }
+    }
+
+    private FrameKind pickFrame(int roll) {
+        if ((roll -= options.sendWeight()) < 0) {
+            return FrameKind.SEND;
+        }
+        if ((roll -= options.typingWeight()) < 0) {
+            return FrameKind.TYPING;
+        }
+        if (roll - options.deliveredWeight() < 0) {
+            return FrameKind.DELIVERED;
+        }
+        return FrameKind.SEEN;
+    }
+
+    private String messageText() {
+        StringBuilder text = new StringBuilder(LATENCY_MARKER).append(System.nanoTime()).append("] ");
+        while (text.length() < options.messageBytes()) {
+            text.append('x');
+        }
+        return text.toString();
+    }
+
+    // ---- STOMP sessions ----
+
+    private List<StompSession> connectSessions(WebSocketStompClient stompClient, List<String> tokens,
+            List<String> roomIds) {
+        List<CompletableFuture<StompSession>> futures = new ArrayList<>();
+        for (String token : tokens) {
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + token);
+            futures.add(stompClient.connectAsync(URI.create(options.webSocketUrl()), new WebSocketHttpHeaders(),
+                    connectHeaders, new SessionHandler(roomIds)));
+        }
+
+        List<StompSession> sessions = Collections.synchronizedList(new ArrayList<>());
+        for (CompletableFuture<StompSession> future : futures) {
+            try {
+                sessions.add(future.get(30, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                metrics.connectFailure();
+                log.warn("STOMP connect failed: {}", e.getMessage());
+            }
+        }
+        return sessions;
+    }
+
+    private class SessionHandler extends StompSessionHandlerAdapter {
+
+        private final List<String> roomIds;
+
+        SessionHandler(List<String> roomIds) {
+            this.roomIds = roomIds;
+        }
+
+        @Override
+        public void afterConnected(@NonNull StompSession session, @NonNull StompHeaders connectedHeaders) {
+            Map<String, Long> received = receivedSeqs.computeIfAbsent(session, s -> new ConcurrentHashMap<>());
+            for (String roomId : roomIds) {
+                session.subscribe("/topic/rooms/" + roomId, new RoomFrameHandler(roomId, received));
+                session.subscribe("/topic/rooms/" + roomId + "/typing", new CountingFrameHandler(false));
+                session.subscribe("/topic/rooms/" + roomId + "/status", new CountingFrameHandler(false));
+            }
+            session.subscribe("/user/queue/errors", new CountingFrameHandler(true));
+        }
+
+        @Override
+        public void handleException(@NonNull StompSession session, StompCommand command,
+                @NonNull StompHeaders headers, @NonNull byte[] payload, @NonNull Throwable exception) {
+            metrics.transportError();
+        }
+
+        @Override
+        public void handleTransportError(@NonNull StompSession session, @NonNull Throwable exception) {
+            metrics.transportError();
+        }
+    }
+
+    private class RoomFrameHandler implements StompFrameHandler {
+
+        private final String roomId;
+        private final Map<String, Long> received;
+
+        RoomFrameHandler(String roomId, Map<String, Long> received) {
+            this.roomId = roomId;
+            this.received = received;
+        }
+
+        @Override
+        @NonNull
+        public Type getPayloadType(@NonNull StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(@NonNull StompHeaders headers, Object payload) {
+            long receivedAt = System.nanoTime();
+            metrics.frameReceived();
+            if (payload instanceof Map<?, ?> event && event.get("seq") instanceof Number seq) {
+                received.merge(roomId, seq.longValue(), Math::max);
+            }
+            if (payload instanceof Map<?, ?> event && event.get("text") instanceof String text
+                    && text.startsWith(LATENCY_MARKER)) {
+                int end = text.indexOf(']');
+                if (end > LATENCY_MARKER.length()) {
+                    try {
+                        long sentAt = Long.parseLong(text.substring(LATENCY_MARKER.length(), end));
+                        metrics.messageLatency(sentAt, receivedAt);
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            }
+        }
+    }
+
+    private class CountingFrameHandler implements StompFrameHandler {
+
+        private final boolean errorQueue;
+
+        CountingFrameHandler(boolean errorQueue) {
+            this.errorQueue = errorQueue;
+        }
+
+        @Override
+        @NonNull
+        public Type getPayloadType(@NonNull StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(@NonNull StompHeaders headers, Object payload) {
+            metrics.frameReceived();
+            if (errorQueue) {
+                metrics.errorFrame();
+            }
+        }
+    }
+
+    // ---- REST setup ----
+
+    private List<String> loginUsers() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(16, options.sessions()));
+        try {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < options.sessions(); i++) {
+                String username = options.userPrefix() + "-" + i;
+                futures.add(CompletableFuture.supplyAsync(() -> registerAndLogin(username), pool));
+            }
+            List<String> tokens = new ArrayList<>();
+            for (CompletableFuture<String> future : futures) {
+                tokens.add(future.get());
+            }
+            return tokens;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private String registerAndLogin(String username) {
+        HttpResponse<String> register = post("/api/auth/register", null, Map.of(
+                "username", username,
+                "email", username + "@loadtest.local",
+                "password", options.password(),
+                "displayName", username));
+        if (register.statusCode() != 200 && register.statusCode() != 409) {
+            throw new IllegalStateException("Register failed for " + username + ": " + register.body());
+        }
+
+        HttpResponse<String> login = post("/api/auth/login", null, Map.of(
+                "username", username,
+                "password", options.password()));
+        if (login.statusCode() != 200) {
+            throw new IllegalStateException("Login failed for " + username + ": " + login.body());
+        }
+        return jsonMapper.readTree(login.body()).get("token").asString();
+    }
+
+    private List<String> createRooms(String ownerToken) {
+        List<String> roomIds = new ArrayList<>();
+        for (int i = 0; i < options.rooms(); i++) {
+            HttpResponse<String> response = post("/api/rooms", ownerToken, Map.of(
+                    "name", options.userPrefix() + "-room-" + runId + "-" + i,
+                    "description", "Load test room",
+                    "roomType", "GROUP_CHAT",
+                    "isPrivate", false));
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Room creation failed: " + response.body());
+            }
+            JsonNode room = jsonMapper.readTree(response.body());
+            roomIds.add(room.get("id").asString());
+        }
+        return roomIds;
+    }
+
+    private void joinRooms(List<String> tokens, List<String> roomIds) {
+        // The first user created the rooms and is already an admin member
+        tokens.stream().skip(1).parallel().forEach(token -> {
+            for (String roomId : roomIds) {
+                HttpResponse<String> response = post("/api/rooms/" + roomId + "/join", token, Map.of());
+                if (response.statusCode() != 200) {
+                    log.warn("Join of room {} failed: {}", roomId, response.body());
+                }
+            }
+        });
+    }
+
+    private HttpResponse<String> post(String path, String token, Map<String, Object> body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(options.baseUrl() + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(body)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        try {
+            HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            // Setup traffic from one address can trip the server's REST rate limit; wait it out
+            while (response.statusCode() == 429) {
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                Thread.sleep(Duration.ofSeconds(Math.max(1, retryAfter)).toMillis());
+                response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            }
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + path, e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Request to " + path + " failed", e);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.example.chatservice.querystats;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Driver-level view of what MongoDB is asked to do, broken down by the repository or store method that
+ * sent each command and the application method that called it (see {@link QueryAttribution}).
+ *
+ * <ul>
+ *   <li>{@code chat.mongo.command{source,caller,command,collection}} – command latency as the driver sees it</li>
+ *   <li>{@code chat.mongo.documents{source,caller,command,collection}} – documents returned, or matched by
+ *       writes</li>
+ * </ul>
+ *
+ * Commands slower than {@code app.mongo.query-stats.slow-threshold-ms} are kept as exemplars, and a slow
+ * read or write of each kind is re-run as {@code explain} (executionStats) on a background thread, at most
+ * once per {@code app.mongo.query-stats.explain-interval-ms}. The plan summary shows whether the query
+ * scanned the collection and how many keys and documents it examined. Filters are reported by shape only;
+ * values are replaced by {@code ?}.
+ *
+ * <p>Tracking is cheap for ordinary commands: the attribution is normally set by the data layer, and a
+ * command is copied, to be explained and shaped later, only once its kind has been slow and is due for
+ * another explain. Exemplars without a copy show the last shape seen for their kind.
+ */
+@Component
+public class MongoCommandTracker implements CommandListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoCommandTracker.class);
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    private static final Set<String> EXPLAINABLE = Set.of(
+            "find", "aggregate", "count", "distinct", "findAndModify", "update", "delete");
+
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final boolean explainEnabled;
+    private final long explainIntervalNanos;
+    private final int maxSlowCommands;
+
+    private record Started(Key key, Stats entry, String database, BsonDocument explainable) {
+    }
+
+    private record Key(String source, String caller, String command, String collection) {
+    }
+
+    private static final class Stats {
+        final Timer timer;
+        final DistributionSummary documents;
+        final LongAdder failures = new LongAdder();
+        final LongAdder slow = new LongAdder();
+        final AtomicLong lastExplainAt = new AtomicLong(Long.MIN_VALUE);
+        volatile Map<String, Object> plan;
+        volatile Object shape;
+
+        Stats(Timer timer, DistributionSummary documents) {
+            this.timer = timer;
+            this.documents = documents;
+        }
+    }
+
+    // requestId -> command in flight
+    private final Map<Integer, Started> inFlight = new ConcurrentHashMap<>();
+    private final Map<Key, Stats> stats = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> slowCommands = new ArrayDeque<>();
+
+    private final ThreadPoolExecutor explainer;
+    // Set on the explainer thread so its own commands are not tracked
+    private final ThreadLocal<Boolean> explaining = ThreadLocal.withInitial(() -> false);
+
+    public MongoCommandTracker(ObjectProvider<MongoTemplate> mongoTemplate,
+                               MeterRegistry registry,
+                               @Value("${app.mongo.query-stats.enabled:true}") boolean enabled,
+                               @Value("${app.mongo.query-stats.slow-threshold-ms:100}") long slowThresholdMs,
+                               @Value("${app.mongo.query-stats.explain-enabled:true}") boolean explainEnabled,
+                               @Value("${app.mongo.query-stats.explain-interval-ms:60000}") long explainIntervalMs,
+                               @Value("${app.mongo.query-stats.slow-commands:50}") int maxSlowCommands) {
+        this.mongoTemplate = mongoTemplate;
+        this.registry = registry;
+        this.enabled = enabled;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.explainEnabled = explainEnabled;
+        this.explainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(explainIntervalMs);
+        this.maxSlowCommands = maxSlowCommands;
+
+        // One explain at a time; when busy, further requests are dropped rather than queued behind it
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mongo-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        explainer.shutdownNow();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!enabled || explaining.get()) {
+            return;
+        }
+        String command = event.getCommandName();
+        String collection = collection(event.getCommand(), command);
+        if (collection == null) {
+            // hello, ping, endSessions and other commands that do not touch a collection
+            return;
+        }
+        QueryAttribution attribution = QueryAttribution.current();
+        if (attribution == null) {
+            attribution = QueryAttribution.fromStack();
+        }
+        Key key = new Key(attribution.source(), attribution.caller(), command, collection);
+        Stats entry = stats(key);
+        // The driver's command is only valid during this call; copy it just when it may be explained
+        BsonDocument explainable = explainEnabled && EXPLAINABLE.contains(command) && explainDue(entry)
+                ? event.getCommand().clone() : null;
+        inFlight.put(event.getRequestId(), new Started(key, entry, event.getDatabaseName(), explainable));
+    }
+
+    /**
+     * Whether commands of this kind have been slow before and the interval since the last explain has
+     * passed.
+     */
+    private boolean explainDue(Stats entry) {
+        if (entry.slow.sum() == 0) {
+            return false;
+        }
+        long last = entry.lastExplainAt.get();
+        return last == Long.MIN_VALUE || System.nanoTime() - last >= explainIntervalNanos;
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Started started = inFlight.remove(event.getRequestId());
+        if (started == null) {
+            return;
+        }
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        long documents = documents(event.getResponse());
+        Stats entry = started.entry();
+        entry.timer.record(nanos, TimeUnit.NANOSECONDS);
+        entry.documents.record(documents);
+        if (nanos >= slowThresholdNanos) {
+            slow(started, entry, nanos, documents);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Started started = inFlight.remove(event.getRequestId());
+        if (started != null) {
+            started.entry().failures.increment();
+        }
+    }
+
+    private void slow(Started started, Stats entry, long nanos, long documents) {
+        entry.slow.increment();
+        Map<String, Object> exemplar = new LinkedHashMap<>();
+        exemplar.put("at", Instant.now().toString());
+        exemplar.put("source", started.key().source());
+        exemplar.put("caller", started.key().caller());
+        exemplar.put("command", started.key().command());
+        exemplar.put("collection", started.key().collection());
+        exemplar.put("millis", nanos / 1_000_000.0);
+        exemplar.put("documents", documents);
+        if (started.explainable() != null) {
+            entry.shape = shape(started.explainable());
+        }
+        if (entry.shape != null) {
+            exemplar.put("shape", entry.shape);
+        }
+        synchronized (slowCommands) {
+            slowCommands.addFirst(exemplar);
+            while (slowCommands.size() > maxSlowCommands) {
+                slowCommands.removeLast();
+            }
+        }
+
+        long now = System.nanoTime();
+        long last = entry.lastExplainAt.get();
+        if (started.explainable() != null
+                && (last == Long.MIN_VALUE || now - last >= explainIntervalNanos)
+                && entry.lastExplainAt.compareAndSet(last, now)) {
+            explainer.execute(() -> explain(started, entry));
+        }
+    }
+
+    private void explain(Started started, Stats entry) {
+        explaining.set(true);
+        try {
+            MongoTemplate template = mongoTemplate.getIfAvailable();
+            if (template == null) {
+                return;
+            }
+            BsonDocument command = new BsonDocument();
+            started.explainable().forEach((name, value) -> {
+                if (!name.startsWith("$") && !name.equals("lsid") && !name.equals("txnNumber")) {
+                    command.put(name, value);
+                }
+            });
+            Document result = template.getMongoDatabaseFactory().getMongoDatabase(started.database())
+                    .runCommand(new BsonDocument("explain", command).append("verbosity",
+                            new BsonString("executionStats")), Document.class);
+            entry.plan = summarizePlan(result);
+            log.info("🐌 Explained slow {} on {} from {}: {}", started.key().command(), started.key().collection(),
+                    started.key().source(), entry.plan);
+        } catch (RuntimeException e) {
+            log.debug("Could not explain {} on {}: {}", started.key().command(), started.key().collection(),
+                    e.getMessage());
+        } finally {
+            explaining.set(false);
+        }
+    }
+
+    private Stats stats(Key key) {
+        return stats.computeIfAbsent(key, k -> new Stats(
+                Timer.builder("chat.mongo.command")
+                        .description("MongoDB command latency by the repository method and caller that sent it")
+                        .tag("source", k.source())
+                        .tag("caller", k.caller())
+                        .tag("command", k.command())
+                        .tag("collection", k.collection())
+                        .publishPercentiles(PERCENTILES)
+                        .distributionStatisticExpiry(Duration.ofMinutes(5))
+                        .register(registry),
+                DistributionSummary.builder("chat.mongo.documents")
+                        .description("Documents returned, or matched by writes, per MongoDB command")
+                        .tag("source", k.source())
+                        .tag("caller", k.caller())
+                        .tag("command", k.command())
+                        .tag("collection", k.collection())
+                        .register(registry)));
+    }
+
+    private static String collection(BsonDocument command, String commandName) {
+        if ("getMore".equals(commandName)) {
+            BsonValue collection = command.get("collection");
+            return collection != null && collection.isString() ? collection.asString().getValue() : null;
+        }
+        BsonValue target = command.get(commandName);
+        return target != null && target.isString() ? target.asString().getValue() : null;
+    }
+
+    private static long documents(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument()) {
+            for (String batch : List.of("firstBatch", "nextBatch")) {
+                BsonValue documents = cursor.asDocument().get(batch);
+                if (documents != null && documents.isArray()) {
+                    return documents.asArray().size();
+                }
+            }
+        }
+        BsonValue n = response.get("n");
+        if (n != null && n.isNumber()) {
+            return n.asNumber().longValue();
+        }
+        BsonValue values = response.get("values");
+        return values != null && values.isArray() ? values.asArray().size() : 0;
+    }
+
+    /**
+     * The query part of a command with every literal replaced by {@code ?}.
+     */
+    private static Object shape(BsonDocument command) {
+        Map<String, Object> shape = new LinkedHashMap<>();
+        for (String part : List.of("filter", "query", "sort", "pipeline", "updates", "deletes")) {
+            BsonValue value = command.get(part);
+            if (value != null) {
+                shape.put(part, shapeOf(value));
+            }
+        }
+        return shape;
+    }
+
+    private static Object shapeOf(BsonValue value) {
+        if (value.isDocument()) {
+            Map<String, Object> shape = new LinkedHashMap<>();
+            value.asDocument().forEach((name, child) -> shape.put(name, shapeOf(child)));
+            return shape;
+        }
+        if (value.isArray()) {
+            BsonArray array = value.asArray();
+            // Operator arguments such as $in lists collapse to one element
+            return array.isEmpty() ? List.of() : List.of(shapeOf(array.get(0)));
+        }
+        return "?";
+    }
+
+    private static Map<String, Object> summarizePlan(Document explain) {
+        Map<String, Object> plan = new LinkedHashMap<>();
+        Set<String> stages = new LinkedHashSet<>();
+        Object winningPlan = find(explain, "winningPlan");
+        collectStages(winningPlan, stages);
+        plan.put("stages", stages);
+        plan.put("collectionScan", stages.contains("COLLSCAN"));
+        Object executionStats = find(explain, "executionStats");
+        if (executionStats instanceof Document execution) {
+            plan.put("nReturned", execution.get("nReturned"));
+            plan.put("totalKeysExamined", execution.get("totalKeysExamined"));
+            plan.put("totalDocsExamined", execution.get("totalDocsExamined"));
+            plan.put("executionTimeMillis", execution.get("executionTimeMillis"));
+        }
+        Object indexName = find(winningPlan, "indexName");
+        if (indexName != null) {
+            plan.put("index", indexName);
+        }
+        plan.put("explainedAt", Instant.now().toString());
+        return plan;
+    }
+
+    /**
+     * Depth-first search for a field; explain output nests the interesting parts differently for find,
+     * aggregate and write commands.
+     */
+    private static Object find(Object node, String field) {
+        if (node instanceof Document document) {
+            if (document.containsKey(field)) {
+                return document.get(field);
+            }
+            for (Object child : document.values()) {
+                Object found = find(child, field);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object child : list) {
+                Object found = find(child, field);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void collectStages(Object node, Set<String> stages) {
+        if (node instanceof Document document) {
+            if (document.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+            document.values().forEach(child -> collectStages(child, stages));
+        } else if (node instanceof List<?> list) {
+            list.forEach(child -> collectStages(child, stages));
+        }
+    }
+
+    // --- Reporting ---
+
+    /**
+     * Per-command statistics, most total time first.
+     */
+    public Map<String, Object> report(String source) {
+        List<Map<String, Object>> commands = new ArrayList<>();
+        stats.entrySet().stream()
+                .filter(entry -> source == null || entry.getKey().source().startsWith(source))
+                .sorted(Comparator.comparingDouble(
+                        (Map.Entry<Key, Stats> entry) -> entry.getValue().timer.totalTime(TimeUnit.NANOSECONDS)).reversed())
+                .forEach(entry -> commands.add(describe(entry.getKey(), entry.getValue())));
+
+        List<Map<String, Object>> slow;
+        synchronized (slowCommands) {
+            slow = slowCommands.stream()
+                    .filter(exemplar -> source == null || ((String) exemplar.get("source")).startsWith(source))
+                    .toList();
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", enabled);
+        report.put("slowThresholdMillis", TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos));
+        report.put("commands", commands);
+        report.put("slowCommands", slow);
+        return report;
+    }
+
+    /**
+     * Forgets all statistics, exemplars and plans, e.g. between test scenarios. The meters are removed too,
+     * so they start again from zero.
+     */
+    public void reset() {
+        stats.values().forEach(entry -> {
+            registry.remove(entry.timer);
+            registry.remove(entry.documents);
+        });
+        stats.clear();
+        synchronized (slowCommands) {
+            slowCommands.clear();
+        }
+    }
+
+    private static Map<String, Object> describe(Key key, Stats entry) {
+        HistogramSnapshot snapshot = entry.timer.takeSnapshot();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("source", key.source());
+        summary.put("caller", key.caller());
+        summary.put("command", key.command());
+        summary.put("collection", key.collection());
+        summary.put("count", entry.timer.count());
+        summary.put("failures", entry.failures.sum());
+        summary.put("slow", entry.slow.sum());
+        summary.put("totalMillis", entry.timer.totalTime(TimeUnit.MILLISECONDS));
+        summary.put("meanMillis", entry.timer.mean(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            summary.put("p" + Math.round(value.percentile() * 100) + "Millis", value.value(TimeUnit.MILLISECONDS));
+        }
+        summary.put("maxMillis", entry.timer.max(TimeUnit.MILLISECONDS));
+        summary.put("documentsTotal", (long) entry.documents.totalAmount());
+        summary.put("documentsMax", (long) entry.documents.max());
+        if (entry.plan != null) {
+            summary.put("plan", entry.plan);
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.chatservice.querystats;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which code issued the MongoDB command running on the current thread. {@code source} is the repository
+ * method ({@code MessageRepository.findAwaitingDelivery}) or, for {@code MongoTemplate} calls, the store
+ * method that made them; {@code caller} is the first application frame above the data layer, usually a
+ * service method.
+ *
+ * <p>The sync driver calls {@link com.mongodb.event.CommandListener} on the thread that runs the command, so
+ * a thread-local is enough to carry the repository method down to it.
+ */
+public record QueryAttribution(String source, String caller) {
+
+    private static final String APP_PACKAGE = "com.example.chatservice.";
+    private static final Set<String> DATA_LAYER = Set.of(
+            APP_PACKAGE + "repository.", APP_PACKAGE + "store.", APP_PACKAGE + "querystats.");
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private static final ThreadLocal<QueryAttribution> CURRENT = new ThreadLocal<>();
+
+    private record Site(String type, String method) {
+    }
+
+    // Names of the frames attributions were taken from, so each is built once
+    private static final Map<Site, String> NAMES = new ConcurrentHashMap<>();
+
+    static QueryAttribution current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes {@code attribution} current and returns the one it replaces, to be passed to {@link #restore}.
+     */
+    static QueryAttribution enter(QueryAttribution attribution) {
+        QueryAttribution previous = CURRENT.get();
+        CURRENT.set(attribution);
+        return previous;
+    }
+
+    static void restore(QueryAttribution previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Attribution for a command sent outside any repository call, found by walking the stack.
+     */
+    static QueryAttribution fromStack() {
+        return WALKER.walk(frames -> {
+            String store = null;
+            String caller = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String type = frame.getClassName();
+                if (!type.startsWith(APP_PACKAGE) || type.contains("$$")) {
+                    continue;
+                }
+                if (type.startsWith(APP_PACKAGE + "store.")) {
+                    if (store == null) {
+                        store = describe(frame);
+                    }
+                } else if (!isDataLayer(type)) {
+                    caller = describe(frame);
+                    break;
+                }
+            }
+            return new QueryAttribution(store != null ? store : "unattributed", caller != null ? caller : "unknown");
+        });
+    }
+
+    /**
+     * The first application frame outside the data layer, e.g. {@code MessageService.getMessages}.
+     */
+    static String callerFromStack() {
+        return WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APP_PACKAGE)
+                        && !frame.getClassName().contains("$$")
+                        && !isDataLayer(frame.getClassName()))
+                .findFirst()
+                .map(QueryAttribution::describe)
+                .or(() -> Optional.of("unknown"))
+                .get());
+    }
+
+    private static boolean isDataLayer(String type) {
+        for (String prefix : DATA_LAYER) {
+            if (type.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String describe(StackWalker.StackFrame frame) {
+        return NAMES.computeIfAbsent(new Site(frame.getClassName(), frame.getMethodName()), QueryAttribution::name);
+    }
+
+    private static String name(Site site) {
+        String type = site.type();
+        int dollar = type.indexOf('$');
+        if (dollar > 0) {
+            type = type.substring(0, dollar);
+        }
+        String method = site.method();
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', "lambda$".length());
+            method = end > 0 ? method.substring("lambda$".length(), end) : method;
+        }
+        return type.substring(type.lastIndexOf('.') + 1) + "." + method;
+    }
+}
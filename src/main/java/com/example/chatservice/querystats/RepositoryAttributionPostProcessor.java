@@ -0,0 +1,64 @@
+package com.example.chatservice.querystats;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds an interceptor to every Spring Data repository that records the repository method being called,
+ * so {@link MongoCommandTracker} can attribute the commands it sends. Registered through the repository
+ * factory, the interceptor sits inside Spring Data's own proxy rather than wrapping it in another.
+ *
+ * <p>The MongoDB stores get the same interceptor through a plain proxy, so the commands they send through
+ * {@code MongoTemplate} are attributed without walking the stack from inside the driver. Only the outermost
+ * data-layer call looks for its caller; repository calls made by a store reuse it.
+ */
+@Component
+public class RepositoryAttributionPostProcessor implements BeanPostProcessor {
+
+    private static final String STORE_PACKAGE = "com.example.chatservice.store.mongo";
+
+    @Override
+    public Object postProcessBeforeInitialization(@NonNull Object bean, @NonNull String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repository) -> proxyFactory.addAdvice(0,
+                            attribute(repository.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+        if (!STORE_PACKAGE.equals(bean.getClass().getPackageName())) {
+            return bean;
+        }
+        // Stores are injected by their interface, so a JDK proxy is enough
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(attribute(bean.getClass().getSimpleName()));
+        return proxyFactory.getProxy();
+    }
+
+    private static MethodInterceptor attribute(String type) {
+        // Method -> "Type.method", built once per method; per type, since repositories share inherited methods
+        Map<Method, String> sources = new ConcurrentHashMap<>();
+        return invocation -> {
+            QueryAttribution enclosing = QueryAttribution.current();
+            String source = sources.computeIfAbsent(invocation.getMethod(), method -> type + "." + method.getName());
+            String caller = enclosing != null ? enclosing.caller() : QueryAttribution.callerFromStack();
+            QueryAttribution previous = QueryAttribution.enter(new QueryAttribution(source, caller));
+            try {
+                return invocation.proceed();
+            } finally {
+                QueryAttribution.restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.chatservice.ratelimit;
+
+/**
+ * Independent budgets; a client that exhausts one (say, typing indicators) can still use the others.
+ * Each reads {@code app.ratelimit.<key>.per-second} and {@code app.ratelimit.<key>.burst}.
+ */
+public enum RateLimitScope {
+    SEND("send", 5, 10),
+    TYPING("typing", 2, 5),
+    RECEIPT("receipt", 10, 20),
+    OTHER("other", 5, 10),
+    REST("rest", 10, 20);
+
+    private final String key;
+    private final double defaultPerSecond;
+    private final int defaultBurst;
+
+    RateLimitScope(String key, double defaultPerSecond, int defaultBurst) {
+        this.key = key;
+        this.defaultPerSecond = defaultPerSecond;
+        this.defaultBurst = defaultBurst;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    double defaultPerSecond() {
+        return defaultPerSecond;
+    }
+
+    int defaultBurst() {
+        return defaultBurst;
+    }
+
+    /**
+     * Scope for a STOMP SEND destination under {@code /app}.
+     */
+    public static RateLimitScope forDestination(String destination) {
+        if (destination == null) {
+            return OTHER;
+        }
+        if (destination.endsWith("/send")) {
+            return SEND;
+        }
+        if (destination.endsWith("/typing")) {
+            return TYPING;
+        }
+        if (destination.endsWith("/seen") || destination.endsWith("/delivered")
+                || destination.endsWith("/acks")) {
+            return RECEIPT;
+        }
+        return OTHER;
+    }
+}
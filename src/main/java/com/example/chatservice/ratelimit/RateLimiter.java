@@ -0,0 +1,180 @@
+package com.example.chatservice.ratelimit;
+
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.RoomMembership;
+import com.example.chatservice.store.MembershipStore;
+import com.example.chatservice.store.RoomStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flood control shared by the STOMP inbound channel and the REST API.
+ *
+ * <p>Each (scope, subject) pair gets its own {@link TokenBucket}; the subject is a user id, or a session id
+ * or client address for unauthenticated traffic. Rooms can additionally be put in slow mode, which allows
+ * each non-admin member one message per {@link ChatRoom#getSlowModeSeconds()} seconds. A room's setting is
+ * cached for {@code app.ratelimit.slow-mode-ttl-ms}; a change made on this instance applies at once, one made
+ * on another instance once the entry expires. Buckets that have fully refilled, and expired settings, are
+ * swept periodically so the maps only hold recently active subjects and rooms.
+ */
+@Component
+public class RateLimiter {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long REJECTION_NOTICE_QUIET_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final RoomStore roomStore;
+    private final MembershipStore membershipStore;
+
+    private final Map<RateLimitScope, Budget> budgets = new EnumMap<>(RateLimitScope.class);
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> slowModeBuckets = new ConcurrentHashMap<>();
+    private final Map<String, SlowMode> slowModeByRoom = new ConcurrentHashMap<>();
+    private final long slowModeTtlNanos;
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    public RateLimiter(@Value("${app.ratelimit.enabled:true}") boolean enabled,
+                       @Value("${app.ratelimit.slow-mode-ttl-ms:10000}") long slowModeTtlMs,
+                       Environment environment,
+                       RoomStore roomStore,
+                       MembershipStore membershipStore,
+                       MeterRegistry registry) {
+        this.enabled = enabled;
+        this.slowModeTtlNanos = TimeUnit.MILLISECONDS.toNanos(slowModeTtlMs);
+        this.roomStore = roomStore;
+        this.membershipStore = membershipStore;
+        this.registry = registry;
+
+        for (RateLimitScope scope : RateLimitScope.values()) {
+            String prefix = "app.ratelimit." + scope.key();
+            double perSecond = environment.getProperty(prefix + ".per-second", Double.class, scope.defaultPerSecond());
+            int burst = environment.getProperty(prefix + ".burst", Integer.class, scope.defaultBurst());
+            budgets.put(scope, new Budget((long) (TimeUnit.SECONDS.toNanos(1) / perSecond), Math.max(1, burst)));
+        }
+
+        Gauge.builder("chat.ratelimit.buckets", buckets, Map::size)
+                .description("Rate limit buckets held for recently active clients")
+                .register(registry);
+    }
+
+    public record Decision(boolean allowed, long retryAfterMillis, String reason) {
+
+        static final Decision ALLOW = new Decision(true, 0, null);
+
+        static Decision reject(long waitNanos, String reason) {
+            return new Decision(false, Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)), reason);
+        }
+    }
+
+    private record Budget(long intervalNanos, int burst) {
+    }
+
+    private record SlowMode(int seconds, long expiresAt) {
+    }
+
+    /**
+     * Takes one token from {@code subject}'s bucket for {@code scope}.
+     */
+    public Decision check(RateLimitScope scope, String subject) {
+        if (!enabled) {
+            return Decision.ALLOW;
+        }
+        long now = System.nanoTime();
+        maybeSweep(now);
+        Budget budget = budgets.get(scope);
+        TokenBucket bucket = buckets.computeIfAbsent(scope.key() + '|' + subject, key -> new TokenBucket());
+        long wait = bucket.tryAcquire(now, budget.intervalNanos(), budget.burst());
+        if (wait == 0) {
+            return Decision.ALLOW;
+        }
+        rejected(scope, "rate");
+        return Decision.reject(wait, "rate");
+    }
+
+    /**
+     * Enforces the room's slow mode for a message send. Room admins are exempt.
+     */
+    public Decision checkSlowMode(String roomId, String userId) {
+        if (!enabled || roomId == null || userId == null) {
+            return Decision.ALLOW;
+        }
+        long now = System.nanoTime();
+        int seconds = slowModeSeconds(roomId, now);
+        if (seconds <= 0) {
+            return Decision.ALLOW;
+        }
+        TokenBucket bucket = slowModeBuckets.computeIfAbsent(roomId + '|' + userId, key -> new TokenBucket());
+        long wait = bucket.tryAcquire(now, TimeUnit.SECONDS.toNanos(seconds), 1);
+        if (wait == 0) {
+            return Decision.ALLOW;
+        }
+        // Only rejected senders pay for the membership lookup
+        boolean admin = membershipStore.find(roomId, userId)
+                .map(m -> m.isActive() && m.getRole() == RoomMembership.Role.ADMIN)
+                .orElse(false);
+        if (admin) {
+            return Decision.ALLOW;
+        }
+        rejected(RateLimitScope.SEND, "slow_mode");
+        return Decision.reject(wait, "slow_mode");
+    }
+
+    /**
+     * True if the caller should tell the client about this rejection; limits error replies to one per
+     * second per bucket.
+     */
+    public boolean shouldNotify(RateLimitScope scope, String subject) {
+        TokenBucket bucket = buckets.get(scope.key() + '|' + subject);
+        return bucket == null || bucket.claimRejectionNotice(System.nanoTime(), REJECTION_NOTICE_QUIET_NANOS);
+    }
+
+    /**
+     * Called when a room's slow mode changes or the room is deleted, so the cached value is not stale.
+     */
+    public void slowModeChanged(String roomId, int seconds) {
+        slowModeByRoom.put(roomId, new SlowMode(Math.max(0, seconds), System.nanoTime() + slowModeTtlNanos));
+        slowModeBuckets.keySet().removeIf(key -> key.startsWith(roomId + '|'));
+    }
+
+    private int slowModeSeconds(String roomId, long now) {
+        SlowMode cached = slowModeByRoom.get(roomId);
+        if (cached != null && cached.expiresAt() - now > 0) {
+            return cached.seconds();
+        }
+        int seconds = roomStore.findById(roomId).map(ChatRoom::getSlowModeSeconds).orElse(0);
+        slowModeByRoom.put(roomId, new SlowMode(seconds, now + slowModeTtlNanos));
+        return seconds;
+    }
+
+    private void rejected(RateLimitScope scope, String reason) {
+        rejections.computeIfAbsent(scope.key() + '|' + reason, key -> Counter.builder("chat.ratelimit.rejected")
+                .description("Frames and requests shed by the rate limiter")
+                .tag("scope", scope.key())
+                .tag("reason", reason)
+                .register(registry)).increment();
+    }
+
+    private void maybeSweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.isIdle(now));
+        slowModeBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+        slowModeByRoom.values().removeIf(slowMode -> slowMode.expiresAt() - now <= 0);
+    }
+}
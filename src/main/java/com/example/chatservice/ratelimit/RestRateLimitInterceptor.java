@@ -0,0 +1,60 @@
+package com.example.chatservice.ratelimit;
+
+import com.example.chatservice.security.UserPrincipal;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+
+/**
+ * Applies the {@link RateLimitScope#REST} budget to write requests (anything but GET, HEAD and OPTIONS)
+ * under {@code /api}. Authenticated callers are limited per user, anonymous ones (login, registration)
+ * per client address. Rejections are 429 with a {@code Retry-After} header.
+ */
+@Component
+public class RestRateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    public RestRateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) throws Exception {
+        String method = request.getMethod();
+        if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method)) {
+            return true;
+        }
+        RateLimiter.Decision decision = rateLimiter.check(RateLimitScope.REST, subject(request));
+        if (decision.allowed()) {
+            return true;
+        }
+        long retryAfterMs = decision.retryAfterMillis();
+        response.setStatus(429);
+        response.setHeader("Retry-After", Long.toString((retryAfterMs + 999) / 1000));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        jsonMapper.writeValue(response.getOutputStream(), Map.of(
+                "error", "Too many requests. Please slow down.",
+                "retryAfterMs", retryAfterMs));
+        return false;
+    }
+
+    private static String subject(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
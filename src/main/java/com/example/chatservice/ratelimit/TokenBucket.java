@@ -0,0 +1,53 @@
+package com.example.chatservice.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its "virtual scheduling" form: instead of a token count and a refill time,
+ * it keeps one number, the theoretical arrival time (TAT) at which the bucket would be full again.
+ * A request is admitted if the TAT is no more than {@code burst - 1} intervals in the future, and
+ * admitting it pushes the TAT one interval further. That single value is updated with a CAS loop.
+ */
+final class TokenBucket {
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong lastRejectionNotice = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Returns 0 if a token was taken, otherwise how long to wait, in nanoseconds, until one is available.
+     */
+    long tryAcquire(long nowNanos, long intervalNanos, int burst) {
+        long tolerance = intervalNanos * (burst - 1L);
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long start = tat == Long.MIN_VALUE ? nowNanos : Math.max(tat, nowNanos);
+            long wait = start - nowNanos - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(tat, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * True once the bucket has fully refilled, i.e. it carries no state worth keeping.
+     */
+    boolean isIdle(long nowNanos) {
+        long tat = theoreticalArrival.get();
+        return tat == Long.MIN_VALUE || tat - nowNanos <= 0;
+    }
+
+    /**
+     * Claims the right to tell the client about a rejection, at most once per {@code quietNanos}, so a
+     * flooding client does not get one error frame back for every frame it sends.
+     */
+    boolean claimRejectionNotice(long nowNanos, long quietNanos) {
+        long last = lastRejectionNotice.get();
+        if (last != Long.MIN_VALUE && nowNanos - last < quietNanos) {
+            return false;
+        }
+        return lastRejectionNotice.compareAndSet(last, nowNanos);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.chatservice.repository;
+
+import com.example.chatservice.Model.Attachment;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AttachmentRepository extends MongoRepository<Attachment, String> {
+    List<Attachment> findBySha256(String sha256);
+}
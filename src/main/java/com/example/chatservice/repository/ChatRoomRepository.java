@@ -2,6 +2,7 @@ package com.example.chatservice.repository;
 
 import com.example.chatservice.Model.ChatRoom;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,6 +16,10 @@ public interface ChatRoomRepository extends MongoRepository<ChatRoom, String> {
 
     List<ChatRoom> findByIsPrivateFalseAndRoomType(ChatRoom.RoomType roomType);
 
+    // Public room catalog: skips the creator reference and the private-room secrets
+    @Query(value = "{'isPrivate': false, 'roomType': ?0}", fields = "{'createdBy': 0, 'passwordHash': 0, 'inviteToken': 0}")
+    List<ChatRoom> findListingsByRoomType(ChatRoom.RoomType roomType);
+
     Optional<ChatRoom> findByNameAndRoomType(String name, ChatRoom.RoomType roomType);
 
     List<ChatRoom> findByNameContainingIgnoreCaseAndIsPrivateFalseAndRoomType(String name, ChatRoom.RoomType roomType);
@@ -7,19 +7,35 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends MongoRepository<Message, String> {
 
+    // History reads leave out messages past expiresAt that have not been deleted yet
+
     // For pagination in MessageService.getMessages()
-    Page<Message> findByRoomIdAndDeletedForUsersNotContaining(String roomId, String userId, Pageable pageable);
+    @Query("{'roomId': ?0, 'deletedForUsers': {$ne: ?1}, $or: [{'expiresAt': null}, {'expiresAt': {$gt: ?2}}]}")
+    Page<Message> findVisible(String roomId, String userId, Instant now, Pageable pageable);
 
-    // Used in getRecentMessages()
-    List<Message> findByRoomIdAndDeletedForUsersNotContainingOrderByCreatedAtDesc(String roomId, String userId, Pageable pageable);
+    // Used in getRecentMessages(); the order comes with the Pageable
+    @Query("{'roomId': ?0, 'deletedForUsers': {$ne: ?1}, $or: [{'expiresAt': null}, {'expiresAt': {$gt: ?2}}]}")
+    List<Message> findRecentVisible(String roomId, String userId, Instant now, Pageable pageable);
 
     // Used in getAllMessagesInRoom()
-    List<Message> findByRoomIdOrderByCreatedAtAsc(String roomId);
+    @Query(value = "{'roomId': ?0, $or: [{'expiresAt': null}, {'expiresAt': {$gt: ?1}}]}", sort = "{'createdAt': 1}")
+    List<Message> findLiveInRoom(String roomId, Instant now);
+
+    // Batched delivery acks
+    @Query("{'roomId': ?0, 'seq': {$gt: 0, $lte: ?2}, 'receipts': {$elemMatch: {'userId': {$in: ?1}, 'status': 'SENT'}}}")
+    List<Message> findAwaitingDelivery(String roomId, Collection<String> userIds, long maxSeq);
+
+    // Gap replay on reconnect
+    @Query(value = "{'roomId': ?0, 'seq': {$gt: ?1}, $or: [{'expiresAt': null}, {'expiresAt': {$gt: ?2}}]}",
+            sort = "{'seq': 1}")
+    List<Message> findAfterSequence(String roomId, long seq, Instant now, Pageable pageable);
 
     // Count messages in a room
     long countByRoomId(String roomId);
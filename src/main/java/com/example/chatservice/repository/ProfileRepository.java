@@ -4,10 +4,13 @@ import com.example.chatservice.Model.Profile;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProfileRepository extends MongoRepository<Profile, String> {
     Optional<Profile> findByUserId(String userId);
+    List<Profile> findByUserIdIn(Collection<String> userIds);
     void deleteByUserId(String userId);
 }
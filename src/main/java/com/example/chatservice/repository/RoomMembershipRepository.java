@@ -20,4 +20,6 @@ public interface RoomMembershipRepository extends MongoRepository<RoomMembership
     List<RoomMembership> findByUserIdAndIsActiveTrue(String userId);
 
     List<RoomMembership> findByRoomIdAndIsActiveTrue(String roomId);
+
+    long countByRoomIdAndIsActiveTrue(String roomId);
 }
\ No newline at end of file
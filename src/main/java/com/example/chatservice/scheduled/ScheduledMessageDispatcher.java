@@ -0,0 +1,300 @@
+package com.example.chatservice.scheduled;
+
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.Model.ScheduledMessage;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.service.ChatRoomService;
+import com.example.chatservice.service.CryptoService;
+import com.example.chatservice.service.MessageService;
+import com.example.chatservice.store.ScheduledMessageStore;
+import com.example.chatservice.store.UserStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends scheduled messages when they fall due, on one "scheduled-messages" thread.
+ *
+ * <p>{@code scheduled_messages} is the queue; this keeps a min-heap of the ones due within the next
+ * {@code app.scheduled.window-ms}, reloaded from the store every {@code refill-ms}, so the thread sleeps until
+ * the earliest one instead of polling. Messages scheduled or edited on this instance go straight into the heap
+ * when they fall inside the window; those from other instances are picked up on the next reload.
+ *
+ * <p>Due messages are taken {@code batch-size} at a time and claimed in the store with a lease of
+ * {@code lease-ms}. Only messages this instance claimed are sent, so two instances never send the same one,
+ * and an edit or cancel that got there first wins. Each is sent through {@link MessageService} like a message
+ * typed at that moment, and the batch's outcomes are written back together. Sends run one after another, so
+ * once half the lease has gone the rest of the batch is renewed before the next send, and any message whose
+ * lease was lost in the meantime is skipped. If an instance dies while holding a lease, the message is sent
+ * by whichever instance claims it after the lease runs out; if it died after sending but before recording
+ * it, that can mean the message is sent twice.
+ */
+@Component
+public class ScheduledMessageDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledMessageDispatcher.class);
+
+    private record Due(String scheduledId, Instant dueAt) {
+    }
+
+    private final ScheduledMessageStore scheduledMessageStore;
+    private final MessageService messageService;
+    private final ChatRoomService chatRoomService;
+    private final UserStore userStore;
+    private final CryptoService cryptoService;
+    private final boolean enabled;
+    private final Duration window;
+    private final long refillMillis;
+    private final int preloadLimit;
+    private final int batchSize;
+    private final Duration lease;
+    private final Timer lateness;
+    private final Counter sent;
+    private final Counter failed;
+
+    // All three guarded by heap. A heap entry whose due time no longer matches queued is stale and skipped.
+    private final PriorityQueue<Due> heap = new PriorityQueue<>(Comparator.comparing(Due::dueAt));
+    private final Map<String, Instant> queued = new HashMap<>();
+    private Instant windowEnd = Instant.MIN;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public ScheduledMessageDispatcher(ScheduledMessageStore scheduledMessageStore,
+                                      MessageService messageService,
+                                      ChatRoomService chatRoomService,
+                                      UserStore userStore,
+                                      CryptoService cryptoService,
+                                      @Value("${app.scheduled.enabled:true}") boolean enabled,
+                                      @Value("${app.scheduled.window-ms:600000}") long windowMillis,
+                                      @Value("${app.scheduled.refill-ms:60000}") long refillMillis,
+                                      @Value("${app.scheduled.preload-limit:10000}") int preloadLimit,
+                                      @Value("${app.scheduled.batch-size:100}") int batchSize,
+                                      @Value("${app.scheduled.lease-ms:30000}") long leaseMillis,
+                                      MeterRegistry registry) {
+        this.scheduledMessageStore = scheduledMessageStore;
+        this.messageService = messageService;
+        this.chatRoomService = chatRoomService;
+        this.userStore = userStore;
+        this.cryptoService = cryptoService;
+        this.enabled = enabled;
+        this.window = Duration.ofMillis(windowMillis);
+        this.refillMillis = refillMillis;
+        this.preloadLimit = preloadLimit;
+        this.batchSize = batchSize;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.lateness = Timer.builder("chat.scheduled.lateness")
+                .description("Time from a scheduled message's due time to it being sent")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.sent = Counter.builder("chat.scheduled.released").tag("outcome", "sent")
+                .description("Scheduled messages released when due")
+                .register(registry);
+        this.failed = Counter.builder("chat.scheduled.released").tag("outcome", "failed")
+                .description("Scheduled messages released when due")
+                .register(registry);
+        Gauge.builder("chat.scheduled.queued", this, ScheduledMessageDispatcher::queuedCount)
+                .description("Scheduled messages due within the preload window, held in memory")
+                .register(registry);
+        Gauge.builder("chat.scheduled.overdue", this, ScheduledMessageDispatcher::overdueCount)
+                .description("Scheduled messages past their due time and not yet sent by this instance")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "scheduled-messages");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Queues a new or edited PENDING message if it is due within the loaded window, and wakes the thread if
+     * it is now the earliest.
+     */
+    public void offer(ScheduledMessage message) {
+        boolean earliest;
+        synchronized (heap) {
+            if (message.getDueAt().isAfter(windowEnd)) {
+                // Outside the window: the reload that reaches it will queue it
+                queued.remove(message.getId());
+                return;
+            }
+            queued.put(message.getId(), message.getDueAt());
+            Due due = new Due(message.getId(), message.getDueAt());
+            heap.add(due);
+            earliest = heap.peek() == due;
+        }
+        if (earliest && worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    public void forget(String scheduledId) {
+        synchronized (heap) {
+            queued.remove(scheduledId);
+        }
+    }
+
+    private void runWorker() {
+        long nextRefill = 0;
+        while (running) {
+            try {
+                if (System.currentTimeMillis() >= nextRefill) {
+                    refill();
+                    nextRefill = System.currentTimeMillis() + refillMillis;
+                }
+                List<String> due = takeDue(Instant.now());
+                if (!due.isEmpty()) {
+                    release(due);
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Scheduled message pass failed: {}", e.getMessage());
+            }
+            long wait = nextRefill - System.currentTimeMillis();
+            synchronized (heap) {
+                Due head = heap.peek();
+                if (head != null) {
+                    wait = Math.min(wait, Duration.between(Instant.now(), head.dueAt()).toMillis());
+                }
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(wait));
+            }
+        }
+    }
+
+    /**
+     * Loads the PENDING messages due within the window, soonest first. If there are more than
+     * {@code preload-limit}, the window is cut short at the last one loaded.
+     */
+    private void refill() {
+        Instant until = Instant.now().plus(window);
+        // Widened before the query, so a message scheduled while it runs is either loaded or offered
+        synchronized (heap) {
+            windowEnd = until;
+        }
+        List<ScheduledMessage> pending = scheduledMessageStore.findPendingDueBefore(until, preloadLimit);
+        synchronized (heap) {
+            if (pending.size() >= preloadLimit) {
+                windowEnd = pending.get(pending.size() - 1).getDueAt();
+            }
+            for (ScheduledMessage message : pending) {
+                if (!message.getDueAt().equals(queued.put(message.getId(), message.getDueAt()))) {
+                    heap.add(new Due(message.getId(), message.getDueAt()));
+                }
+            }
+        }
+    }
+
+    private List<String> takeDue(Instant now) {
+        List<String> due = new ArrayList<>();
+        synchronized (heap) {
+            while (due.size() < batchSize && !heap.isEmpty() && !heap.peek().dueAt().isAfter(now)) {
+                Due next = heap.poll();
+                if (next.dueAt().equals(queued.get(next.scheduledId()))) {
+                    queued.remove(next.scheduledId());
+                    due.add(next.scheduledId());
+                }
+            }
+        }
+        return due;
+    }
+
+    private void release(List<String> due) {
+        String leaseToken = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        Instant renewAt = now.plus(lease.dividedBy(2));
+        List<ScheduledMessage> claimed = scheduledMessageStore.claim(due, leaseToken, now, now.plus(lease));
+        List<ScheduledMessageStore.Completion> completions = new ArrayList<>(claimed.size());
+        Set<String> held = null;
+        for (int i = 0; i < claimed.size(); i++) {
+            ScheduledMessage scheduled = claimed.get(i);
+            now = Instant.now();
+            if (now.isAfter(renewAt)) {
+                List<String> rest = claimed.subList(i, claimed.size()).stream().map(ScheduledMessage::getId).toList();
+                held = new HashSet<>(scheduledMessageStore.renew(rest, leaseToken, now.plus(lease)));
+                renewAt = now.plus(lease.dividedBy(2));
+            }
+            if (held != null && !held.contains(scheduled.getId())) {
+                continue;
+            }
+            completions.add(send(scheduled, leaseToken));
+        }
+        int recorded = scheduledMessageStore.complete(completions, Instant.now());
+        if (recorded < completions.size()) {
+            log.warn("{} of {} scheduled message outcomes were not recorded: their lease was taken over",
+                    completions.size() - recorded, completions.size());
+        }
+    }
+
+    private ScheduledMessageStore.Completion send(ScheduledMessage scheduled, String leaseToken) {
+        try {
+            User sender = userStore.findById(scheduled.getSenderId())
+                    .orElseThrow(() -> new IllegalStateException("Sender no longer exists"));
+            chatRoomService.assertCanSendMessages(sender.getId(), scheduled.getRoomId());
+            String text = cryptoService.decrypt(scheduled.getEncryptedContent());
+            Message message = messageService.saveEncrypted(scheduled.getRoomId(), sender.getUsername(), text,
+                    scheduled.getTtlSeconds(), null);
+            messageService.broadcastNewMessage(message, sender, text, null);
+            lateness.record(Duration.between(scheduled.getDueAt(), Instant.now()));
+            sent.increment();
+            return new ScheduledMessageStore.Completion(scheduled.getId(), leaseToken,
+                    ScheduledMessage.State.SENT, message.getId(), null);
+        } catch (RuntimeException e) {
+            log.info("Scheduled message {} in room {} could not be sent: {}", scheduled.getId(),
+                    scheduled.getRoomId(), e.getMessage());
+            failed.increment();
+            return new ScheduledMessageStore.Completion(scheduled.getId(), leaseToken,
+                    ScheduledMessage.State.FAILED, null, e.getMessage());
+        }
+    }
+
+    private int queuedCount() {
+        synchronized (heap) {
+            return queued.size();
+        }
+    }
+
+    private int overdueCount() {
+        Instant now = Instant.now();
+        synchronized (heap) {
+            return (int) queued.values().stream().filter(dueAt -> !dueAt.isAfter(now)).count();
+        }
+    }
+}
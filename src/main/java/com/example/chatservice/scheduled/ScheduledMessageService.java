@@ -0,0 +1,168 @@
+package com.example.chatservice.scheduled;
+
+import com.example.chatservice.Dto.request.ScheduleMessageRequest;
+import com.example.chatservice.Dto.response.ScheduledMessageDto;
+import com.example.chatservice.Model.ScheduledMessage;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.exception.ResourceNotFoundException;
+import com.example.chatservice.expiry.MessageExpiry;
+import com.example.chatservice.service.ChatRoomService;
+import com.example.chatservice.service.CryptoService;
+import com.example.chatservice.store.ScheduledMessageStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Schedules, edits and cancels "send later" messages for their senders. Content is encrypted under the room's
+ * key as soon as it is received; {@link ScheduledMessageDispatcher} sends it when it falls due.
+ */
+@Service
+public class ScheduledMessageService {
+
+    private final ScheduledMessageStore scheduledMessageStore;
+    private final ScheduledMessageDispatcher dispatcher;
+    private final ChatRoomService chatRoomService;
+    private final CryptoService cryptoService;
+    private final MessageExpiry messageExpiry;
+    private final Duration maxHorizon;
+    private final int maxPendingPerUser;
+
+    public ScheduledMessageService(ScheduledMessageStore scheduledMessageStore,
+                                   ScheduledMessageDispatcher dispatcher,
+                                   ChatRoomService chatRoomService,
+                                   CryptoService cryptoService,
+                                   MessageExpiry messageExpiry,
+                                   @Value("${app.scheduled.max-horizon-days:365}") int maxHorizonDays,
+                                   @Value("${app.scheduled.max-pending-per-user:100}") int maxPendingPerUser) {
+        this.scheduledMessageStore = scheduledMessageStore;
+        this.dispatcher = dispatcher;
+        this.chatRoomService = chatRoomService;
+        this.cryptoService = cryptoService;
+        this.messageExpiry = messageExpiry;
+        this.maxHorizon = Duration.ofDays(maxHorizonDays);
+        this.maxPendingPerUser = maxPendingPerUser;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the content, time or TTL is invalid, or the user has too many
+     *                                  messages scheduled
+     * @throws RuntimeException         if the user may not send messages in the room
+     */
+    public ScheduledMessageDto schedule(User sender, String roomId, ScheduleMessageRequest request) {
+        if (chatRoomService.findRoomById(roomId).isEmpty()) {
+            throw new ResourceNotFoundException("Room not found");
+        }
+        chatRoomService.assertCanSendMessages(sender.getId(), roomId);
+        if (request.content() == null || request.content().isBlank()) {
+            throw new IllegalArgumentException("content is required");
+        }
+        if (request.sendAt() == null) {
+            throw new IllegalArgumentException("sendAt is required");
+        }
+        Instant now = Instant.now();
+        checkSendAt(request.sendAt(), now);
+        if (request.ttlSeconds() != null) {
+            messageExpiry.checkTtl(request.ttlSeconds());
+        }
+        if (scheduledMessageStore.countPending(sender.getId()) >= maxPendingPerUser) {
+            throw new IllegalArgumentException("You already have " + maxPendingPerUser + " messages scheduled");
+        }
+
+        ScheduledMessage message = new ScheduledMessage();
+        message.setRoomId(roomId);
+        message.setSenderId(sender.getId());
+        message.setSenderUsername(sender.getUsername());
+        message.setEncryptedContent(cryptoService.encrypt(roomId, request.content()));
+        message.setTtlSeconds(request.ttlSeconds());
+        message.setDueAt(request.sendAt());
+        message.setCreatedAt(now);
+        message.setUpdatedAt(now);
+        ScheduledMessage saved = scheduledMessageStore.insert(message);
+        dispatcher.offer(saved);
+        return toDto(saved);
+    }
+
+    public List<ScheduledMessageDto> listPending(User sender, String roomId) {
+        return scheduledMessageStore.findPending(sender.getId(), roomId).stream().map(this::toDto).toList();
+    }
+
+    public ScheduledMessageDto get(User sender, String roomId, String scheduledId) {
+        return toDto(own(sender, roomId, scheduledId));
+    }
+
+    /**
+     * Changes the content, time or TTL of a message that has not been sent yet.
+     *
+     * @throws IllegalStateException if it has been sent or cancelled, or is being sent
+     */
+    public ScheduledMessageDto edit(User sender, String roomId, String scheduledId, ScheduleMessageRequest request) {
+        own(sender, roomId, scheduledId);
+        Instant now = Instant.now();
+        if (request.content() != null && request.content().isBlank()) {
+            throw new IllegalArgumentException("content must not be blank");
+        }
+        if (request.sendAt() != null) {
+            checkSendAt(request.sendAt(), now);
+        }
+        if (request.ttlSeconds() != null) {
+            messageExpiry.checkTtl(request.ttlSeconds());
+        }
+        String encrypted = request.content() != null ? cryptoService.encrypt(roomId, request.content()) : null;
+        ScheduledMessage updated = scheduledMessageStore
+                .updatePending(scheduledId, encrypted, request.ttlSeconds(), request.sendAt(), now)
+                .orElseThrow(() -> new IllegalStateException("The message has already been sent or cancelled"));
+        dispatcher.offer(updated);
+        return toDto(updated);
+    }
+
+    /**
+     * @throws IllegalStateException if it has been sent or cancelled, or is being sent
+     */
+    public ScheduledMessageDto cancel(User sender, String roomId, String scheduledId) {
+        own(sender, roomId, scheduledId);
+        if (!scheduledMessageStore.cancel(scheduledId, Instant.now())) {
+            throw new IllegalStateException("The message has already been sent or cancelled");
+        }
+        dispatcher.forget(scheduledId);
+        return toDto(own(sender, roomId, scheduledId));
+    }
+
+    private ScheduledMessage own(User sender, String roomId, String scheduledId) {
+        return scheduledMessageStore.findById(scheduledId)
+                .filter(m -> m.getRoomId().equals(roomId) && m.getSenderId().equals(sender.getId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Scheduled message not found"));
+    }
+
+    private void checkSendAt(Instant sendAt, Instant now) {
+        if (!sendAt.isAfter(now)) {
+            throw new IllegalArgumentException("sendAt must be in the future");
+        }
+        if (sendAt.isAfter(now.plus(maxHorizon))) {
+            throw new IllegalArgumentException("sendAt must be within " + maxHorizon.toDays() + " days");
+        }
+    }
+
+    private ScheduledMessageDto toDto(ScheduledMessage message) {
+        String content;
+        try {
+            content = cryptoService.decrypt(message.getEncryptedContent());
+        } catch (RuntimeException e) {
+            content = null;
+        }
+        return new ScheduledMessageDto(
+                message.getId(),
+                message.getRoomId(),
+                content,
+                message.getDueAt(),
+                message.getTtlSeconds(),
+                message.getState().name(),
+                message.getMessageId(),
+                message.getFailure(),
+                message.getCreatedAt(),
+                message.getUpdatedAt());
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.chatservice.security;
+
+import com.example.chatservice.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backs off callers that keep presenting wrong passwords, before any hashing is done for them.
+ *
+ * <p>Failures are counted per account and per client address over a sliding window of
+ * {@code app.auth.throttle.window-ms}. Past {@code free-attempts} failures in the window, each further
+ * failure blocks the account or address for {@code base-delay-ms}, doubling every time up to
+ * {@code max-delay-ms}. A successful login clears the account's failures but not the address's, so one
+ * valid account does not unlock guessing at others from the same address. Entries are held in memory,
+ * per instance, and swept once the window has passed.
+ */
+@Component
+public class LoginThrottle {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int accountFreeAttempts;
+    private final int addressFreeAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final Counter accountThrottled;
+    private final Counter addressThrottled;
+
+    private final Map<String, Failures> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Failures> addresses = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    public LoginThrottle(@Value("${app.auth.throttle.enabled:true}") boolean enabled,
+                         @Value("${app.auth.throttle.window-ms:900000}") long windowMillis,
+                         @Value("${app.auth.throttle.account.free-attempts:5}") int accountFreeAttempts,
+                         @Value("${app.auth.throttle.ip.free-attempts:30}") int addressFreeAttempts,
+                         @Value("${app.auth.throttle.base-delay-ms:1000}") long baseDelayMillis,
+                         @Value("${app.auth.throttle.max-delay-ms:900000}") long maxDelayMillis,
+                         MeterRegistry registry) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.accountFreeAttempts = accountFreeAttempts;
+        this.addressFreeAttempts = addressFreeAttempts;
+        this.baseDelayNanos = TimeUnit.MILLISECONDS.toNanos(baseDelayMillis);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.accountThrottled = Counter.builder("chat.auth.throttled").tag("scope", "account")
+                .description("Password attempts refused because of earlier failures")
+                .register(registry);
+        this.addressThrottled = Counter.builder("chat.auth.throttled").tag("scope", "ip")
+                .description("Password attempts refused because of earlier failures")
+                .register(registry);
+    }
+
+    /**
+     * Refuses the attempt if the account or the address is blocked. Either may be null.
+     *
+     * @throws TooManyRequestsException with the time left on the longer block
+     */
+    public void check(String account, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        maybeSweep(now);
+        long accountWait = remaining(accounts, account, now);
+        long addressWait = remaining(addresses, clientAddress, now);
+        if (accountWait <= 0 && addressWait <= 0) {
+            return;
+        }
+        (accountWait >= addressWait ? accountThrottled : addressThrottled).increment();
+        throw new TooManyRequestsException("Too many failed attempts. Try again later.",
+                Math.max(1, TimeUnit.NANOSECONDS.toMillis(Math.max(accountWait, addressWait))));
+    }
+
+    public void failed(String account, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        record(accounts, account, accountFreeAttempts, now);
+        record(addresses, clientAddress, addressFreeAttempts, now);
+    }
+
+    public void succeeded(String account) {
+        if (account != null) {
+            accounts.remove(account);
+        }
+    }
+
+    private static long remaining(Map<String, Failures> failures, String key, long now) {
+        Failures entry = key != null ? failures.get(key) : null;
+        if (entry == null) {
+            return 0;
+        }
+        synchronized (entry) {
+            return entry.blockedUntil - now;
+        }
+    }
+
+    private void record(Map<String, Failures> failures, String key, int freeAttempts, long now) {
+        if (key == null) {
+            return;
+        }
+        Failures entry = failures.computeIfAbsent(key, k -> new Failures());
+        synchronized (entry) {
+            entry.prune(now - windowNanos);
+            entry.times.addLast(now);
+            int over = entry.times.size() - freeAttempts;
+            if (over > 0) {
+                long delay = baseDelayNanos << Math.min(over - 1, 30);
+                entry.blockedUntil = now + Math.min(delay > 0 ? delay : maxDelayNanos, maxDelayNanos);
+            }
+        }
+    }
+
+    private void maybeSweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        sweep(accounts, now);
+        sweep(addresses, now);
+    }
+
+    private void sweep(Map<String, Failures> failures, long now) {
+        failures.entrySet().removeIf(e -> {
+            Failures entry = e.getValue();
+            synchronized (entry) {
+                entry.prune(now - windowNanos);
+                return entry.times.isEmpty() && entry.blockedUntil - now <= 0;
+            }
+        });
+    }
+
+    /**
+     * Failure times inside the window, oldest first, and when the current block ends.
+     */
+    private static final class Failures {
+        private final ArrayDeque<Long> times = new ArrayDeque<>();
+        private long blockedUntil = System.nanoTime();
+
+        private void prune(long cutoff) {
+            while (!times.isEmpty() && times.peekFirst() - cutoff < 0) {
+                times.pollFirst();
+            }
+        }
+    }
+}
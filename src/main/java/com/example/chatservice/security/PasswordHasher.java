@@ -0,0 +1,132 @@
+package com.example.chatservice.security;
+
+import com.example.chatservice.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * The application's {@link PasswordEncoder}: BCrypt, run on a pool of its own so that a burst of logins
+ * or registrations cannot occupy every request thread.
+ *
+ * <p>{@code app.auth.hashing.threads} hashes run at once (half the cores by default) and at most
+ * {@code app.auth.hashing.queue-capacity} wait. A caller that finds the queue full, or whose hash has not
+ * finished within {@code app.auth.hashing.max-wait-ms}, gets a {@link TooManyRequestsException} straight
+ * away instead of adding to the backlog.
+ */
+@Component
+public class PasswordHasher implements PasswordEncoder {
+
+    private static final long RETRY_AFTER_MILLIS = 1000;
+
+    private final PasswordEncoder bcrypt;
+    private final ThreadPoolTaskExecutor executor;
+    private final long maxWaitMillis;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public PasswordHasher(@Value("${app.auth.hashing.strength:10}") int strength,
+                          @Value("${app.auth.hashing.threads:0}") int threads,
+                          @Value("${app.auth.hashing.queue-capacity:32}") int queueCapacity,
+                          @Value("${app.auth.hashing.max-wait-ms:5000}") long maxWaitMillis,
+                          MeterRegistry registry) {
+        this.bcrypt = new BCryptPasswordEncoder(strength);
+        this.maxWaitMillis = maxWaitMillis;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bcrypt-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+
+        this.encodeTimer = Timer.builder("chat.auth.hashing").tag("operation", "encode")
+                .description("Time spent computing BCrypt hashes")
+                .register(registry);
+        this.matchesTimer = Timer.builder("chat.auth.hashing").tag("operation", "matches")
+                .description("Time spent computing BCrypt hashes")
+                .register(registry);
+        this.queueWait = Timer.builder("chat.auth.hashing.queue.wait")
+                .description("Time password hashes wait for a hashing thread")
+                .register(registry);
+        this.rejected = Counter.builder("chat.auth.hashing.rejected")
+                .description("Password hashes refused because the hashing pool was saturated")
+                .register(registry);
+        Gauge.builder("chat.auth.hashing.queued", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return bcrypt.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer timer, Supplier<T> work) {
+        long submitted = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return timer.record(work);
+            });
+        } catch (TaskRejectedException e) {
+            throw busy();
+        }
+        try {
+            return result.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Drop it if it is still queued; a hash already running is left to finish
+            result.cancel(false);
+            throw busy();
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private TooManyRequestsException busy() {
+        rejected.increment();
+        return new TooManyRequestsException("Server busy, try again shortly", RETRY_AFTER_MILLIS);
+    }
+}
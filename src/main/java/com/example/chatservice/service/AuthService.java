@@ -6,8 +6,10 @@ import com.example.chatservice.Dto.response.UserSummaryResponse;
 import com.example.chatservice.Model.User;
 import com.example.chatservice.exception.AuthenticationFailedException;
 import com.example.chatservice.security.JwtService;
+import com.example.chatservice.security.LoginThrottle;
 import com.example.chatservice.security.UserPrincipal;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
@@ -21,13 +23,16 @@ public class AuthService {
     private final UserService userService;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final LoginThrottle loginThrottle;
 
     public AuthService(UserService userService,
             JwtService jwtService,
-            AuthenticationManager authenticationManager) {
+            AuthenticationManager authenticationManager,
+            LoginThrottle loginThrottle) {
         this.userService = userService;
         this.jwtService = jwtService;
         this.authenticationManager = authenticationManager;
+        this.loginThrottle = loginThrottle;
     }
 
     /**
@@ -52,12 +57,21 @@ public class AuthService {
 
     /**
      * Authenticates a user by username and password, updates status to ONLINE,
-     * and returns an AuthResponse with a JWT token.
+     * and returns an AuthResponse with a JWT token. Accounts and client addresses with
+     * repeated failures are refused before the password is checked.
      */
-    public AuthResponse login(String username, String password) {
+    public AuthResponse login(String username, String password, String clientAddress) {
         String normalizedUsername = username != null ? username.trim() : "";
-        Authentication auth = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(normalizedUsername, password));
+        loginThrottle.check(normalizedUsername, clientAddress);
+        Authentication auth;
+        try {
+            auth = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(normalizedUsername, password));
+        } catch (BadCredentialsException e) {
+            loginThrottle.failed(normalizedUsername, clientAddress);
+            throw e;
+        }
+        loginThrottle.succeeded(normalizedUsername);
 
         User user = ((UserPrincipal) auth.getPrincipal()).getUser();
 
@@ -0,0 +1,289 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.Model.RoomMembership;
+import com.example.chatservice.Model.User;
+import com.example.chatservice.store.MembershipStore;
+import com.example.chatservice.store.MessageStore;
+import com.example.chatservice.store.RoomStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Delivery for {@link ChatRoom.RoomType#BROADCAST} channels, where a handful of admins post to any number
+ * of readers. Nothing here does work per member:
+ *
+ * <ul>
+ * <li>who may post is cached in memory per channel, refreshed every {@code app.broadcast.posters-ttl-ms}
+ * and whenever a role changes on this instance;</li>
+ * <li>messages carry no receipts; reader acks instead raise an aggregate {@code viewCount}, written as a
+ * few range increments per flush;</li>
+ * <li>posts go out once on the room topic, and instead of a notification per member, one
+ * {@code BROADCAST_DIGEST} per channel is published on {@code /topic/rooms/{roomId}/digest} at most every
+ * {@code app.broadcast.digest-interval-ms}.</li>
+ * </ul>
+ *
+ * View counts are approximate: the last acked sequence of each reader is kept in memory, for at most
+ * {@code app.broadcast.max-view-marks} readers per channel, so after a restart or once a reader has been
+ * evicted their first ack counts only the message it names. Acks from anyone but active members are
+ * ignored, and no ack counts past the latest settled post.
+ */
+@Component
+public class BroadcastRooms {
+
+    private static final Logger log = LoggerFactory.getLogger(BroadcastRooms.class);
+
+    private static final int DIGEST_PREVIEW_CHARS = 140;
+
+    private final RoomStore roomStore;
+    private final MembershipStore membershipStore;
+    private final MessageStore messageStore;
+    private final RoomSequencer roomSequencer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long postersTtlNanos;
+    private final long digestIntervalNanos;
+    private final long maxViewRange;
+    private final int maxViewMarks;
+    private final Counter viewsRecorded;
+    private final Counter digestsSent;
+
+    /**
+     * A room's kind as far as posting goes. {@code posters} is null for rooms that are not broadcast
+     * channels, which never become one.
+     */
+    private record Channel(Set<String> posters, long loadedAt) {
+        boolean isBroadcast() {
+            return posters != null;
+        }
+    }
+
+    private record Digest(int count, long lastSeq, String sender, String preview) {
+    }
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    // roomId -> userId -> highest sequence counted as viewed, least recently acked first; only touched by
+    // the ack flusher
+    private final Map<String, LinkedHashMap<String, Long>> viewMarks = new ConcurrentHashMap<>();
+
+    // Guarded by digestLock
+    private final Object digestLock = new Object();
+    private Map<String, Digest> pendingDigests = new HashMap<>();
+
+    private volatile boolean running;
+    private Thread digester;
+
+    public BroadcastRooms(RoomStore roomStore,
+                          MembershipStore membershipStore,
+                          MessageStore messageStore,
+                          RoomSequencer roomSequencer,
+                          SimpMessagingTemplate messagingTemplate,
+                          @Value("${app.broadcast.posters-ttl-ms:60000}") long postersTtlMillis,
+                          @Value("${app.broadcast.digest-interval-ms:30000}") long digestIntervalMillis,
+                          @Value("${app.broadcast.max-view-range:1000}") long maxViewRange,
+                          @Value("${app.broadcast.max-view-marks:100000}") int maxViewMarks,
+                          MeterRegistry registry) {
+        this.roomStore = roomStore;
+        this.membershipStore = membershipStore;
+        this.messageStore = messageStore;
+        this.roomSequencer = roomSequencer;
+        this.messagingTemplate = messagingTemplate;
+        this.postersTtlNanos = TimeUnit.MILLISECONDS.toNanos(postersTtlMillis);
+        this.digestIntervalNanos = TimeUnit.MILLISECONDS.toNanos(digestIntervalMillis);
+        this.maxViewRange = maxViewRange;
+        this.maxViewMarks = maxViewMarks;
+        this.viewsRecorded = Counter.builder("chat.broadcast.views")
+                .description("Message views counted in broadcast channels")
+                .register(registry);
+        this.digestsSent = Counter.builder("chat.broadcast.digests")
+                .description("Digest notifications published for broadcast channels")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        digester = new Thread(this::runDigester, "broadcast-digest");
+        digester.setDaemon(true);
+        digester.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (digester != null) {
+            LockSupport.unpark(digester);
+            digester.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        flushDigests();
+    }
+
+    public boolean isBroadcast(String roomId) {
+        Channel channel = channel(roomId);
+        return channel != null && channel.isBroadcast();
+    }
+
+    /**
+     * Whether {@code userId} may post in the broadcast channel: active admins who are not muted.
+     */
+    public boolean canPost(String roomId, String userId) {
+        Channel channel = channel(roomId);
+        return channel != null && channel.isBroadcast() && channel.posters().contains(userId);
+    }
+
+    /**
+     * Drops the cached posters of a room after a role, mute or membership change.
+     */
+    public void invalidate(String roomId) {
+        channels.computeIfPresent(roomId, (id, channel) -> channel.isBroadcast() ? null : channel);
+    }
+
+    public void forget(String roomId) {
+        channels.remove(roomId);
+        viewMarks.remove(roomId);
+        synchronized (digestLock) {
+            pendingDigests.remove(roomId);
+        }
+    }
+
+    /**
+     * Queues a new post for the channel's next digest.
+     */
+    public void published(Message message, User sender, String text) {
+        String preview = text != null && text.length() > DIGEST_PREVIEW_CHARS
+                ? text.substring(0, DIGEST_PREVIEW_CHARS) + "…" : text;
+        synchronized (digestLock) {
+            pendingDigests.merge(message.getRoomId(),
+                    new Digest(1, message.getSeq(), sender.getDisplayName(), preview),
+                    (previous, next) -> new Digest(previous.count() + 1, next.lastSeq(), next.sender(), next.preview()));
+        }
+    }
+
+    /**
+     * Turns one flush of reader acks into view counts: each reader adds a view to every message between
+     * their previous ack and this one. Overlapping ranges are merged, so the store sees one increment per
+     * stretch of messages with the same number of new views. Acks from non-members are dropped and the rest
+     * are capped at the latest post that has been broadcast.
+     */
+    public void recordViews(String roomId, Map<String, Long> highestSeqByUser) {
+        long latest = Math.min(roomSequencer.settledThrough(roomId), roomSequencer.latest(roomId));
+        Set<String> members = membershipStore.findActiveUserIds(roomId, highestSeqByUser.keySet());
+        LinkedHashMap<String, Long> marks = viewMarks.computeIfAbsent(roomId, id -> newViewMarks());
+        // seq -> change in the number of readers viewing from that seq on
+        TreeMap<Long, Long> edges = new TreeMap<>();
+        long views = 0;
+        for (Map.Entry<String, Long> ack : highestSeqByUser.entrySet()) {
+            if (!members.contains(ack.getKey())) {
+                continue;
+            }
+            long seq = Math.min(ack.getValue(), latest);
+            if (seq < 1) {
+                continue;
+            }
+            Long previous = marks.get(ack.getKey());
+            long from = previous != null ? previous + 1 : seq;
+            if (seq < from) {
+                continue;
+            }
+            from = Math.max(from, seq - maxViewRange + 1);
+            marks.put(ack.getKey(), seq);
+            edges.merge(from, 1L, Long::sum);
+            edges.merge(seq + 1, -1L, Long::sum);
+            views += seq - from + 1;
+        }
+
+        long readers = 0;
+        long start = 0;
+        for (Map.Entry<Long, Long> edge : edges.entrySet()) {
+            if (readers > 0) {
+                messageStore.incrementViews(roomId, start, edge.getKey() - 1, readers);
+            }
+            readers += edge.getValue();
+            start = edge.getKey();
+        }
+        viewsRecorded.increment(views);
+    }
+
+    private LinkedHashMap<String, Long> newViewMarks() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxViewMarks;
+            }
+        };
+    }
+
+    private Channel channel(String roomId) {
+        long now = System.nanoTime();
+        Channel channel = channels.get(roomId);
+        if (channel != null && (!channel.isBroadcast() || now - channel.loadedAt() < postersTtlNanos)) {
+            return channel;
+        }
+        ChatRoom room = roomStore.findById(roomId).orElse(null);
+        if (room == null) {
+            return null;
+        }
+        Set<String> posters = null;
+        if (room.getRoomType() == ChatRoom.RoomType.BROADCAST) {
+            posters = membershipStore.findActiveMembers(roomId).stream()
+                    .filter(member -> member.role() == RoomMembership.Role.ADMIN && member.canSendMessages())
+                    .map(MembershipStore.ActiveMember::userId)
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+        channel = new Channel(posters, now);
+        channels.put(roomId, channel);
+        return channel;
+    }
+
+    private void runDigester() {
+        while (running) {
+            LockSupport.parkNanos(this, digestIntervalNanos);
+            flushDigests();
+        }
+    }
+
+    private void flushDigests() {
+        Map<String, Digest> batch;
+        synchronized (digestLock) {
+            if (pendingDigests.isEmpty()) {
+                return;
+            }
+            batch = pendingDigests;
+            pendingDigests = new HashMap<>();
+        }
+        for (Map.Entry<String, Digest> entry : batch.entrySet()) {
+            Digest digest = entry.getValue();
+            Map<String, Object> event = new HashMap<>();
+            event.put("type", "BROADCAST_DIGEST");
+            event.put("roomId", entry.getKey());
+            event.put("count", digest.count());
+            event.put("lastSeq", digest.lastSeq());
+            event.put("sender", digest.sender());
+            event.put("text", digest.preview());
+            event.put("timestamp", System.currentTimeMillis());
+            try {
+                messagingTemplate.convertAndSend("/topic/rooms/" + entry.getKey() + "/digest", (Object) event);
+                digestsSent.increment();
+            } catch (RuntimeException e) {
+                log.warn("Failed to publish digest for broadcast room {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.example.chatservice.service;
 
+import com.example.chatservice.Dto.response.RoomMemberDto;
+import com.example.chatservice.Dto.response.RoomMembersPage;
 import com.example.chatservice.Model.ChatRoom;
 import com.example.chatservice.Model.RoomMembership;
 import com.example.chatservice.Model.User;
-import com.example.chatservice.repository.ChatRoomRepository;
-import com.example.chatservice.repository.RoomMembershipRepository;
-import com.example.chatservice.repository.UserRepository;
+import com.example.chatservice.audit.AuditAction;
+import com.example.chatservice.audit.AuditJournal;
+import com.example.chatservice.expiry.MessageExpiry;
+import com.example.chatservice.ratelimit.RateLimiter;
+import com.example.chatservice.security.LoginThrottle;
+import com.example.chatservice.store.MembershipStore;
+import com.example.chatservice.store.RoomStore;
+import com.example.chatservice.store.UserStore;
 import org.springframework.lang.NonNull;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -20,22 +31,51 @@ import java.util.UUID;
 @Service
 public class ChatRoomService {
 
-    private final ChatRoomRepository chatRoomRepository;
-    private final RoomMembershipRepository membershipRepository;
-    private final UserRepository userRepository;
+    private static final int PLACE_BATCH_SIZE = 500;
+
+    private final RoomStore roomStore;
+    private final MembershipStore membershipStore;
+    private final UserStore userStore;
     private final PasswordEncoder passwordEncoder;
     private final SimpMessagingTemplate messagingTemplate;
-
-    public ChatRoomService(ChatRoomRepository chatRoomRepository,
-            RoomMembershipRepository membershipRepository,
-            UserRepository userRepository,
+    private final AuditJournal auditJournal;
+    private final RateLimiter rateLimiter;
+    private final RoomSequencer roomSequencer;
+    private final UserService userService;
+    private final ProfileService profileService;
+    private final BroadcastRooms broadcastRooms;
+    private final RoomCatalog roomCatalog;
+    private final LoginThrottle loginThrottle;
+    private final MessageExpiry messageExpiry;
+
+    public ChatRoomService(RoomStore roomStore,
+            MembershipStore membershipStore,
+            UserStore userStore,
             PasswordEncoder passwordEncoder,
-            SimpMessagingTemplate messagingTemplate) {
-        this.chatRoomRepository = chatRoomRepository;
-        this.membershipRepository = membershipRepository;
-        this.userRepository = userRepository;
+            SimpMessagingTemplate messagingTemplate,
+            AuditJournal auditJournal,
+            RateLimiter rateLimiter,
+            RoomSequencer roomSequencer,
+            UserService userService,
+            ProfileService profileService,
+            BroadcastRooms broadcastRooms,
+            RoomCatalog roomCatalog,
+            LoginThrottle loginThrottle,
+            MessageExpiry messageExpiry) {
+        this.roomStore = roomStore;
+        this.membershipStore = membershipStore;
+        this.userStore = userStore;
         this.passwordEncoder = passwordEncoder;
         this.messagingTemplate = messagingTemplate;
+        this.auditJournal = auditJournal;
+        this.rateLimiter = rateLimiter;
+        this.roomSequencer = roomSequencer;
+        this.userService = userService;
+        this.profileService = profileService;
+        this.broadcastRooms = broadcastRooms;
+        this.roomCatalog = roomCatalog;
+        this.loginThrottle = loginThrottle;
+        this.messageExpiry = messageExpiry;
     }
 
     public ChatRoom createRoom(String name, String description, ChatRoom.RoomType roomType,
@@ -60,7 +100,7 @@ public class ChatRoomService {
             room.setInviteToken(UUID.randomUUID().toString());
         }
 
-        room = chatRoomRepository.save(room);
+        room = roomStore.save(room);
 
         // Add creator as admin
         RoomMembership membership = new RoomMembership();
@@ -68,7 +108,9 @@ public class ChatRoomService {
         membership.setUser(creator);
         membership.setRole(RoomMembership.Role.ADMIN);
         membership.setActive(true);
-        membershipRepository.save(membership);
+        membershipStore.save(membership);
+        membershipStore.adjustActiveCount(room.getId(), 1);
+        roomCatalog.roomSaved(room);
 
         return room;
     }
@@ -78,7 +120,7 @@ public class ChatRoomService {
         String id1 = user1.getId();
         String id2 = user2.getId();
         String roomName = "DM_" + (id1.compareTo(id2) < 0 ? id1 + "_" + id2 : id2 + "_" + id1);
-        Optional<ChatRoom> existing = chatRoomRepository.findByNameAndRoomType(roomName,
+        Optional<ChatRoom> existing = roomStore.findByNameAndType(roomName,
                 ChatRoom.RoomType.DIRECT_MESSAGE);
 
         if (existing.isPresent()) {
@@ -92,7 +134,7 @@ public class ChatRoomService {
         dmRoom.setRoomType(ChatRoom.RoomType.DIRECT_MESSAGE);
         dmRoom.setPrivate(true);
         dmRoom.setCreatedBy(user1);
-        dmRoom = chatRoomRepository.save(dmRoom);
+        dmRoom = roomStore.save(dmRoom);
 
         // Add both users as members
         RoomMembership membership1 = new RoomMembership();
@@ -100,14 +142,15 @@ public class ChatRoomService {
         membership1.setUser(user1);
         membership1.setRole(RoomMembership.Role.MEMBER);
         membership1.setActive(true);
-        membershipRepository.save(membership1);
+        membershipStore.save(membership1);
 
         RoomMembership membership2 = new RoomMembership();
         membership2.setRoom(dmRoom);
         membership2.setUser(user2);
         membership2.setRole(RoomMembership.Role.MEMBER);
         membership2.setActive(true);
-        membershipRepository.save(membership2);
+        membershipStore.save(membership2);
+        membershipStore.adjustActiveCount(dmRoom.getId(), 2);
 
         return dmRoom;
     }
@@ -121,7 +164,7 @@ public class ChatRoomService {
      * will be rejected — callers must use joinRoomWithPassword or joinRoomByInviteToken instead.
      */
     public RoomMembership addMember(@NonNull String roomId, @NonNull String userId, boolean bypassPrivateCheck) {
-        ChatRoom room = chatRoomRepository.findById(roomId)
+        ChatRoom room = roomStore.findById(roomId)
                 .orElseThrow(() -> new RuntimeException("Room not found"));
 
         // Block direct joining of private rooms unless bypassed (password/token validated)
@@ -129,18 +172,21 @@ public class ChatRoomService {
             throw new RuntimeException("This is a private room. Use a password or invite link to join.");
         }
 
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Check if membership already exists
-        Optional<RoomMembership> existing = membershipRepository.findByRoomIdAndUserId(roomId, userId);
+        Optional<RoomMembership> existing = membershipStore.find(roomId, userId);
         if (existing.isPresent()) {
             RoomMembership membership = existing.get();
             if (!membership.isActive()) {
                 // Reactivate membership
                 membership.setActive(true);
                 membership.setLeftAt(null);
-                return membershipRepository.save(membership);
+                RoomMembership saved = membershipStore.save(membership);
+                membershipStore.adjustActiveCount(roomId, 1);
+                roomCatalog.membersChanged(roomId);
+                return saved;
             }
             return membership; // Already active member
         }
@@ -151,13 +197,16 @@ public class ChatRoomService {
         membership.setUser(user);
         membership.setRole(RoomMembership.Role.MEMBER);
         membership.setActive(true);
-        return membershipRepository.save(membership);
+        RoomMembership saved = membershipStore.save(membership);
+        membershipStore.adjustActiveCount(roomId, 1);
+        roomCatalog.membersChanged(roomId);
+        return saved;
     }
 
     // --- Private Room Join Methods ---
 
     public RoomMembership joinRoomWithPassword(@NonNull String roomId, @NonNull String rawPassword, @NonNull String userId) {
-        ChatRoom room = chatRoomRepository.findById(roomId)
+        ChatRoom room = roomStore.findById(roomId)
                 .orElseThrow(() -> new RuntimeException("Room not found"));
 
         if (!room.isPrivate()) {
@@ -169,15 +218,20 @@ public class ChatRoomService {
             throw new RuntimeException("This room does not have a password set. Use an invite link to join.");
         }
 
+        // Guesses at a room password back off per user, like failed logins
+        String attempt = "room:" + roomId + ":" + userId;
+        loginThrottle.check(attempt, null);
         if (!passwordEncoder.matches(rawPassword, room.getPasswordHash())) {
+            loginThrottle.failed(attempt, null);
             throw new RuntimeException("Incorrect room password");
         }
+        loginThrottle.succeeded(attempt);
 
         return addMember(roomId, userId, true);
     }
 
     public RoomMembership joinRoomByInviteToken(@NonNull String inviteToken, @NonNull String userId) {
-        ChatRoom room = chatRoomRepository.findByInviteToken(inviteToken)
+        ChatRoom room = roomStore.findByInviteToken(inviteToken)
                 .orElseThrow(() -> new RuntimeException("Invalid or expired invite link"));
 
         return addMember(room.getId(), userId, true);
@@ -189,7 +243,7 @@ public class ChatRoomService {
         if (query == null || query.trim().isEmpty()) {
             return listPublicRooms();
         }
-        return chatRoomRepository.findByNameContainingIgnoreCaseAndIsPrivateFalseAndRoomType(
+        return roomStore.searchPublicByName(
                 query.trim(), ChatRoom.RoomType.GROUP_CHAT);
     }
 
@@ -199,14 +253,15 @@ public class ChatRoomService {
         if (!isUserRoomAdmin(adminUserId, roomId)) {
             throw new RuntimeException("Only admins can regenerate invite tokens");
         }
-        ChatRoom room = chatRoomRepository.findById(roomId)
+        ChatRoom room = roomStore.findById(roomId)
                 .orElseThrow(() -> new RuntimeException("Room not found"));
         if (!room.isPrivate()) {
             throw new RuntimeException("Only private rooms have invite tokens");
         }
         String newToken = UUID.randomUUID().toString();
         room.setInviteToken(newToken);
-        chatRoomRepository.save(room);
+        roomStore.save(room);
+        auditJournal.record(AuditAction.INVITE_TOKEN_REGENERATED, roomId, adminUserId, null, null);
         return newToken;
     }
 
@@ -214,80 +269,92 @@ public class ChatRoomService {
         if (!isUserRoomAdmin(adminUserId, roomId)) {
             throw new RuntimeException("Only admins can view invite tokens");
         }
-        ChatRoom room = chatRoomRepository.findById(roomId)
+        ChatRoom room = roomStore.findById(roomId)
                 .orElseThrow(() -> new RuntimeException("Room not found"));
         return room.getInviteToken();
     }
 
     public void removeMember(String roomId, String userId) {
-        Optional<RoomMembership> membershipOpt = membershipRepository.findByRoomIdAndUserId(roomId, userId);
-        if (membershipOpt.isPresent()) {
+        Optional<RoomMembership> membershipOpt = membershipStore.find(roomId, userId);
+        if (membershipOpt.isPresent() && membershipOpt.get().isActive()) {
             RoomMembership membership = membershipOpt.get();
             membership.setActive(false);
             membership.setLeftAt(Instant.now());
-            membershipRepository.save(membership);
+            membershipStore.save(membership);
+            membershipStore.adjustActiveCount(roomId, -1);
+            broadcastRooms.invalidate(roomId);
+            roomCatalog.membersChanged(roomId);
         }
     }
 
     public List<RoomMembership> listMembershipsForUser(String userId) {
-        return membershipRepository.findByUserIdAndIsActiveTrue(userId);
+        return membershipStore.findActiveByUser(userId);
     }
 
     public List<RoomMembership> getRoomMembers(String roomId) {
-        return membershipRepository.findByRoomIdAndIsActiveTrue(roomId);
+        return membershipStore.findActiveByRoom(roomId);
     }
 
     public List<ChatRoom> listPublicRooms() {
-        return chatRoomRepository.findByIsPrivateFalseAndRoomType(ChatRoom.RoomType.GROUP_CHAT);
+        return roomStore.findPublicByType(ChatRoom.RoomType.GROUP_CHAT);
     }
 
     public List<ChatRoom> listAllPublicRooms() {
-        return chatRoomRepository.findByIsPrivateFalse();
+        return roomStore.findPublic();
     }
 
     public Optional<ChatRoom> findRoomById(@NonNull String roomId) {
-        return chatRoomRepository.findById(roomId);
+        return roomStore.findById(roomId);
     }
 
     public Optional<ChatRoom> findRoomByName(String name) {
-        return chatRoomRepository.findByName(name);
+        return roomStore.findByName(name);
     }
 
     public boolean isUserMemberOfRoom(String userId, String roomId) {
-        return membershipRepository.existsByRoomIdAndUserId(roomId, userId);
+        return membershipStore.exists(roomId, userId);
     }
 
     public boolean isUserActiveMemberOfRoom(String userId, String roomId) {
-        Optional<RoomMembership> membership = membershipRepository.findByRoomIdAndUserId(roomId, userId);
+        Optional<RoomMembership> membership = membershipStore.find(roomId, userId);
         return membership.isPresent() && membership.get().isActive();
     }
 
     public void updateMemberRole(String roomId, String userId, RoomMembership.Role newRole) {
-        Optional<RoomMembership> membershipOpt = membershipRepository.findByRoomIdAndUserId(roomId, userId);
+        Optional<RoomMembership> membershipOpt = membershipStore.find(roomId, userId);
         if (membershipOpt.isPresent()) {
             RoomMembership membership = membershipOpt.get();
             membership.setRole(newRole);
-            membershipRepository.save(membership);
+            membershipStore.save(membership);
+            broadcastRooms.invalidate(roomId);
         } else {
             throw new RuntimeException("Membership not found");
         }
     }
 
-    public void deleteRoom(@NonNull String roomId) {
+    public void deleteRoom(@NonNull String roomId, String actorUserId) {
+        String roomName = roomStore.findById(roomId).map(ChatRoom::getName).orElse(null);
         // First, deactivate all memberships
-        List<RoomMembership> memberships = membershipRepository.findByRoomIdAndIsActiveTrue(roomId);
+        List<RoomMembership> memberships = membershipStore.findActiveByRoom(roomId);
         for (RoomMembership membership : memberships) {
             membership.setActive(false);
             membership.setLeftAt(Instant.now());
         }
-        membershipRepository.saveAll(memberships);
+        membershipStore.saveAll(memberships);
+        membershipStore.adjustActiveCount(roomId, -memberships.size());
 
         // Then delete the room
-        chatRoomRepository.deleteById(roomId);
+        roomStore.deleteById(roomId);
+        rateLimiter.slowModeChanged(roomId, 0);
+        roomSequencer.forget(roomId);
+        broadcastRooms.forget(roomId);
+        roomCatalog.roomDeleted(roomId);
+        auditJournal.record(AuditAction.ROOM_DELETED, roomId, actorUserId, null,
+                "name=" + roomName + " members=" + memberships.size());
     }
 
     public ChatRoom updateRoom(@NonNull String roomId, String name, String description, boolean isPrivate) {
-        ChatRoom room = chatRoomRepository.findById(roomId)
+        ChatRoom room = roomStore.findById(roomId)
                 .orElseThrow(() -> new RuntimeException("Room not found"));
 
         if (name != null && !name.trim().isEmpty()) {
@@ -298,15 +365,100 @@ public class ChatRoomService {
         }
         room.setPrivate(isPrivate);
 
-        return chatRoomRepository.save(room);
+        ChatRoom saved = roomStore.save(room);
+        roomCatalog.roomSaved(saved);
+        return saved;
     }
 
     public long getRoomMemberCount(String roomId) {
-        return membershipRepository.findByRoomIdAndIsActiveTrue(roomId).size();
+        return membershipStore.countActive(roomId);
+    }
+
+    /**
+     * One page of a room's active members: admins, then moderators, then members who show as online, then
+     * everyone else, each group alphabetically. The order is kept on the memberships themselves, so a page
+     * is one indexed query for its members and one for their users; avatars are looked up for the page only.
+     * Tiers follow presence as everyone else sees it, so a viewer who hides their own status is listed with
+     * the offline members even though their own entry says online.
+     *
+     * <p>The cursor is the position of the last member returned, so members joining or leaving never cause
+     * repeats or gaps. Someone whose presence changes between requests can move to a page already read.
+     * An invalid cursor throws {@link IllegalArgumentException}.
+     */
+    public RoomMembersPage listMembers(@NonNull ChatRoom room, User viewer, String cursor, int limit,
+            int avatarSize) {
+        MembershipStore.ListPosition after = cursor != null && !cursor.isBlank() ? decodeCursor(cursor) : null;
+        placeUnlistedMembers(room.getId());
+        List<MembershipStore.ActiveMember> members = membershipStore.findActiveMembersPage(room.getId(), after,
+                limit + 1);
+        boolean more = members.size() > limit;
+        List<MembershipStore.ActiveMember> page = more ? members.subList(0, limit) : members;
+
+        List<String> userIds = page.stream().map(MembershipStore.ActiveMember::userId).toList();
+        Map<String, User> users = new HashMap<>();
+        for (User user : userStore.findByIds(userIds)) {
+            users.put(user.getId(), user);
+        }
+        Map<String, String> avatarUrls = profileService.getAvatarUrls(userIds, avatarSize);
+        List<RoomMemberDto> result = new ArrayList<>(page.size());
+        for (MembershipStore.ActiveMember member : page) {
+            User user = users.get(member.userId());
+            if (user == null) {
+                continue;
+            }
+            result.add(new RoomMemberDto(user.getId(), user.getUsername(), user.getDisplayName(),
+                    user.getPhoneNumber(), userService.visibleStatus(user, viewer),
+                    userService.visibleLastSeen(user, viewer), avatarUrls.get(user.getId()),
+                    member.role(), member.canSendMessages(), member.joinedAt()));
+        }
+        String nextCursor = more ? encodeCursor(page.get(page.size() - 1)) : null;
+        return new RoomMembersPage(room.isAllMembersMuted(), room.getSlowModeSeconds(),
+                membershipStore.countActive(room.getId()), result, nextCursor);
+    }
+
+    /**
+     * Gives memberships saved before list positions were kept a position. Done once per room, the first
+     * time its members are listed; after that this is a single indexed query that finds nothing.
+     */
+    private void placeUnlistedMembers(String roomId) {
+        List<MembershipStore.ActiveMember> unlisted;
+        while (!(unlisted = membershipStore.findActiveUnlisted(roomId, PLACE_BATCH_SIZE)).isEmpty()) {
+            Map<String, User> users = new HashMap<>();
+            for (User user : userStore.findByIds(unlisted.stream().map(MembershipStore.ActiveMember::userId).toList())) {
+                users.put(user.getId(), user);
+            }
+            List<MembershipStore.ListPosition> positions = new ArrayList<>(unlisted.size());
+            for (MembershipStore.ActiveMember member : unlisted) {
+                User user = users.get(member.userId());
+                positions.add(user != null
+                        ? new MembershipStore.ListPosition(RoomMembership.listTier(member.role(), user),
+                                RoomMembership.sortName(user), member.userId())
+                        : new MembershipStore.ListPosition(3, "", member.userId()));
+            }
+            membershipStore.setListPositions(roomId, positions);
+        }
+    }
+
+    /**
+     * Page cursor: base64url of {@code tier:userId:sortName}.
+     */
+    private static String encodeCursor(MembershipStore.ActiveMember member) {
+        String key = member.listTier() + ":" + member.userId() + ":" + member.sortName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MembershipStore.ListPosition decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(":", 3);
+            return new MembershipStore.ListPosition(Integer.parseInt(parts[0]), parts[2], parts[1]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
     public List<User> getActiveUsersInRoom(String roomId) {
-        return membershipRepository.findByRoomIdAndIsActiveTrue(roomId)
+        return membershipStore.findActiveByRoom(roomId)
                 .stream()
                 .map(RoomMembership::getUser)
                 .filter(user -> user.getStatus() == User.UserStatus.ONLINE)
@@ -314,7 +466,7 @@ public class ChatRoomService {
     }
 
     public boolean canUserAccessRoom(@NonNull String userId, @NonNull String roomId) {
-        Optional<ChatRoom> roomOpt = chatRoomRepository.findById(roomId);
+        Optional<ChatRoom> roomOpt = roomStore.findById(roomId);
         if (roomOpt.isEmpty()) {
             return false;
         }
@@ -331,20 +483,47 @@ public class ChatRoomService {
     }
 
     public Optional<RoomMembership> getMembership(String userId, String roomId) {
-        return membershipRepository.findByRoomIdAndUserId(roomId, userId);
+        return membershipStore.find(roomId, userId);
+    }
+
+    /**
+     * Throws if the user may not post in the room: muted, an announcements-only room for a non-admin,
+     * or not a member of a room other than a group chat. Broadcast channels accept posts only from their
+     * admins, checked against an in-memory list.
+     */
+    public void assertCanSendMessages(String userId, String roomId) {
+        if (broadcastRooms.isBroadcast(roomId)) {
+            if (!broadcastRooms.canPost(roomId, userId)) {
+                throw new RuntimeException("Only admins can post in this channel.");
+            }
+            return;
+        }
+        Optional<RoomMembership> membershipOpt = getMembership(userId, roomId);
+        if (membershipOpt.isPresent()) {
+            RoomMembership membership = membershipOpt.get();
+            ChatRoom room = membership.getRoom();
+
+            if (!membership.isCanSendMessages()) {
+                throw new RuntimeException("You have been muted in this room.");
+            }
+
+            if (room.isAllMembersMuted() && membership.getRole() != RoomMembership.Role.ADMIN) {
+                throw new RuntimeException("This room is currently restricted to announcements only.");
+            }
+        } else if (findRoomById(roomId).map(r -> r.getRoomType() != ChatRoom.RoomType.GROUP_CHAT).orElse(false)) {
+            throw new RuntimeException("You are not a member of this room.");
+        }
     }
 
     public boolean isUserRoomAdmin(String userId, String roomId) {
-        Optional<RoomMembership> membership = membershipRepository.findByRoomIdAndUserId(roomId, userId);
+        Optional<RoomMembership> membership = membershipStore.find(roomId, userId);
         return membership.isPresent() &&
                 membership.get().isActive() &&
                 membership.get().getRole() == RoomMembership.Role.ADMIN;
     }
 
     public List<ChatRoom> getUserOwnedRooms(String userId) {
-        return chatRoomRepository.findAll().stream()
-                .filter(room -> room.getCreatedBy() != null && room.getCreatedBy().getId().equals(userId))
-                .toList();
+        return roomStore.findCreatedBy(userId);
     }
 
     // --- Admin Feature Methods ---
@@ -353,33 +532,79 @@ public class ChatRoomService {
         if (!isUserRoomAdmin(adminUserId, roomId)) {
             throw new RuntimeException("Only admins can remove members");
         }
-        ChatRoom room = chatRoomRepository.findById(roomId).orElseThrow(() -> new RuntimeException("Room not found"));
+        ChatRoom room = roomStore.findById(roomId).orElseThrow(() -> new RuntimeException("Room not found"));
         if (room.getCreatedBy() != null && room.getCreatedBy().getId().equals(targetUserId)) {
             throw new RuntimeException("Cannot remove the room creator");
         }
         removeMember(roomId, targetUserId);
+        auditJournal.record(AuditAction.MEMBER_REMOVED, roomId, adminUserId, targetUserId, null);
     }
 
     public RoomMembership toggleMemberMute(String roomId, String targetUserId, String adminUserId) {
         if (!isUserRoomAdmin(adminUserId, roomId)) {
             throw new RuntimeException("Only admins can mute members");
         }
-        RoomMembership membership = membershipRepository.findByRoomIdAndUserId(roomId, targetUserId)
+        RoomMembership membership = membershipStore.find(roomId, targetUserId)
                 .orElseThrow(() -> new RuntimeException("Membership not found"));
         
         membership.setCanSendMessages(!membership.isCanSendMessages());
-        return membershipRepository.save(membership);
+        RoomMembership saved = membershipStore.save(membership);
+        broadcastRooms.invalidate(roomId);
+        auditJournal.record(AuditAction.MEMBER_MUTE_TOGGLED, roomId, adminUserId, targetUserId,
+                "muted=" + !saved.isCanSendMessages());
+        return saved;
     }
 
     public ChatRoom toggleRoomMute(String roomId, String adminUserId) {
         if (!isUserRoomAdmin(adminUserId, roomId)) {
             throw new RuntimeException("Only admins can mute the room");
         }
-        ChatRoom room = chatRoomRepository.findById(roomId)
+        ChatRoom room = roomStore.findById(roomId)
                 .orElseThrow(() -> new RuntimeException("Room not found"));
         
         room.setAllMembersMuted(!room.isAllMembersMuted());
-        return chatRoomRepository.save(room);
+        ChatRoom saved = roomStore.save(room);
+        auditJournal.record(AuditAction.ROOM_MUTE_TOGGLED, roomId, adminUserId, null,
+                "allMembersMuted=" + saved.isAllMembersMuted());
+        return saved;
+    }
+
+    public ChatRoom setSlowMode(String roomId, int seconds, String adminUserId) {
+        if (!isUserRoomAdmin(adminUserId, roomId)) {
+            throw new RuntimeException("Only admins can change slow mode");
+        }
+        if (seconds < 0 || seconds > 3600) {
+            throw new RuntimeException("Slow mode must be between 0 and 3600 seconds");
+        }
+        ChatRoom room = roomStore.findById(roomId)
+                .orElseThrow(() -> new RuntimeException("Room not found"));
+
+        room.setSlowModeSeconds(seconds);
+        ChatRoom saved = roomStore.save(room);
+        rateLimiter.slowModeChanged(roomId, seconds);
+        auditJournal.record(AuditAction.SLOW_MODE_CHANGED, roomId, adminUserId, null,
+                "slowModeSeconds=" + seconds);
+        return saved;
+    }
+
+    /**
+     * Sets how long new messages in the room live (0 keeps them). Messages already sent keep their expiry.
+     */
+    public ChatRoom setMessageTtl(String roomId, long seconds, String adminUserId) {
+        if (!isUserRoomAdmin(adminUserId, roomId)) {
+            throw new RuntimeException("Only admins can change disappearing messages");
+        }
+        if (seconds != 0) {
+            messageExpiry.checkTtl(seconds);
+        }
+        ChatRoom room = roomStore.findById(roomId)
+                .orElseThrow(() -> new RuntimeException("Room not found"));
+
+        room.setMessageTtlSeconds(seconds);
+        ChatRoom saved = roomStore.save(room);
+        auditJournal.record(AuditAction.MESSAGE_TTL_CHANGED, roomId, adminUserId, null,
+                "messageTtlSeconds=" + seconds);
+        return saved;
     }
 
     public RoomMembership toggleAdminRole(String roomId, String targetUserId, String adminUserId) {
@@ -387,17 +612,17 @@ public class ChatRoomService {
             throw new RuntimeException("Only admins can change roles");
         }
         
-        ChatRoom room = chatRoomRepository.findById(roomId).orElseThrow(() -> new RuntimeException("Room not found"));
+        ChatRoom room = roomStore.findById(roomId).orElseThrow(() -> new RuntimeException("Room not found"));
         if (room.getCreatedBy() != null && room.getCreatedBy().getId().equals(targetUserId)) {
             throw new RuntimeException("Cannot change the admin role of the room creator");
         }
         
-        RoomMembership targetMembership = membershipRepository.findByRoomIdAndUserId(roomId, targetUserId)
+        RoomMembership targetMembership = membershipStore.find(roomId, targetUserId)
                 .orElseThrow(() -> new RuntimeException("Target membership not found"));
         
         if (targetMembership.getRole() == RoomMembership.Role.ADMIN) {
             // Cannot demote if they are the only admin
-            long adminCount = membershipRepository.findByRoomIdAndIsActiveTrue(roomId).stream()
+            long adminCount = membershipStore.findActiveByRoom(roomId).stream()
                     .filter(m -> m.getRole() == RoomMembership.Role.ADMIN)
                     .count();
             if (adminCount <= 1) {
@@ -410,7 +635,11 @@ public class ChatRoomService {
             targetMembership.setCanSendMessages(true);
         }
         
-        return membershipRepository.save(targetMembership);
+        RoomMembership saved = membershipStore.save(targetMembership);
+        broadcastRooms.invalidate(roomId);
+        auditJournal.record(AuditAction.ADMIN_ROLE_TOGGLED, roomId, adminUserId, targetUserId,
+                "role=" + saved.getRole());
+        return saved;
     }
 
     // ---- Event Broadcasting ----
@@ -460,6 +689,30 @@ public class ChatRoomService {
         messagingTemplate.convertAndSend("/topic/rooms/" + roomId + "/events", (Object) event);
     }
 
+    public void broadcastSlowModeChanged(String roomId, User admin, int seconds) {
+        Map<String, Object> event = Map.of(
+                "type", "SLOW_MODE_CHANGED",
+                "roomId", roomId,
+                "slowModeSeconds", seconds,
+                "message", admin.getDisplayName() + (seconds > 0
+                        ? " turned on slow mode (" + seconds + "s)"
+                        : " turned off slow mode"),
+                "timestamp", System.currentTimeMillis());
+        messagingTemplate.convertAndSend("/topic/rooms/" + roomId + "/events", (Object) event);
+    }
+
+    public void broadcastMessageTtlChanged(String roomId, User admin, long seconds) {
+        Map<String, Object> event = Map.of(
+                "type", "MESSAGE_TTL_CHANGED",
+                "roomId", roomId,
+                "messageTtlSeconds", seconds,
+                "message", admin.getDisplayName() + (seconds > 0
+                        ? " turned on disappearing messages (" + seconds + "s)"
+                        : " turned off disappearing messages"),
+                "timestamp", System.currentTimeMillis());
+        messagingTemplate.convertAndSend("/topic/rooms/" + roomId + "/events", (Object) event);
+    }
+
     public void broadcastRoomDeleted(String roomId, User user) {
         Map<String, Object> deleteEvent = Map.of(
                 "type", "ROOM_DELETED",
@@ -1,5 +1,11 @@
 package com.example.chatservice.service;
 
+import com.example.chatservice.Model.DataKey;
+import com.example.chatservice.store.DataKeyStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -8,73 +14,321 @@ import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Envelope encryption for message content. Every room has its own AES-256 data key, stored in a
+ * {@link DataKeyStore} wrapped under the master key {@code app.encryption.aesKeyBase64}. Ciphertexts name the
+ * data key they were written with as {@code v2:<keyId>:<base64>}, so a room's key can be replaced while older
+ * messages are still being re-encrypted (see {@link KeyRotationJob}). Content written before per-room keys,
+ * which has no prefix, is decrypted with the master key.
+ *
+ * <p>Unwrapped data keys are kept in an LRU cache of {@code app.encryption.key-cache-size} entries. Each
+ * room's current key is remembered for {@code app.encryption.active-key-ttl-ms}, so a rotation made on
+ * another instance is picked up within that time.
+ *
+ * <p>Master keys listed in {@code app.encryption.previous-keys} are only used to read: they unwrap data keys
+ * that have not been rewrapped yet and decrypt unprefixed content.
+ */
 @Service
 public class CryptoService {
 
+    private static final Logger log = LoggerFactory.getLogger(CryptoService.class);
+
     private static final String AES_GCM_NO_PADDING = "AES/GCM/NoPadding";
     private static final int GCM_TAG_LENGTH_BITS = 128;
     private static final int IV_LENGTH_BYTES = 12;
 
-    private final SecretKey key;
+    private static final String PREFIX = "v2:";
+
+    private record ActiveKey(String keyId, SecretKey key, long expiresAt) {
+    }
+
+    private final DataKeyStore dataKeyStore;
+    private final SecretKey masterKey;
+    private final String masterKeyId;
+    private final Map<String, SecretKey> previousMasterKeys = new LinkedHashMap<>();
+    private final Map<String, SecretKey> dataKeys;
+    private final Map<String, ActiveKey> activeKeys;
+    private final long activeKeyTtlNanos;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
     private final SecureRandom secureRandom = new SecureRandom();
 
-    public CryptoService(@Value("${app.encryption.aesKeyBase64:}") String aesKeyBase64) {
+    public CryptoService(@Value("${app.encryption.aesKeyBase64:}") String aesKeyBase64,
+                         @Value("${app.encryption.previous-keys:}") String previousKeys,
+                         @Value("${app.encryption.allow-ephemeral-key:false}") boolean allowEphemeralKey,
+                         @Value("${app.encryption.key-cache-size:10000}") int keyCacheSize,
+                         @Value("${app.encryption.active-key-ttl-ms:60000}") long activeKeyTtlMillis,
+                         DataKeyStore dataKeyStore,
+                         MeterRegistry registry) {
+        this.dataKeyStore = dataKeyStore;
         if (aesKeyBase64 != null && !aesKeyBase64.isBlank()) {
-            byte[] keyBytes = Base64.getDecoder().decode(aesKeyBase64);
-            this.key = new SecretKeySpec(keyBytes, "AES");
+            this.masterKey = new SecretKeySpec(Base64.getDecoder().decode(aesKeyBase64.trim()), "AES");
+        } else if (allowEphemeralKey) {
+            log.warn("No app.encryption.aesKeyBase64 set; using a random master key, so stored messages will not "
+                    + "be readable after a restart");
+            this.masterKey = generateKey();
         } else {
-            this.key = generateRandomKey();
+            // A random key would make every stored message unreadable after the next restart
+            throw new IllegalStateException("app.encryption.aesKeyBase64 is not set (set APP_ENCRYPTION_KEY, or "
+                    + "app.encryption.allow-ephemeral-key=true for throwaway data)");
         }
+        this.masterKeyId = keyId(masterKey);
+        if (previousKeys != null) {
+            for (String previous : previousKeys.split(",")) {
+                if (!previous.isBlank()) {
+                    SecretKey key = new SecretKeySpec(Base64.getDecoder().decode(previous.trim()), "AES");
+                    previousMasterKeys.put(keyId(key), key);
+                }
+            }
+        }
+        this.dataKeys = lru(keyCacheSize);
+        this.activeKeys = lru(keyCacheSize);
+        this.activeKeyTtlNanos = TimeUnit.MILLISECONDS.toNanos(activeKeyTtlMillis);
+        this.cacheHits = Counter.builder("chat.crypto.key-cache").tag("result", "hit")
+                .description("Data key lookups answered from the unwrapped key cache")
+                .register(registry);
+        this.cacheMisses = Counter.builder("chat.crypto.key-cache").tag("result", "miss")
+                .description("Data key lookups that read and unwrapped the key")
+                .register(registry);
+    }
+
+    /**
+     * Identifies the current master key in {@link DataKey#getMasterKeyId()} without revealing it.
+     */
+    public String masterKeyId() {
+        return masterKeyId;
+    }
+
+    /**
+     * Encrypts under the room's current data key, creating the room's first key if it has none.
+     */
+    public String encrypt(String roomId, String plainText) {
+        ActiveKey active = activeKey(roomId);
+        return PREFIX + active.keyId() + ":" + seal(active.key(), plainText.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * Encrypts under a specific data key; used when re-encrypting a room under its newest key.
+     */
+    public String encrypt(DataKey key, String plainText) {
+        return PREFIX + key.getId() + ":" + seal(dataKey(key.getId()), plainText.getBytes(StandardCharsets.UTF_8), null);
     }
 
-    private SecretKey generateRandomKey() {
+    public String decrypt(String cipherText) {
         try {
-            KeyGenerator keyGen = KeyGenerator.getInstance("AES");
-            keyGen.init(256);
-            return keyGen.generateKey();
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to generate AES key", e);
+            String keyId = keyIdOf(cipherText);
+            if (keyId != null) {
+                String payload = cipherText.substring(PREFIX.length() + keyId.length() + 1);
+                return new String(open(dataKey(keyId), payload, null), StandardCharsets.UTF_8);
+            }
+            return new String(openWithMasterKeys(cipherText, null), StandardCharsets.UTF_8);
+        } catch (RuntimeException | GeneralSecurityException e) {
+            throw new RuntimeException("Decryption failed", e);
         }
     }
 
-    public String encrypt(String plainText) {
+    /**
+     * The data key id named by a ciphertext, or null for content encrypted directly under a master key.
+     */
+    public static String keyIdOf(String cipherText) {
+        if (cipherText == null || !cipherText.startsWith(PREFIX)) {
+            return null;
+        }
+        int end = cipherText.indexOf(':', PREFIX.length());
+        return end > PREFIX.length() ? cipherText.substring(PREFIX.length(), end) : null;
+    }
+
+    /**
+     * The room's newest data key, if it has one.
+     */
+    public Optional<DataKey> currentKey(String roomId) {
+        return dataKeyStore.findLatest(roomId);
+    }
+
+    /**
+     * Creates the room's next data key, in MIGRATING state, and retires the current one. New messages use
+     * the new key from now on on this instance, and within {@code active-key-ttl-ms} on the others.
+     */
+    public DataKey rotate(String roomId) {
+        DataKey current = dataKeyStore.findLatest(roomId).orElse(null);
+        DataKey next = createKey(roomId, current != null ? current.getVersion() + 1 : 1);
+        if (current != null && current.getState() != DataKey.State.RETIRED) {
+            dataKeyStore.retire(current.getId());
+        }
+        activeKeys.remove(roomId);
+        log.info("🔑 Rotated room {} to data key {}", roomId, next.getId());
+        return next;
+    }
+
+    /**
+     * Re-encrypts the stored data key under the current master key. Returns false if it already was.
+     */
+    public boolean rewrap(DataKey key) {
+        if (masterKeyId.equals(key.getMasterKeyId())) {
+            return false;
+        }
+        SecretKey unwrapped = unwrap(key);
+        dataKeyStore.rewrap(key.getId(), seal(masterKey, unwrapped.getEncoded(), key.getId()), masterKeyId);
+        return true;
+    }
+
+    private ActiveKey activeKey(String roomId) {
+        ActiveKey active = activeKeys.get(roomId);
+        if (active != null && active.expiresAt() - System.nanoTime() > 0) {
+            return active;
+        }
+        DataKey latest = dataKeyStore.findLatest(roomId).orElse(null);
+        if (latest == null) {
+            // Starts out migrating so that anything written before per-room keys is moved onto it
+            latest = createKey(roomId, 1);
+        }
+        active = new ActiveKey(latest.getId(), dataKey(latest.getId()), System.nanoTime() + activeKeyTtlNanos);
+        activeKeys.put(roomId, active);
+        return active;
+    }
+
+    /**
+     * Inserts version {@code version} of the room's key, or returns the copy another thread or instance
+     * inserted first.
+     */
+    private DataKey createKey(String roomId, int version) {
+        SecretKey key = generateKey();
+        DataKey dataKey = new DataKey();
+        dataKey.setId(DataKey.idOf(roomId, version));
+        dataKey.setRoomId(roomId);
+        dataKey.setVersion(version);
+        dataKey.setWrappedKey(seal(masterKey, key.getEncoded(), dataKey.getId()));
+        dataKey.setMasterKeyId(masterKeyId);
+        dataKey.setState(DataKey.State.MIGRATING);
+        dataKey.setCreatedAt(Instant.now());
+        if (dataKeyStore.insertIfAbsent(dataKey)) {
+            dataKeys.put(dataKey.getId(), key);
+            return dataKey;
+        }
+        return dataKeyStore.findById(dataKey.getId())
+                .orElseThrow(() -> new IllegalStateException("Data key " + dataKey.getId() + " vanished"));
+    }
+
+    private SecretKey dataKey(String keyId) {
+        SecretKey key = dataKeys.get(keyId);
+        if (key != null) {
+            cacheHits.increment();
+            return key;
+        }
+        cacheMisses.increment();
+        DataKey stored = dataKeyStore.findById(keyId)
+                .orElseThrow(() -> new IllegalStateException("Unknown data key " + keyId));
+        key = unwrap(stored);
+        dataKeys.put(keyId, key);
+        return key;
+    }
+
+    private SecretKey unwrap(DataKey stored) {
+        SecretKey wrapping = masterKeyId.equals(stored.getMasterKeyId())
+                ? masterKey
+                : previousMasterKeys.get(stored.getMasterKeyId());
+        if (wrapping == null) {
+            throw new IllegalStateException("Data key " + stored.getId() + " is wrapped under master key "
+                    + stored.getMasterKeyId() + ", which is not configured");
+        }
+        try {
+            return new SecretKeySpec(open(wrapping, stored.getWrappedKey(), stored.getId()), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to unwrap data key " + stored.getId(), e);
+        }
+    }
+
+    private byte[] openWithMasterKeys(String payload, String associatedData) throws GeneralSecurityException {
+        try {
+            return open(masterKey, payload, associatedData);
+        } catch (GeneralSecurityException e) {
+            for (SecretKey previous : previousMasterKeys.values()) {
+                try {
+                    return open(previous, payload, associatedData);
+                } catch (GeneralSecurityException ignored) {
+                    // Try the next one
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * AES-GCM; returns base64 of the IV followed by the ciphertext. Wrapped keys bind their key id as
+     * associated data, so a wrapped key cannot be copied onto another key's record.
+     */
+    private String seal(SecretKey key, byte[] plain, String associatedData) {
         try {
             byte[] iv = new byte[IV_LENGTH_BYTES];
             secureRandom.nextBytes(iv);
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH_BITS, iv);
             Cipher cipher = Cipher.getInstance(AES_GCM_NO_PADDING);
-            cipher.init(Cipher.ENCRYPT_MODE, key, spec);
-            byte[] cipherBytes = cipher.doFinal(plainText.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH_BITS, iv));
+            if (associatedData != null) {
+                cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+            }
+            byte[] cipherBytes = cipher.doFinal(plain);
 
             byte[] combined = new byte[iv.length + cipherBytes.length];
             System.arraycopy(iv, 0, combined, 0, iv.length);
             System.arraycopy(cipherBytes, 0, combined, iv.length, cipherBytes.length);
             return Base64.getEncoder().encodeToString(combined);
-        } catch (Exception e) {
+        } catch (GeneralSecurityException e) {
             throw new RuntimeException("Encryption failed", e);
         }
     }
 
-    public String decrypt(String base64Combined) {
-        try {
-            byte[] combined = Base64.getDecoder().decode(base64Combined);
-            byte[] iv = new byte[IV_LENGTH_BYTES];
-            byte[] cipherBytes = new byte[combined.length - IV_LENGTH_BYTES];
-            System.arraycopy(combined, 0, iv, 0, IV_LENGTH_BYTES);
-            System.arraycopy(combined, IV_LENGTH_BYTES, cipherBytes, 0, cipherBytes.length);
+    private static byte[] open(SecretKey key, String base64Combined, String associatedData)
+            throws GeneralSecurityException {
+        byte[] combined = Base64.getDecoder().decode(base64Combined);
+        Cipher cipher = Cipher.getInstance(AES_GCM_NO_PADDING);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH_BITS, combined, 0, IV_LENGTH_BYTES));
+        if (associatedData != null) {
+            cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+        }
+        return cipher.doFinal(combined, IV_LENGTH_BYTES, combined.length - IV_LENGTH_BYTES);
+    }
 
-            GCMParameterSpec spec = new GCMParameterSpec(GCM_TAG_LENGTH_BITS, iv);
-            Cipher cipher = Cipher.getInstance(AES_GCM_NO_PADDING);
-            cipher.init(Cipher.DECRYPT_MODE, key, spec);
-            byte[] plain = cipher.doFinal(cipherBytes);
-            return new String(plain, java.nio.charset.StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Decryption failed", e);
+    private static SecretKey generateKey() {
+        try {
+            KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+            keyGen.init(256);
+            return keyGen.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to generate AES key", e);
         }
     }
-}
 
+    private static String keyId(SecretKey key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+            StringBuilder id = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                id.append(String.format("%02x", hash[i]));
+            }
+            return id.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
+    private static <V> Map<String, V> lru(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+}
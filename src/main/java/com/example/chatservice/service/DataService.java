@@ -1,27 +1,79 @@
 package com.example.chatservice.service;
 
 import com.example.chatservice.Model.DataEntity;
+import com.example.chatservice.Dto.request.DataImportRecord;
+import com.example.chatservice.Dto.request.DataPatchRequest;
 import com.example.chatservice.Dto.request.DataRequest;
+import com.example.chatservice.Dto.response.DataImportResult;
 import com.example.chatservice.repository.DataRepository;
+import com.mongodb.bulk.BulkWriteError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class DataService {
 
+    private static final Logger log = LoggerFactory.getLogger(DataService.class);
+
+    // Entries are small; larger cursor batches mean fewer round trips on a full export
+    private static final int EXPORT_BATCH_SIZE = 500;
+
     private final DataRepository dataRepository;
+    private final MongoTemplate mongoTemplate;
+    private final JsonMapper jsonMapper;
+    private final int importBatchSize;
+    private final int maxReportedErrors;
 
-    public DataService(DataRepository dataRepository) {
+    public DataService(DataRepository dataRepository,
+                       MongoTemplate mongoTemplate,
+                       JsonMapper jsonMapper,
+                       @Value("${app.data.import.batch-size:1000}") int importBatchSize,
+                       @Value("${app.data.import.max-errors:100}") int maxReportedErrors) {
         this.dataRepository = dataRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.jsonMapper = jsonMapper;
+        this.importBatchSize = importBatchSize;
+        this.maxReportedErrors = maxReportedErrors;
     }
 
     public List<DataEntity> getAllData() {
         return dataRepository.findAll();
     }
 
+    /**
+     * Every entry in {@code _id} order, read through a cursor. The caller must close the stream.
+     */
+    public Stream<DataEntity> streamAllData() {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+        return mongoTemplate.stream(query, DataEntity.class);
+    }
+
     public Optional<DataEntity> getDataById(String id) {
         return dataRepository.findById(id);
     }
@@ -44,6 +96,27 @@ public class DataService {
         }
     }
 
+    /**
+     * Sets the given fields with a single {@code $set}, without reading the entry first. Returns the updated
+     * entry, or empty if there is no entry with that id or it changed after {@code expectedUpdatedAt}.
+     */
+    public Optional<DataEntity> patchData(String id, DataPatchRequest patch) {
+        Criteria criteria = Criteria.where("_id").is(id);
+        if (patch.expectedUpdatedAt() != null) {
+            // Stored dates have millisecond precision
+            criteria = criteria.and("updatedAt").is(patch.expectedUpdatedAt().truncatedTo(ChronoUnit.MILLIS));
+        }
+        Update update = new Update().set("updatedAt", LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        if (patch.title() != null) {
+            update.set("title", patch.title());
+        }
+        if (patch.content() != null) {
+            update.set("content", patch.content());
+        }
+        return Optional.ofNullable(mongoTemplate.findAndModify(new Query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), DataEntity.class));
+    }
+
     public void deleteData(String id) {
         if (dataRepository.existsById(id)) {
             dataRepository.deleteById(id);
@@ -51,4 +124,102 @@ public class DataService {
             throw new RuntimeException("DataEntity not found with id: " + id);
         }
     }
+
+    /**
+     * Reads NDJSON from {@code body} one line at a time and inserts it in ordered batches of
+     * {@code app.data.import.batch-size}, so memory use does not depend on the size of the import. A line
+     * that is not valid JSON, lacks a title or content, or collides with an existing id is skipped and
+     * reported with its line number; the rest of the import carries on.
+     */
+    public DataImportResult importData(InputStream body) throws IOException {
+        ImportProgress progress = new ImportProgress();
+        List<DataEntity> batch = new ArrayList<>(importBatchSize);
+        List<Long> batchLines = new ArrayList<>(importBatchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            progress.lines++;
+            if (line.isBlank()) {
+                continue;
+            }
+            DataImportRecord record;
+            try {
+                record = jsonMapper.readValue(line, DataImportRecord.class);
+            } catch (JacksonException e) {
+                progress.reject(progress.lines, "Invalid JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            if (record.title() == null || record.title().isBlank()) {
+                progress.reject(progress.lines, "Title is required");
+                continue;
+            }
+            if (record.content() == null || record.content().isBlank()) {
+                progress.reject(progress.lines, "Content is required");
+                continue;
+            }
+            batch.add(toEntity(record));
+            batchLines.add(progress.lines);
+            if (batch.size() >= importBatchSize) {
+                insertBatch(batch, batchLines, progress);
+                batch.clear();
+                batchLines.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertBatch(batch, batchLines, progress);
+        }
+        log.info("Imported {} data entries from {} lines, {} rejected",
+                progress.inserted, progress.lines, progress.failed);
+        return new DataImportResult(progress.lines, progress.inserted, progress.failed, progress.errors);
+    }
+
+    /**
+     * Ordered insert: the server stops at the first failing document, so that one is reported and the
+     * rest of the batch is sent again.
+     */
+    private void insertBatch(List<DataEntity> batch, List<Long> lines, ImportProgress progress) {
+        int from = 0;
+        while (from < batch.size()) {
+            List<DataEntity> remaining = batch.subList(from, batch.size());
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, DataEntity.class)
+                        .insert(remaining)
+                        .execute();
+                progress.inserted += remaining.size();
+                return;
+            } catch (BulkOperationException e) {
+                if (e.getErrors().isEmpty()) {
+                    throw e;
+                }
+                BulkWriteError error = e.getErrors().get(0);
+                progress.inserted += error.getIndex();
+                progress.reject(lines.get(from + error.getIndex()), error.getMessage());
+                from += error.getIndex() + 1;
+            }
+        }
+    }
+
+    private static DataEntity toEntity(DataImportRecord record) {
+        DataEntity entity = new DataEntity(record.title(), record.content());
+        entity.setId(record.id());
+        if (record.createdAt() != null) {
+            entity.setCreatedAt(record.createdAt());
+        }
+        entity.setUpdatedAt(record.updatedAt() != null ? record.updatedAt() : entity.getCreatedAt());
+        return entity;
+    }
+
+    private final class ImportProgress {
+        private long lines;
+        private long inserted;
+        private long failed;
+        private final List<DataImportResult.LineError> errors = new ArrayList<>();
+
+        private void reject(long line, String error) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new DataImportResult.LineError(line, error));
+            }
+        }
+    }
 }
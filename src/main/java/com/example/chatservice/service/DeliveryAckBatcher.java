@@ -0,0 +1,108 @@
+package com.example.chatservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects client delivery acks ("I have everything in room R up to seq N") and applies them in bulk. Acks
+ * are coalesced per room and user, keeping only the highest sequence, and flushed every
+ * {@code app.acks.flush-interval-ms}: one query, one bulk write and one status broadcast per room that saw
+ * acks, however many frames arrived in between.
+ */
+@Component
+public class DeliveryAckBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryAckBatcher.class);
+
+    private final MessageService messageService;
+    private final long flushIntervalNanos;
+    private final Counter received;
+    private final DistributionSummary roomsPerFlush;
+
+    // roomId -> userId -> highest acknowledged sequence, guarded by lock
+    private final Object lock = new Object();
+    private Map<String, Map<String, Long>> pending = new HashMap<>();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public DeliveryAckBatcher(MessageService messageService,
+                              @Value("${app.acks.flush-interval-ms:250}") long flushIntervalMillis,
+                              MeterRegistry registry) {
+        this.messageService = messageService;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.received = Counter.builder("chat.acks.received")
+                .description("Room acks received from clients")
+                .register(registry);
+        this.roomsPerFlush = DistributionSummary.builder("chat.acks.flush.rooms")
+                .description("Rooms whose delivery state was updated in one flush")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "delivery-ack-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        flush();
+    }
+
+    public void acknowledge(String userId, String roomId, long seq) {
+        received.increment();
+        synchronized (lock) {
+            pending.computeIfAbsent(roomId, id -> new HashMap<>()).merge(userId, seq, Math::max);
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            flush();
+        }
+    }
+
+    private void flush() {
+        Map<String, Map<String, Long>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        roomsPerFlush.record(batch.size());
+        for (Map.Entry<String, Map<String, Long>> room : batch.entrySet()) {
+            try {
+                messageService.applyDeliveryAcksAndBroadcast(room.getKey(), room.getValue());
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply delivery acks for room {}; retrying with the next flush", room.getKey(), e);
+                synchronized (lock) {
+                    Map<String, Long> retry = pending.computeIfAbsent(room.getKey(), id -> new HashMap<>());
+                    room.getValue().forEach((userId, seq) -> retry.merge(userId, seq, Math::max));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.Model.DataKey;
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.store.DataKeyStore;
+import com.example.chatservice.store.MessageStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background work behind {@link CryptoService}'s per-room keys, on one low-priority thread.
+ *
+ * <p>Every {@code app.encryption.rotation.poll-ms} it rewraps data keys still wrapped under a previous master
+ * key, rotates keys older than {@code app.encryption.rotation.max-key-age-days} (when set), and re-encrypts
+ * the rooms whose newest key is MIGRATING. Messages are walked in id order, {@code batch-size} at a time, and
+ * each batch is written back with a conditional update, so a message edited meanwhile is left alone. The
+ * last id done is checkpointed on the key, so a restart resumes where it stopped, and the walk is paced to
+ * {@code messages-per-second} so it never competes with live traffic for CPU or the database.
+ *
+ * <p>A new key is only migrated once every instance has stopped encrypting under the old one, that is twice
+ * {@code app.encryption.active-key-ttl-ms} after it was created.
+ */
+@Component
+public class KeyRotationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyRotationJob.class);
+
+    // Keys looked at per pass; the rest wait for the next poll
+    private static final int KEYS_PER_PASS = 100;
+
+    private final DataKeyStore dataKeyStore;
+    private final MessageStore messageStore;
+    private final CryptoService cryptoService;
+    private final boolean enabled;
+    private final long pollNanos;
+    private final int batchSize;
+    private final long nanosPerMessage;
+    private final Duration maxKeyAge;
+    private final Duration grace;
+    private final Counter reencrypted;
+    private final Counter rewrapped;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public KeyRotationJob(DataKeyStore dataKeyStore,
+                          MessageStore messageStore,
+                          CryptoService cryptoService,
+                          @Value("${app.encryption.rotation.enabled:true}") boolean enabled,
+                          @Value("${app.encryption.rotation.poll-ms:10000}") long pollMillis,
+                          @Value("${app.encryption.rotation.batch-size:200}") int batchSize,
+                          @Value("${app.encryption.rotation.messages-per-second:500}") int messagesPerSecond,
+                          @Value("${app.encryption.rotation.max-key-age-days:0}") int maxKeyAgeDays,
+                          @Value("${app.encryption.active-key-ttl-ms:60000}") long activeKeyTtlMillis,
+                          MeterRegistry registry) {
+        this.dataKeyStore = dataKeyStore;
+        this.messageStore = messageStore;
+        this.cryptoService = cryptoService;
+        this.enabled = enabled;
+        this.pollNanos = TimeUnit.MILLISECONDS.toNanos(pollMillis);
+        this.batchSize = batchSize;
+        this.nanosPerMessage = TimeUnit.SECONDS.toNanos(1) / Math.max(1, messagesPerSecond);
+        this.maxKeyAge = Duration.ofDays(maxKeyAgeDays);
+        this.grace = Duration.ofMillis(activeKeyTtlMillis * 2);
+        this.reencrypted = Counter.builder("chat.crypto.reencrypted")
+                .description("Messages re-encrypted under their room's newest data key")
+                .register(registry);
+        this.rewrapped = Counter.builder("chat.crypto.rewrapped")
+                .description("Data keys rewrapped under the current master key")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "key-rotation");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void runWorker() {
+        while (running) {
+            LockSupport.parkNanos(this, pollNanos);
+            if (!running) {
+                break;
+            }
+            try {
+                rewrapKeys();
+                rotateExpiredKeys();
+                migrateRooms();
+            } catch (RuntimeException e) {
+                log.warn("Key rotation pass failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void rewrapKeys() {
+        for (DataKey key : dataKeyStore.findWrappedByOtherThan(cryptoService.masterKeyId(), KEYS_PER_PASS)) {
+            if (cryptoService.rewrap(key)) {
+                rewrapped.increment();
+            }
+        }
+    }
+
+    private void rotateExpiredKeys() {
+        if (maxKeyAge.isZero()) {
+            return;
+        }
+        for (DataKey key : dataKeyStore.findActiveCreatedBefore(Instant.now().minus(maxKeyAge), KEYS_PER_PASS)) {
+            cryptoService.rotate(key.getRoomId());
+        }
+    }
+
+    private void migrateRooms() {
+        Instant settled = Instant.now().minus(grace);
+        for (DataKey key : dataKeyStore.findByState(DataKey.State.MIGRATING, KEYS_PER_PASS)) {
+            if (!running) {
+                return;
+            }
+            if (key.getCreatedAt().isBefore(settled)) {
+                migrate(key);
+            }
+        }
+    }
+
+    /**
+     * Re-encrypts every message in the key's room that is not already under it, resuming from the key's
+     * checkpoint. Stops early if the key is rotated again meanwhile.
+     */
+    private void migrate(DataKey key) {
+        String after = key.getMigratedUpTo();
+        long count = key.getMigratedCount();
+        while (running) {
+            long started = System.nanoTime();
+            List<Message> page = messageStore.findContentPage(key.getRoomId(), after, batchSize);
+            if (page.isEmpty()) {
+                if (dataKeyStore.markActive(key.getId())) {
+                    log.info("🔑 Data key {} is active; {} messages re-encrypted", key.getId(), count);
+                }
+                return;
+            }
+            List<MessageStore.ContentChange> changes = new ArrayList<>(page.size());
+            for (Message message : page) {
+                String content = message.getEncryptedContent();
+                if (content == null || key.getId().equals(CryptoService.keyIdOf(content))) {
+                    continue;
+                }
+                try {
+                    String plain = cryptoService.decrypt(content);
+                    changes.add(new MessageStore.ContentChange(message.getId(), content,
+                            cryptoService.encrypt(key, plain)));
+                } catch (RuntimeException e) {
+                    log.warn("Leaving message {} as is; it cannot be decrypted: {}", message.getId(), e.getMessage());
+                }
+            }
+            long applied = messageStore.replaceContent(changes);
+            reencrypted.increment(applied);
+            count += applied;
+            after = page.get(page.size() - 1).getId();
+            if (!dataKeyStore.recordProgress(key.getId(), after, count)) {
+                log.info("Data key {} was superseded during migration", key.getId());
+                return;
+            }
+            long pause = page.size() * nanosPerMessage - (System.nanoTime() - started);
+            if (pause > 0) {
+                LockSupport.parkNanos(this, pause);
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.service.MessageTrace.Checkpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns {@link MessageTrace}s into rolling latency histograms per room-size bucket and keeps a short
+ * list of slow messages with their stage breakdown.
+ *
+ * <ul>
+ *   <li>{@code chat.message.stage{stage}} – time between consecutive server checkpoints</li>
+ *   <li>{@code chat.message.latency{milestone}} – time from the SEND frame to each milestone,
+ *       including client-reported delivered/seen acks</li>
+ * </ul>
+ */
+@Component
+public class MessageLatencyTracker {
+
+    public enum Milestone {
+        PERSISTED, BROADCAST, NOTIFIED, DELIVERED, SEEN
+    }
+
+    private static final int[] ROOM_SIZE_LIMITS = {2, 10, 50, 250};
+    private static final String[] ROOM_SIZE_BUCKETS = {"1-2", "3-10", "11-50", "51-250", "251+"};
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry registry;
+    private final long slowThresholdNanos;
+    private final long slowAckThresholdNanos;
+    private final int maxExemplars;
+    private final int maxPending;
+    private final long pendingTtlNanos;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    // Traces waiting for acks, oldest first. Evicted by size and age.
+    private final LinkedHashMap<String, MessageTrace> pending = new LinkedHashMap<>();
+    private final Deque<MessageTrace> exemplars = new ArrayDeque<>();
+
+    public MessageLatencyTracker(MeterRegistry registry,
+                                 @Value("${app.metrics.lifecycle.slow-threshold-ms:250}") long slowThresholdMs,
+                                 @Value("${app.metrics.lifecycle.slow-ack-threshold-ms:2000}") long slowAckThresholdMs,
+                                 @Value("${app.metrics.lifecycle.exemplars:50}") int maxExemplars,
+                                 @Value("${app.metrics.lifecycle.pending-acks:20000}") int maxPending,
+                                 @Value("${app.metrics.lifecycle.pending-ttl-seconds:300}") long pendingTtlSeconds) {
+        this.registry = registry;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.slowAckThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowAckThresholdMs);
+        this.maxExemplars = maxExemplars;
+        this.maxPending = maxPending;
+        this.pendingTtlNanos = TimeUnit.SECONDS.toNanos(pendingTtlSeconds);
+    }
+
+    public MessageTrace begin(String roomId) {
+        return new MessageTrace(roomId);
+    }
+
+    /**
+     * Called once the message has been broadcast and notifications fanned out.
+     */
+    public void completed(MessageTrace trace) {
+        String bucket = roomSizeBucket(trace.getRoomSize());
+
+        for (Checkpoint checkpoint : Checkpoint.values()) {
+            long nanos = trace.stageNanos(checkpoint);
+            if (nanos >= 0) {
+                stageTimer(checkpoint, bucket).record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        recordMilestone(trace, Milestone.PERSISTED, trace.at(Checkpoint.PERSISTED), bucket);
+        recordMilestone(trace, Milestone.BROADCAST, trace.at(Checkpoint.BROADCAST), bucket);
+        recordMilestone(trace, Milestone.NOTIFIED, trace.at(Checkpoint.NOTIFIED), bucket);
+
+        long serverNanos = trace.at(Checkpoint.NOTIFIED) != 0 ? trace.sinceReceived(trace.at(Checkpoint.NOTIFIED)) : 0;
+        synchronized (this) {
+            if (serverNanos >= slowThresholdNanos) {
+                addExemplar(trace);
+            }
+            if (trace.getMessageId() != null) {
+                pending.put(trace.getMessageId(), trace);
+                evictPending(System.nanoTime());
+            }
+        }
+    }
+
+    public void delivered(Collection<String> messageIds) {
+        acknowledged(messageIds, Milestone.DELIVERED);
+    }
+
+    public void seen(Collection<String> messageIds) {
+        acknowledged(messageIds, Milestone.SEEN);
+    }
+
+    /**
+     * Every ack is recorded, so the histogram reflects each recipient rather than only the fastest one.
+     */
+    private void acknowledged(Collection<String> messageIds, Milestone milestone) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (String messageId : messageIds) {
+            MessageTrace trace;
+            synchronized (this) {
+                trace = pending.get(messageId);
+            }
+            if (trace == null) {
+                continue;
+            }
+            if (milestone == Milestone.DELIVERED) {
+                trace.ackDelivered(now);
+            } else {
+                trace.ackSeen(now);
+            }
+            long nanos = trace.sinceReceived(now);
+            latencyTimer(milestone, roomSizeBucket(trace.getRoomSize())).record(nanos, TimeUnit.NANOSECONDS);
+            if (milestone == Milestone.DELIVERED && nanos >= slowAckThresholdNanos) {
+                synchronized (this) {
+                    addExemplar(trace);
+                }
+            }
+        }
+    }
+
+    private void recordMilestone(MessageTrace trace, Milestone milestone, long at, String bucket) {
+        if (at != 0) {
+            latencyTimer(milestone, bucket).record(trace.sinceReceived(at), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void addExemplar(MessageTrace trace) {
+        if (!trace.markExemplar()) {
+            return;
+        }
+        exemplars.addFirst(trace);
+        while (exemplars.size() > maxExemplars) {
+            exemplars.removeLast();
+        }
+    }
+
+    private void evictPending(long now) {
+        var it = pending.values().iterator();
+        while (it.hasNext()) {
+            MessageTrace oldest = it.next();
+            if (pending.size() > maxPending || oldest.sinceReceived(now) > pendingTtlNanos) {
+                it.remove();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private Timer stageTimer(Checkpoint checkpoint, String bucket) {
+        String stage = checkpoint.name().toLowerCase();
+        return timers.computeIfAbsent("stage|" + stage + '|' + bucket, key -> Timer.builder("chat.message.stage")
+                .description("Time between consecutive server-side message checkpoints")
+                .tag("stage", stage)
+                .tag("room.size", bucket)
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+
+    private Timer latencyTimer(Milestone milestone, String bucket) {
+        String name = milestone.name().toLowerCase();
+        return timers.computeIfAbsent("latency|" + name + '|' + bucket, key -> Timer.builder("chat.message.latency")
+                .description("Time from the SEND frame to a message lifecycle milestone")
+                .tag("milestone", name)
+                .tag("room.size", bucket)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .distributionStatisticExpiry(Duration.ofMinutes(2))
+                .register(registry));
+    }
+
+    static String roomSizeBucket(int roomSize) {
+        for (int i = 0; i < ROOM_SIZE_LIMITS.length; i++) {
+            if (roomSize <= ROOM_SIZE_LIMITS[i]) {
+                return ROOM_SIZE_BUCKETS[i];
+            }
+        }
+        return ROOM_SIZE_BUCKETS[ROOM_SIZE_BUCKETS.length - 1];
+    }
+
+    // --- Reporting ---
+
+    public Map<String, Object> report() {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        Map<String, Object> stages = new LinkedHashMap<>();
+        timers.forEach((key, timer) -> {
+            String[] parts = key.split("\\|");
+            Map<String, Object> target = parts[0].equals("stage") ? stages : latency;
+            @SuppressWarnings("unchecked")
+            Map<String, Object> byBucket = (Map<String, Object>) target.computeIfAbsent(parts[2], b -> new LinkedHashMap<>());
+            byBucket.put(parts[1], summarize(timer.takeSnapshot()));
+        });
+
+        List<Map<String, Object>> slow;
+        synchronized (this) {
+            slow = new ArrayList<>(exemplars.size());
+            exemplars.forEach(trace -> slow.add(describe(trace)));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("slowThresholdMillis", TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos));
+        report.put("slowAckThresholdMillis", TimeUnit.NANOSECONDS.toMillis(slowAckThresholdNanos));
+        report.put("latencyByRoomSize", latency);
+        report.put("stagesByRoomSize", stages);
+        report.put("slowMessages", slow);
+        return report;
+    }
+
+    private static Map<String, Object> summarize(HistogramSnapshot snapshot) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", snapshot.count());
+        summary.put("meanMillis", snapshot.mean(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            summary.put("p" + Math.round(value.percentile() * 100) + "Millis", value.value(TimeUnit.MILLISECONDS));
+        }
+        summary.put("maxMillis", snapshot.max(TimeUnit.MILLISECONDS));
+        return summary;
+    }
+
+    private static Map<String, Object> describe(MessageTrace trace) {
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Checkpoint checkpoint : Checkpoint.values()) {
+            long nanos = trace.stageNanos(checkpoint);
+            if (nanos >= 0) {
+                stages.put(checkpoint.name().toLowerCase(), millis(nanos));
+            }
+        }
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("messageId", trace.getMessageId());
+        entry.put("roomId", trace.getRoomId());
+        entry.put("roomSize", trace.getRoomSize());
+        entry.put("receivedAt", trace.getReceivedAt().toString());
+        entry.put("stagesMillis", stages);
+        if (trace.at(Checkpoint.NOTIFIED) != 0) {
+            entry.put("serverMillis", millis(trace.sinceReceived(trace.at(Checkpoint.NOTIFIED))));
+        }
+        if (trace.getFirstDeliveredNanos() != 0) {
+            entry.put("firstDeliveredMillis", millis(trace.sinceReceived(trace.getFirstDeliveredNanos())));
+        }
+        if (trace.getFirstSeenNanos() != 0) {
+            entry.put("firstSeenMillis", millis(trace.sinceReceived(trace.getFirstSeenNanos())));
+        }
+        entry.put("deliveredAcks", trace.getDeliveredAcks());
+        entry.put("seenAcks", trace.getSeenAcks());
+        return entry;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -2,16 +2,21 @@ package com.example.chatservice.service;
 
 import com.example.chatservice.Dto.response.MessageDto;
 import com.example.chatservice.Dto.response.MessageReceiptDto;
+import com.example.chatservice.Model.Attachment;
 import com.example.chatservice.Model.ChatRoom;
 import com.example.chatservice.Model.Message;
 import com.example.chatservice.Model.Message.MessageReceipt;
 import com.example.chatservice.Model.Message.MessageStatus;
 import com.example.chatservice.Model.RoomMembership;
 import com.example.chatservice.Model.User;
-import com.example.chatservice.repository.ChatRoomRepository;
-import com.example.chatservice.repository.MessageRepository;
-import com.example.chatservice.repository.RoomMembershipRepository;
-import com.example.chatservice.repository.UserRepository;
+import com.example.chatservice.expiry.MessageExpiry;
+import com.example.chatservice.store.AttachmentStore;
+import com.example.chatservice.store.MembershipStore;
+import com.example.chatservice.store.MessageStore;
+import com.example.chatservice.store.RoomStore;
+import com.example.chatservice.store.UserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -26,75 +31,137 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class MessageService {
 
-    private final MessageRepository messageRepository;
-    private final UserRepository userRepository;
-    private final ChatRoomRepository chatRoomRepository;
-    private final RoomMembershipRepository membershipRepository;
+    private static final Logger log = LoggerFactory.getLogger(MessageService.class);
+
+    private final MessageStore messageStore;
+    private final UserStore userStore;
+    private final RoomStore roomStore;
+    private final MembershipStore membershipStore;
     private final CryptoService cryptoService;
     private final SimpMessagingTemplate messagingTemplate;
-
-    public MessageService(MessageRepository messageRepository,
-            UserRepository userRepository,
-            ChatRoomRepository chatRoomRepository,
-            RoomMembershipRepository membershipRepository,
+    private final MessageLatencyTracker latencyTracker;
+    private final RoomSequencer roomSequencer;
+    private final AttachmentStore attachmentStore;
+    private final BroadcastRooms broadcastRooms;
+    private final MessageExpiry messageExpiry;
+
+    public MessageService(MessageStore messageStore,
+            UserStore userStore,
+            RoomStore roomStore,
+            MembershipStore membershipStore,
             CryptoService cryptoService,
-            SimpMessagingTemplate messagingTemplate) {
-        this.messageRepository = messageRepository;
-        this.userRepository = userRepository;
-        this.chatRoomRepository = chatRoomRepository;
-        this.membershipRepository = membershipRepository;
+            SimpMessagingTemplate messagingTemplate,
+            MessageLatencyTracker latencyTracker,
+            RoomSequencer roomSequencer,
+            AttachmentStore attachmentStore,
+            BroadcastRooms broadcastRooms,
+            MessageExpiry messageExpiry) {
+        this.messageStore = messageStore;
+        this.userStore = userStore;
+        this.roomStore = roomStore;
+        this.membershipStore = membershipStore;
         this.cryptoService = cryptoService;
         this.messagingTemplate = messagingTemplate;
+        this.latencyTracker = latencyTracker;
+        this.roomSequencer = roomSequencer;
+        this.attachmentStore = attachmentStore;
+        this.broadcastRooms = broadcastRooms;
+        this.messageExpiry = messageExpiry;
     }
 
     public Message saveEncrypted(String roomId, String senderUsername, String content) {
-        System.out.println("MessageService.saveEncrypted called for room " + roomId + " by " + senderUsername);
-        User sender = userRepository.findByUsername(senderUsername)
+        return saveEncrypted(roomId, senderUsername, content, null);
+    }
+
+    public Message saveEncrypted(String roomId, String senderUsername, String content, MessageTrace trace) {
+        return saveEncrypted(roomId, senderUsername, content, null, trace);
+    }
+
+    /**
+     * @param ttlSeconds how long the message lives, capped by the room's own setting; null for the room's
+     */
+    public Message saveEncrypted(String roomId, String senderUsername, String content, Long ttlSeconds,
+            MessageTrace trace) {
+        User sender = userStore.findByUsername(senderUsername)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        ChatRoom room = chatRoomRepository.findById(roomId)
+        ChatRoom room = roomStore.findById(roomId)
                 .orElseThrow(() -> new RuntimeException("Room not found"));
 
-        System.out.println("Encrypting content...");
-        String encryptedContent = cryptoService.encrypt(content);
-        System.out.println("Content encrypted.");
+        String encryptedContent = cryptoService.encrypt(roomId, content);
+        if (trace != null) {
+            trace.mark(MessageTrace.Checkpoint.ENCRYPTED);
+        }
 
         Message message = new Message();
-        message.setRoom(room);
-        message.setSender(sender);
         message.setEncryptedContent(encryptedContent);
         message.setMessageType(Message.MessageType.TEXT);
+        message.setExpiresAt(messageExpiry.expiryFor(room, ttlSeconds));
+        return persistNew(message, room, sender, trace);
+    }
+
+    /**
+     * Saves the IMAGE or FILE message announcing a completed upload. The attachment's file name is the
+     * message text.
+     */
+    public Message saveAttachmentMessage(Attachment attachment, User sender) {
+        ChatRoom room = roomStore.findById(attachment.getRoomId())
+                .orElseThrow(() -> new RuntimeException("Room not found"));
+
+        Message message = new Message();
+        message.setEncryptedContent(cryptoService.encrypt(room.getId(), attachment.getFileName()));
+        message.setMessageType(attachment.isImage() ? Message.MessageType.IMAGE : Message.MessageType.FILE);
+        message.setAttachmentId(attachment.getId());
+        message.setExpiresAt(messageExpiry.expiryFor(room, null));
+        return persistNew(message, room, sender, null);
+    }
+
+    private Message persistNew(Message message, ChatRoom room, User sender, MessageTrace trace) {
+        String roomId = room.getId();
+        message.setRoom(room);
+        message.setSender(sender);
         message.setStatus(MessageStatus.SENT);
 
-        // Initialize receipts for all room members except the sender
-        // Auto-mark DELIVERED for members who are currently ONLINE
-        List<RoomMembership> members = membershipRepository.findByRoomIdAndIsActiveTrue(roomId);
+        // Initialize receipts for all room members except the sender; they move to DELIVERED
+        // only when the member's client acknowledges the message (see DeliveryAckBatcher).
+        // Broadcast channels count views instead.
         List<MessageReceipt> receipts = new ArrayList<>();
-        Instant now = Instant.now();
-        for (RoomMembership membership : members) {
-            User member = membership.getUser();
-            if (!member.getId().equals(sender.getId())) {
-                MessageReceipt receipt = new MessageReceipt(member.getId(), member.getUsername(), member.getDisplayName());
-                // If the member is online, auto-mark as DELIVERED
-                if (member.getStatus() == User.UserStatus.ONLINE) {
-                    receipt.setStatus(MessageStatus.DELIVERED);
-                    receipt.setDeliveredAt(now);
+        if (!broadcastRooms.isBroadcast(roomId)) {
+            for (RoomMembership membership : membershipStore.findActiveByRoom(roomId)) {
+                User member = membership.getUser();
+                if (!member.getId().equals(sender.getId())) {
+                    receipts.add(new MessageReceipt(member.getId(), member.getUsername(), member.getDisplayName()));
                 }
-                receipts.add(receipt);
             }
         }
         message.setReceipts(receipts);
         message.recalculateStatus();
 
-        System.out.println("Saving message entity with " + receipts.size() + " receipts...");
-        return messageRepository.save(message);
+        long seq = roomSequencer.next(roomId);
+        message.setSeq(seq);
+        log.debug("Saving message {} in room {} with {} receipts", seq, roomId, receipts.size());
+        Message saved;
+        try {
+            saved = messageStore.save(message);
+        } catch (RuntimeException e) {
+            roomSequencer.settled(roomId, seq);
+            throw e;
+        }
+        roomSequencer.recorded(saved);
+        messageExpiry.schedule(saved);
+        if (trace != null) {
+            trace.mark(MessageTrace.Checkpoint.PERSISTED);
+            trace.setMessageId(saved.getId());
+        }
+        return saved;
     }
 
     public Message editMessage(String messageId, String userId, String newContent) {
-        Message message = messageRepository.findById(messageId)
+        Message message = messageStore.findById(messageId)
                 .orElseThrow(() -> new RuntimeException("Message not found"));
         
         if (!message.getSender().getId().equals(userId)) {
@@ -105,9 +172,11 @@ public class MessageService {
             throw new RuntimeException("Messages can only be edited within 5 minutes of sending");
         }
 
-        message.setEncryptedContent(cryptoService.encrypt(newContent));
+        message.setEncryptedContent(cryptoService.encrypt(message.getRoomId(), newContent));
         message.setEditedAt(Instant.now());
-        return messageRepository.save(message);
+        Message saved = messageStore.save(message);
+        roomSequencer.updated(saved);
+        return saved;
     }
 
     /**
@@ -115,9 +184,9 @@ public class MessageService {
      * Returns the list of updated message IDs whose overall status changed.
      */
     public List<String> markAsDelivered(String roomId, String userId) {
-        List<Message> messages = messageRepository
-                .findByRoomIdAndReceiptUserIdAndReceiptStatus(roomId, userId, "SENT");
+        List<Message> messages = messageStore.findByReceiptStatus(roomId, userId, MessageStatus.SENT);
         List<String> updatedIds = new ArrayList<>();
+        List<String> ackedIds = new ArrayList<>();
         Instant now = Instant.now();
 
         for (Message message : messages) {
@@ -132,12 +201,63 @@ public class MessageService {
             if (changed) {
                 MessageStatus oldStatus = message.getStatus();
                 message.recalculateStatus();
-                messageRepository.save(message);
+                roomSequencer.updated(messageStore.save(message));
+                ackedIds.add(message.getId());
                 if (message.getStatus() != oldStatus) {
                     updatedIds.add(message.getId());
                 }
             }
         }
+        latencyTracker.delivered(ackedIds);
+        return updatedIds;
+    }
+
+    /**
+     * Applies batched delivery acks for one room: each user has received every message up to the given
+     * sequence. One query and one bulk write of the affected receipts cover all users. Returns the ids of messages whose overall
+     * status changed.
+     */
+    public List<String> applyDeliveryAcks(String roomId, Map<String, Long> highestSeqByUser) {
+        // An ack can only cover what has been broadcast; a lower seq still in flight was not received
+        long settled = roomSequencer.settledThrough(roomId);
+        if (settled != Long.MAX_VALUE) {
+            highestSeqByUser = new HashMap<>(highestSeqByUser);
+            highestSeqByUser.replaceAll((userId, acked) -> Math.min(acked, settled));
+        }
+        long maxSeq = highestSeqByUser.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+        List<Message> messages = messageStore.findAwaitingDelivery(roomId, highestSeqByUser.keySet(), maxSeq);
+        List<Message> changedMessages = new ArrayList<>();
+        List<String> updatedIds = new ArrayList<>();
+        List<MessageStore.DeliveryAck> acks = new ArrayList<>();
+        // One entry per receipt, so each recipient's ack is timed
+        List<String> ackedIds = new ArrayList<>();
+        Instant now = Instant.now();
+
+        for (Message message : messages) {
+            boolean changed = false;
+            for (MessageReceipt receipt : message.getReceipts()) {
+                Long acked = highestSeqByUser.get(receipt.getUserId());
+                if (acked != null && message.getSeq() <= acked && receipt.getStatus() == MessageStatus.SENT) {
+                    receipt.setStatus(MessageStatus.DELIVERED);
+                    receipt.setDeliveredAt(now);
+                    acks.add(new MessageStore.DeliveryAck(message.getId(), receipt.getUserId()));
+                    ackedIds.add(message.getId());
+                    changed = true;
+                }
+            }
+            if (changed) {
+                MessageStatus oldStatus = message.getStatus();
+                message.recalculateStatus();
+                changedMessages.add(message);
+                if (message.getStatus() != oldStatus) {
+                    updatedIds.add(message.getId());
+                }
+            }
+        }
+        // Only the acked receipts are written; the copies read above may already be stale
+        messageStore.markDelivered(acks, now);
+        changedMessages.forEach(roomSequencer::updated);
+        latencyTracker.delivered(ackedIds);
         return updatedIds;
     }
 
@@ -146,7 +266,7 @@ public class MessageService {
      * Called when a user logs in / connects.
      */
     public List<String[]> markAllAsDeliveredForUser(String userId) {
-        List<RoomMembership> memberships = membershipRepository.findByUserIdAndIsActiveTrue(userId);
+        List<RoomMembership> memberships = membershipStore.findActiveByUser(userId);
         List<String[]> results = new ArrayList<>();
 
         for (RoomMembership membership : memberships) {
@@ -165,15 +285,14 @@ public class MessageService {
      */
     public List<String> markAsSeen(String roomId, String userId) {
         // First mark any SENT as DELIVERED, then as SEEN
-        List<Message> sentMessages = messageRepository
-                .findByRoomIdAndReceiptUserIdAndReceiptStatus(roomId, userId, "SENT");
-        List<Message> deliveredMessages = messageRepository
-                .findByRoomIdAndReceiptUserIdAndReceiptStatus(roomId, userId, "DELIVERED");
+        List<Message> sentMessages = messageStore.findByReceiptStatus(roomId, userId, MessageStatus.SENT);
+        List<Message> deliveredMessages = messageStore.findByReceiptStatus(roomId, userId, MessageStatus.DELIVERED);
 
         List<Message> allMessages = new ArrayList<>(sentMessages);
         allMessages.addAll(deliveredMessages);
 
         List<String> updatedIds = new ArrayList<>();
+        List<String> ackedIds = new ArrayList<>();
         Instant now = Instant.now();
 
         for (Message message : allMessages) {
@@ -193,12 +312,14 @@ public class MessageService {
             if (changed) {
                 MessageStatus oldStatus = message.getStatus();
                 message.recalculateStatus();
-                messageRepository.save(message);
+                roomSequencer.updated(messageStore.save(message));
+                ackedIds.add(message.getId());
                 if (message.getStatus() != oldStatus) {
                     updatedIds.add(message.getId());
                 }
             }
         }
+        latencyTracker.seen(ackedIds);
         return updatedIds;
     }
 
@@ -206,18 +327,34 @@ public class MessageService {
      * Get per-member receipt details for a specific message.
      */
     public List<MessageReceipt> getReceipts(String messageId) {
-        Message message = messageRepository.findById(messageId)
+        Message message = messageStore.findById(messageId)
                 .orElseThrow(() -> new RuntimeException("Message not found"));
         return message.getReceipts();
     }
 
     public List<Message> getRecentMessages(String roomId, String userId, int limit) {
-        Pageable pageable = PageRequest.of(0, limit, Sort.by("createdAt").descending());
-        return messageRepository.findByRoomIdAndDeletedForUsersNotContainingOrderByCreatedAtDesc(roomId, userId, pageable);
+        return messageStore.findRecentVisible(roomId, userId, limit);
+    }
+
+    /**
+     * Messages in a room with a sequence above {@code afterSeq}, oldest first, at most {@code limit}. Recent
+     * gaps are served from memory, older ones from the store. Messages a user deleted for themselves are
+     * included, so callers can tell whether the limit was reached.
+     */
+    public List<Message> getMessagesAfter(String roomId, long afterSeq, int limit) {
+        // Messages above this have not been broadcast yet; the subscriber gets them live, in order
+        long settled = roomSequencer.settledThrough(roomId);
+        List<Message> messages = roomSequencer.recentAfter(roomId, afterSeq, limit);
+        if (messages == null) {
+            messages = messageStore.findAfterSequence(roomId, afterSeq, limit);
+        }
+        // The window can still hold an expired message the expiry worker has not reached
+        Instant now = Instant.now();
+        return messages.stream().filter(message -> message.getSeq() <= settled && !message.isExpired(now)).toList();
     }
 
     public List<Message> getAllMessagesInRoom(String roomId) {
-        return messageRepository.findByRoomIdOrderByCreatedAtAsc(roomId);
+        return messageStore.findAllInRoom(roomId);
     }
 
     public String decryptMessage(Message message) {
@@ -225,15 +362,16 @@ public class MessageService {
     }
 
     public Optional<Message> findById(String messageId) {
-        return messageRepository.findById(messageId);
+        return messageStore.findById(messageId);
     }
 
     public void deleteMessage(String messageId) {
-        messageRepository.deleteById(messageId);
+        messageStore.findById(messageId).ifPresent(roomSequencer::removed);
+        messageStore.deleteById(messageId);
     }
 
     public void deleteMessageForMe(String messageId, String userId) {
-        Message message = messageRepository.findById(messageId)
+        Message message = messageStore.findById(messageId)
                 .orElseThrow(() -> new RuntimeException("Message not found"));
         
         if (message.getDeletedForUsers() == null) {
@@ -241,16 +379,17 @@ public class MessageService {
         }
         if (!message.getDeletedForUsers().contains(userId)) {
             message.getDeletedForUsers().add(userId);
-            messageRepository.save(message);
+            roomSequencer.updated(messageStore.save(message));
         }
     }
 
     public void deleteAllMessagesInRoom(String roomId) {
-        messageRepository.deleteByRoomId(roomId);
+        messageStore.deleteByRoom(roomId);
+        roomSequencer.cleared(roomId);
     }
 
     public long getMessageCountInRoom(String roomId) {
-        return messageRepository.countByRoomId(roomId);
+        return messageStore.countByRoom(roomId);
     }
 
     // --------- Pagination method ---------
@@ -261,7 +400,7 @@ public class MessageService {
      */
     public Page<Message> getMessages(String roomId, String userId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        return messageRepository.findByRoomIdAndDeletedForUsersNotContaining(roomId, userId, pageable);
+        return messageStore.findVisible(roomId, userId, pageable);
     }
 
     /**
@@ -282,7 +421,15 @@ public class MessageService {
      */
     public Page<MessageDto> getMessageDtos(String roomId, String userId, int page, int size) {
         Page<Message> messages = getMessages(roomId, userId, page, size);
-        return messages.map(this::mapToMessageDto);
+        return messages.map(this::toMessageDto);
+    }
+
+    /**
+     * Newest-first stream of up to {@code limit} messages the user has not deleted for themselves, read
+     * from the store as it is consumed. The caller must close it.
+     */
+    public Stream<Message> streamMessages(String roomId, String userId, int limit) {
+        return messageStore.streamVisible(roomId, userId, limit);
     }
 
     /**
@@ -301,7 +448,7 @@ public class MessageService {
                 .toList();
     }
 
-    private MessageDto mapToMessageDto(Message msg) {
+    public MessageDto toMessageDto(Message msg) {
         return new MessageDto(
                 msg.getId(),
                 new MessageDto.SenderDto(
@@ -311,11 +458,72 @@ public class MessageService {
                 decrypt(msg.getEncryptedContent()),
                 msg.getStatus() != null ? msg.getStatus().toString() : "SENT",
                 msg.getCreatedAt(),
-                msg.getEditedAt());
+                msg.getEditedAt(),
+                msg.getMessageType() != null ? msg.getMessageType().toString() : "TEXT",
+                msg.getAttachmentId(),
+                msg.getViewCount(),
+                msg.getExpiresAt());
     }
 
     // ---- Event Broadcasting ----
 
+    /**
+     * The {@code MESSAGE} event clients receive on {@code /topic/rooms/{roomId}}, both live and when a gap is
+     * replayed after a reconnect. {@code seq} is the message's position in the room. IMAGE and FILE messages
+     * carry an {@code attachment} with the download URL.
+     */
+    public Map<String, Object> toMessageEvent(Message message, User sender, String text) {
+        Map<String, Object> senderInfo = new HashMap<>();
+        if (sender != null) {
+            senderInfo.put("username", sender.getUsername());
+            senderInfo.put("displayName", sender.getDisplayName());
+            senderInfo.put("status", sender.getStatus() != null ? sender.getStatus().toString() : "OFFLINE");
+        }
+
+        long createdAt = message.getCreatedAt() != null
+                ? message.getCreatedAt().toEpochMilli() : System.currentTimeMillis();
+        String status = message.getStatus() != null ? message.getStatus().toString() : "SENT";
+
+        Map<String, Object> messageEvent = new HashMap<>();
+        messageEvent.put("type", "MESSAGE");
+        messageEvent.put("id", message.getId());
+        messageEvent.put("roomId", message.getRoomId());
+        messageEvent.put("seq", message.getSeq());
+        messageEvent.put("messageType",
+                message.getMessageType() != null ? message.getMessageType().toString() : "TEXT");
+        messageEvent.put("sender", senderInfo);
+        messageEvent.put("text", text);
+        messageEvent.put("content", text);
+        messageEvent.put("messageStatus", status);
+        messageEvent.put("status", status);
+        messageEvent.put("timestamp", createdAt);
+        messageEvent.put("createdAt", createdAt);
+        if (message.getEditedAt() != null) {
+            messageEvent.put("editedAt", message.getEditedAt());
+        }
+        if (message.getExpiresAt() != null) {
+            messageEvent.put("expiresAt", message.getExpiresAt().toEpochMilli());
+        }
+        if (message.getViewCount() > 0) {
+            messageEvent.put("viewCount", message.getViewCount());
+        }
+        if (message.getAttachmentId() != null) {
+            attachmentStore.findById(message.getAttachmentId())
+                    .ifPresent(attachment -> messageEvent.put("attachment", toAttachmentInfo(attachment)));
+        }
+        return messageEvent;
+    }
+
+    private static Map<String, Object> toAttachmentInfo(Attachment attachment) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("id", attachment.getId());
+        info.put("url", "/api/attachments/" + attachment.getId());
+        info.put("fileName", attachment.getFileName());
+        info.put("contentType", attachment.getContentType());
+        info.put("size", attachment.getSize());
+        return info;
+    }
+
     /**
      * Marks all delivered and broadcasts status events for each room.
      */
@@ -338,6 +546,74 @@ public class MessageService {
         return results.size();
     }
 
+    /**
+     * Publishes a freshly saved message to the room topic and a {@code NEW_MESSAGE} notification to every
+     * other member; broadcast channels get a periodic digest instead. {@code trace} may be null.
+     */
+    public void broadcastNewMessage(Message message, User sender, String text, MessageTrace trace) {
+        String roomId = message.getRoomId();
+        // In sequence order, so a client's last seq means it has everything below it
+        roomSequencer.awaitTurn(roomId, message.getSeq());
+        try {
+            messagingTemplate.convertAndSend("/topic/rooms/" + roomId, (Object) toMessageEvent(message, sender, text));
+        } finally {
+            roomSequencer.settled(roomId, message.getSeq());
+        }
+        if (trace != null) {
+            trace.mark(MessageTrace.Checkpoint.BROADCAST);
+        }
+
+        if (broadcastRooms.isBroadcast(roomId)) {
+            broadcastRooms.published(message, sender, text);
+            if (trace != null) {
+                trace.mark(MessageTrace.Checkpoint.NOTIFIED);
+                trace.setRoomSize((int) Math.min(Integer.MAX_VALUE, membershipStore.countActive(roomId)));
+            }
+            return;
+        }
+
+        // Broadcast global notification for bubbling
+        List<RoomMembership> members = membershipStore.findActiveByRoom(roomId);
+        Map<String, Object> notificationEvent = new HashMap<>();
+        notificationEvent.put("type", "NEW_MESSAGE");
+        notificationEvent.put("roomId", roomId);
+        notificationEvent.put("sender", sender.getDisplayName());
+        notificationEvent.put("text", text);
+        notificationEvent.put("content", text);
+        notificationEvent.put("timestamp", System.currentTimeMillis());
+
+        for (RoomMembership member : members) {
+            if (!member.getUser().getUsername().equals(sender.getUsername())) {
+                messagingTemplate.convertAndSendToUser(member.getUser().getUsername(), "/queue/notifications", notificationEvent);
+            }
+        }
+        if (trace != null) {
+            trace.mark(MessageTrace.Checkpoint.NOTIFIED);
+            trace.setRoomSize(members.size());
+        }
+    }
+
+    /**
+     * Applies one room's batched delivery acks and broadcasts a single status event for it.
+     */
+    public void applyDeliveryAcksAndBroadcast(String roomId, Map<String, Long> highestSeqByUser) {
+        if (broadcastRooms.isBroadcast(roomId)) {
+            broadcastRooms.recordViews(roomId, highestSeqByUser);
+            return;
+        }
+        List<String> updatedIds = applyDeliveryAcks(roomId, highestSeqByUser);
+        if (updatedIds.isEmpty()) {
+            return;
+        }
+        Map<String, Object> statusEvent = new HashMap<>();
+        statusEvent.put("type", "MESSAGE_STATUS_UPDATE");
+        statusEvent.put("roomId", roomId);
+        statusEvent.put("messageIds", updatedIds);
+        statusEvent.put("newStatus", "DELIVERED");
+        statusEvent.put("timestamp", System.currentTimeMillis());
+        messagingTemplate.convertAndSend("/topic/rooms/" + roomId + "/status", (Object) statusEvent);
+    }
+
     /**
      * Edits a message and broadcasts the edit event.
      */
@@ -348,6 +624,7 @@ public class MessageService {
                 "type", "MESSAGE_EDITED",
                 "roomId", roomId,
                 "messageId", messageId,
+                "seq", updatedMsg.getSeq(),
                 "text", newContent,
                 "editedAt", updatedMsg.getEditedAt(),
                 "timestamp", System.currentTimeMillis());
@@ -0,0 +1,121 @@
+package com.example.chatservice.service;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nanosecond checkpoints for one message as it moves from the SEND frame to other members' screens.
+ * Server-side checkpoints are written by the sending thread; ack fields are updated concurrently as
+ * delivered/seen acks arrive.
+ */
+public class MessageTrace {
+
+    public enum Checkpoint {
+        RECEIVED, ENCRYPTED, PERSISTED, BROADCAST, NOTIFIED
+    }
+
+    private final String roomId;
+    private final Instant receivedAt = Instant.now();
+    private final long[] checkpoints = new long[Checkpoint.values().length];
+
+    private volatile String messageId;
+    private volatile int roomSize;
+
+    private final AtomicLong firstDeliveredNanos = new AtomicLong();
+    private final AtomicLong firstSeenNanos = new AtomicLong();
+    private final AtomicInteger deliveredAcks = new AtomicInteger();
+    private final AtomicInteger seenAcks = new AtomicInteger();
+    private volatile boolean exemplar;
+
+    public MessageTrace(String roomId) {
+        this.roomId = roomId;
+        mark(Checkpoint.RECEIVED);
+    }
+
+    public void mark(Checkpoint checkpoint) {
+        checkpoints[checkpoint.ordinal()] = System.nanoTime();
+    }
+
+    public long at(Checkpoint checkpoint) {
+        return checkpoints[checkpoint.ordinal()];
+    }
+
+    /**
+     * Nanoseconds from the previous recorded checkpoint to this one, or -1 if it was never reached.
+     */
+    public long stageNanos(Checkpoint checkpoint) {
+        long end = at(checkpoint);
+        if (end == 0 || checkpoint == Checkpoint.RECEIVED) {
+            return -1;
+        }
+        for (int i = checkpoint.ordinal() - 1; i >= 0; i--) {
+            if (checkpoints[i] != 0) {
+                return end - checkpoints[i];
+            }
+        }
+        return -1;
+    }
+
+    public long sinceReceived(long nanoTime) {
+        return nanoTime - at(Checkpoint.RECEIVED);
+    }
+
+    boolean ackDelivered(long nanoTime) {
+        deliveredAcks.incrementAndGet();
+        return firstDeliveredNanos.compareAndSet(0, nanoTime);
+    }
+
+    boolean ackSeen(long nanoTime) {
+        seenAcks.incrementAndGet();
+        return firstSeenNanos.compareAndSet(0, nanoTime);
+    }
+
+    boolean markExemplar() {
+        if (exemplar) {
+            return false;
+        }
+        exemplar = true;
+        return true;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public Instant getReceivedAt() {
+        return receivedAt;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(String messageId) {
+        this.messageId = messageId;
+    }
+
+    public int getRoomSize() {
+        return roomSize;
+    }
+
+    public void setRoomSize(int roomSize) {
+        this.roomSize = roomSize;
+    }
+
+    public long getFirstDeliveredNanos() {
+        return firstDeliveredNanos.get();
+    }
+
+    public long getFirstSeenNanos() {
+        return firstSeenNanos.get();
+    }
+
+    public int getDeliveredAcks() {
+        return deliveredAcks.get();
+    }
+
+    public int getSeenAcks() {
+        return seenAcks.get();
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.chatservice.service;
 
 import com.example.chatservice.Model.User;
-import com.example.chatservice.repository.UserRepository;
+import com.example.chatservice.store.UserStore;
 import com.example.chatservice.security.UserPrincipal;
 
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,15 +12,15 @@ import org.springframework.stereotype.Service;
 @Service
 public class MyUserDetailsService implements UserDetailsService {
 
-    private final UserRepository userRepository;
+    private final UserStore userStore;
 
-    public MyUserDetailsService(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public MyUserDetailsService(UserStore userStore) {
+        this.userStore = userStore;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        User user = userStore.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
         return new UserPrincipal(user);
     }
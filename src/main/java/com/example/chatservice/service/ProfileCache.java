@@ -0,0 +1,109 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.Model.Profile;
+import com.example.chatservice.store.ProfileStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of profile rows for batch lookups such as member lists, where the same few hundred
+ * profiles are read over and over. Misses are fetched with one {@link ProfileStore#findByUserIds} call, and
+ * users without a profile are cached too, since most never create one.
+ *
+ * <p>{@link ProfileService} invalidates an entry whenever it writes that profile; other instances see the
+ * change once the entry expires ({@code app.profiles.cache-ttl-ms}). Cached profiles are shared and must
+ * not be modified.
+ */
+@Component
+public class ProfileCache {
+
+    private record Entry(Profile profile, long expiresAt) {
+    }
+
+    private final ProfileStore profileStore;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ProfileCache(ProfileStore profileStore,
+                        @Value("${app.profiles.cache-ttl-ms:30000}") long ttlMillis,
+                        @Value("${app.profiles.cache-max-entries:50000}") int maxEntries,
+                        MeterRegistry registry) {
+        this.profileStore = profileStore;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("chat.profiles.cache").tag("result", "hit")
+                .description("Profile lookups served from the batch cache")
+                .register(registry);
+        this.misses = Counter.builder("chat.profiles.cache").tag("result", "miss")
+                .description("Profile lookups that went to the store")
+                .register(registry);
+    }
+
+    /**
+     * Profiles of the given users keyed by user id; users without a profile are absent.
+     */
+    public Map<String, Profile> getAll(Collection<String> userIds) {
+        long now = System.nanoTime();
+        Map<String, Profile> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        Set<String> unique = new LinkedHashSet<>(userIds);
+        for (String userId : unique) {
+            Entry entry = entries.get(userId);
+            if (entry != null && entry.expiresAt() - now > 0) {
+                if (entry.profile() != null) {
+                    result.put(userId, entry.profile());
+                }
+            } else {
+                missing.add(userId);
+            }
+        }
+        hits.increment(unique.size() - missing.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+        misses.increment(missing.size());
+
+        Map<String, Profile> loaded = new HashMap<>();
+        for (Profile profile : profileStore.findByUserIds(missing)) {
+            loaded.put(profile.getUserId(), profile);
+        }
+        if (entries.size() + missing.size() > maxEntries) {
+            evictExpired(now);
+        }
+        long expiresAt = now + ttlNanos;
+        for (String userId : missing) {
+            Profile profile = loaded.get(userId);
+            if (entries.size() < maxEntries) {
+                entries.put(userId, new Entry(profile, expiresAt));
+            }
+            if (profile != null) {
+                result.put(userId, profile);
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(String userId) {
+        entries.remove(userId);
+    }
+
+    private void evictExpired(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+    }
+}
@@ -1,17 +1,18 @@
 package com.example.chatservice.service;
 
 import com.example.chatservice.Model.Profile;
-import com.example.chatservice.repository.ProfileRepository;
+import com.example.chatservice.avatar.AvatarPipeline;
+import com.example.chatservice.store.ProfileStore;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -19,10 +20,9 @@ import java.util.Set;
 @Service
 public class ProfileService {
 
-    private final ProfileRepository profileRepository;
-
-    @Value("${app.upload.dir:uploads/avatars}")
-    private String uploadDir;
+    private final ProfileStore profileStore;
+    private final AvatarPipeline avatarPipeline;
+    private final ProfileCache profileCache;
 
     private static final Set<String> ALLOWED_TYPES = Set.of(
             "image/jpeg", "image/png", "image/gif", "image/webp"
@@ -30,12 +30,17 @@ public class ProfileService {
 
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
 
-    public ProfileService(ProfileRepository profileRepository) {
-        this.profileRepository = profileRepository;
+    // Edge length of the variant a profile's avatarUrl points at
+    private static final int PROFILE_AVATAR_SIZE = 256;
+
+    public ProfileService(ProfileStore profileStore, AvatarPipeline avatarPipeline, ProfileCache profileCache) {
+        this.profileStore = profileStore;
+        this.avatarPipeline = avatarPipeline;
+        this.profileCache = profileCache;
     }
 
     public Optional<Profile> getProfileByUserId(String userId) {
-        return profileRepository.findByUserId(userId);
+        return profileStore.findByUserId(userId);
     }
 
     /**
@@ -43,7 +48,7 @@ public class ProfileService {
      * If the viewer is not the profile owner, profile picture visibility settings are enforced.
      */
     public Profile getProfileForViewer(String userId, boolean isOwner) {
-        Profile profile = profileRepository.findByUserId(userId)
+        Profile profile = profileStore.findByUserId(userId)
                 .orElseGet(() -> {
                     Profile emptyProfile = new Profile();
                     emptyProfile.setUserId(userId);
@@ -54,6 +59,7 @@ public class ProfileService {
             String visibility = profile.getProfilePicVisibility();
             if ("NOBODY".equals(visibility)) {
                 profile.setAvatarUrl(null);
+                profile.setAvatarVariants(null);
             }
             // CONTACTS would need a contacts list - treat same as EVERYONE for now
         }
@@ -62,7 +68,7 @@ public class ProfileService {
     }
 
     public Profile updateProfile(String userId, Map<String, String> updates) {
-        Profile profile = profileRepository.findByUserId(userId)
+        Profile profile = profileStore.findByUserId(userId)
                 .orElseGet(() -> {
                     Profile newProfile = new Profile();
                     newProfile.setUserId(userId);
@@ -71,6 +77,7 @@ public class ProfileService {
 
         if (updates.containsKey("avatarUrl")) {
             profile.setAvatarUrl(updates.get("avatarUrl"));
+            profile.setAvatarVariants(null);
         }
         if (updates.containsKey("bio")) {
             profile.setBio(updates.get("bio"));
@@ -83,9 +90,13 @@ public class ProfileService {
             }
         }
 
-        return profileRepository.save(profile);
+        return save(profile);
     }
 
+    /**
+     * Stores the upload under its content hash and points the profile at it right away. The sized variants
+     * are generated in the background and replace the original once ready.
+     */
     public Profile uploadAvatar(String userId, MultipartFile file) throws IOException {
         // Validate file type
         String contentType = file.getContentType();
@@ -98,67 +109,90 @@ public class ProfileService {
             throw new IllegalArgumentException("File size must be less than 5MB");
         }
 
-        // Create upload directory if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-        Files.createDirectories(uploadPath);
-
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
-        String filename = userId + "_" + System.currentTimeMillis() + extension;
-
-        // Save the file
-        Path targetPath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+        String extension = "." + contentType.substring("image/".length()).replace("jpeg", "jpg");
+        String avatarUrl = avatarPipeline.storeOriginal(userId, file.getInputStream(), extension);
 
         // Update profile with the new avatar URL
-        Profile profile = profileRepository.findByUserId(userId)
+        Profile profile = profileStore.findByUserId(userId)
                 .orElseGet(() -> {
                     Profile newProfile = new Profile();
                     newProfile.setUserId(userId);
                     return newProfile;
                 });
 
-        // Delete old avatar file if it exists
-        String oldAvatarUrl = profile.getAvatarUrl();
-        if (oldAvatarUrl != null && oldAvatarUrl.startsWith("/uploads/avatars/")) {
-            try {
-                String oldFilename = oldAvatarUrl.substring("/uploads/avatars/".length());
-                Path oldFilePath = uploadPath.resolve(oldFilename);
-                Files.deleteIfExists(oldFilePath);
-            } catch (Exception e) {
-                // Ignore errors deleting old file
-            }
-        }
+        // Delete the previous avatar's files
+        avatarPipeline.delete(avatarFiles(profile), List.of(avatarUrl));
 
-        String avatarUrl = "/uploads/avatars/" + filename;
         profile.setAvatarUrl(avatarUrl);
-        return profileRepository.save(profile);
+        profile.setAvatarVariants(null);
+        Profile saved = save(profile);
+        avatarPipeline.process(userId, avatarUrl, variants -> applyAvatarVariants(userId, avatarUrl, variants));
+        return saved;
+    }
+
+    private void applyAvatarVariants(String userId, String originalUrl, List<AvatarPipeline.Variant> variants) {
+        List<String> variantUrls = variants.stream().map(AvatarPipeline.Variant::url).toList();
+        Optional<Profile> current = profileStore.findByUserId(userId);
+        if (current.isEmpty() || !originalUrl.equals(current.get().getAvatarUrl())) {
+            // Replaced or removed while it was being processed
+            avatarPipeline.delete(variantUrls, List.of());
+            return;
+        }
+        if (variants.isEmpty()) {
+            return;
+        }
+        Profile profile = current.get();
+        Map<String, String> bySize = new LinkedHashMap<>();
+        for (AvatarPipeline.Variant variant : variants) {
+            bySize.put(String.valueOf(variant.size()), variant.url());
+        }
+        profile.setAvatarVariants(bySize);
+        profile.setAvatarUrl(profile.avatarUrlFor(PROFILE_AVATAR_SIZE));
+        save(profile);
+        avatarPipeline.delete(List.of(originalUrl), variantUrls);
     }
 
     public void removeAvatar(String userId) {
-        profileRepository.findByUserId(userId).ifPresent(profile -> {
-            // Delete the file from disk
-            String avatarUrl = profile.getAvatarUrl();
-            if (avatarUrl != null && avatarUrl.startsWith("/uploads/avatars/")) {
-                try {
-                    Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-                    String filename = avatarUrl.substring("/uploads/avatars/".length());
-                    Path filePath = uploadPath.resolve(filename);
-                    Files.deleteIfExists(filePath);
-                } catch (Exception e) {
-                    // Ignore errors deleting file
-                }
-            }
+        profileStore.findByUserId(userId).ifPresent(profile -> {
+            // Delete the files from disk
+            avatarPipeline.delete(avatarFiles(profile), List.of());
             profile.setAvatarUrl(null);
-            profileRepository.save(profile);
+            profile.setAvatarVariants(null);
+            save(profile);
         });
     }
 
+    /**
+     * Avatar URLs at the given size for each user that has one visible to others, for member lists.
+     */
+    public Map<String, String> getAvatarUrls(Collection<String> userIds, int size) {
+        Map<String, String> urls = new HashMap<>();
+        for (Profile profile : profileCache.getAll(userIds).values()) {
+            String url = profile.avatarUrlFor(size);
+            if (url != null && !"NOBODY".equals(profile.getProfilePicVisibility())) {
+                urls.put(profile.getUserId(), url);
+            }
+        }
+        return urls;
+    }
+
+    private static List<String> avatarFiles(Profile profile) {
+        List<String> files = new ArrayList<>();
+        files.add(profile.getAvatarUrl());
+        if (profile.getAvatarVariants() != null) {
+            files.addAll(profile.getAvatarVariants().values());
+        }
+        return files;
+    }
+
     public void removeProfile(String userId) {
-        profileRepository.deleteByUserId(userId);
+        profileStore.deleteByUserId(userId);
+        profileCache.invalidate(userId);
+    }
+
+    private Profile save(Profile profile) {
+        Profile saved = profileStore.save(profile);
+        profileCache.invalidate(profile.getUserId());
+        return saved;
     }
 }
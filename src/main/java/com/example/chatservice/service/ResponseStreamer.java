@@ -0,0 +1,153 @@
+package com.example.chatservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes large read responses as they are produced instead of building them in memory.
+ *
+ * <p>The response body runs on the MVC async executor ({@link #requestExecutor()}), so the Tomcat request
+ * thread is released as soon as the controller returns. At most {@code app.streaming.max-concurrent}
+ * streams run at once; further requests queue, and past {@code app.streaming.queue-capacity} they are
+ * rejected with 503. Items are pulled from the source a window at a time and mapped in parallel on
+ * {@code app.streaming.map-threads} threads, in order. Each window is flushed before the next one is read,
+ * so a slow client holds back the database cursor rather than letting the response pile up in memory.
+ *
+ * <p>Output is NDJSON, one item per line, or a single JSON array.
+ */
+@Component
+public class ResponseStreamer {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final JsonMapper jsonMapper;
+    private final int window;
+    private final ThreadPoolTaskExecutor requestExecutor;
+    private final ThreadPoolTaskExecutor mapExecutor;
+    private final Counter items;
+    private final Timer duration;
+
+    public ResponseStreamer(JsonMapper jsonMapper,
+                            @Value("${app.streaming.max-concurrent:16}") int maxConcurrent,
+                            @Value("${app.streaming.queue-capacity:200}") int queueCapacity,
+                            @Value("${app.streaming.map-threads:4}") int mapThreads,
+                            @Value("${app.streaming.window:64}") int window,
+                            MeterRegistry registry) {
+        this.jsonMapper = jsonMapper;
+        this.window = window;
+
+        this.requestExecutor = new ThreadPoolTaskExecutor();
+        requestExecutor.setCorePoolSize(maxConcurrent);
+        requestExecutor.setMaxPoolSize(maxConcurrent);
+        requestExecutor.setQueueCapacity(queueCapacity);
+        requestExecutor.setThreadNamePrefix("stream-");
+        requestExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        requestExecutor.initialize();
+
+        this.mapExecutor = new ThreadPoolTaskExecutor();
+        mapExecutor.setCorePoolSize(mapThreads);
+        mapExecutor.setMaxPoolSize(mapThreads);
+        mapExecutor.setQueueCapacity(maxConcurrent * window);
+        mapExecutor.setThreadNamePrefix("stream-map-");
+        // A full queue means every stream is busy; the writer maps its own window instead of waiting
+        mapExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        mapExecutor.initialize();
+
+        this.items = Counter.builder("chat.stream.items")
+                .description("Items written to streamed responses")
+                .register(registry);
+        this.duration = Timer.builder("chat.stream.duration")
+                .description("Time to write a streamed response")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        requestExecutor.shutdown();
+        mapExecutor.shutdown();
+    }
+
+    /**
+     * Executor for asynchronous MVC responses, registered in {@code WebConfig}.
+     */
+    public AsyncTaskExecutor requestExecutor() {
+        return requestExecutor;
+    }
+
+    /**
+     * A response body that opens {@code source} when the client is ready for it, maps every item with
+     * {@code mapper} and writes it out. The stream is closed when the body is done, including when the
+     * client disconnects.
+     */
+    public <T> StreamingResponseBody body(Supplier<Stream<T>> source, Function<T, ?> mapper, boolean ndjson) {
+        return out -> {
+            Timer.Sample sample = Timer.start();
+            try (Stream<T> stream = source.get()) {
+                write(stream.iterator(), mapper, out, ndjson);
+            } finally {
+                sample.stop(duration);
+            }
+        };
+    }
+
+    private <T> void write(Iterator<T> source, Function<T, ?> mapper, OutputStream out, boolean ndjson)
+            throws IOException {
+        if (!ndjson) {
+            out.write('[');
+        }
+        boolean first = true;
+        List<CompletableFuture<Object>> pending = new ArrayList<>(window);
+        while (source.hasNext()) {
+            pending.clear();
+            while (pending.size() < window && source.hasNext()) {
+                T item = source.next();
+                pending.add(CompletableFuture.supplyAsync(() -> mapper.apply(item), mapExecutor));
+            }
+            for (CompletableFuture<Object> future : pending) {
+                if (!ndjson && !first) {
+                    out.write(',');
+                }
+                out.write(jsonMapper.writeValueAsBytes(join(future)));
+                if (ndjson) {
+                    out.write('\n');
+                }
+                first = false;
+            }
+            out.flush();
+            items.increment(pending.size());
+        }
+        if (!ndjson) {
+            out.write(']');
+        }
+        out.flush();
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.Dto.response.PublicRoomDto;
+import com.example.chatservice.Dto.response.PublicRoomsPage;
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.store.MembershipStore;
+import com.example.chatservice.store.RoomStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The list of public group rooms shown in the join dialog, kept in memory as an immutable snapshot and
+ * served as pre-serialized JSON.
+ *
+ * <p>Creating, renaming or deleting a room publishes a new snapshot right away, built from the previous
+ * one rather than reloaded. Member counts come from the maintained counters: joins and leaves mark a room
+ * dirty, and a background thread re-reads the dirty counters every {@code app.rooms.catalog.count-refresh-ms}
+ * and publishes at most one snapshot for all of them. Every {@code app.rooms.catalog.reload-ms} the whole
+ * catalog is reloaded, to pick up changes made on other instances.
+ *
+ * <p>Each snapshot holds the full list and every page as bytes, each with a strong ETag derived from its
+ * content. Instances that hold the same catalog therefore hand out the same tags, and a client polling an
+ * unchanged catalog costs one string comparison. The catalog version is the hash of the full list, kept
+ * out of the page bodies so that a page's tag survives changes to other pages.
+ */
+@Component
+public class RoomCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomCatalog.class);
+
+    private static final Comparator<PublicRoomDto> ORDER = Comparator
+            .comparing((PublicRoomDto room) -> room.name() != null ? room.name().toLowerCase(Locale.ROOT) : "")
+            .thenComparing(PublicRoomDto::id);
+
+    /**
+     * Serialized JSON, its ETag and the version of the catalog it came from.
+     */
+    public record Body(byte[] json, String etag, String version) {
+    }
+
+    private record Snapshot(String version, List<PublicRoomDto> rooms, Body all, List<Body> pages) {
+    }
+
+    private final RoomStore roomStore;
+    private final MembershipStore membershipStore;
+    private final JsonMapper jsonMapper;
+    private final int pageSize;
+    private final long countRefreshNanos;
+    private final long reloadNanos;
+    private final Counter notModified;
+    private final Counter served;
+
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+    private final Set<String> dirtyCounts = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private Thread refresher;
+
+    public RoomCatalog(RoomStore roomStore,
+                       MembershipStore membershipStore,
+                       JsonMapper jsonMapper,
+                       @Value("${app.rooms.catalog.page-size:100}") int pageSize,
+                       @Value("${app.rooms.catalog.count-refresh-ms:5000}") long countRefreshMillis,
+                       @Value("${app.rooms.catalog.reload-ms:60000}") long reloadMillis,
+                       MeterRegistry registry) {
+        this.roomStore = roomStore;
+        this.membershipStore = membershipStore;
+        this.jsonMapper = jsonMapper;
+        this.pageSize = pageSize;
+        this.countRefreshNanos = TimeUnit.MILLISECONDS.toNanos(countRefreshMillis);
+        this.reloadNanos = TimeUnit.MILLISECONDS.toNanos(reloadMillis);
+        this.notModified = Counter.builder("chat.rooms.catalog.requests").tag("result", "not_modified")
+                .description("Room catalog requests answered with 304")
+                .register(registry);
+        this.served = Counter.builder("chat.rooms.catalog.requests").tag("result", "served")
+                .description("Room catalog requests answered with a body")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        refresher = new Thread(this::runRefresher, "room-catalog");
+        refresher.setDaemon(true);
+        refresher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (refresher != null) {
+            LockSupport.unpark(refresher);
+            refresher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * The whole catalog as a JSON array.
+     */
+    public Body all() {
+        return current().all();
+    }
+
+    /**
+     * One page of the catalog as a {@link PublicRoomsPage}.
+     *
+     * @throws IllegalArgumentException if there is no such page
+     */
+    public Body page(int page) {
+        List<Body> pages = current().pages();
+        if (page < 0 || page >= pages.size()) {
+            throw new IllegalArgumentException("No page " + page + "; the catalog has " + pages.size());
+        }
+        return pages.get(page);
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header already names {@code body}, in which case the client should
+     * get 304 instead of the body.
+     */
+    public boolean notModified(Body body, String ifNoneMatch) {
+        if (ifNoneMatch != null && matches(ifNoneMatch, body.etag())) {
+            notModified.increment();
+            return true;
+        }
+        served.increment();
+        return false;
+    }
+
+    /**
+     * Public rooms whose name contains {@code query}, ignoring case.
+     */
+    public List<PublicRoomDto> search(String query) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        return current().rooms().stream()
+                .filter(room -> room.name() != null && room.name().toLowerCase(Locale.ROOT).contains(needle))
+                .toList();
+    }
+
+    /**
+     * Publishes a snapshot with {@code room} added, replaced or, if it is no longer a public group room,
+     * removed.
+     */
+    public void roomSaved(ChatRoom room) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            List<PublicRoomDto> rooms = new ArrayList<>(current.rooms());
+            rooms.removeIf(existing -> existing.id().equals(room.getId()));
+            if (isListed(room)) {
+                rooms.add(toDto(room, membershipStore.countActive(room.getId())));
+            }
+            publish(rooms);
+        }
+    }
+
+    public void roomDeleted(String roomId) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            List<PublicRoomDto> rooms = new ArrayList<>(current.rooms());
+            if (rooms.removeIf(existing -> existing.id().equals(roomId))) {
+                publish(rooms);
+            }
+        }
+        dirtyCounts.remove(roomId);
+    }
+
+    /**
+     * Notes that the room's member count changed; the catalog picks it up on the next refresh.
+     */
+    public void membersChanged(String roomId) {
+        dirtyCounts.add(roomId);
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            reload();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private void reload() {
+        List<ChatRoom> rooms = roomStore.findPublicListings(ChatRoom.RoomType.GROUP_CHAT);
+        Map<String, Long> counts = membershipStore.countActive(rooms.stream().map(ChatRoom::getId).toList());
+        List<PublicRoomDto> listed = new ArrayList<>(rooms.size());
+        for (ChatRoom room : rooms) {
+            listed.add(toDto(room, counts.getOrDefault(room.getId(), 0L)));
+        }
+        synchronized (writeLock) {
+            dirtyCounts.clear();
+            if (snapshot == null || !snapshot.rooms().equals(sorted(listed))) {
+                publish(listed);
+            }
+        }
+    }
+
+    private void refreshCounts() {
+        if (dirtyCounts.isEmpty()) {
+            return;
+        }
+        Set<String> dirty = new HashSet<>(dirtyCounts);
+        dirtyCounts.removeAll(dirty);
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            Map<String, Long> counts = membershipStore.countActive(current.rooms().stream()
+                    .map(PublicRoomDto::id)
+                    .filter(dirty::contains)
+                    .toList());
+            boolean changed = false;
+            List<PublicRoomDto> rooms = new ArrayList<>(current.rooms().size());
+            for (PublicRoomDto room : current.rooms()) {
+                Long count = counts.get(room.id());
+                if (count != null && count != room.memberCount()) {
+                    room = new PublicRoomDto(room.id(), room.name(), room.description(), room.roomType(),
+                            room.isPrivate(), count);
+                    changed = true;
+                }
+                rooms.add(room);
+            }
+            if (changed) {
+                publish(rooms);
+            }
+        }
+    }
+
+    /**
+     * Serializes and swaps in a new snapshot. Callers hold {@code writeLock}.
+     */
+    private void publish(List<PublicRoomDto> rooms) {
+        List<PublicRoomDto> ordered = sorted(rooms);
+        byte[] allJson = jsonMapper.writeValueAsBytes(ordered);
+        String version = hash(allJson);
+        int totalPages = Math.max(1, (ordered.size() + pageSize - 1) / pageSize);
+        List<Body> pages = new ArrayList<>(totalPages);
+        for (int page = 0; page < totalPages; page++) {
+            List<PublicRoomDto> content = ordered.subList(Math.min(page * pageSize, ordered.size()),
+                    Math.min((page + 1) * pageSize, ordered.size()));
+            byte[] json = jsonMapper.writeValueAsBytes(new PublicRoomsPage(page, totalPages, ordered.size(), content));
+            pages.add(new Body(json, '"' + hash(json) + '"', version));
+        }
+        Body all = new Body(allJson, '"' + version + '"', version);
+        snapshot = new Snapshot(version, ordered, all, List.copyOf(pages));
+        log.debug("📚 Room catalog {}: {} rooms in {} pages", version, ordered.size(), totalPages);
+    }
+
+    private List<PublicRoomDto> sorted(List<PublicRoomDto> rooms) {
+        List<PublicRoomDto> ordered = new ArrayList<>(rooms);
+        ordered.sort(ORDER);
+        return List.copyOf(ordered);
+    }
+
+    /**
+     * The first 128 bits of the SHA-256 of {@code json}, in hex.
+     */
+    private static String hash(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isListed(ChatRoom room) {
+        return !room.isPrivate() && room.getRoomType() == ChatRoom.RoomType.GROUP_CHAT;
+    }
+
+    private static PublicRoomDto toDto(ChatRoom room, long memberCount) {
+        return new PublicRoomDto(room.getId(), room.getName(),
+                room.getDescription() != null ? room.getDescription() : "",
+                room.getRoomType().name(), room.isPrivate(), memberCount);
+    }
+
+    private void runRefresher() {
+        long lastReload = System.nanoTime();
+        while (running) {
+            LockSupport.parkNanos(this, countRefreshNanos);
+            if (!running) {
+                break;
+            }
+            try {
+                if (System.nanoTime() - lastReload >= reloadNanos) {
+                    lastReload = System.nanoTime();
+                    if (snapshot != null) {
+                        reload();
+                    }
+                } else {
+                    refreshCounts();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Room catalog refresh failed: {}", e.getMessage());
+            }
+        }
+    }
+}
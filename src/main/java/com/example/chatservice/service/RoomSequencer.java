@@ -0,0 +1,258 @@
+package com.example.chatservice.service;
+
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.store.SequenceStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out per-room message sequence numbers and keeps the most recent messages of each room in memory,
+ * so a reconnecting client's gap can usually be replayed without a store query.
+ *
+ * <p>Numbers are reserved from the {@link SequenceStore} in blocks. A restart skips the rest of the block
+ * it was using, so sequences are strictly increasing but not contiguous; clients resume with
+ * "everything after {@code lastSeq}" and never need to count.
+ *
+ * <p>Numbers are handed out before the message is saved, so concurrent sends can commit out of order. Each
+ * number stays unsettled until its message has been broadcast or its save has failed, and a message is only
+ * broadcast once every lower number this instance handed out in the room has settled ({@link #awaitTurn}). A
+ * client that has seen a sequence has therefore seen every lower one from this instance, and
+ * {@link #settledThrough} bounds what is replayed or acknowledged to numbers that have all been broadcast.
+ * A number that is never settled, because its sender failed between saving and broadcasting, stops holding
+ * the room back after {@code app.resume.settle-timeout-ms}.
+ *
+ * <p>The recent window of a room covers every sequence above its floor: messages are added after they are
+ * persisted and before they are broadcast, and the floor rises whenever the oldest entry is evicted.
+ */
+@Component
+public class RoomSequencer {
+
+    private final SequenceStore sequenceStore;
+    private final int blockSize;
+    private final int windowSize;
+    private final long settleTimeoutNanos;
+    private final Map<String, RoomLog> rooms = new ConcurrentHashMap<>();
+
+    public RoomSequencer(SequenceStore sequenceStore,
+                         @Value("${app.resume.sequence-block:100}") int blockSize,
+                         @Value("${app.resume.window-size:200}") int windowSize,
+                         @Value("${app.resume.settle-timeout-ms:5000}") long settleTimeoutMs) {
+        this.sequenceStore = sequenceStore;
+        this.blockSize = blockSize;
+        this.windowSize = windowSize;
+        this.settleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(settleTimeoutMs);
+    }
+
+    private static final class RoomLog {
+        long next = 1;
+        long ceiling;
+        // Sequences at or below the floor are not in the window; -1 until the first block is reserved
+        long floor = -1;
+        final TreeMap<Long, Message> window = new TreeMap<>();
+        // Numbers handed out by this instance that have not settled, with when they were handed out
+        final TreeMap<Long, Long> unsettled = new TreeMap<>();
+    }
+
+    public long next(String roomId) {
+        RoomLog log = rooms.computeIfAbsent(roomId, id -> new RoomLog());
+        synchronized (log) {
+            if (log.next > log.ceiling) {
+                long ceiling = sequenceStore.reserve(roomId, blockSize);
+                long first = ceiling - blockSize + 1;
+                if (first != log.ceiling + 1 || log.floor < 0) {
+                    // First block in this process, or another writer took the numbers in between
+                    log.window.clear();
+                    log.floor = first - 1;
+                }
+                log.next = first;
+                log.ceiling = ceiling;
+            }
+            log.unsettled.put(log.next, System.nanoTime());
+            return log.next++;
+        }
+    }
+
+    /**
+     * The message holding {@code seq} has been broadcast, or will never be.
+     */
+    public void settled(String roomId, long seq) {
+        RoomLog log = rooms.get(roomId);
+        if (log == null) {
+            return;
+        }
+        synchronized (log) {
+            if (log.unsettled.remove(seq) != null) {
+                log.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every lower number this instance handed out in the room has settled, or the oldest of them
+     * has been unsettled for longer than the settle timeout.
+     */
+    public void awaitTurn(String roomId, long seq) {
+        RoomLog log = rooms.get(roomId);
+        if (log == null) {
+            return;
+        }
+        synchronized (log) {
+            while (true) {
+                long now = System.nanoTime();
+                expireUnsettled(log, now);
+                if (log.unsettled.isEmpty() || log.unsettled.firstKey() >= seq) {
+                    return;
+                }
+                long waitNanos = log.unsettled.firstEntry().getValue() + settleTimeoutNanos - now;
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(log, Math.max(waitNanos, 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The highest sequence of the room at or below which every number this instance handed out has settled;
+     * {@link Long#MAX_VALUE} when none is outstanding.
+     */
+    public long settledThrough(String roomId) {
+        RoomLog log = rooms.get(roomId);
+        if (log == null) {
+            return Long.MAX_VALUE;
+        }
+        synchronized (log) {
+            expireUnsettled(log, System.nanoTime());
+            return log.unsettled.isEmpty() ? Long.MAX_VALUE : log.unsettled.firstKey() - 1;
+        }
+    }
+
+    /**
+     * The highest sequence any instance can have given a message in the room so far: exact when this
+     * instance holds the room's latest block, otherwise the end of that block.
+     */
+    public long latest(String roomId) {
+        long reserved = sequenceStore.reserved(roomId);
+        RoomLog log = rooms.get(roomId);
+        if (log != null) {
+            synchronized (log) {
+                if (log.ceiling == reserved) {
+                    return log.next - 1;
+                }
+            }
+        }
+        return reserved;
+    }
+
+    // Called under the room's lock
+    private void expireUnsettled(RoomLog log, long now) {
+        boolean expired = false;
+        while (!log.unsettled.isEmpty() && now - log.unsettled.firstEntry().getValue() > settleTimeoutNanos) {
+            log.unsettled.pollFirstEntry();
+            expired = true;
+        }
+        if (expired) {
+            log.notifyAll();
+        }
+    }
+
+    /**
+     * Adds a freshly persisted message to its room's window.
+     */
+    public void recorded(Message message) {
+        RoomLog log = rooms.get(message.getRoomId());
+        if (log == null || message.getSeq() == 0) {
+            return;
+        }
+        synchronized (log) {
+            if (message.getSeq() <= log.floor) {
+                return;
+            }
+            log.window.put(message.getSeq(), message);
+            while (log.window.size() > windowSize) {
+                log.floor = log.window.pollFirstEntry().getKey();
+            }
+        }
+    }
+
+    /**
+     * Replaces the windowed copy of an edited or re-acknowledged message.
+     */
+    public void updated(Message message) {
+        RoomLog log = rooms.get(message.getRoomId());
+        if (log == null || message.getSeq() == 0) {
+            return;
+        }
+        synchronized (log) {
+            log.window.replace(message.getSeq(), message);
+        }
+    }
+
+    public void removed(Message message) {
+        removed(message.getRoomId(), message.getSeq());
+    }
+
+    public void removed(String roomId, long seq) {
+        RoomLog log = rooms.get(roomId);
+        if (log == null) {
+            return;
+        }
+        synchronized (log) {
+            log.window.remove(seq);
+        }
+    }
+
+    /**
+     * All messages of a room were deleted: nothing allocated so far can be replayed any more.
+     */
+    public void cleared(String roomId) {
+        RoomLog log = rooms.get(roomId);
+        if (log == null) {
+            return;
+        }
+        synchronized (log) {
+            log.window.clear();
+            if (log.floor >= 0) {
+                log.floor = log.next - 1;
+            }
+        }
+    }
+
+    public void forget(String roomId) {
+        rooms.remove(roomId);
+        sequenceStore.delete(roomId);
+    }
+
+    /**
+     * Messages with a sequence above {@code afterSeq}, oldest first, if the window reaches back that far;
+     * otherwise null and the caller has to ask the store. At most {@code limit} are returned.
+     */
+    public List<Message> recentAfter(String roomId, long afterSeq, int limit) {
+        RoomLog log = rooms.get(roomId);
+        if (log == null) {
+            return null;
+        }
+        synchronized (log) {
+            if (log.floor < 0 || afterSeq < log.floor) {
+                return null;
+            }
+            List<Message> result = new ArrayList<>();
+            for (Message message : log.window.tailMap(afterSeq, false).values()) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(message);
+            }
+            return result;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.chatservice.service;
 
+import com.example.chatservice.Dto.response.UserSummaryDto;
+import com.example.chatservice.Model.RoomMembership;
 import com.example.chatservice.Model.User;
 import com.example.chatservice.exception.DuplicateResourceException;
 import com.example.chatservice.exception.ResourceNotFoundException;
-import com.example.chatservice.repository.UserRepository;
+import com.example.chatservice.store.MembershipStore;
+import com.example.chatservice.store.UserStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,24 +16,34 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
 @Service
 public class UserService {
 
-    private final UserRepository userRepository;
+    private final UserStore userStore;
+    private final MembershipStore membershipStore;
     private final SimpMessagingTemplate messagingTemplate;
     private final PasswordEncoder passwordEncoder;
+    private final ProfileService profileService;
 
-    public UserService(UserRepository userRepository,
+    public UserService(UserStore userStore,
+            MembershipStore membershipStore,
             @Autowired(required = false) SimpMessagingTemplate messagingTemplate,
-            PasswordEncoder passwordEncoder) {
-        this.userRepository = userRepository;
+            PasswordEncoder passwordEncoder,
+            ProfileService profileService) {
+        this.userStore = userStore;
+        this.membershipStore = membershipStore;
         this.messagingTemplate = messagingTemplate;
         this.passwordEncoder = passwordEncoder;
+        this.profileService = profileService;
     }
 
     // ---- New: register and authenticate ----
@@ -40,13 +53,13 @@ public class UserService {
         String normalizedEmail = email != null && !email.isBlank() ? email.trim().toLowerCase() : null;
         String normalizedPhone = phoneNumber != null && !phoneNumber.isBlank() ? phoneNumber.trim() : null;
 
-        if (normalizedUsername != null && userRepository.existsByUsername(normalizedUsername)) {
+        if (normalizedUsername != null && userStore.existsByUsername(normalizedUsername)) {
             throw new DuplicateResourceException("Username already exists");
         }
-        if (normalizedEmail != null && userRepository.existsByEmail(normalizedEmail)) {
+        if (normalizedEmail != null && userStore.existsByEmail(normalizedEmail)) {
             throw new DuplicateResourceException("Email already in use");
         }
-        if (normalizedPhone != null && userRepository.existsByPhoneNumber(normalizedPhone)) {
+        if (normalizedPhone != null && userStore.existsByPhoneNumber(normalizedPhone)) {
             throw new DuplicateResourceException("Phone number already in use");
         }
 
@@ -57,12 +70,12 @@ public class UserService {
         user.setEmail(normalizedEmail);
         user.setPhoneNumber(normalizedPhone);
         user.setStatus(User.UserStatus.OFFLINE);
-        return userRepository.save(user);
+        return userStore.save(user);
     }
 
     public User authenticate(String username, String rawPassword) {
         String normalizedUsername = username != null ? username.trim() : "";
-        User user = userRepository.findByUsername(normalizedUsername)
+        User user = userStore.findByUsername(normalizedUsername)
                 .orElseThrow(() -> new ResourceNotFoundException("Invalid username or password"));
 
         if (!passwordEncoder.matches(rawPassword, user.getPasswordHash())) {
@@ -74,26 +87,30 @@ public class UserService {
 
     // ---- Paginated Search Methods ----
     public Page<User> searchByUsername(String username, Pageable pageable) {
-        return userRepository.findByUsernameContainingIgnoreCase(username, pageable);
+        return userStore.searchByUsername(username, pageable);
     }
 
     public Page<User> searchByEmail(String email, Pageable pageable) {
-        return userRepository.findByEmailContainingIgnoreCase(email, pageable);
+        return userStore.searchByEmail(email, pageable);
     }
 
     public Page<User> searchByPhoneNumber(String phoneNumber, Pageable pageable) {
-        return userRepository.findByPhoneNumberContainingIgnoreCase(phoneNumber, pageable);
+        return userStore.searchByPhoneNumber(phoneNumber, pageable);
     }
 
     // ---- Existing methods ----
     public void updateUserStatus(@NonNull String userId, User.UserStatus status) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userStore.findById(userId);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             User.UserStatus oldStatus = user.getStatus();
+            boolean wasListedOnline = RoomMembership.isListedOnline(user);
             user.setStatus(status);
             user.setLastSeenAt(Instant.now());
-            userRepository.save(user);
+            userStore.save(user);
+            if (RoomMembership.isListedOnline(user) != wasListedOnline) {
+                relist(user);
+            }
 
             if (!oldStatus.equals(status) && messagingTemplate != null) {
                 Map<String, Object> statusEvent = Map.of(
@@ -109,62 +126,109 @@ public class UserService {
     }
 
     public Optional<User> findByUsername(String username) {
-        return userRepository.findByUsername(username);
+        return userStore.findByUsername(username);
     }
 
     public Optional<User> findByEmail(String email) {
-        return userRepository.findByEmail(email);
+        return userStore.findByEmail(email);
     }
 
     public Optional<User> findByPhoneNumber(String phoneNumber) {
-        return userRepository.findByPhoneNumber(phoneNumber);
+        return userStore.findByPhoneNumber(phoneNumber);
     }
 
     public Optional<User> findById(@NonNull String id) {
-        return userRepository.findById(id);
+        return userStore.findById(id);
+    }
+
+    /**
+     * Privacy-filtered summaries of the given users as seen by {@code viewer}, in request order; unknown
+     * ids are skipped. One batched user query plus one cached profile lookup, however many ids are given.
+     */
+    public List<UserSummaryDto> getUserSummaries(User viewer, Collection<String> userIds, int avatarSize) {
+        List<String> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<String, User> users = new HashMap<>();
+        for (User user : userStore.findByIds(ids)) {
+            users.put(user.getId(), user);
+        }
+        Map<String, String> avatarUrls = profileService.getAvatarUrls(users.keySet(), avatarSize);
+
+        List<UserSummaryDto> summaries = new ArrayList<>(users.size());
+        for (String id : ids) {
+            User user = users.get(id);
+            if (user == null) {
+                continue;
+            }
+            summaries.add(new UserSummaryDto(user.getId(), user.getUsername(), user.getDisplayName(),
+                    avatarUrls.get(user.getId()), visibleStatus(user, viewer), visibleLastSeen(user, viewer)));
+        }
+        return summaries;
+    }
+
+    /**
+     * The status {@code viewer} may see: OFFLINE for users who hide their online status from others.
+     */
+    public String visibleStatus(User user, User viewer) {
+        boolean self = viewer != null && user.getId().equals(viewer.getId());
+        if ((!user.isShowOnlineStatus() && !self) || user.getStatus() == null) {
+            return User.UserStatus.OFFLINE.toString();
+        }
+        return user.getStatus().toString();
+    }
+
+    /**
+     * Last seen is shared only between users who both show it.
+     */
+    public Instant visibleLastSeen(User user, User viewer) {
+        if (viewer == null) {
+            return null;
+        }
+        boolean self = user.getId().equals(viewer.getId());
+        return self || (user.isLastSeenVisible() && viewer.isLastSeenVisible()) ? user.getLastSeenAt() : null;
     }
 
     public List<User> getOnlineUsers() {
-        return userRepository.findByStatus(User.UserStatus.ONLINE);
+        return userStore.findByStatus(User.UserStatus.ONLINE);
     }
 
     public List<User> getAllUsers() {
-        return userRepository.findAll();
+        return userStore.findAll();
     }
 
     public User saveUser(@NonNull User user) {
-        return userRepository.save(user);
+        return userStore.save(user);
     }
 
     public boolean existsByUsername(String username) {
-        return userRepository.existsByUsername(username);
+        return userStore.existsByUsername(username);
     }
 
     public boolean existsByEmail(String email) {
-        return userRepository.existsByEmail(email);
+        return userStore.existsByEmail(email);
     }
 
     public boolean existsByPhoneNumber(String phoneNumber) {
-        return userRepository.existsByPhoneNumber(phoneNumber);
+        return userStore.existsByPhoneNumber(phoneNumber);
     }
 
     public void updateLastSeen(@NonNull String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userStore.findById(userId);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             user.setLastSeenAt(Instant.now());
-            userRepository.save(user);
+            userStore.save(user);
         }
     }
 
     public User updateUserProfile(String userId, String username, String phoneNumber, String email) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        String oldSortName = RoomMembership.sortName(user);
 
         if (username != null && !username.isBlank()) {
             String normalizedUsername = username.trim();
             if (!user.getUsername().equals(normalizedUsername)) {
-                if (userRepository.existsByUsername(normalizedUsername)) {
+                if (userStore.existsByUsername(normalizedUsername)) {
                     throw new DuplicateResourceException("Username already taken");
                 }
                 user.setUsername(normalizedUsername);
@@ -175,7 +239,7 @@ public class UserService {
         if (phoneNumber != null && !phoneNumber.isBlank()) {
             String normalizedPhone = phoneNumber.trim();
             if (!normalizedPhone.equals(user.getPhoneNumber())) {
-                if (userRepository.existsByPhoneNumber(normalizedPhone)) {
+                if (userStore.existsByPhoneNumber(normalizedPhone)) {
                     throw new DuplicateResourceException("Phone number already taken");
                 }
                 user.setPhoneNumber(normalizedPhone);
@@ -185,25 +249,36 @@ public class UserService {
         if (email != null && !email.isBlank()) {
             String normalizedEmail = email.trim().toLowerCase();
             if (!normalizedEmail.equals(user.getEmail())) {
-                if (userRepository.existsByEmail(normalizedEmail)) {
+                if (userStore.existsByEmail(normalizedEmail)) {
                     throw new DuplicateResourceException("Email already taken");
                 }
                 user.setEmail(normalizedEmail);
             }
         }
 
-        return userRepository.save(user);
+        User saved = userStore.save(user);
+        if (!RoomMembership.sortName(saved).equals(oldSortName)) {
+            relist(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Moves the user in the member list of every room they are in.
+     */
+    private void relist(User user) {
+        membershipStore.updateListing(user.getId(), RoomMembership.isListedOnline(user), RoomMembership.sortName(user));
     }
 
     /**
      * Find a user by ID or username. Tries ID first, then username.
      */
     public Optional<User> findByIdOrUsername(String identifier) {
-        Optional<User> user = userRepository.findById(identifier);
+        Optional<User> user = userStore.findById(identifier);
         if (user.isPresent()) {
             return user;
         }
-        return userRepository.findByUsername(identifier);
+        return userStore.findByUsername(identifier);
     }
 
     /**
@@ -212,7 +287,7 @@ public class UserService {
     public void deleteByIdOrUsername(String identifier) {
         Optional<User> user = findByIdOrUsername(identifier);
         if (user.isPresent()) {
-            userRepository.delete(user.get());
+            userStore.delete(user.get());
         } else {
             throw new ResourceNotFoundException("User not found with identifier: " + identifier);
         }
@@ -224,49 +299,53 @@ public class UserService {
      * Resolves a User entity from a username. Throws ResourceNotFoundException if not found.
      */
     public User resolveUserByUsername(String username) {
-        return userRepository.findByUsername(username)
+        return userStore.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 
     public boolean getReadReceiptsEnabled(String userId) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         return user.isReadReceiptsEnabled();
     }
 
     public boolean toggleReadReceipts(String userId, boolean enabled) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         user.setReadReceiptsEnabled(enabled);
-        userRepository.save(user);
+        userStore.save(user);
         return user.isReadReceiptsEnabled();
     }
 
     public boolean getShowOnlineStatus(String userId) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         return user.isShowOnlineStatus();
     }
 
     public boolean toggleOnlineStatus(String userId, boolean enabled) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        boolean wasListedOnline = RoomMembership.isListedOnline(user);
         user.setShowOnlineStatus(enabled);
-        userRepository.save(user);
+        userStore.save(user);
+        if (RoomMembership.isListedOnline(user) != wasListedOnline) {
+            relist(user);
+        }
         return user.isShowOnlineStatus();
     }
 
     public boolean getLastSeenVisible(String userId) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         return user.isLastSeenVisible();
     }
 
     public boolean toggleLastSeenVisibility(String userId, boolean enabled) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         user.setLastSeenVisible(enabled);
-        userRepository.save(user);
+        userStore.save(user);
         return user.isLastSeenVisible();
     }
 
@@ -274,9 +353,9 @@ public class UserService {
         if (username == null || username.isBlank()) {
             return;
         }
-        userRepository.findByUsername(username.trim()).ifPresent(user -> {
+        userStore.findByUsername(username.trim()).ifPresent(user -> {
             user.setTokenInvalidBefore(Instant.now());
-            userRepository.save(user);
+            userStore.save(user);
         });
     }
 
@@ -285,7 +364,7 @@ public class UserService {
     private static final Set<String> VALID_VISIBILITY = Set.of("PUBLIC", "CONNECTIONS", "NOBODY");
 
     public Map<String, String> getPrivacySettings(String userId) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
         return Map.of(
                 "usernameVisibility", user.getUsernameVisibility() != null ? user.getUsernameVisibility() : "PUBLIC",
@@ -296,7 +375,7 @@ public class UserService {
     }
 
     public Map<String, String> updatePrivacySettings(String userId, Map<String, String> settings) {
-        User user = userRepository.findById(userId)
+        User user = userStore.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         if (settings.containsKey("usernameVisibility") && VALID_VISIBILITY.contains(settings.get("usernameVisibility"))) {
@@ -312,7 +391,7 @@ public class UserService {
             user.setEmailVisibility(settings.get("emailVisibility"));
         }
 
-        userRepository.save(user);
+        userStore.save(user);
 
         return Map.of(
                 "usernameVisibility", user.getUsernameVisibility(),
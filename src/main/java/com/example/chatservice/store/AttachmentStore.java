@@ -0,0 +1,20 @@
+package com.example.chatservice.store;
+
+import com.example.chatservice.Model.Attachment;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage SPI for attachment metadata. The content itself is kept by {@code AttachmentStorage}.
+ */
+public interface AttachmentStore {
+
+    Attachment save(Attachment attachment);
+
+    Optional<Attachment> findById(String attachmentId);
+
+    List<Attachment> findBySha256(String sha256);
+
+    void deleteById(String attachmentId);
+}
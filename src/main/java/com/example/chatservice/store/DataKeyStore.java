@@ -0,0 +1,59 @@
+package com.example.chatservice.store;
+
+import com.example.chatservice.Model.DataKey;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage SPI for wrapped per-room data keys. Updates touch only the fields they name, so a rotation, a
+ * rewrap and a migration checkpoint made concurrently do not undo one another.
+ */
+public interface DataKeyStore {
+
+    /**
+     * Inserts a key whose id is already assigned. Returns false, without modifying the stored copy, if a key
+     * with that id exists.
+     */
+    boolean insertIfAbsent(DataKey key);
+
+    /**
+     * Marks a key RETIRED, whatever its state.
+     */
+    void retire(String keyId);
+
+    /**
+     * Replaces the wrapped key material and the id of the master key that wrapped it.
+     */
+    void rewrap(String keyId, String wrappedKey, String masterKeyId);
+
+    /**
+     * Records re-encryption progress of a MIGRATING key. Returns false if the key is no longer migrating.
+     */
+    boolean recordProgress(String keyId, String migratedUpTo, long migratedCount);
+
+    /**
+     * Moves a MIGRATING key to ACTIVE. Returns false if the key is no longer migrating.
+     */
+    boolean markActive(String keyId);
+
+    Optional<DataKey> findById(String keyId);
+
+    /**
+     * The room's highest version, whatever its state.
+     */
+    Optional<DataKey> findLatest(String roomId);
+
+    List<DataKey> findByState(DataKey.State state, int limit);
+
+    /**
+     * Keys wrapped under any master key other than {@code masterKeyId}.
+     */
+    List<DataKey> findWrappedByOtherThan(String masterKeyId, int limit);
+
+    /**
+     * ACTIVE keys created before {@code cutoff}.
+     */
+    List<DataKey> findActiveCreatedBefore(Instant cutoff, int limit);
+}
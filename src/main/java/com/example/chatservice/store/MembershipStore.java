@@ -0,0 +1,92 @@
+package com.example.chatservice.store;
+
+import com.example.chatservice.Model.RoomMembership;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Storage SPI for room memberships. A (room, user) pair has at most one membership; leaving a room
+ * deactivates it rather than deleting it.
+ */
+public interface MembershipStore {
+
+    RoomMembership save(RoomMembership membership);
+
+    List<RoomMembership> saveAll(List<RoomMembership> memberships);
+
+    Optional<RoomMembership> find(String roomId, String userId);
+
+    boolean exists(String roomId, String userId);
+
+    List<RoomMembership> findActiveByRoom(String roomId);
+
+    List<RoomMembership> findActiveByUser(String userId);
+
+    /**
+     * The active members of a room as plain membership fields, without resolving the user or room
+     * references.
+     */
+    List<ActiveMember> findActiveMembers(String roomId);
+
+    /**
+     * Those of {@code userIds} who are active members of the room.
+     */
+    Set<String> findActiveUserIds(String roomId, Collection<String> userIds);
+
+    /**
+     * Up to {@code limit} active members of a room in member list order, (listTier, sortName, userId),
+     * starting after {@code after}, or from the top when it is null. Members without a list position are
+     * left out; {@link #findActiveUnlisted} finds them.
+     */
+    List<ActiveMember> findActiveMembersPage(String roomId, ListPosition after, int limit);
+
+    /**
+     * Up to {@code limit} active members of a room saved before list positions were kept.
+     */
+    List<ActiveMember> findActiveUnlisted(String roomId, int limit);
+
+    void setListPositions(String roomId, List<ListPosition> positions);
+
+    /**
+     * Moves all of a user's memberships to match a new name or visible presence. Admins and moderators keep
+     * their tier.
+     */
+    void updateListing(String userId, boolean online, String sortName);
+
+    /**
+     * Number of active members, read from a counter that {@link #adjustActiveCount} keeps up to date.
+     */
+    long countActive(String roomId);
+
+    /**
+     * {@link #countActive(String)} for several rooms at once, in one read where the backend allows it.
+     */
+    Map<String, Long> countActive(Collection<String> roomIds);
+
+    void adjustActiveCount(String roomId, long delta);
+
+    record ActiveMember(String userId, RoomMembership.Role role, boolean canSendMessages, Instant joinedAt,
+                        Integer listTier, String sortName) {
+    }
+
+    /**
+     * A member's place in the member list.
+     */
+    record ListPosition(int tier, String sortName, String userId) implements Comparable<ListPosition> {
+
+        private static final Comparator<ListPosition> ORDER = Comparator.comparingInt(ListPosition::tier)
+                .thenComparing(ListPosition::sortName)
+                .thenComparing(ListPosition::userId);
+
+        @Override
+        public int compareTo(ListPosition other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
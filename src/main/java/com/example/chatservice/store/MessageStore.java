@@ -0,0 +1,140 @@
+package com.example.chatservice.store;
+
+import com.example.chatservice.Model.Message;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage SPI for chat messages. Services depend on this instead of a Spring Data repository so the
+ * backing store can be swapped (MongoDB by default, in-memory with the {@code inmemory} profile).
+ */
+public interface MessageStore {
+
+    /**
+     * Qualifier carried by the concrete backends, so a decorating {@code @Primary} store can inject them.
+     */
+    String BACKEND = "messageStoreBackend";
+
+    /**
+     * A new ciphertext for a message, applied only if the message still holds {@code expected}.
+     */
+    record ContentChange(String messageId, String expected, String replacement) {
+    }
+
+    /**
+     * One recipient's receipt for a message moving from SENT to DELIVERED.
+     */
+    record DeliveryAck(String messageId, String userId) {
+    }
+
+    Message save(Message message);
+
+    /**
+     * Marks each recipient's receipt DELIVERED at {@code deliveredAt} if it is still SENT, and recomputes the
+     * status of the messages it touched, without writing any other field. One round trip where the backend
+     * allows it.
+     */
+    void markDelivered(List<DeliveryAck> acks, Instant deliveredAt);
+
+    /**
+     * Inserts a message whose id is already assigned. Returns false, without modifying the stored copy,
+     * if a message with that id exists.
+     */
+    boolean insertIfAbsent(Message message);
+
+    /**
+     * Inserts messages with assigned ids in order, in as few round trips as the backend allows. Messages
+     * whose id already exists are skipped; their positions in {@code messages} are returned.
+     */
+    List<Integer> insertAll(List<Message> messages);
+
+    Optional<Message> findById(String messageId);
+
+    /**
+     * Messages in a room, not sent by the user, whose receipt for that user has the given status.
+     */
+    List<Message> findByReceiptStatus(String roomId, String userId, Message.MessageStatus status);
+
+    /**
+     * Sequenced messages in a room, up to {@code maxSeq}, that still have a SENT receipt for at least one of
+     * the users.
+     */
+    List<Message> findAwaitingDelivery(String roomId, Collection<String> userIds, long maxSeq);
+
+    /**
+     * Newest-first page of messages the user has not deleted for themselves.
+     */
+    Page<Message> findVisible(String roomId, String userId, Pageable pageable);
+
+    /**
+     * Newest-first list of at most {@code limit} messages the user has not deleted for themselves.
+     */
+    List<Message> findRecentVisible(String roomId, String userId, int limit);
+
+    /**
+     * Newest-first stream of at most {@code limit} messages the user has not deleted for themselves, read
+     * from the store in batches as the stream is consumed. The caller must close it.
+     */
+    Stream<Message> streamVisible(String roomId, String userId, int limit);
+
+    /**
+     * Every message in a room, oldest first.
+     */
+    List<Message> findAllInRoom(String roomId);
+
+    /**
+     * Every message in a room, oldest first, read from the store in batches as the stream is consumed. The
+     * room and sender references may be left unresolved; use {@link Message#getSenderId()}. The caller must
+     * close the stream.
+     */
+    Stream<Message> streamRoom(String roomId);
+
+    /**
+     * Oldest-first list of at most {@code limit} messages in a room with a sequence number above
+     * {@code afterSeq}.
+     */
+    List<Message> findAfterSequence(String roomId, long afterSeq, int limit);
+
+    /**
+     * At most {@code limit} messages in a room with an id above {@code afterId} (from the first one when
+     * null), in id order. Only the id and encrypted content are guaranteed to be loaded.
+     */
+    List<Message> findContentPage(String roomId, String afterId, int limit);
+
+    /**
+     * Applies each change whose message still holds the expected content, without touching any other field,
+     * and returns how many were applied.
+     */
+    long replaceContent(List<ContentChange> changes);
+
+    /**
+     * Every message that has an expiry, read from the store in batches as the stream is consumed. Only the
+     * id, room id, sequence number, attachment id, creation time and expiry are guaranteed to be loaded. The
+     * caller must close the stream.
+     */
+    Stream<Message> streamExpiring();
+
+    long countByRoom(String roomId);
+
+    /**
+     * Adds {@code delta} to the view count of every message in a room with a sequence number between
+     * {@code fromSeq} and {@code toSeq}, inclusive.
+     */
+    void incrementViews(String roomId, long fromSeq, long toSeq, long delta);
+
+    void deleteById(String messageId);
+
+    /**
+     * Deletes a batch of messages in one round trip where the backend allows it. Ids that no longer exist
+     * are ignored.
+     */
+    void deleteByIds(Collection<String> messageIds);
+
+    void deleteByRoom(String roomId);
+}
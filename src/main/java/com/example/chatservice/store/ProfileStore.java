@@ -0,0 +1,21 @@
+package com.example.chatservice.store;
+
+import com.example.chatservice.Model.Profile;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage SPI for user profiles (one per user).
+ */
+public interface ProfileStore {
+
+    Profile save(Profile profile);
+
+    Optional<Profile> findByUserId(String userId);
+
+    List<Profile> findByUserIds(Collection<String> userIds);
+
+    void deleteByUserId(String userId);
+}
@@ -0,0 +1,37 @@
+package com.example.chatservice.store;
+
+import com.example.chatservice.Model.ChatRoom;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage SPI for chat rooms.
+ */
+public interface RoomStore {
+
+    ChatRoom save(ChatRoom room);
+
+    Optional<ChatRoom> findById(String roomId);
+
+    Optional<ChatRoom> findByName(String name);
+
+    Optional<ChatRoom> findByNameAndType(String name, ChatRoom.RoomType roomType);
+
+    Optional<ChatRoom> findByInviteToken(String inviteToken);
+
+    List<ChatRoom> findPublic();
+
+    List<ChatRoom> findPublicByType(ChatRoom.RoomType roomType);
+
+    /**
+     * Public rooms of a type with only the fields a room listing shows; {@code createdBy} is not loaded.
+     */
+    List<ChatRoom> findPublicListings(ChatRoom.RoomType roomType);
+
+    List<ChatRoom> searchPublicByName(String query, ChatRoom.RoomType roomType);
+
+    List<ChatRoom> findCreatedBy(String userId);
+
+    void deleteById(String roomId);
+}
@@ -0,0 +1,73 @@
+package com.example.chatservice.store;
+
+import com.example.chatservice.Model.ScheduledMessage;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage SPI for scheduled messages. A PENDING message is held by a claim while its lease lasts; edits,
+ * cancellation and other claims leave it alone until the lease has run out.
+ */
+public interface ScheduledMessageStore {
+
+    /**
+     * Outcome of sending a claimed message. Applied only while {@code leaseToken} still holds it.
+     */
+    record Completion(String scheduledId, String leaseToken, ScheduledMessage.State state, String messageId,
+                      String failure) {
+    }
+
+    ScheduledMessage insert(ScheduledMessage message);
+
+    Optional<ScheduledMessage> findById(String scheduledId);
+
+    /**
+     * PENDING messages the user scheduled in a room, soonest first.
+     */
+    List<ScheduledMessage> findPending(String senderId, String roomId);
+
+    long countPending(String senderId);
+
+    /**
+     * At most {@code limit} PENDING messages due before {@code until}, soonest first, whether leased or not.
+     * Only the id and due time are guaranteed to be loaded.
+     */
+    List<ScheduledMessage> findPendingDueBefore(Instant until, int limit);
+
+    /**
+     * Sets the non-null fields on a PENDING message that is not leased, and returns it as updated; empty if
+     * it has been sent, cancelled or is being sent.
+     */
+    Optional<ScheduledMessage> updatePending(String scheduledId, String encryptedContent, Long ttlSeconds,
+                                             Instant dueAt, Instant now);
+
+    /**
+     * Cancels a PENDING message that is not leased. Returns false if it has been sent, cancelled or is being
+     * sent.
+     */
+    boolean cancel(String scheduledId, Instant now);
+
+    /**
+     * Leases those of {@code scheduledIds} that are PENDING, due by {@code now} and not leased, with
+     * {@code leaseToken} until {@code leaseUntil}, and returns the ones it got. One write for the whole
+     * batch, plus a read of what it claimed where the backend cannot return that from the write.
+     */
+    List<ScheduledMessage> claim(Collection<String> scheduledIds, String leaseToken, Instant now,
+                                 Instant leaseUntil);
+
+    /**
+     * Moves the lease on those of {@code scheduledIds} still held by {@code leaseToken} to {@code leaseUntil},
+     * and returns their ids. A message missing from the result was claimed by someone else and must not be
+     * sent.
+     */
+    List<String> renew(Collection<String> scheduledIds, String leaseToken, Instant leaseUntil);
+
+    /**
+     * Records the outcome of each claimed message and releases its lease, in one round trip where the
+     * backend allows it. Returns how many were recorded; the rest had lost their lease.
+     */
+    int complete(List<Completion> completions, Instant now);
+}
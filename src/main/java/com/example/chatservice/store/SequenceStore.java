@@ -0,0 +1,21 @@
+package com.example.chatservice.store;
+
+/**
+ * Storage SPI for per-room message sequence counters. Counters are handed out in blocks, so the store is
+ * touched once per block rather than once per message.
+ */
+public interface SequenceStore {
+
+    /**
+     * Atomically reserves the next {@code count} sequence numbers of a room and returns the highest one
+     * reserved. The first reservation for a room starts after 0.
+     */
+    long reserve(String roomId, int count);
+
+    /**
+     * The highest sequence number reserved in a room so far, or 0 if none has been.
+     */
+    long reserved(String roomId);
+
+    void delete(String roomId);
+}
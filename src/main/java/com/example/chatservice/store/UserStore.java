@@ -0,0 +1,46 @@
+package com.example.chatservice.store;
+
+import com.example.chatservice.Model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage SPI for users. Username, email and phone number are unique; implementations report a
+ * violation with {@link org.springframework.dao.DuplicateKeyException}.
+ */
+public interface UserStore {
+
+    User save(User user);
+
+    Optional<User> findById(String userId);
+
+    List<User> findByIds(Collection<String> userIds);
+
+    Optional<User> findByUsername(String username);
+
+    Optional<User> findByEmail(String email);
+
+    Optional<User> findByPhoneNumber(String phoneNumber);
+
+    boolean existsByUsername(String username);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByPhoneNumber(String phoneNumber);
+
+    Page<User> searchByUsername(String fragment, Pageable pageable);
+
+    Page<User> searchByEmail(String fragment, Pageable pageable);
+
+    Page<User> searchByPhoneNumber(String fragment, Pageable pageable);
+
+    List<User> findByStatus(User.UserStatus status);
+
+    List<User> findAll();
+
+    void delete(User user);
+}
@@ -0,0 +1,47 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.Model.Attachment;
+import com.example.chatservice.store.AttachmentStore;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Profile("inmemory")
+public class InMemoryAttachmentStore implements AttachmentStore {
+
+    private final Map<String, Attachment> byId = new ConcurrentHashMap<>();
+
+    @Override
+    public Attachment save(Attachment attachment) {
+        if (attachment.getId() == null) {
+            attachment.setId(new ObjectId().toHexString());
+        }
+        if (attachment.getCreatedAt() == null) {
+            attachment.setCreatedAt(Instant.now());
+        }
+        byId.put(attachment.getId(), attachment);
+        return attachment;
+    }
+
+    @Override
+    public Optional<Attachment> findById(String attachmentId) {
+        return Optional.ofNullable(byId.get(attachmentId));
+    }
+
+    @Override
+    public List<Attachment> findBySha256(String sha256) {
+        return byId.values().stream().filter(a -> sha256.equals(a.getSha256())).toList();
+    }
+
+    @Override
+    public void deleteById(String attachmentId) {
+        byId.remove(attachmentId);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.Model.DataKey;
+import com.example.chatservice.store.DataKeyStore;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Profile("inmemory")
+public class InMemoryDataKeyStore implements DataKeyStore {
+
+    private final Map<String, DataKey> byId = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean insertIfAbsent(DataKey key) {
+        return byId.putIfAbsent(key.getId(), key) == null;
+    }
+
+    @Override
+    public void retire(String keyId) {
+        DataKey key = byId.get(keyId);
+        if (key != null) {
+            synchronized (key) {
+                key.setState(DataKey.State.RETIRED);
+            }
+        }
+    }
+
+    @Override
+    public void rewrap(String keyId, String wrappedKey, String masterKeyId) {
+        DataKey key = byId.get(keyId);
+        if (key != null) {
+            synchronized (key) {
+                key.setWrappedKey(wrappedKey);
+                key.setMasterKeyId(masterKeyId);
+            }
+        }
+    }
+
+    @Override
+    public boolean recordProgress(String keyId, String migratedUpTo, long migratedCount) {
+        DataKey key = byId.get(keyId);
+        if (key == null) {
+            return false;
+        }
+        synchronized (key) {
+            if (key.getState() != DataKey.State.MIGRATING) {
+                return false;
+            }
+            key.setMigratedUpTo(migratedUpTo);
+            key.setMigratedCount(migratedCount);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean markActive(String keyId) {
+        DataKey key = byId.get(keyId);
+        if (key == null) {
+            return false;
+        }
+        synchronized (key) {
+            if (key.getState() != DataKey.State.MIGRATING) {
+                return false;
+            }
+            key.setState(DataKey.State.ACTIVE);
+            key.setMigratedUpTo(null);
+            return true;
+        }
+    }
+
+    @Override
+    public Optional<DataKey> findById(String keyId) {
+        return Optional.ofNullable(byId.get(keyId));
+    }
+
+    @Override
+    public Optional<DataKey> findLatest(String roomId) {
+        return byId.values().stream()
+                .filter(key -> roomId.equals(key.getRoomId()))
+                .max(Comparator.comparingInt(DataKey::getVersion));
+    }
+
+    @Override
+    public List<DataKey> findByState(DataKey.State state, int limit) {
+        return byId.values().stream().filter(key -> key.getState() == state).limit(limit).toList();
+    }
+
+    @Override
+    public List<DataKey> findWrappedByOtherThan(String masterKeyId, int limit) {
+        return byId.values().stream()
+                .filter(key -> !masterKeyId.equals(key.getMasterKeyId()))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<DataKey> findActiveCreatedBefore(Instant cutoff, int limit) {
+        return byId.values().stream()
+                .filter(key -> key.getState() == DataKey.State.ACTIVE && key.getCreatedAt().isBefore(cutoff))
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.Model.RoomMembership;
+import com.example.chatservice.store.MembershipStore;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Concurrent in-memory membership store with hash indexes by room and by user, mirroring the
+ * unique (roomId, userId) index of the Mongo collection.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryMembershipStore implements MembershipStore {
+
+    private final Map<String, Map<String, RoomMembership>> byRoom = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, RoomMembership>> byUser = new ConcurrentHashMap<>();
+    private final Map<String, Long> activeCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized RoomMembership save(RoomMembership membership) {
+        RoomMembership existing = byRoom.getOrDefault(membership.getRoomId(), Map.of()).get(membership.getUserId());
+        if (existing != null && !existing.getId().equals(membership.getId())) {
+            throw new DuplicateKeyException("Membership already exists for room " + membership.getRoomId()
+                    + " and user " + membership.getUserId());
+        }
+        if (membership.getId() == null) {
+            membership.setId(new ObjectId().toHexString());
+        }
+        if (membership.getJoinedAt() == null) {
+            membership.setJoinedAt(Instant.now());
+        }
+        membership.refreshListing();
+        byRoom.computeIfAbsent(membership.getRoomId(), id -> new ConcurrentHashMap<>())
+                .put(membership.getUserId(), membership);
+        byUser.computeIfAbsent(membership.getUserId(), id -> new ConcurrentHashMap<>())
+                .put(membership.getRoomId(), membership);
+        return membership;
+    }
+
+    @Override
+    public List<RoomMembership> saveAll(List<RoomMembership> memberships) {
+        memberships.forEach(this::save);
+        return memberships;
+    }
+
+    @Override
+    public Optional<RoomMembership> find(String roomId, String userId) {
+        return Optional.ofNullable(byRoom.getOrDefault(roomId, Map.of()).get(userId));
+    }
+
+    @Override
+    public boolean exists(String roomId, String userId) {
+        return byRoom.getOrDefault(roomId, Map.of()).containsKey(userId);
+    }
+
+    @Override
+    public List<RoomMembership> findActiveByRoom(String roomId) {
+        return byRoom.getOrDefault(roomId, Map.of()).values().stream()
+                .filter(RoomMembership::isActive)
+                .toList();
+    }
+
+    @Override
+    public List<RoomMembership> findActiveByUser(String userId) {
+        return byUser.getOrDefault(userId, Map.of()).values().stream()
+                .filter(RoomMembership::isActive)
+                .toList();
+    }
+
+    @Override
+    public List<ActiveMember> findActiveMembers(String roomId) {
+        return findActiveByRoom(roomId).stream()
+                .map(InMemoryMembershipStore::toActiveMember)
+                .toList();
+    }
+
+    @Override
+    public Set<String> findActiveUserIds(String roomId, Collection<String> userIds) {
+        Map<String, RoomMembership> members = byRoom.getOrDefault(roomId, Map.of());
+        return userIds.stream()
+                .filter(userId -> {
+                    RoomMembership membership = members.get(userId);
+                    return membership != null && membership.isActive();
+                })
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<ActiveMember> findActiveMembersPage(String roomId, ListPosition after, int limit) {
+        return findActiveByRoom(roomId).stream()
+                .filter(m -> m.getListTier() != null)
+                .filter(m -> after == null || position(m).compareTo(after) > 0)
+                .sorted(Comparator.comparing(InMemoryMembershipStore::position))
+                .limit(limit)
+                .map(InMemoryMembershipStore::toActiveMember)
+                .toList();
+    }
+
+    @Override
+    public List<ActiveMember> findActiveUnlisted(String roomId, int limit) {
+        return findActiveByRoom(roomId).stream()
+                .filter(m -> m.getListTier() == null)
+                .limit(limit)
+                .map(InMemoryMembershipStore::toActiveMember)
+                .toList();
+    }
+
+    @Override
+    public void setListPositions(String roomId, List<ListPosition> positions) {
+        Map<String, RoomMembership> members = byRoom.getOrDefault(roomId, Map.of());
+        for (ListPosition position : positions) {
+            RoomMembership membership = members.get(position.userId());
+            if (membership != null) {
+                membership.setListTier(position.tier());
+                membership.setSortName(position.sortName());
+            }
+        }
+    }
+
+    @Override
+    public void updateListing(String userId, boolean online, String sortName) {
+        for (RoomMembership membership : byUser.getOrDefault(userId, Map.of()).values()) {
+            membership.setSortName(sortName);
+            if (membership.getRole() == RoomMembership.Role.MEMBER) {
+                membership.setListTier(online ? 2 : 3);
+            }
+        }
+    }
+
+    @Override
+    public long countActive(String roomId) {
+        return activeCounts.getOrDefault(roomId, 0L);
+    }
+
+    @Override
+    public Map<String, Long> countActive(Collection<String> roomIds) {
+        Map<String, Long> counts = new HashMap<>();
+        for (String roomId : roomIds) {
+            counts.put(roomId, countActive(roomId));
+        }
+        return counts;
+    }
+
+    @Override
+    public void adjustActiveCount(String roomId, long delta) {
+        activeCounts.merge(roomId, delta, Long::sum);
+    }
+
+    private static ActiveMember toActiveMember(RoomMembership m) {
+        return new ActiveMember(m.getUserId(), m.getRole(), m.isCanSendMessages(), m.getJoinedAt(),
+                m.getListTier(), m.getSortName());
+    }
+
+    private static ListPosition position(RoomMembership m) {
+        return new ListPosition(m.getListTier(), m.getSortName(), m.getUserId());
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.store.MessageStore;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent in-memory message store. Each room keeps its messages in a skip-list ordered by
+ * (createdAt, id), so history pages and "latest message" lookups walk only the entries they return.
+ * History paging is always newest-first, which is the only order the services ask for.
+ */
+@Component
+@Profile("inmemory")
+@Qualifier(MessageStore.BACKEND)
+public class InMemoryMessageStore implements MessageStore {
+
+    private final Map<String, Message> byId = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListMap<MessageKey, Message>> byRoom = new ConcurrentHashMap<>();
+
+    @Override
+    public Message save(Message message) {
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+        }
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(Instant.now());
+        }
+        Message previous = byId.put(message.getId(), message);
+        if (previous != null && previous.getRoomId() != null) {
+            NavigableMap<MessageKey, Message> oldRoom = byRoom.get(previous.getRoomId());
+            if (oldRoom != null) {
+                oldRoom.remove(MessageKey.of(previous));
+            }
+        }
+        byRoom.computeIfAbsent(message.getRoomId(), id -> new ConcurrentSkipListMap<>())
+                .put(MessageKey.of(message), message);
+        return message;
+    }
+
+    @Override
+    public void markDelivered(List<DeliveryAck> acks, Instant deliveredAt) {
+        for (DeliveryAck ack : acks) {
+            Message message = byId.get(ack.messageId());
+            if (message == null) {
+                continue;
+            }
+            synchronized (message) {
+                for (Message.MessageReceipt receipt : message.getReceipts()) {
+                    if (ack.userId().equals(receipt.getUserId())
+                            && receipt.getStatus() == Message.MessageStatus.SENT) {
+                        receipt.setStatus(Message.MessageStatus.DELIVERED);
+                        receipt.setDeliveredAt(deliveredAt);
+                    }
+                }
+                message.recalculateStatus();
+            }
+        }
+    }
+
+    @Override
+    public boolean insertIfAbsent(Message message) {
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(Instant.now());
+        }
+        if (byId.putIfAbsent(message.getId(), message) != null) {
+            return false;
+        }
+        byRoom.computeIfAbsent(message.getRoomId(), id -> new ConcurrentSkipListMap<>())
+                .put(MessageKey.of(message), message);
+        return true;
+    }
+
+    @Override
+    public List<Integer> insertAll(List<Message> messages) {
+        List<Integer> skipped = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (!insertIfAbsent(messages.get(i))) {
+                skipped.add(i);
+            }
+        }
+        return skipped;
+    }
+
+    @Override
+    public Optional<Message> findById(String messageId) {
+        return Optional.ofNullable(byId.get(messageId));
+    }
+
+    @Override
+    public List<Message> findByReceiptStatus(String roomId, String userId, Message.MessageStatus status) {
+        List<Message> result = new ArrayList<>();
+        for (Message message : room(roomId).values()) {
+            if (userId.equals(message.getSenderId()) || message.getReceipts() == null) {
+                continue;
+            }
+            boolean matches = message.getReceipts().stream()
+                    .anyMatch(r -> userId.equals(r.getUserId()) && r.getStatus() == status);
+            if (matches) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Message> findAwaitingDelivery(String roomId, Collection<String> userIds, long maxSeq) {
+        List<Message> result = new ArrayList<>();
+        for (Message message : room(roomId).values()) {
+            if (message.getSeq() <= 0 || message.getSeq() > maxSeq || message.getReceipts() == null) {
+                continue;
+            }
+            boolean matches = message.getReceipts().stream()
+                    .anyMatch(r -> userIds.contains(r.getUserId()) && r.getStatus() == Message.MessageStatus.SENT);
+            if (matches) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Page<Message> findVisible(String roomId, String userId, Pageable pageable) {
+        List<Message> content = new ArrayList<>(pageable.getPageSize());
+        long offset = pageable.getOffset();
+        long total = 0;
+        Instant now = Instant.now();
+        for (Message message : room(roomId).descendingMap().values()) {
+            if (isDeletedFor(message, userId) || message.isExpired(now)) {
+                continue;
+            }
+            if (total >= offset && content.size() < pageable.getPageSize()) {
+                content.add(message);
+            }
+            total++;
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    @Override
+    public List<Message> findRecentVisible(String roomId, String userId, int limit) {
+        List<Message> result = new ArrayList<>(limit);
+        Instant now = Instant.now();
+        for (Message message : room(roomId).descendingMap().values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!isDeletedFor(message, userId) && !message.isExpired(now)) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Message> streamVisible(String roomId, String userId, int limit) {
+        Instant now = Instant.now();
+        return room(roomId).descendingMap().values().stream()
+                .filter(message -> !isDeletedFor(message, userId) && !message.isExpired(now))
+                .limit(limit);
+    }
+
+    @Override
+    public List<Message> findAllInRoom(String roomId) {
+        Instant now = Instant.now();
+        return room(roomId).values().stream()
+                .filter(message -> !message.isExpired(now))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public Stream<Message> streamRoom(String roomId) {
+        Instant now = Instant.now();
+        return room(roomId).values().stream().filter(message -> !message.isExpired(now));
+    }
+
+    @Override
+    public List<Message> findAfterSequence(String roomId, long afterSeq, int limit) {
+        Instant now = Instant.now();
+        return room(roomId).values().stream()
+                .filter(message -> message.getSeq() > afterSeq && !message.isExpired(now))
+                .sorted(Comparator.comparingLong(Message::getSeq))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<Message> findContentPage(String roomId, String afterId, int limit) {
+        return room(roomId).values().stream()
+                .filter(message -> afterId == null || message.getId().compareTo(afterId) > 0)
+                .sorted(Comparator.comparing(Message::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public long replaceContent(List<ContentChange> changes) {
+        long applied = 0;
+        for (ContentChange change : changes) {
+            Message message = byId.get(change.messageId());
+            if (message == null) {
+                continue;
+            }
+            synchronized (message) {
+                if (change.expected().equals(message.getEncryptedContent())) {
+                    message.setEncryptedContent(change.replacement());
+                    applied++;
+                }
+            }
+        }
+        return applied;
+    }
+
+    @Override
+    public Stream<Message> streamExpiring() {
+        return byId.values().stream().filter(message -> message.getExpiresAt() != null);
+    }
+
+    @Override
+    public long countByRoom(String roomId) {
+        return room(roomId).size();
+    }
+
+    @Override
+    public void incrementViews(String roomId, long fromSeq, long toSeq, long delta) {
+        for (Message message : room(roomId).values()) {
+            if (message.getSeq() >= fromSeq && message.getSeq() <= toSeq) {
+                synchronized (message) {
+                    message.setViewCount(message.getViewCount() + delta);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void deleteById(String messageId) {
+        Message removed = byId.remove(messageId);
+        if (removed != null) {
+            room(removed.getRoomId()).remove(MessageKey.of(removed));
+        }
+    }
+
+    @Override
+    public void deleteByIds(Collection<String> messageIds) {
+        messageIds.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteByRoom(String roomId) {
+        ConcurrentSkipListMap<MessageKey, Message> removed = byRoom.remove(roomId);
+        if (removed != null) {
+            removed.keySet().forEach(key -> byId.remove(key.id()));
+        }
+    }
+
+    private NavigableMap<MessageKey, Message> room(String roomId) {
+        NavigableMap<MessageKey, Message> messages = roomId != null ? byRoom.get(roomId) : null;
+        return messages != null ? messages : new ConcurrentSkipListMap<>();
+    }
+
+    private static boolean isDeletedFor(Message message, String userId) {
+        return message.getDeletedForUsers() != null && message.getDeletedForUsers().contains(userId);
+    }
+
+    private record MessageKey(Instant createdAt, String id) implements Comparable<MessageKey> {
+
+        static MessageKey of(Message message) {
+            return new MessageKey(message.getCreatedAt(), message.getId());
+        }
+
+        @Override
+        public int compareTo(MessageKey other) {
+            int byTime = createdAt.compareTo(other.createdAt);
+            return byTime != 0 ? byTime : id.compareTo(other.id);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.Model.Profile;
+import com.example.chatservice.store.ProfileStore;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent in-memory profile store keyed by user id. Reads hand out copies because
+ * {@code ProfileService.getProfileForViewer} redacts the returned profile in place.
+ */
+@Component
+@org.springframework.context.annotation.Profile("inmemory")
+public class InMemoryProfileStore implements ProfileStore {
+
+    private final Map<String, Profile> byUserId = new ConcurrentHashMap<>();
+
+    @Override
+    public Profile save(Profile profile) {
+        if (profile.getId() == null) {
+            profile.setId(new ObjectId().toHexString());
+        }
+        Instant now = Instant.now();
+        if (profile.getCreatedAt() == null) {
+            profile.setCreatedAt(now);
+        }
+        profile.setUpdatedAt(now);
+        byUserId.put(profile.getUserId(), copy(profile));
+        return profile;
+    }
+
+    @Override
+    public Optional<Profile> findByUserId(String userId) {
+        return Optional.ofNullable(byUserId.get(userId)).map(InMemoryProfileStore::copy);
+    }
+
+    @Override
+    public List<Profile> findByUserIds(Collection<String> userIds) {
+        return userIds.stream()
+                .map(byUserId::get)
+                .filter(Objects::nonNull)
+                .map(InMemoryProfileStore::copy)
+                .toList();
+    }
+
+    @Override
+    public void deleteByUserId(String userId) {
+        byUserId.remove(userId);
+    }
+
+    private static Profile copy(Profile source) {
+        Profile copy = new Profile();
+        copy.setId(source.getId());
+        copy.setUserId(source.getUserId());
+        copy.setAvatarUrl(source.getAvatarUrl());
+        copy.setAvatarVariants(source.getAvatarVariants() != null ? new HashMap<>(source.getAvatarVariants()) : null);
+        copy.setBio(source.getBio());
+        copy.setProfilePicVisibility(source.getProfilePicVisibility());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+}
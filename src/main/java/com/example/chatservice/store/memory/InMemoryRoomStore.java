@@ -0,0 +1,138 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.store.RoomStore;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent in-memory room store with hash indexes on name and invite token.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryRoomStore implements RoomStore {
+
+    private final Map<String, ChatRoom> byId = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> idsByName = new ConcurrentHashMap<>();
+    private final Map<String, String> idByInviteToken = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized ChatRoom save(ChatRoom room) {
+        if (room.getId() == null) {
+            room.setId(new ObjectId().toHexString());
+        }
+        if (room.getInviteToken() != null) {
+            String owner = idByInviteToken.get(room.getInviteToken());
+            if (owner != null && !owner.equals(room.getId())) {
+                throw new DuplicateKeyException("Duplicate key on chat_rooms.inviteToken");
+            }
+        }
+        Instant now = Instant.now();
+        if (room.getCreatedAt() == null) {
+            room.setCreatedAt(now);
+        }
+        room.setUpdatedAt(now);
+
+        unindex(byId.put(room.getId(), room));
+        if (room.getName() != null) {
+            idsByName.computeIfAbsent(room.getName(), name -> ConcurrentHashMap.newKeySet()).add(room.getId());
+        }
+        if (room.getInviteToken() != null) {
+            idByInviteToken.put(room.getInviteToken(), room.getId());
+        }
+        return room;
+    }
+
+    @Override
+    public Optional<ChatRoom> findById(String roomId) {
+        return Optional.ofNullable(byId.get(roomId));
+    }
+
+    @Override
+    public Optional<ChatRoom> findByName(String name) {
+        return roomsNamed(name).stream().findFirst();
+    }
+
+    @Override
+    public Optional<ChatRoom> findByNameAndType(String name, ChatRoom.RoomType roomType) {
+        return roomsNamed(name).stream().filter(room -> room.getRoomType() == roomType).findFirst();
+    }
+
+    @Override
+    public Optional<ChatRoom> findByInviteToken(String inviteToken) {
+        String id = inviteToken != null ? idByInviteToken.get(inviteToken) : null;
+        return id != null ? Optional.ofNullable(byId.get(id)) : Optional.empty();
+    }
+
+    @Override
+    public List<ChatRoom> findPublic() {
+        return byId.values().stream().filter(room -> !room.isPrivate()).toList();
+    }
+
+    @Override
+    public List<ChatRoom> findPublicByType(ChatRoom.RoomType roomType) {
+        return byId.values().stream()
+                .filter(room -> !room.isPrivate() && room.getRoomType() == roomType)
+                .toList();
+    }
+
+    @Override
+    public List<ChatRoom> findPublicListings(ChatRoom.RoomType roomType) {
+        return findPublicByType(roomType);
+    }
+
+    @Override
+    public List<ChatRoom> searchPublicByName(String query, ChatRoom.RoomType roomType) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        return findPublicByType(roomType).stream()
+                .filter(room -> room.getName() != null && room.getName().toLowerCase(Locale.ROOT).contains(needle))
+                .toList();
+    }
+
+    @Override
+    public List<ChatRoom> findCreatedBy(String userId) {
+        return byId.values().stream()
+                .filter(room -> room.getCreatedBy() != null && userId.equals(room.getCreatedBy().getId()))
+                .toList();
+    }
+
+    @Override
+    public synchronized void deleteById(String roomId) {
+        unindex(byId.remove(roomId));
+    }
+
+    private List<ChatRoom> roomsNamed(String name) {
+        if (name == null) {
+            return List.of();
+        }
+        return idsByName.getOrDefault(name, Set.of()).stream()
+                .map(byId::get)
+                .filter(room -> room != null && name.equals(room.getName()))
+                .toList();
+    }
+
+    private void unindex(ChatRoom previous) {
+        if (previous == null) {
+            return;
+        }
+        if (previous.getName() != null) {
+            Set<String> ids = idsByName.get(previous.getName());
+            if (ids != null) {
+                ids.remove(previous.getId());
+            }
+        }
+        if (previous.getInviteToken() != null) {
+            idByInviteToken.remove(previous.getInviteToken(), previous.getId());
+        }
+    }
+}
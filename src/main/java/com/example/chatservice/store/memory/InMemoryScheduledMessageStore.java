@@ -0,0 +1,177 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.Model.ScheduledMessage;
+import com.example.chatservice.store.ScheduledMessageStore;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Profile("inmemory")
+public class InMemoryScheduledMessageStore implements ScheduledMessageStore {
+
+    private final Map<String, ScheduledMessage> byId = new ConcurrentHashMap<>();
+
+    @Override
+    public ScheduledMessage insert(ScheduledMessage message) {
+        if (message.getId() == null) {
+            message.setId(new ObjectId().toHexString());
+        }
+        byId.put(message.getId(), message);
+        return message;
+    }
+
+    @Override
+    public Optional<ScheduledMessage> findById(String scheduledId) {
+        return Optional.ofNullable(byId.get(scheduledId));
+    }
+
+    @Override
+    public List<ScheduledMessage> findPending(String senderId, String roomId) {
+        return byId.values().stream()
+                .filter(m -> m.getState() == ScheduledMessage.State.PENDING
+                        && senderId.equals(m.getSenderId()) && roomId.equals(m.getRoomId()))
+                .sorted(Comparator.comparing(ScheduledMessage::getDueAt))
+                .toList();
+    }
+
+    @Override
+    public long countPending(String senderId) {
+        return byId.values().stream()
+                .filter(m -> m.getState() == ScheduledMessage.State.PENDING && senderId.equals(m.getSenderId()))
+                .count();
+    }
+
+    @Override
+    public List<ScheduledMessage> findPendingDueBefore(Instant until, int limit) {
+        return byId.values().stream()
+                .filter(m -> m.getState() == ScheduledMessage.State.PENDING && !m.getDueAt().isAfter(until))
+                .sorted(Comparator.comparing(ScheduledMessage::getDueAt))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Optional<ScheduledMessage> updatePending(String scheduledId, String encryptedContent, Long ttlSeconds,
+                                                    Instant dueAt, Instant now) {
+        ScheduledMessage message = byId.get(scheduledId);
+        if (message == null) {
+            return Optional.empty();
+        }
+        synchronized (message) {
+            if (!isUnleased(message, now)) {
+                return Optional.empty();
+            }
+            if (encryptedContent != null) {
+                message.setEncryptedContent(encryptedContent);
+            }
+            if (ttlSeconds != null) {
+                message.setTtlSeconds(ttlSeconds);
+            }
+            if (dueAt != null) {
+                message.setDueAt(dueAt);
+            }
+            message.setUpdatedAt(now);
+            return Optional.of(message);
+        }
+    }
+
+    @Override
+    public boolean cancel(String scheduledId, Instant now) {
+        ScheduledMessage message = byId.get(scheduledId);
+        if (message == null) {
+            return false;
+        }
+        synchronized (message) {
+            if (!isUnleased(message, now)) {
+                return false;
+            }
+            message.setState(ScheduledMessage.State.CANCELLED);
+            message.setUpdatedAt(now);
+            message.setCompletedAt(now);
+            return true;
+        }
+    }
+
+    @Override
+    public List<ScheduledMessage> claim(Collection<String> scheduledIds, String leaseToken, Instant now,
+                                        Instant leaseUntil) {
+        List<ScheduledMessage> claimed = new ArrayList<>();
+        for (String scheduledId : scheduledIds) {
+            ScheduledMessage message = byId.get(scheduledId);
+            if (message == null) {
+                continue;
+            }
+            synchronized (message) {
+                if (isUnleased(message, now) && !message.getDueAt().isAfter(now)) {
+                    message.setLeaseToken(leaseToken);
+                    message.setLeaseUntil(leaseUntil);
+                    claimed.add(message);
+                }
+            }
+        }
+        claimed.sort(Comparator.comparing(ScheduledMessage::getDueAt));
+        return claimed;
+    }
+
+    @Override
+    public List<String> renew(Collection<String> scheduledIds, String leaseToken, Instant leaseUntil) {
+        List<String> renewed = new ArrayList<>();
+        for (String scheduledId : scheduledIds) {
+            ScheduledMessage message = byId.get(scheduledId);
+            if (message == null) {
+                continue;
+            }
+            synchronized (message) {
+                if (message.getState() == ScheduledMessage.State.PENDING
+                        && leaseToken.equals(message.getLeaseToken())) {
+                    message.setLeaseUntil(leaseUntil);
+                    renewed.add(scheduledId);
+                }
+            }
+        }
+        return renewed;
+    }
+
+    @Override
+    public int complete(List<Completion> completions, Instant now) {
+        int recorded = 0;
+        for (Completion completion : completions) {
+            ScheduledMessage message = byId.get(completion.scheduledId());
+            if (message == null) {
+                continue;
+            }
+            synchronized (message) {
+                if (!completion.leaseToken().equals(message.getLeaseToken())) {
+                    continue;
+                }
+                message.setState(completion.state());
+                message.setUpdatedAt(now);
+                message.setCompletedAt(now);
+                message.setLeaseUntil(null);
+                if (completion.state() == ScheduledMessage.State.SENT) {
+                    message.setMessageId(completion.messageId());
+                    message.setSentAt(now);
+                } else {
+                    message.setFailure(completion.failure());
+                }
+                recorded++;
+            }
+        }
+        return recorded;
+    }
+
+    private static boolean isUnleased(ScheduledMessage message, Instant now) {
+        return message.getState() == ScheduledMessage.State.PENDING
+                && (message.getLeaseUntil() == null || !message.getLeaseUntil().isAfter(now));
+    }
+}
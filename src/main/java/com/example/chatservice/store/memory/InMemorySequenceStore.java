@@ -0,0 +1,30 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.store.SequenceStore;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Profile("inmemory")
+public class InMemorySequenceStore implements SequenceStore {
+
+    private final Map<String, Long> ceilings = new ConcurrentHashMap<>();
+
+    @Override
+    public long reserve(String roomId, int count) {
+        return ceilings.merge(roomId, (long) count, Long::sum);
+    }
+
+    @Override
+    public long reserved(String roomId) {
+        return ceilings.getOrDefault(roomId, 0L);
+    }
+
+    @Override
+    public void delete(String roomId) {
+        ceilings.remove(roomId);
+    }
+}
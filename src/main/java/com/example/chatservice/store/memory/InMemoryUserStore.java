@@ -0,0 +1,188 @@
+package com.example.chatservice.store.memory;
+
+import com.example.chatservice.Model.User;
+import com.example.chatservice.store.UserStore;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Concurrent in-memory user store. Lookups go through hash indexes on username, email and phone
+ * number; writes are serialized so the unique indexes never disagree with the primary map.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryUserStore implements UserStore {
+
+    private final Map<String, User> byId = new ConcurrentHashMap<>();
+    private final Map<String, String> idByUsername = new ConcurrentHashMap<>();
+    private final Map<String, String> idByEmail = new ConcurrentHashMap<>();
+    private final Map<String, String> idByPhone = new ConcurrentHashMap<>();
+
+    // Index keys a user was last saved under, so renames can release the old ones
+    private final Map<String, String[]> indexedKeys = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized User save(User user) {
+        if (user.getId() == null) {
+            user.setId(new ObjectId().toHexString());
+        }
+        checkUnique(idByUsername, user.getUsername(), user.getId(), "username");
+        checkUnique(idByEmail, user.getEmail(), user.getId(), "email");
+        checkUnique(idByPhone, user.getPhoneNumber(), user.getId(), "phoneNumber");
+
+        Instant now = Instant.now();
+        if (user.getCreatedAt() == null) {
+            user.setCreatedAt(now);
+        }
+        user.setUpdatedAt(now);
+
+        unindex(user.getId());
+        byId.put(user.getId(), user);
+        index(idByUsername, user.getUsername(), user.getId());
+        index(idByEmail, user.getEmail(), user.getId());
+        index(idByPhone, user.getPhoneNumber(), user.getId());
+        indexedKeys.put(user.getId(), new String[] { user.getUsername(), user.getEmail(), user.getPhoneNumber() });
+        return user;
+    }
+
+    @Override
+    public Optional<User> findById(String userId) {
+        return Optional.ofNullable(byId.get(userId));
+    }
+
+    @Override
+    public List<User> findByIds(Collection<String> userIds) {
+        return userIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return lookup(idByUsername, username);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return lookup(idByEmail, email);
+    }
+
+    @Override
+    public Optional<User> findByPhoneNumber(String phoneNumber) {
+        return lookup(idByPhone, phoneNumber);
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return username != null && idByUsername.containsKey(username);
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return email != null && idByEmail.containsKey(email);
+    }
+
+    @Override
+    public boolean existsByPhoneNumber(String phoneNumber) {
+        return phoneNumber != null && idByPhone.containsKey(phoneNumber);
+    }
+
+    @Override
+    public Page<User> searchByUsername(String fragment, Pageable pageable) {
+        return search(User::getUsername, fragment, pageable);
+    }
+
+    @Override
+    public Page<User> searchByEmail(String fragment, Pageable pageable) {
+        return search(User::getEmail, fragment, pageable);
+    }
+
+    @Override
+    public Page<User> searchByPhoneNumber(String fragment, Pageable pageable) {
+        return search(User::getPhoneNumber, fragment, pageable);
+    }
+
+    @Override
+    public List<User> findByStatus(User.UserStatus status) {
+        return byId.values().stream().filter(user -> user.getStatus() == status).toList();
+    }
+
+    @Override
+    public List<User> findAll() {
+        return List.copyOf(byId.values());
+    }
+
+    @Override
+    public synchronized void delete(User user) {
+        unindex(user.getId());
+        byId.remove(user.getId());
+    }
+
+    private Page<User> search(Function<User, String> field, String fragment, Pageable pageable) {
+        String needle = fragment != null ? fragment.toLowerCase(Locale.ROOT) : "";
+        List<User> matches = byId.values().stream()
+                .filter(user -> {
+                    String value = field.apply(user);
+                    return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+                })
+                .sorted(Comparator.comparing(User::getUsername, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        return new PageImpl<>(matches.subList(from, to), pageable, matches.size());
+    }
+
+    private Optional<User> lookup(Map<String, String> index, String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        String id = index.get(key);
+        return id != null ? Optional.ofNullable(byId.get(id)) : Optional.empty();
+    }
+
+    private static void checkUnique(Map<String, String> index, String key, String userId, String field) {
+        if (key == null) {
+            return;
+        }
+        String owner = index.get(key);
+        if (owner != null && !owner.equals(userId)) {
+            throw new DuplicateKeyException("Duplicate key on users." + field + ": " + key);
+        }
+    }
+
+    private static void index(Map<String, String> index, String key, String userId) {
+        if (key != null) {
+            index.put(key, userId);
+        }
+    }
+
+    private void unindex(String userId) {
+        String[] keys = indexedKeys.remove(userId);
+        if (keys == null) {
+            return;
+        }
+        if (keys[0] != null) {
+            idByUsername.remove(keys[0], userId);
+        }
+        if (keys[1] != null) {
+            idByEmail.remove(keys[1], userId);
+        }
+        if (keys[2] != null) {
+            idByPhone.remove(keys[2], userId);
+        }
+    }
+}
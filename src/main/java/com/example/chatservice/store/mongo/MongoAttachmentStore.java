@@ -0,0 +1,41 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.Model.Attachment;
+import com.example.chatservice.repository.AttachmentRepository;
+import com.example.chatservice.store.AttachmentStore;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@Profile("!inmemory")
+public class MongoAttachmentStore implements AttachmentStore {
+
+    private final AttachmentRepository attachmentRepository;
+
+    public MongoAttachmentStore(AttachmentRepository attachmentRepository) {
+        this.attachmentRepository = attachmentRepository;
+    }
+
+    @Override
+    public Attachment save(Attachment attachment) {
+        return attachmentRepository.save(attachment);
+    }
+
+    @Override
+    public Optional<Attachment> findById(String attachmentId) {
+        return attachmentRepository.findById(attachmentId);
+    }
+
+    @Override
+    public List<Attachment> findBySha256(String sha256) {
+        return attachmentRepository.findBySha256(sha256);
+    }
+
+    @Override
+    public void deleteById(String attachmentId) {
+        attachmentRepository.deleteById(attachmentId);
+    }
+}
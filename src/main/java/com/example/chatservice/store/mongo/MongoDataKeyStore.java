@@ -0,0 +1,98 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.Model.DataKey;
+import com.example.chatservice.store.DataKeyStore;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@Profile("!inmemory")
+public class MongoDataKeyStore implements DataKeyStore {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoDataKeyStore(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean insertIfAbsent(DataKey key) {
+        try {
+            mongoTemplate.insert(key);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void retire(String keyId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(keyId)),
+                new Update().set("state", DataKey.State.RETIRED), DataKey.class);
+    }
+
+    @Override
+    public void rewrap(String keyId, String wrappedKey, String masterKeyId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(keyId)),
+                new Update().set("wrappedKey", wrappedKey).set("masterKeyId", masterKeyId), DataKey.class);
+    }
+
+    @Override
+    public boolean recordProgress(String keyId, String migratedUpTo, long migratedCount) {
+        return mongoTemplate.updateFirst(migrating(keyId),
+                new Update().set("migratedUpTo", migratedUpTo).set("migratedCount", migratedCount),
+                DataKey.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean markActive(String keyId) {
+        return mongoTemplate.updateFirst(migrating(keyId),
+                new Update().set("state", DataKey.State.ACTIVE).unset("migratedUpTo"),
+                DataKey.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public Optional<DataKey> findById(String keyId) {
+        return Optional.ofNullable(mongoTemplate.findById(keyId, DataKey.class));
+    }
+
+    @Override
+    public Optional<DataKey> findLatest(String roomId) {
+        Query query = Query.query(Criteria.where("roomId").is(roomId))
+                .with(Sort.by(Sort.Direction.DESC, "version"))
+                .limit(1);
+        return Optional.ofNullable(mongoTemplate.findOne(query, DataKey.class));
+    }
+
+    @Override
+    public List<DataKey> findByState(DataKey.State state, int limit) {
+        return mongoTemplate.find(Query.query(Criteria.where("state").is(state)).limit(limit), DataKey.class);
+    }
+
+    @Override
+    public List<DataKey> findWrappedByOtherThan(String masterKeyId, int limit) {
+        return mongoTemplate.find(Query.query(Criteria.where("masterKeyId").ne(masterKeyId)).limit(limit),
+                DataKey.class);
+    }
+
+    @Override
+    public List<DataKey> findActiveCreatedBefore(Instant cutoff, int limit) {
+        Query query = Query.query(Criteria.where("state").is(DataKey.State.ACTIVE).and("createdAt").lt(cutoff))
+                .limit(limit);
+        return mongoTemplate.find(query, DataKey.class);
+    }
+
+    private static Query migrating(String keyId) {
+        return Query.query(Criteria.where("_id").is(keyId).and("state").is(DataKey.State.MIGRATING));
+    }
+}
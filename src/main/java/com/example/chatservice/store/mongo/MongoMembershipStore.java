@@ -0,0 +1,203 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.Model.RoomMembership;
+import com.example.chatservice.repository.RoomMembershipRepository;
+import com.example.chatservice.store.MembershipStore;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Member counts live in their own {@code room_member_counts} collection, like the message sequences, so
+ * saving a room from a stale copy cannot overwrite them. A room without a counter yet is counted once on
+ * first read; until then increments are skipped, since that count already includes them.
+ */
+@Component
+@Profile("!inmemory")
+public class MongoMembershipStore implements MembershipStore {
+
+    private static final String MEMBERSHIPS = "room_memberships";
+    private static final String COUNTS = "room_member_counts";
+
+    private final RoomMembershipRepository membershipRepository;
+    private final MongoTemplate mongoTemplate;
+
+    public MongoMembershipStore(RoomMembershipRepository membershipRepository, MongoTemplate mongoTemplate) {
+        this.membershipRepository = membershipRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public RoomMembership save(RoomMembership membership) {
+        membership.refreshListing();
+        return membershipRepository.save(membership);
+    }
+
+    @Override
+    public List<RoomMembership> saveAll(List<RoomMembership> memberships) {
+        memberships.forEach(RoomMembership::refreshListing);
+        return membershipRepository.saveAll(memberships);
+    }
+
+    @Override
+    public Optional<RoomMembership> find(String roomId, String userId) {
+        return membershipRepository.findByRoomIdAndUserId(roomId, userId);
+    }
+
+    @Override
+    public boolean exists(String roomId, String userId) {
+        return membershipRepository.existsByRoomIdAndUserId(roomId, userId);
+    }
+
+    @Override
+    public List<RoomMembership> findActiveByRoom(String roomId) {
+        return membershipRepository.findByRoomIdAndIsActiveTrue(roomId);
+    }
+
+    @Override
+    public List<RoomMembership> findActiveByUser(String userId) {
+        return membershipRepository.findByUserIdAndIsActiveTrue(userId);
+    }
+
+    @Override
+    public List<ActiveMember> findActiveMembers(String roomId) {
+        return findMembers(Query.query(Criteria.where("roomId").is(roomId).and("isActive").is(true)));
+    }
+
+    @Override
+    public Set<String> findActiveUserIds(String roomId, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        Query query = Query.query(Criteria.where("roomId").is(roomId).and("userId").in(userIds)
+                .and("isActive").is(true));
+        query.fields().include("userId").exclude("_id");
+        return mongoTemplate.find(query, Document.class, MEMBERSHIPS).stream()
+                .map(doc -> doc.getString("userId"))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<ActiveMember> findActiveMembersPage(String roomId, ListPosition after, int limit) {
+        Criteria criteria = Criteria.where("roomId").is(roomId).and("isActive").is(true);
+        if (after == null) {
+            criteria.and("listTier").gte(0);
+        } else {
+            criteria.orOperator(
+                    Criteria.where("listTier").gt(after.tier()),
+                    Criteria.where("listTier").is(after.tier()).and("sortName").gt(after.sortName()),
+                    Criteria.where("listTier").is(after.tier()).and("sortName").is(after.sortName())
+                            .and("userId").gt(after.userId()));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by("listTier", "sortName", "userId").ascending())
+                .limit(limit);
+        return findMembers(query);
+    }
+
+    @Override
+    public List<ActiveMember> findActiveUnlisted(String roomId, int limit) {
+        return findMembers(Query.query(Criteria.where("roomId").is(roomId).and("isActive").is(true)
+                .and("listTier").is(null)).limit(limit));
+    }
+
+    @Override
+    public void setListPositions(String roomId, List<ListPosition> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MEMBERSHIPS);
+        for (ListPosition position : positions) {
+            bulk.updateOne(Query.query(Criteria.where("roomId").is(roomId).and("userId").is(position.userId())),
+                    new Update().set("listTier", position.tier()).set("sortName", position.sortName()));
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public void updateListing(String userId, boolean online, String sortName) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("userId").is(userId)
+                        .and("role").is(RoomMembership.Role.MEMBER.name())),
+                new Update().set("listTier", online ? 2 : 3).set("sortName", sortName), MEMBERSHIPS);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("userId").is(userId)
+                        .and("role").ne(RoomMembership.Role.MEMBER.name())),
+                new Update().set("sortName", sortName), MEMBERSHIPS);
+    }
+
+    private List<ActiveMember> findMembers(Query query) {
+        // Raw documents: mapping to RoomMembership would fetch every @DBRef user and room one by one
+        query.fields().include("userId", "role", "canSendMessages", "joinedAt", "listTier", "sortName")
+                .exclude("_id");
+        return mongoTemplate.find(query, Document.class, MEMBERSHIPS).stream()
+                .map(doc -> {
+                    String role = doc.getString("role");
+                    Date joinedAt = doc.getDate("joinedAt");
+                    return new ActiveMember(
+                            doc.getString("userId"),
+                            role != null ? RoomMembership.Role.valueOf(role) : RoomMembership.Role.MEMBER,
+                            doc.getBoolean("canSendMessages", true),
+                            joinedAt != null ? joinedAt.toInstant() : null,
+                            doc.getInteger("listTier"),
+                            doc.getString("sortName"));
+                })
+                .toList();
+    }
+
+    @Override
+    public long countActive(String roomId) {
+        Query byRoom = Query.query(Criteria.where("_id").is(roomId));
+        Document counter = mongoTemplate.findOne(byRoom, Document.class, COUNTS);
+        if (counter == null) {
+            long active = membershipRepository.countByRoomIdAndIsActiveTrue(roomId);
+            counter = mongoTemplate.findAndModify(byRoom,
+                    new Update().setOnInsert("active", active),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    Document.class, COUNTS);
+            if (counter == null) {
+                return active;
+            }
+        }
+        return Math.max(0, counter.get("active", Number.class).longValue());
+    }
+
+    @Override
+    public Map<String, Long> countActive(Collection<String> roomIds) {
+        Map<String, Long> counts = new HashMap<>();
+        if (roomIds.isEmpty()) {
+            return counts;
+        }
+        for (Document counter : mongoTemplate.find(Query.query(Criteria.where("_id").in(roomIds)),
+                Document.class, COUNTS)) {
+            counts.put(counter.getString("_id"), Math.max(0, counter.get("active", Number.class).longValue()));
+        }
+        for (String roomId : roomIds) {
+            if (!counts.containsKey(roomId)) {
+                // No counter yet: counted and created one room at a time, once
+                counts.put(roomId, countActive(roomId));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void adjustActiveCount(String roomId, long delta) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(roomId)),
+                new Update().inc("active", delta), COUNTS);
+    }
+}
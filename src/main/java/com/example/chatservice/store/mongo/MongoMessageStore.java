@@ -0,0 +1,258 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.Model.Message;
+import com.example.chatservice.repository.MessageRepository;
+import com.example.chatservice.store.MessageStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Component
+@Profile("!inmemory")
+@Qualifier(MessageStore.BACKEND)
+public class MongoMessageStore implements MessageStore {
+
+    // Messages per cursor batch when streaming history; a slow client holds the cursor on the next batch
+    private static final int STREAM_BATCH_SIZE = 64;
+
+    // Whole-room exports read far more than a client screen; larger batches mean fewer round trips
+    private static final int EXPORT_BATCH_SIZE = 500;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    // Message.recalculateStatus on the server: the lowest status among the receipts
+    private static final AggregationUpdate RECALCULATE_STATUS = AggregationUpdate.update()
+            .set("status").toValue(ConditionalOperators
+                    .when(ArrayOperators.In.arrayOf("receipts.status").containsValue(Message.MessageStatus.SENT.name()))
+                    .then(Message.MessageStatus.SENT.name())
+                    .otherwise(ConditionalOperators
+                            .when(ArrayOperators.In.arrayOf("receipts.status")
+                                    .containsValue(Message.MessageStatus.DELIVERED.name()))
+                            .then(Message.MessageStatus.DELIVERED.name())
+                            .otherwise(Message.MessageStatus.SEEN.name())));
+
+    private final MessageRepository messageRepository;
+    private final MongoTemplate mongoTemplate;
+
+    public MongoMessageStore(MessageRepository messageRepository, MongoTemplate mongoTemplate) {
+        this.messageRepository = messageRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Message save(Message message) {
+        return messageRepository.save(message);
+    }
+
+    @Override
+    public void markDelivered(List<DeliveryAck> acks, Instant deliveredAt) {
+        if (acks.isEmpty()) {
+            return;
+        }
+        // Targeted $set on the one receipt rather than a replace, so a SEEN receipt, an edit or a re-encryption
+        // written since the messages were read is not overwritten. Ordered, so statuses are recomputed last.
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Message.class);
+        Collection<String> touched = new LinkedHashSet<>();
+        for (DeliveryAck ack : acks) {
+            bulk.updateOne(Query.query(Criteria.where("_id").is(ack.messageId())),
+                    new Update()
+                            .set("receipts.$[r].status", Message.MessageStatus.DELIVERED.name())
+                            .set("receipts.$[r].deliveredAt", deliveredAt)
+                            .filterArray(Criteria.where("r.userId").is(ack.userId())
+                                    .and("r.status").is(Message.MessageStatus.SENT.name())));
+            touched.add(ack.messageId());
+        }
+        // Acks can only raise a SENT message; one already DELIVERED or SEEN is left alone
+        for (String messageId : touched) {
+            bulk.updateOne(Query.query(Criteria.where("_id").is(messageId)
+                    .and("status").is(Message.MessageStatus.SENT.name())), RECALCULATE_STATUS);
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public boolean insertIfAbsent(Message message) {
+        try {
+            messageRepository.insert(message);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public List<Integer> insertAll(List<Message> messages) {
+        List<Integer> skipped = new ArrayList<>();
+        int from = 0;
+        while (from < messages.size()) {
+            List<Message> remaining = messages.subList(from, messages.size());
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Message.class)
+                        .insert(remaining)
+                        .execute();
+                return skipped;
+            } catch (BulkOperationException e) {
+                // Ordered: everything before the failed document was written, nothing after it
+                if (e.getErrors().isEmpty() || e.getErrors().get(0).getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+                int failed = from + e.getErrors().get(0).getIndex();
+                skipped.add(failed);
+                from = failed + 1;
+            }
+        }
+        return skipped;
+    }
+
+    @Override
+    public Optional<Message> findById(String messageId) {
+        return messageRepository.findById(messageId);
+    }
+
+    @Override
+    public List<Message> findByReceiptStatus(String roomId, String userId, Message.MessageStatus status) {
+        return messageRepository.findByRoomIdAndReceiptUserIdAndReceiptStatus(roomId, userId, status.name());
+    }
+
+    @Override
+    public List<Message> findAwaitingDelivery(String roomId, Collection<String> userIds, long maxSeq) {
+        return messageRepository.findAwaitingDelivery(roomId, userIds, maxSeq);
+    }
+
+    @Override
+    public Page<Message> findVisible(String roomId, String userId, Pageable pageable) {
+        return messageRepository.findVisible(roomId, userId, Instant.now(), pageable);
+    }
+
+    @Override
+    public List<Message> findRecentVisible(String roomId, String userId, int limit) {
+        Pageable pageable = PageRequest.of(0, limit, Sort.by("createdAt").descending());
+        return messageRepository.findRecentVisible(roomId, userId, Instant.now(), pageable);
+    }
+
+    @Override
+    public Stream<Message> streamVisible(String roomId, String userId, int limit) {
+        Query query = new Query(Criteria.where("roomId").is(roomId).and("deletedForUsers").ne(userId)
+                .orOperator(notExpired(Instant.now())))
+                .with(Sort.by("createdAt").descending())
+                .limit(limit)
+                .cursorBatchSize(STREAM_BATCH_SIZE);
+        return mongoTemplate.stream(query, Message.class);
+    }
+
+    @Override
+    public List<Message> findAllInRoom(String roomId) {
+        return messageRepository.findLiveInRoom(roomId, Instant.now());
+    }
+
+    @Override
+    public Stream<Message> streamRoom(String roomId) {
+        // Leaving out the @DBRef fields saves two lookups per message; callers resolve senders in batches
+        Query query = new Query(Criteria.where("roomId").is(roomId).orOperator(notExpired(Instant.now())))
+                .with(Sort.by("createdAt").ascending())
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+        query.fields().exclude("room", "sender");
+        return mongoTemplate.stream(query, Message.class);
+    }
+
+    @Override
+    public List<Message> findAfterSequence(String roomId, long afterSeq, int limit) {
+        return messageRepository.findAfterSequence(roomId, afterSeq, Instant.now(), PageRequest.of(0, limit));
+    }
+
+    // Past expiresAt but not yet deleted by the expiry worker or the TTL index
+    private static Criteria[] notExpired(Instant now) {
+        return new Criteria[]{Criteria.where("expiresAt").is(null), Criteria.where("expiresAt").gt(now)};
+    }
+
+    @Override
+    public List<Message> findContentPage(String roomId, String afterId, int limit) {
+        Criteria criteria = Criteria.where("roomId").is(roomId);
+        if (afterId != null) {
+            criteria = criteria.and("_id").gt(afterId);
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by("_id").ascending())
+                .limit(limit);
+        query.fields().include("_id", "roomId", "encryptedContent");
+        return mongoTemplate.find(query, Message.class);
+    }
+
+    @Override
+    public long replaceContent(List<ContentChange> changes) {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        // Conditional $set rather than a replace, so receipts updated in the meantime are not overwritten
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+        for (ContentChange change : changes) {
+            bulk.updateOne(
+                    Query.query(Criteria.where("_id").is(change.messageId())
+                            .and("encryptedContent").is(change.expected())),
+                    new Update().set("encryptedContent", change.replacement()));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+
+    @Override
+    public Stream<Message> streamExpiring() {
+        // A range on expiresAt is served by its TTL index, which holds no entry for messages without one
+        Query query = new Query(Criteria.where("expiresAt").gt(Instant.EPOCH))
+                .cursorBatchSize(EXPORT_BATCH_SIZE);
+        query.fields().include("_id", "roomId", "seq", "attachmentId", "createdAt", "expiresAt");
+        return mongoTemplate.stream(query, Message.class);
+    }
+
+    @Override
+    public long countByRoom(String roomId) {
+        return messageRepository.countByRoomId(roomId);
+    }
+
+    @Override
+    public void incrementViews(String roomId, long fromSeq, long toSeq, long delta) {
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("roomId").is(roomId).and("seq").gte(fromSeq).lte(toSeq)),
+                new Update().inc("viewCount", delta),
+                Message.class);
+    }
+
+    @Override
+    public void deleteById(String messageId) {
+        messageRepository.deleteById(messageId);
+    }
+
+    @Override
+    public void deleteByIds(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(messageIds)), Message.class);
+    }
+
+    @Override
+    public void deleteByRoom(String roomId) {
+        messageRepository.deleteByRoomId(roomId);
+    }
+}
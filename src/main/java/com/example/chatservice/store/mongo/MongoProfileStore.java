@@ -0,0 +1,41 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.Model.Profile;
+import com.example.chatservice.repository.ProfileRepository;
+import com.example.chatservice.store.ProfileStore;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@org.springframework.context.annotation.Profile("!inmemory")
+public class MongoProfileStore implements ProfileStore {
+
+    private final ProfileRepository profileRepository;
+
+    public MongoProfileStore(ProfileRepository profileRepository) {
+        this.profileRepository = profileRepository;
+    }
+
+    @Override
+    public Profile save(Profile profile) {
+        return profileRepository.save(profile);
+    }
+
+    @Override
+    public Optional<Profile> findByUserId(String userId) {
+        return profileRepository.findByUserId(userId);
+    }
+
+    @Override
+    public List<Profile> findByUserIds(Collection<String> userIds) {
+        return profileRepository.findByUserIdIn(userIds);
+    }
+
+    @Override
+    public void deleteByUserId(String userId) {
+        profileRepository.deleteByUserId(userId);
+    }
+}
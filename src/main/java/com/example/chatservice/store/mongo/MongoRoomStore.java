@@ -0,0 +1,78 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.Model.ChatRoom;
+import com.example.chatservice.repository.ChatRoomRepository;
+import com.example.chatservice.store.RoomStore;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@Profile("!inmemory")
+public class MongoRoomStore implements RoomStore {
+
+    private final ChatRoomRepository chatRoomRepository;
+
+    public MongoRoomStore(ChatRoomRepository chatRoomRepository) {
+        this.chatRoomRepository = chatRoomRepository;
+    }
+
+    @Override
+    public ChatRoom save(ChatRoom room) {
+        return chatRoomRepository.save(room);
+    }
+
+    @Override
+    public Optional<ChatRoom> findById(String roomId) {
+        return chatRoomRepository.findById(roomId);
+    }
+
+    @Override
+    public Optional<ChatRoom> findByName(String name) {
+        return chatRoomRepository.findByName(name);
+    }
+
+    @Override
+    public Optional<ChatRoom> findByNameAndType(String name, ChatRoom.RoomType roomType) {
+        return chatRoomRepository.findByNameAndRoomType(name, roomType);
+    }
+
+    @Override
+    public Optional<ChatRoom> findByInviteToken(String inviteToken) {
+        return chatRoomRepository.findByInviteToken(inviteToken);
+    }
+
+    @Override
+    public List<ChatRoom> findPublic() {
+        return chatRoomRepository.findByIsPrivateFalse();
+    }
+
+    @Override
+    public List<ChatRoom> findPublicByType(ChatRoom.RoomType roomType) {
+        return chatRoomRepository.findByIsPrivateFalseAndRoomType(roomType);
+    }
+
+    @Override
+    public List<ChatRoom> findPublicListings(ChatRoom.RoomType roomType) {
+        return chatRoomRepository.findListingsByRoomType(roomType);
+    }
+
+    @Override
+    public List<ChatRoom> searchPublicByName(String query, ChatRoom.RoomType roomType) {
+        return chatRoomRepository.findByNameContainingIgnoreCaseAndIsPrivateFalseAndRoomType(query, roomType);
+    }
+
+    @Override
+    public List<ChatRoom> findCreatedBy(String userId) {
+        return chatRoomRepository.findAll().stream()
+                .filter(room -> room.getCreatedBy() != null && room.getCreatedBy().getId().equals(userId))
+                .toList();
+    }
+
+    @Override
+    public void deleteById(String roomId) {
+        chatRoomRepository.deleteById(roomId);
+    }
+}
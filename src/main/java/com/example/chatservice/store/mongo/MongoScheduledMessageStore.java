@@ -0,0 +1,155 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.Model.ScheduledMessage;
+import com.example.chatservice.store.ScheduledMessageStore;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@Profile("!inmemory")
+public class MongoScheduledMessageStore implements ScheduledMessageStore {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoScheduledMessageStore(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public ScheduledMessage insert(ScheduledMessage message) {
+        return mongoTemplate.insert(message);
+    }
+
+    @Override
+    public Optional<ScheduledMessage> findById(String scheduledId) {
+        return Optional.ofNullable(mongoTemplate.findById(scheduledId, ScheduledMessage.class));
+    }
+
+    @Override
+    public List<ScheduledMessage> findPending(String senderId, String roomId) {
+        Query query = Query.query(Criteria.where("senderId").is(senderId).and("roomId").is(roomId)
+                        .and("state").is(ScheduledMessage.State.PENDING))
+                .with(Sort.by("dueAt").ascending());
+        return mongoTemplate.find(query, ScheduledMessage.class);
+    }
+
+    @Override
+    public long countPending(String senderId) {
+        return mongoTemplate.count(Query.query(Criteria.where("senderId").is(senderId)
+                .and("state").is(ScheduledMessage.State.PENDING)), ScheduledMessage.class);
+    }
+
+    @Override
+    public List<ScheduledMessage> findPendingDueBefore(Instant until, int limit) {
+        Query query = Query.query(Criteria.where("state").is(ScheduledMessage.State.PENDING).and("dueAt").lte(until))
+                .with(Sort.by("dueAt").ascending())
+                .limit(limit);
+        query.fields().include("_id", "dueAt");
+        return mongoTemplate.find(query, ScheduledMessage.class);
+    }
+
+    @Override
+    public Optional<ScheduledMessage> updatePending(String scheduledId, String encryptedContent, Long ttlSeconds,
+                                                    Instant dueAt, Instant now) {
+        Update update = new Update().set("updatedAt", now);
+        if (encryptedContent != null) {
+            update.set("encryptedContent", encryptedContent);
+        }
+        if (ttlSeconds != null) {
+            update.set("ttlSeconds", ttlSeconds);
+        }
+        if (dueAt != null) {
+            update.set("dueAt", dueAt);
+        }
+        return Optional.ofNullable(mongoTemplate.findAndModify(unleased(scheduledId, now), update,
+                FindAndModifyOptions.options().returnNew(true), ScheduledMessage.class));
+    }
+
+    @Override
+    public boolean cancel(String scheduledId, Instant now) {
+        Update update = new Update()
+                .set("state", ScheduledMessage.State.CANCELLED)
+                .set("updatedAt", now)
+                .set("completedAt", now);
+        return mongoTemplate.updateFirst(unleased(scheduledId, now), update, ScheduledMessage.class)
+                .getModifiedCount() > 0;
+    }
+
+    @Override
+    public List<ScheduledMessage> claim(Collection<String> scheduledIds, String leaseToken, Instant now,
+                                        Instant leaseUntil) {
+        if (scheduledIds.isEmpty()) {
+            return List.of();
+        }
+        Query claimable = Query.query(Criteria.where("_id").in(scheduledIds)
+                .and("state").is(ScheduledMessage.State.PENDING)
+                .and("dueAt").lte(now)
+                .orOperator(Criteria.where("leaseUntil").is(null), Criteria.where("leaseUntil").lte(now)));
+        long claimed = mongoTemplate.updateMulti(claimable,
+                new Update().set("leaseToken", leaseToken).set("leaseUntil", leaseUntil),
+                ScheduledMessage.class).getModifiedCount();
+        if (claimed == 0) {
+            return List.of();
+        }
+        Query query = Query.query(Criteria.where("_id").in(scheduledIds).and("leaseToken").is(leaseToken))
+                .with(Sort.by("dueAt").ascending());
+        return mongoTemplate.find(query, ScheduledMessage.class);
+    }
+
+    @Override
+    public List<String> renew(Collection<String> scheduledIds, String leaseToken, Instant leaseUntil) {
+        if (scheduledIds.isEmpty()) {
+            return List.of();
+        }
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(scheduledIds)
+                        .and("state").is(ScheduledMessage.State.PENDING)
+                        .and("leaseToken").is(leaseToken)),
+                new Update().set("leaseUntil", leaseUntil), ScheduledMessage.class);
+        Query renewed = Query.query(Criteria.where("_id").in(scheduledIds)
+                .and("state").is(ScheduledMessage.State.PENDING)
+                .and("leaseToken").is(leaseToken));
+        renewed.fields().include("_id");
+        return mongoTemplate.find(renewed, ScheduledMessage.class).stream().map(ScheduledMessage::getId).toList();
+    }
+
+    @Override
+    public int complete(List<Completion> completions, Instant now) {
+        if (completions.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ScheduledMessage.class);
+        for (Completion completion : completions) {
+            Update update = new Update()
+                    .set("state", completion.state())
+                    .set("updatedAt", now)
+                    .set("completedAt", now)
+                    .unset("leaseUntil");
+            if (completion.state() == ScheduledMessage.State.SENT) {
+                update.set("messageId", completion.messageId()).set("sentAt", now);
+            } else {
+                update.set("failure", completion.failure());
+            }
+            bulk.updateOne(Query.query(Criteria.where("_id").is(completion.scheduledId())
+                    .and("leaseToken").is(completion.leaseToken())), update);
+        }
+        return bulk.execute().getMatchedCount();
+    }
+
+    private static Query unleased(String scheduledId, Instant now) {
+        return Query.query(Criteria.where("_id").is(scheduledId)
+                .and("state").is(ScheduledMessage.State.PENDING)
+                .orOperator(Criteria.where("leaseUntil").is(null), Criteria.where("leaseUntil").lte(now)));
+    }
+}
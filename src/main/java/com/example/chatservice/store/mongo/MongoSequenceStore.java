@@ -0,0 +1,53 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.store.SequenceStore;
+import org.bson.Document;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counters live in their own {@code room_sequences} collection rather than on the room document, so a
+ * room saved from a stale copy can never move a counter backwards.
+ */
+@Component
+@Profile("!inmemory")
+public class MongoSequenceStore implements SequenceStore {
+
+    private static final String COLLECTION = "room_sequences";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoSequenceStore(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public long reserve(String roomId, int count) {
+        Document counter = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(roomId)),
+                new Update().inc("ceiling", (long) count),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, COLLECTION);
+        if (counter == null) {
+            throw new RuntimeException("Failed to reserve sequence numbers for room " + roomId);
+        }
+        return counter.get("ceiling", Number.class).longValue();
+    }
+
+    @Override
+    public long reserved(String roomId) {
+        Document counter = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(roomId)),
+                Document.class, COLLECTION);
+        return counter != null ? counter.get("ceiling", Number.class).longValue() : 0;
+    }
+
+    @Override
+    public void delete(String roomId) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(roomId)), COLLECTION);
+    }
+}
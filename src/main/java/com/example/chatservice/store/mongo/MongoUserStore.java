@@ -0,0 +1,99 @@
+package com.example.chatservice.store.mongo;
+
+import com.example.chatservice.Model.User;
+import com.example.chatservice.repository.UserRepository;
+import com.example.chatservice.store.UserStore;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@Profile("!inmemory")
+public class MongoUserStore implements UserStore {
+
+    private final UserRepository userRepository;
+
+    public MongoUserStore(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public User save(User user) {
+        return userRepository.save(user);
+    }
+
+    @Override
+    public Optional<User> findById(String userId) {
+        return userRepository.findById(userId);
+    }
+
+    @Override
+    public List<User> findByIds(Collection<String> userIds) {
+        return userRepository.findAllById(userIds);
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return userRepository.findByUsername(username);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return userRepository.findByEmail(email);
+    }
+
+    @Override
+    public Optional<User> findByPhoneNumber(String phoneNumber) {
+        return userRepository.findByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return userRepository.existsByUsername(username);
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return userRepository.existsByEmail(email);
+    }
+
+    @Override
+    public boolean existsByPhoneNumber(String phoneNumber) {
+        return userRepository.existsByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public Page<User> searchByUsername(String fragment, Pageable pageable) {
+        return userRepository.findByUsernameContainingIgnoreCase(fragment, pageable);
+    }
+
+    @Override
+    public Page<User> searchByEmail(String fragment, Pageable pageable) {
+        return userRepository.findByEmailContainingIgnoreCase(fragment, pageable);
+    }
+
+    @Override
+    public Page<User> searchByPhoneNumber(String fragment, Pageable pageable) {
+        return userRepository.findByPhoneNumberContainingIgnoreCase(fragment, pageable);
+    }
+
+    @Override
+    public List<User> findByStatus(User.UserStatus status) {
+        return userRepository.findByStatus(status);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return userRepository.findAll();
+    }
+
+    @Override
+    public void delete(User user) {
+        userRepository.delete(user);
+    }
+}
@@ -2,14 +2,19 @@ package com.example.chatservice.websocket;
 
 import com.example.chatservice.Model.Message;
 import com.example.chatservice.Model.User;
-import com.example.chatservice.repository.UserRepository;
-import com.example.chatservice.repository.RoomMembershipRepository;
+import com.example.chatservice.security.UserPrincipal;
 import com.example.chatservice.service.ChatRoomService;
+import com.example.chatservice.service.DeliveryAckBatcher;
+import com.example.chatservice.service.MessageLatencyTracker;
 import com.example.chatservice.service.MessageService;
+import com.example.chatservice.service.MessageTrace;
 import com.example.chatservice.service.UserService;
+import com.example.chatservice.store.UserStore;
 
 import jakarta.validation.constraints.NotBlank;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
@@ -24,109 +29,66 @@ import java.util.Map;
 @Controller
 public class ChatMessagingController {
 
+        private static final Logger log = LoggerFactory.getLogger(ChatMessagingController.class);
+
         private final MessageService messageService;
         private final ChatRoomService chatRoomService;
         private final UserService userService;
-        private final UserRepository userRepository;
-        private final RoomMembershipRepository membershipRepository;
+        private final UserStore userStore;
         private final SimpMessagingTemplate messagingTemplate;
+        private final MessageLatencyTracker latencyTracker;
+        private final DeliveryAckBatcher deliveryAckBatcher;
 
         public ChatMessagingController(MessageService messageService,
                         ChatRoomService chatRoomService,
                         UserService userService,
-                        UserRepository userRepository,
-                        RoomMembershipRepository membershipRepository,
-                        SimpMessagingTemplate messagingTemplate) {
+                        UserStore userStore,
+                        SimpMessagingTemplate messagingTemplate,
+                        MessageLatencyTracker latencyTracker,
+                        DeliveryAckBatcher deliveryAckBatcher) {
                 this.messageService = messageService;
                 this.chatRoomService = chatRoomService;
                 this.userService = userService;
-                this.userRepository = userRepository;
-                this.membershipRepository = membershipRepository;
+                this.userStore = userStore;
                 this.messagingTemplate = messagingTemplate;
+                this.latencyTracker = latencyTracker;
+                this.deliveryAckBatcher = deliveryAckBatcher;
         }
 
         @MessageMapping("/rooms/{roomId}/send")
         public void sendToRoom(@DestinationVariable String roomId,
                         @Payload MessagePayload payload,
                         Authentication authentication) {
-                System.out.println("📩 Message received for room: " + roomId);
+                MessageTrace trace = latencyTracker.begin(roomId);
                 if (authentication == null) {
-                        System.err.println("❌ Authentication is NULL in sendToRoom!");
+                        log.warn("❌ Unauthenticated SEND to room {}", roomId);
                         return;
                 }
 
                 try {
                         String username = authentication.getName();
                         String messageText = payload.getText();
-                        System.out.println("👤 Sender: " + username);
-                        System.out.println("📝 Payload: " + messageText);
+                        log.debug("📩 Message received for room {} from {}", roomId, username);
 
                         if (messageText == null || messageText.isBlank()) {
-                                System.err.println("❌ Message content/text is empty!");
+                                log.debug("❌ Empty message from {} ignored", username);
                                 return;
                         }
 
-                        User sender = userRepository.findByUsername(username)
+                        User sender = userStore.findByUsername(username)
                                         .orElseThrow(() -> new RuntimeException("User not found: " + username));
 
                         // Enforce messaging restrictions
-                        var membershipOpt = chatRoomService.getMembership(sender.getId(), roomId);
-                        if (membershipOpt.isPresent()) {
-                            var membership = membershipOpt.get();
-                            var room = membership.getRoom();
-                            
-                            if (!membership.isCanSendMessages()) {
-                                throw new RuntimeException("You have been muted in this room.");
-                            }
-                            
-                            if (room.isAllMembersMuted() && membership.getRole() != com.example.chatservice.Model.RoomMembership.Role.ADMIN) {
-                                throw new RuntimeException("This room is currently restricted to announcements only.");
-                            }
-                        } else if (chatRoomService.findRoomById(roomId).map(r -> r.getRoomType() != com.example.chatservice.Model.ChatRoom.RoomType.GROUP_CHAT).orElse(false)) {
-                            throw new RuntimeException("You are not a member of this room.");
-                        }
+                        chatRoomService.assertCanSendMessages(sender.getId(), roomId);
 
-                        System.out.println("🔄 Saving message to DB...");
-                        Message savedMessage = messageService.saveEncrypted(roomId, username, messageText);
-                        System.out.println("✅ Message saved to database: " + savedMessage.getId());
-
-                        Map<String, Object> messageEvent = new HashMap<>();
-                        messageEvent.put("type", "MESSAGE");
-                        messageEvent.put("id", savedMessage.getId());
-                        messageEvent.put("roomId", roomId);
-                        messageEvent.put("sender", Map.of(
-                                        "username", username,
-                                        "displayName", sender.getDisplayName(),
-                                        "status", sender.getStatus().toString()));
-                        messageEvent.put("text", messageText);
-                        messageEvent.put("content", messageText);
-                        messageEvent.put("messageStatus", savedMessage.getStatus().toString());
-                        messageEvent.put("status", savedMessage.getStatus().toString());
-                        messageEvent.put("timestamp", System.currentTimeMillis());
-                        messageEvent.put("createdAt", System.currentTimeMillis());
-
-                        System.out.println("📡 Broadcasting to /topic/rooms/" + roomId);
-                        messagingTemplate.convertAndSend("/topic/rooms/" + roomId, (Object) messageEvent);
-                        System.out.println("✅ Message broadcasted successfully");
-
-                        // Broadcast global notification for bubbling
-                        List<com.example.chatservice.Model.RoomMembership> members = membershipRepository.findByRoomIdAndIsActiveTrue(roomId);
-                        Map<String, Object> notificationEvent = new HashMap<>();
-                        notificationEvent.put("type", "NEW_MESSAGE");
-                        notificationEvent.put("roomId", roomId);
-                        notificationEvent.put("sender", sender.getDisplayName());
-                        notificationEvent.put("text", messageText);
-                        notificationEvent.put("content", messageText);
-                        notificationEvent.put("timestamp", System.currentTimeMillis());
-
-                        for (com.example.chatservice.Model.RoomMembership member : members) {
-                            if (!member.getUser().getUsername().equals(username)) {
-                                messagingTemplate.convertAndSendToUser(member.getUser().getUsername(), "/queue/notifications", notificationEvent);
-                            }
-                        }
+                        Message savedMessage = messageService.saveEncrypted(roomId, username, messageText,
+                                        payload.ttlSeconds(), trace);
+                        log.debug("✅ Message {} saved", savedMessage.getId());
+
+                        messageService.broadcastNewMessage(savedMessage, sender, messageText, trace);
+                        latencyTracker.completed(trace);
                 } catch (Exception e) {
-                        System.err.println("❌ Error in sendToRoom: " + e.getMessage());
-                        e.printStackTrace();
+                        log.warn("❌ Error in sendToRoom for room {}: {}", roomId, e.getMessage(), e);
                         if (authentication != null) {
                                 Map<String, Object> errorEvent = Map.of(
                                                 "type", "ERROR",
@@ -145,7 +107,7 @@ public class ChatMessagingController {
 
                 try {
                         String username = authentication.getName();
-                        User user = userRepository.findByUsername(username).orElseThrow();
+                        User user = userStore.findByUsername(username).orElseThrow();
 
                         List<String> updatedIds = messageService.markAsDelivered(roomId, user.getId());
 
@@ -160,10 +122,46 @@ public class ChatMessagingController {
                                 messagingTemplate.convertAndSend("/topic/rooms/" + roomId + "/status", (Object) statusEvent);
                         }
                 } catch (Exception e) {
-                        System.err.println("❌ Error in markDelivered: " + e.getMessage());
+                        log.warn("❌ Error in markDelivered for room {}: {}", roomId, e.getMessage());
                 }
         }
 
+        /**
+         * Batched delivery acks: {@code {"rooms": {"<roomId>": <highest seq received>, ...}}}. A message id
+         * is accepted in place of the sequence. Applied in bulk by {@link DeliveryAckBatcher}.
+         */
+        @MessageMapping("/acks")
+        public void acknowledge(@Payload AckPayload payload, Authentication authentication) {
+                if (authentication == null || payload.rooms() == null) return;
+
+                try {
+                        String userId = authentication.getPrincipal() instanceof UserPrincipal principal
+                                        ? principal.getId()
+                                        : userStore.findByUsername(authentication.getName()).orElseThrow().getId();
+                        payload.rooms().forEach((roomId, position) -> {
+                                long seq = resolveSequence(roomId, position);
+                                if (seq > 0) {
+                                        deliveryAckBatcher.acknowledge(userId, roomId, seq);
+                                }
+                        });
+                } catch (Exception e) {
+                        log.warn("❌ Error in acknowledge for {}: {}", authentication.getName(), e.getMessage());
+                }
+        }
+
+        private long resolveSequence(String roomId, Object position) {
+                if (position instanceof Number number) {
+                        return number.longValue();
+                }
+                if (position instanceof String messageId) {
+                        return messageService.findById(messageId)
+                                        .filter(message -> roomId.equals(message.getRoomId()))
+                                        .map(Message::getSeq)
+                                        .orElse(0L);
+                }
+                return 0L;
+        }
+
         @MessageMapping("/rooms/{roomId}/seen")
         public void markSeen(@DestinationVariable String roomId,
                         Authentication authentication) {
@@ -171,7 +169,7 @@ public class ChatMessagingController {
 
                 try {
                         String username = authentication.getName();
-                        User user = userRepository.findByUsername(username).orElseThrow();
+                        User user = userStore.findByUsername(username).orElseThrow();
 
                         // Check if user has read receipts enabled
                         if (!user.isReadReceiptsEnabled()) {
@@ -191,7 +189,7 @@ public class ChatMessagingController {
                                 messagingTemplate.convertAndSend("/topic/rooms/" + roomId + "/status", (Object) statusEvent);
                         }
                 } catch (Exception e) {
-                        System.err.println("❌ Error in markSeen: " + e.getMessage());
+                        log.warn("❌ Error in markSeen for room {}: {}", roomId, e.getMessage());
                 }
         }
 
@@ -199,7 +197,7 @@ public class ChatMessagingController {
         public void updateStatus(@Payload StatusPayload payload, Authentication authentication) {
                 if (authentication == null) return;
                 String username = authentication.getName();
-                User user = userRepository.findByUsername(username).orElseThrow();
+                User user = userStore.findByUsername(username).orElseThrow();
 
                 try {
                         User.UserStatus newStatus = User.UserStatus.valueOf(payload.status().toUpperCase());
@@ -234,7 +232,7 @@ public class ChatMessagingController {
                         Authentication authentication) {
                 if (authentication == null) return;
                 String username = authentication.getName();
-                User user = userRepository.findByUsername(username).orElseThrow();
+                User user = userStore.findByUsername(username).orElseThrow();
 
                 Map<String, Object> typingEvent = Map.of(
                                 "type", "TYPING",
@@ -253,7 +251,7 @@ public class ChatMessagingController {
                         Authentication authentication) {
                 if (authentication == null) return;
                 String username = authentication.getName();
-                User user = userRepository.findByUsername(username).orElseThrow();
+                User user = userStore.findByUsername(username).orElseThrow();
 
                 Map<String, Object> joinEvent = Map.of(
                                 "type", "USER_JOINED",
@@ -272,7 +270,7 @@ public class ChatMessagingController {
                         Authentication authentication) {
                 if (authentication == null) return;
                 String username = authentication.getName();
-                User user = userRepository.findByUsername(username).orElseThrow();
+                User user = userStore.findByUsername(username).orElseThrow();
 
                 Map<String, Object> leaveEvent = Map.of(
                                 "type", "USER_LEFT",
@@ -286,7 +284,8 @@ public class ChatMessagingController {
         }
 
         // Payload record classes
-        public record MessagePayload(String text, String content) {
+        // ttlSeconds is optional: the message disappears after that long, or sooner if the room says so
+        public record MessagePayload(String text, String content, Long ttlSeconds) {
                 public String getText() {
                         if (content != null && !content.isBlank()) return content;
                         if (text != null && !text.isBlank()) return text;
@@ -299,4 +298,7 @@ public class ChatMessagingController {
 
         public record TypingPayload(boolean isTyping) {
         }
+
+        public record AckPayload(Map<String, Object> rooms) {
+        }
 }
\ No newline at end of file
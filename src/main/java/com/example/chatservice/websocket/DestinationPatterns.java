@@ -0,0 +1,102 @@
+package com.example.chatservice.websocket;
+
+/**
+ * Collapses concrete STOMP destinations into low-cardinality patterns for metric tags,
+ * e.g. {@code /topic/rooms/65f.../events} becomes {@code /topic/rooms/{roomId}/events}.
+ */
+public final class DestinationPatterns {
+
+    private static final String USER_PREFIX = "/user/";
+    private static final String USER_SESSION_SUFFIX = "-user";
+
+    private DestinationPatterns() {
+    }
+
+    public static String normalize(String destination) {
+        if (destination == null || destination.isEmpty()) {
+            return "none";
+        }
+
+        String path = stripUser(destination);
+        String[] segments = path.split("/");
+        StringBuilder pattern = new StringBuilder(path.length());
+        String previous = "";
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            pattern.append('/');
+            if (previous.equals("rooms")) {
+                pattern.append("{roomId}");
+            } else if (previous.equals("user-status")) {
+                pattern.append("{username}");
+            } else if (isObjectId(segment)) {
+                pattern.append("{id}");
+            } else {
+                pattern.append(stripSessionSuffix(segment));
+            }
+            previous = segment;
+        }
+        return pattern.length() == 0 ? "/" : pattern.toString();
+    }
+
+    /**
+     * Returns the room id embedded in a {@code .../rooms/{roomId}...} destination, or null.
+     */
+    public static String roomId(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        int start = destination.indexOf("/rooms/");
+        if (start < 0) {
+            return null;
+        }
+        start += "/rooms/".length();
+        int end = destination.indexOf('/', start);
+        String roomId = end < 0 ? destination.substring(start) : destination.substring(start, end);
+        return roomId.isEmpty() ? null : roomId;
+    }
+
+    /**
+     * Stable bucket for a room so hot rooms are visible without tagging raw ids.
+     */
+    public static String roomBucket(String destination, int buckets) {
+        String roomId = roomId(destination);
+        if (roomId == null || buckets <= 0) {
+            return "none";
+        }
+        return String.valueOf(Math.floorMod(roomId.hashCode(), buckets));
+    }
+
+    private static String stripUser(String destination) {
+        if (!destination.startsWith(USER_PREFIX)) {
+            return destination;
+        }
+        // "/user/queue/x" (subscription) or "/user/{username}/queue/x" (targeted send)
+        String rest = destination.substring(USER_PREFIX.length() - 1);
+        if (rest.startsWith("/queue/") || rest.startsWith("/topic/")) {
+            return rest;
+        }
+        int next = rest.indexOf('/', 1);
+        return next < 0 ? rest : rest.substring(next);
+    }
+
+    private static String stripSessionSuffix(String segment) {
+        int idx = segment.lastIndexOf(USER_SESSION_SUFFIX);
+        return idx > 0 ? segment.substring(0, idx) : segment;
+    }
+
+    private static boolean isObjectId(String segment) {
+        if (segment.length() != 24) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            boolean hex = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            if (!hex) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
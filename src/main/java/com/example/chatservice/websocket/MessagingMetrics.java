@@ -0,0 +1,324 @@
+package com.example.chatservice.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer instrumentation for the STOMP broker: sessions, subscriptions, channel task latency,
+ * publish rates and fan-out per destination pattern, and per-handler timings.
+ * All destination tags go through {@link DestinationPatterns}; rooms are only ever tagged by bucket.
+ */
+@Component
+public class MessagingMetrics {
+
+    public static final String PREFIX = "chat.ws";
+
+    // Clients choose destinations; past this many distinct patterns everything else is tagged "other".
+    private static final int MAX_DESTINATION_PATTERNS = 200;
+
+    private final MeterRegistry registry;
+    private final ObjectProvider<WebSocketMessageBrokerStats> brokerStats;
+    private final int roomBuckets;
+
+    // sessionId -> (subscriptionId -> broker destination)
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    // exact destination -> subscriber count, used for fan-out
+    private final Map<String, AtomicInteger> subscribersByDestination = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> subscriptionsByPattern = new ConcurrentHashMap<>();
+    private final Set<String> knownPatterns = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Counter> publishCounters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> fanOutSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outboundCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> handlerTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> outboundShedCounters = new ConcurrentHashMap<>();
+    private final Map<OutboundLane, Timer> outboundWaitTimers = new ConcurrentHashMap<>();
+
+    public MessagingMetrics(MeterRegistry registry,
+                            ObjectProvider<WebSocketMessageBrokerStats> brokerStats,
+                            @Value("${app.metrics.room-buckets:8}") int roomBuckets) {
+        this.registry = registry;
+        this.brokerStats = brokerStats;
+        this.roomBuckets = roomBuckets;
+
+        Gauge.builder(PREFIX + ".sessions", sessions, Map::size)
+                .description("Connected STOMP sessions")
+                .register(registry);
+    }
+
+    // --- Sessions and subscriptions ---
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (sessionId != null) {
+            sessions.putIfAbsent(sessionId, new ConcurrentHashMap<>());
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+        String brokerDestination = brokerDestination(destination, sessionId);
+        String previous = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .put(subscriptionId, brokerDestination);
+        if (previous != null) {
+            subscriptionRemoved(previous);
+        }
+        subscriptionAdded(brokerDestination);
+    }
+
+    /**
+     * A "/user/queue/x" subscription is held by the broker as "/queue/x-user{sessionId}"; key fan-out on
+     * that so user-targeted sends are matched like any other destination.
+     */
+    private static String brokerDestination(String destination, String sessionId) {
+        if (destination.startsWith("/user/")) {
+            return destination.substring("/user".length()) + "-user" + sessionId;
+        }
+        return destination;
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subscriptions != null && accessor.getSubscriptionId() != null) {
+            String destination = subscriptions.remove(accessor.getSubscriptionId());
+            if (destination != null) {
+                subscriptionRemoved(destination);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::subscriptionRemoved);
+        }
+        registry.counter(PREFIX + ".disconnects", "reason", closeReason(event.getCloseStatus())).increment();
+    }
+
+    private void subscriptionAdded(String destination) {
+        subscribersByDestination.computeIfAbsent(destination, d -> new AtomicInteger()).incrementAndGet();
+        patternGauge(pattern(destination)).incrementAndGet();
+    }
+
+    private void subscriptionRemoved(String destination) {
+        subscribersByDestination.computeIfPresent(destination,
+                (d, count) -> count.decrementAndGet() <= 0 ? null : count);
+        patternGauge(pattern(destination)).decrementAndGet();
+    }
+
+    private AtomicInteger patternGauge(String pattern) {
+        return subscriptionsByPattern.computeIfAbsent(pattern, p -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder(PREFIX + ".subscriptions", count, AtomicInteger::get)
+                    .description("Active STOMP subscriptions")
+                    .tag("destination", p)
+                    .register(registry);
+            return count;
+        });
+    }
+
+    private String pattern(String destination) {
+        String pattern = DestinationPatterns.normalize(destination);
+        if (knownPatterns.contains(pattern)) {
+            return pattern;
+        }
+        if (knownPatterns.size() < MAX_DESTINATION_PATTERNS) {
+            knownPatterns.add(pattern);
+            return pattern;
+        }
+        return "other";
+    }
+
+    /**
+     * Spring closes a session with SESSION_NOT_RELIABLE when its send-time or buffer-size limit is
+     * exceeded, i.e. the client could not keep up.
+     */
+    private static String closeReason(CloseStatus status) {
+        if (status == null) {
+            return "unknown";
+        }
+        if (status.equalsCode(CloseStatus.NORMAL)) {
+            return "normal";
+        }
+        if (status.equalsCode(CloseStatus.GOING_AWAY)) {
+            return "going_away";
+        }
+        if (status.equalsCode(CloseStatus.SESSION_NOT_RELIABLE)) {
+            return "slow_consumer";
+        }
+        if (status.equalsCode(CloseStatus.SERVER_ERROR)) {
+            return "server_error";
+        }
+        if (status.equalsCode(CloseStatus.NO_STATUS_CODE) || status.equalsCode(CloseStatus.NO_CLOSE_FRAME)) {
+            return "abnormal";
+        }
+        if (status.equalsCode(CloseStatus.PROTOCOL_ERROR)) {
+            return "protocol_error";
+        }
+        return "other";
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void bindBrokerStats() {
+        WebSocketMessageBrokerStats stats = brokerStats.getIfAvailable();
+        if (stats == null || stats.getWebSocketSessionStats() == null) {
+            return;
+        }
+        SubProtocolWebSocketHandler.Stats sessionStats = stats.getWebSocketSessionStats();
+        sessionCounter("limit.exceeded", "Sessions closed after exceeding the send-time or send-buffer limit",
+                sessionStats, s -> s.getLimitExceededSessions());
+        sessionCounter("no.messages.received", "Sessions closed because no CONNECT frame arrived in time",
+                sessionStats, s -> s.getNoMessagesReceivedSessions());
+        sessionCounter("transport.errors", "Sessions closed after a transport error",
+                sessionStats, s -> s.getTransportErrorSessions());
+    }
+
+    private void sessionCounter(String name, String description, SubProtocolWebSocketHandler.Stats stats,
+                                ToDoubleFunction<SubProtocolWebSocketHandler.Stats> value) {
+        FunctionCounter.builder(PREFIX + ".sessions." + name, stats, value)
+                .description(description)
+                .register(registry);
+    }
+
+    // --- Channels ---
+
+    /**
+     * Wraps every task submitted to a channel executor to record time spent queued and time spent running.
+     */
+    public TaskDecorator taskDecorator(String channel) {
+        Timer waitTimer = Timer.builder(PREFIX + ".channel.task.wait")
+                .description("Time a message waited in the channel executor queue")
+                .tag("channel", channel)
+                .register(registry);
+        Timer runTimer = Timer.builder(PREFIX + ".channel.task.duration")
+                .description("Time spent handling a message on the channel executor")
+                .tag("channel", channel)
+                .register(registry);
+
+        return task -> {
+            long queuedAt = System.nanoTime();
+            return () -> {
+                long startedAt = System.nanoTime();
+                waitTimer.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    runTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        };
+    }
+
+    // --- Destinations ---
+
+    /**
+     * A message published to the broker. Fan-out is the number of subscriptions it was delivered to.
+     */
+    public void published(String destination) {
+        String pattern = pattern(destination);
+        String bucket = DestinationPatterns.roomBucket(destination, roomBuckets);
+
+        publishCounters.computeIfAbsent(pattern + '|' + bucket, key -> Counter.builder(PREFIX + ".publish")
+                .description("Messages published to the broker")
+                .tag("destination", pattern)
+                .tag("room.bucket", bucket)
+                .register(registry)).increment();
+
+        AtomicInteger subscribers = subscribersByDestination.get(destination);
+        int fanOut = subscribers != null ? subscribers.get() : 0;
+        fanOutSummaries.computeIfAbsent(pattern, key -> DistributionSummary.builder(PREFIX + ".fanout")
+                .description("Subscribers reached per published message")
+                .tag("destination", pattern)
+                .register(registry)).record(fanOut);
+    }
+
+    /**
+     * A frame handed to the client outbound channel.
+     */
+    public void outbound(String type, String destination) {
+        String pattern = destination != null ? pattern(destination) : "none";
+        outboundCounters.computeIfAbsent(type + '|' + pattern, key -> Counter.builder(PREFIX + ".outbound.frames")
+                .description("Frames sent to clients")
+                .tag("type", type)
+                .tag("destination", pattern)
+                .register(registry)).increment();
+    }
+
+    // --- Per-session outbound lanes ---
+
+    /**
+     * A low-priority frame that was not written: {@code coalesced} (replaced by a newer one) or
+     * {@code dropped} (the session was behind).
+     */
+    void outboundShed(OutboundLane lane, String reason) {
+        outboundShedCounters.computeIfAbsent(lane.name() + '|' + reason, key -> Counter.builder(PREFIX + ".outbound.shed")
+                .description("Outbound frames coalesced or dropped for sessions that fell behind")
+                .tag("lane", lane.name().toLowerCase())
+                .tag("reason", reason)
+                .register(registry)).increment();
+    }
+
+    /**
+     * Time a frame spent in its session's outbound lane before the write started.
+     */
+    void outboundWait(OutboundLane lane, long nanos) {
+        outboundWaitTimers.computeIfAbsent(lane, key -> Timer.builder(PREFIX + ".outbound.lane.wait")
+                .description("Time frames wait in a session's outbound lane")
+                .tag("lane", lane.name().toLowerCase())
+                .publishPercentiles(0.5, 0.99)
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    <T> void bindOutboundBacklog(T sessions, ToDoubleFunction<T> queuedBytes) {
+        Gauge.builder(PREFIX + ".outbound.queued.bytes", sessions, queuedBytes)
+                .description("Bytes queued in outbound lanes across all sessions")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public void handled(String destination, long durationNanos, Throwable failure) {
+        String pattern = pattern(destination);
+        String outcome = failure == null ? "success" : "error";
+        handlerTimers.computeIfAbsent(pattern + '|' + outcome, key -> Timer.builder(PREFIX + ".handler")
+                .description("@MessageMapping handler execution time")
+                .tag("destination", pattern)
+                .tag("outcome", outcome)
+                .register(registry)).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+}
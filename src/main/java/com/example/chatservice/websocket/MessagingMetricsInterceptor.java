@@ -0,0 +1,72 @@
+package com.example.chatservice.websocket;
+
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+/**
+ * Feeds {@link MessagingMetrics} from one of the three broker channels. On the inbound channel it times
+ * {@code @MessageMapping} handlers, on the broker channel it counts publishes and fan-out, and on the
+ * outbound channel it counts frames sent to clients.
+ */
+public class MessagingMetricsInterceptor implements ExecutorChannelInterceptor {
+
+    public enum Channel {
+        INBOUND, BROKER, OUTBOUND
+    }
+
+    private final MessagingMetrics metrics;
+    private final Channel channel;
+    private final ThreadLocal<Long> handlerStart = new ThreadLocal<>();
+
+    public MessagingMetricsInterceptor(MessagingMetrics metrics, Channel channel) {
+        this.metrics = metrics;
+        this.channel = channel;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel messageChannel) {
+        if (channel == Channel.INBOUND) {
+            return message;
+        }
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+
+        if (channel == Channel.BROKER) {
+            // "/user/..." sends are resolved to per-session queues and re-published; count those instead
+            if (type == SimpMessageType.MESSAGE && destination != null && !destination.startsWith("/user/")) {
+                metrics.published(destination);
+            }
+        } else {
+            String typeTag = type != null ? type.name() : "OTHER";
+            metrics.outbound(typeTag, type == SimpMessageType.MESSAGE ? destination : null);
+        }
+        return message;
+    }
+
+    @Override
+    public Message<?> beforeHandle(@NonNull Message<?> message, @NonNull MessageChannel messageChannel,
+                                   @NonNull MessageHandler handler) {
+        if (channel == Channel.INBOUND && handler instanceof SimpAnnotationMethodMessageHandler
+                && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+            handlerStart.set(System.nanoTime());
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(@NonNull Message<?> message, @NonNull MessageChannel messageChannel,
+                                    @NonNull MessageHandler handler, Exception ex) {
+        Long start = handlerStart.get();
+        if (start == null) {
+            return;
+        }
+        handlerStart.remove();
+        metrics.handled(SimpMessageHeaderAccessor.getDestination(message.getHeaders()), System.nanoTime() - start, ex);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.chatservice.websocket;
+
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * Priority classes for frames written to a client, highest first. Classification reads the encoded STOMP
+ * frame's command and {@code destination} header, so it works on whatever the broker produced without
+ * touching the handlers.
+ */
+enum OutboundLane {
+    /** Non-MESSAGE frames: CONNECTED, RECEIPT, ERROR, heart-beats. Never dropped. */
+    CONTROL,
+    /** Chat messages, room events and notifications. Never dropped. */
+    MESSAGE,
+    /** Delivered/seen status updates. Dropped when the session is backed up. */
+    RECEIPT,
+    /** Typing indicators and presence changes. Coalesced per user, dropped when the session lags. */
+    PRESENCE;
+
+    private static final String MESSAGE_COMMAND = "MESSAGE\n";
+    private static final String DESTINATION_HEADER = "\ndestination:";
+
+    static OutboundLane of(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage text)) {
+            return CONTROL;
+        }
+        String frame = text.getPayload();
+        if (!frame.startsWith(MESSAGE_COMMAND)) {
+            return CONTROL;
+        }
+        String destination = destination(frame);
+        if (destination == null) {
+            return MESSAGE;
+        }
+        if (destination.endsWith("/typing") || destination.startsWith("/topic/user-status/")) {
+            return PRESENCE;
+        }
+        if (destination.endsWith("/status")) {
+            return RECEIPT;
+        }
+        if (destination.endsWith("/events") && frame.contains("\"type\":\"STATUS_UPDATE\"")) {
+            return PRESENCE;
+        }
+        return MESSAGE;
+    }
+
+    static String destination(String frame) {
+        int headerEnd = frame.indexOf("\n\n");
+        int start = frame.indexOf(DESTINATION_HEADER);
+        if (start < 0 || (headerEnd >= 0 && start > headerEnd)) {
+            return null;
+        }
+        start += DESTINATION_HEADER.length();
+        int end = frame.indexOf('\n', start);
+        return end < 0 ? frame.substring(start) : frame.substring(start, end);
+    }
+
+    /**
+     * Key under which a queued presence frame is replaced by a newer one: the same destination and the same
+     * user, so only the latest typing or status state per user is kept.
+     */
+    static String coalescingKey(WebSocketMessage<?> message) {
+        String frame = ((TextMessage) message).getPayload();
+        String destination = destination(frame);
+        int user = frame.indexOf("\"username\":\"");
+        if (user < 0) {
+            return destination;
+        }
+        int start = user + "\"username\":\"".length();
+        int end = frame.indexOf('"', start);
+        return destination + '|' + (end < 0 ? frame.substring(start) : frame.substring(start, end));
+    }
+}
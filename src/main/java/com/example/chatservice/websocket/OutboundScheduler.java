@@ -0,0 +1,161 @@
+package com.example.chatservice.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Installs a {@link PrioritizedWebSocketSession} under every STOMP session and owns the writer threads that
+ * drain them. The pool is fixed at {@code app.ws.outbound.writer-threads}; sessions with a backlog wait in its
+ * queue, and each drain gives its thread back after {@code drain-batch} frames, so a fan-out to many slow
+ * sessions shares the pool instead of starting a thread per session.
+ *
+ * <p>A client that stops reading leaves its write blocked on a full TCP buffer. Tomcat fails such a write
+ * after its blocking send timeout, which is set to the send-time limit on every session, so a stuck client
+ * holds a writer thread for about that long whether or not anything else is sent to it. The
+ * "outbound-watchdog" thread looks for writes past the limit every quarter of it, at most a second apart,
+ * and closes their sessions with {@code SESSION_NOT_RELIABLE}, for containers without such a timeout.
+ */
+@Component
+public class OutboundScheduler {
+
+    // Milliseconds, as a Long, after which Tomcat fails a blocked write; 20 seconds when unset
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    record Limits(long sendTimeLimitNanos, long bufferSizeBytes, long lowPriorityBufferBytes, long lagThresholdNanos,
+                  int drainBatch) {
+    }
+
+    private final Limits limits;
+    private final MessagingMetrics metrics;
+    private final ThreadPoolTaskExecutor writer;
+    private final Map<String, PrioritizedWebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final long watchdogIntervalNanos;
+
+    private volatile boolean running;
+    private Thread watchdog;
+
+    public OutboundScheduler(@Value("${app.ws.outbound.send-time-limit-ms:10000}") long sendTimeLimitMs,
+                             @Value("${app.ws.outbound.buffer-size-limit-kb:512}") int bufferSizeLimitKb,
+                             @Value("${app.ws.outbound.low-priority-buffer-kb:64}") int lowPriorityBufferKb,
+                             @Value("${app.ws.outbound.lag-threshold-ms:250}") long lagThresholdMs,
+                             @Value("${app.ws.outbound.writer-threads:0}") int writerThreads,
+                             @Value("${app.ws.outbound.drain-batch:32}") int drainBatch,
+                             MessagingMetrics metrics) {
+        this.limits = new Limits(TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs), bufferSizeLimitKb * 1024L,
+                lowPriorityBufferKb * 1024L, TimeUnit.MILLISECONDS.toNanos(lagThresholdMs), drainBatch);
+        this.metrics = metrics;
+        this.watchdogIntervalNanos = Math.max(1, Math.min(TimeUnit.SECONDS.toNanos(1), limits.sendTimeLimitNanos() / 4));
+
+        // Writes mostly wait on sockets, so allow a few per core; 0 means the default
+        int threads = writerThreads > 0 ? writerThreads : Runtime.getRuntime().availableProcessors() * 4;
+        this.writer = new ThreadPoolTaskExecutor();
+        writer.setCorePoolSize(threads);
+        writer.setMaxPoolSize(threads);
+        // One task per session with a backlog, so the queue is bounded by the number of sessions
+        writer.setQueueCapacity(Integer.MAX_VALUE);
+        writer.setThreadNamePrefix("clientOutboundWriter-");
+        writer.initialize();
+
+        metrics.bindOutboundBacklog(sessions, s -> s.values().stream()
+                .mapToLong(PrioritizedWebSocketSession::queuedBytes).sum());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        watchdog = new Thread(this::runWatchdog, "outbound-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (watchdog != null) {
+            LockSupport.unpark(watchdog);
+            watchdog.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        writer.shutdown();
+    }
+
+    private void runWatchdog() {
+        while (running) {
+            long now = System.nanoTime();
+            for (PrioritizedWebSocketSession session : sessions.values()) {
+                session.closeIfStalled(now);
+            }
+            LockSupport.parkNanos(this, watchdogIntervalNanos);
+        }
+    }
+
+    public int sendTimeLimitMillis() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(limits.sendTimeLimitNanos());
+    }
+
+    public int bufferSizeLimitBytes() {
+        return (int) limits.bufferSizeBytes();
+    }
+
+    private void limitBlockingSends(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativeSession) {
+            Session standard = nativeSession.getNativeSession(Session.class);
+            if (standard != null) {
+                standard.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT,
+                        TimeUnit.NANOSECONDS.toMillis(limits.sendTimeLimitNanos()));
+            }
+        }
+    }
+
+    /**
+     * Decorator factory for {@code WebSocketTransportRegistration#addDecoratorFactory}.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                limitBlockingSends(session);
+                PrioritizedWebSocketSession prioritized = new PrioritizedWebSocketSession(session, limits, writer, metrics);
+                sessions.put(session.getId(), prioritized);
+                super.afterConnectionEstablished(prioritized);
+            }
+
+            @Override
+            public void handleMessage(@NonNull WebSocketSession session, @NonNull WebSocketMessage<?> message) throws Exception {
+                PrioritizedWebSocketSession prioritized = sessions.get(session.getId());
+                super.handleMessage(prioritized != null ? prioritized : session, message);
+            }
+
+            @Override
+            public void handleTransportError(@NonNull WebSocketSession session, @NonNull Throwable exception) throws Exception {
+                PrioritizedWebSocketSession prioritized = sessions.get(session.getId());
+                super.handleTransportError(prioritized != null ? prioritized : session, exception);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+                PrioritizedWebSocketSession prioritized = sessions.remove(session.getId());
+                if (prioritized != null) {
+                    prioritized.discard();
+                }
+                super.afterConnectionClosed(prioritized != null ? prioritized : session, closeStatus);
+            }
+        };
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.chatservice.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-session outbound scheduler. {@link #sendMessage} only enqueues the frame into its {@link OutboundLane}
+ * and returns; a writer task drains the lanes highest priority first, one frame at a time. A client that
+ * cannot keep up therefore sees its chat messages ahead of queued receipts and typing noise. The noise is
+ * shed first: presence frames are coalesced per user and dropped once the session lags, and receipts are
+ * dropped past the low-priority buffer limit.
+ *
+ * <p>A drain writes at most {@code drainBatch} frames and then requeues itself behind other sessions'
+ * drains, so a long backlog does not keep a writer thread to itself.
+ *
+ * <p>{@link #close(CloseStatus)} is queued behind the pending frames, so the ERROR frame Spring sends just
+ * before closing reaches the client; frames sent after it are dropped.
+ *
+ * <p>If high-priority frames alone exceed the buffer limit, or one write blocks past the send-time limit,
+ * the next send throws {@link SessionLimitExceededException}. Spring's sub-protocol handler then closes the
+ * session with {@code SESSION_NOT_RELIABLE}, the same as when its own limits trip; that close is immediate.
+ * A blocked write with nothing more to send is caught by the {@link OutboundScheduler} watchdog instead,
+ * through {@link #closeIfStalled}.
+ */
+class PrioritizedWebSocketSession extends WebSocketSessionDecorator {
+
+    private static final Logger log = LoggerFactory.getLogger(PrioritizedWebSocketSession.class);
+
+    private final OutboundScheduler.Limits limits;
+    private final Executor writer;
+    private final MessagingMetrics metrics;
+
+    // All queue state is guarded by lock
+    private final Object lock = new Object();
+    private final ArrayDeque<Envelope> control = new ArrayDeque<>();
+    private final ArrayDeque<Envelope> messages = new ArrayDeque<>();
+    private final ArrayDeque<Envelope> receipts = new ArrayDeque<>();
+    private final LinkedHashMap<String, Envelope> presence = new LinkedHashMap<>();
+    private long queuedBytes;
+    private boolean drainScheduled;
+    private boolean closed;
+    // Set by close() while frames are still queued; the drain closes the session once they are written
+    private CloseStatus closeAfterFlush;
+
+    // Start of the write in progress, 0 when idle
+    private volatile long writeStartedAt;
+
+    PrioritizedWebSocketSession(WebSocketSession delegate, OutboundScheduler.Limits limits, Executor writer,
+                                MessagingMetrics metrics) {
+        super(delegate);
+        this.limits = limits;
+        this.writer = writer;
+        this.metrics = metrics;
+    }
+
+    private record Envelope(WebSocketMessage<?> message, OutboundLane lane, int bytes, long enqueuedAt) {
+    }
+
+    @Override
+    public void sendMessage(@NonNull WebSocketMessage<?> message) throws IOException {
+        long now = System.nanoTime();
+        long writeStarted = writeStartedAt;
+        if (writeStarted != 0 && now - writeStarted > limits.sendTimeLimitNanos()) {
+            discard();
+            throw new SessionLimitExceededException("Write to session " + getId() + " blocked for more than "
+                    + TimeUnit.NANOSECONDS.toMillis(limits.sendTimeLimitNanos()) + " ms",
+                    CloseStatus.SESSION_NOT_RELIABLE);
+        }
+
+        OutboundLane lane = OutboundLane.of(message);
+        Envelope envelope = new Envelope(message, lane, message.getPayloadLength(), now);
+        boolean schedule;
+        synchronized (lock) {
+            if (closed || closeAfterFlush != null) {
+                return;
+            }
+            boolean lagging = writeStarted != 0 && now - writeStarted > limits.lagThresholdNanos();
+            switch (lane) {
+                case PRESENCE -> {
+                    if (lagging || queuedBytes + envelope.bytes() > limits.lowPriorityBufferBytes()) {
+                        metrics.outboundShed(lane, "dropped");
+                        return;
+                    }
+                    Envelope replaced = presence.put(OutboundLane.coalescingKey(message), envelope);
+                    if (replaced != null) {
+                        queuedBytes -= replaced.bytes();
+                        metrics.outboundShed(lane, "coalesced");
+                    }
+                }
+                case RECEIPT -> {
+                    if (queuedBytes + envelope.bytes() > limits.lowPriorityBufferBytes()) {
+                        metrics.outboundShed(lane, "dropped");
+                        return;
+                    }
+                    receipts.addLast(envelope);
+                }
+                case MESSAGE -> messages.addLast(envelope);
+                case CONTROL -> control.addLast(envelope);
+            }
+            queuedBytes += envelope.bytes();
+
+            if (queuedBytes > limits.bufferSizeBytes()) {
+                shedLowPriority();
+            }
+            if (queuedBytes > limits.bufferSizeBytes()) {
+                long backlog = queuedBytes;
+                clear();
+                closed = true;
+                throw new SessionLimitExceededException("Outbound backlog of " + backlog + " bytes for session "
+                        + getId() + " exceeds the buffer limit", CloseStatus.SESSION_NOT_RELIABLE);
+            }
+            schedule = !drainScheduled;
+            drainScheduled = true;
+        }
+        if (schedule) {
+            writer.execute(this::drain);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(@NonNull CloseStatus status) throws IOException {
+        synchronized (lock) {
+            boolean flush = !closed && !CloseStatus.SESSION_NOT_RELIABLE.equals(status) && closeAfterFlush == null
+                    && (drainScheduled || queuedBytes > 0);
+            if (flush) {
+                closeAfterFlush = status;
+                return;
+            }
+            if (closeAfterFlush != null && !CloseStatus.SESSION_NOT_RELIABLE.equals(status)) {
+                // Already closing once the queue is written
+                return;
+            }
+            closed = true;
+            clear();
+        }
+        getDelegate().close(status);
+    }
+
+    private void drain() {
+        for (int written = 0; ; written++) {
+            Envelope next;
+            CloseStatus closeStatus = null;
+            boolean yielded = false;
+            synchronized (lock) {
+                next = closed ? null : poll();
+                if (next == null) {
+                    drainScheduled = false;
+                    if (!closed && closeAfterFlush != null) {
+                        closed = true;
+                        closeStatus = closeAfterFlush;
+                    }
+                } else if (written >= limits.drainBatch()) {
+                    // Give the thread to the next session; the rest is written on the next turn
+                    requeue(next);
+                    next = null;
+                    yielded = true;
+                }
+                if (next != null) {
+                    queuedBytes -= next.bytes();
+                }
+            }
+            if (next == null) {
+                if (closeStatus != null) {
+                    closeQuietly(closeStatus);
+                } else if (yielded) {
+                    writer.execute(this::drain);
+                }
+                return;
+            }
+            long started = System.nanoTime();
+            metrics.outboundWait(next.lane(), started - next.enqueuedAt());
+            writeStartedAt = started;
+            try {
+                getDelegate().sendMessage(next.message());
+            } catch (IOException | RuntimeException e) {
+                log.debug("Failed to write to WebSocket session {}: {}", getId(), e.getMessage());
+                discard();
+                // A write the container gave up on after the send-time limit is a slow client, not a fault
+                boolean timedOut = System.nanoTime() - started >= limits.sendTimeLimitNanos();
+                closeQuietly(timedOut ? CloseStatus.SESSION_NOT_RELIABLE : CloseStatus.SERVER_ERROR);
+                synchronized (lock) {
+                    drainScheduled = false;
+                }
+                return;
+            } finally {
+                writeStartedAt = 0;
+            }
+        }
+    }
+
+    /**
+     * Closes the session with {@code SESSION_NOT_RELIABLE} if the write in progress started more than the
+     * send-time limit before {@code now}. Closing the underlying session fails the blocked write, which gives
+     * its writer thread back.
+     */
+    void closeIfStalled(long now) {
+        long writeStarted = writeStartedAt;
+        if (writeStarted == 0 || now - writeStarted <= limits.sendTimeLimitNanos()) {
+            return;
+        }
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            clear();
+        }
+        log.debug("Closing WebSocket session {}: write blocked for more than {} ms", getId(),
+                TimeUnit.NANOSECONDS.toMillis(limits.sendTimeLimitNanos()));
+        closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        try {
+            getDelegate().close(status);
+        } catch (IOException ignored) {
+            // Already broken
+        }
+    }
+
+    // Called under lock; puts back a frame taken by poll() at the head of its lane
+    private void requeue(Envelope envelope) {
+        switch (envelope.lane()) {
+            case CONTROL -> control.addFirst(envelope);
+            case MESSAGE -> messages.addFirst(envelope);
+            case RECEIPT -> receipts.addFirst(envelope);
+            case PRESENCE -> presence.putIfAbsent(OutboundLane.coalescingKey(envelope.message()), envelope);
+        }
+    }
+
+    // Called under lock
+    private Envelope poll() {
+        if (!control.isEmpty()) {
+            return control.pollFirst();
+        }
+        if (!messages.isEmpty()) {
+            return messages.pollFirst();
+        }
+        if (!receipts.isEmpty()) {
+            return receipts.pollFirst();
+        }
+        Iterator<Map.Entry<String, Envelope>> it = presence.entrySet().iterator();
+        if (it.hasNext()) {
+            Envelope first = it.next().getValue();
+            it.remove();
+            return first;
+        }
+        return null;
+    }
+
+    // Called under lock
+    private void shedLowPriority() {
+        for (Envelope envelope : receipts) {
+            queuedBytes -= envelope.bytes();
+            metrics.outboundShed(OutboundLane.RECEIPT, "dropped");
+        }
+        receipts.clear();
+        for (Envelope envelope : presence.values()) {
+            queuedBytes -= envelope.bytes();
+            metrics.outboundShed(OutboundLane.PRESENCE, "dropped");
+        }
+        presence.clear();
+    }
+
+    // Called under lock
+    private void clear() {
+        control.clear();
+        messages.clear();
+        receipts.clear();
+        presence.clear();
+        queuedBytes = 0;
+    }
+
+    /**
+     * Drops everything still queued; the session is closed or about to be.
+     */
+    void discard() {
+        synchronized (lock) {
+            closed = true;
+            clear();
+        }
+    }
+
+    long queuedBytes() {
+        synchronized (lock) {
+            return queuedBytes;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.chatservice.websocket;
+
+import com.example.chatservice.ratelimit.RateLimitScope;
+import com.example.chatservice.ratelimit.RateLimiter;
+import com.example.chatservice.security.UserPrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Drops STOMP SEND frames that exceed the sender's budget before they are queued for the inbound
+ * executor, so a flooding client costs a bucket update rather than a handler run and its store round trips.
+ * Runs after {@link WebSocketJwtInterceptor}, which has already attached the user.
+ *
+ * <p>The client is told via {@code /user/queue/errors} with a {@code retryAfterMs} hint, at most once per
+ * second per budget.
+ */
+@Component
+public class RateLimitInterceptor implements ChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    private final RateLimiter rateLimiter;
+    // Resolved lazily: the template depends on the broker configuration this interceptor is part of
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, ObjectProvider<SimpMessagingTemplate> messagingTemplate) {
+        this.rateLimiter = rateLimiter;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SEND.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String destination = accessor.getDestination();
+        Principal user = accessor.getUser();
+        String userId = userId(user);
+        String subject = userId != null ? userId : "session:" + accessor.getSessionId();
+        RateLimitScope scope = RateLimitScope.forDestination(destination);
+
+        RateLimiter.Decision decision = rateLimiter.check(scope, subject);
+        if (decision.allowed() && scope == RateLimitScope.SEND) {
+            decision = rateLimiter.checkSlowMode(DestinationPatterns.roomId(destination), userId);
+        }
+        if (decision.allowed()) {
+            return message;
+        }
+
+        log.debug("🚦 Dropped {} frame to {} from {} ({}, retry in {} ms)",
+                scope.key(), destination, subject, decision.reason(), decision.retryAfterMillis());
+        if (user != null && rateLimiter.shouldNotify(scope, subject)) {
+            notifyRejected(user.getName(), destination, scope, decision);
+        }
+        return null;
+    }
+
+    private void notifyRejected(String username, String destination, RateLimitScope scope, RateLimiter.Decision decision) {
+        Map<String, Object> errorEvent = new HashMap<>();
+        errorEvent.put("type", "ERROR");
+        errorEvent.put("code", "slow_mode".equals(decision.reason()) ? "SLOW_MODE" : "RATE_LIMITED");
+        errorEvent.put("message", "slow_mode".equals(decision.reason())
+                ? "Slow mode is on in this room. Please wait before sending another message."
+                : "You are sending too fast. Please slow down.");
+        errorEvent.put("scope", scope.key());
+        errorEvent.put("destination", destination);
+        errorEvent.put("retryAfterMs", decision.retryAfterMillis());
+        errorEvent.put("timestamp", System.currentTimeMillis());
+        try {
+            messagingTemplate.getObject().convertAndSendToUser(username, "/queue/errors", errorEvent);
+        } catch (Exception e) {
+            log.warn("❌ Failed to send rate limit notice to {}: {}", username, e.getMessage());
+        }
+    }
+
+    private static String userId(Principal user) {
+        if (user instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        return user != null ? user.getName() : null;
+    }
+}
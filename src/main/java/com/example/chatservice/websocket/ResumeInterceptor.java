@@ -0,0 +1,237 @@
+package com.example.chatservice.websocket;
+
+import com.example.chatservice.Model.User;
+import com.example.chatservice.security.UserPrincipal;
+import com.example.chatservice.service.ChatRoomService;
+import com.example.chatservice.service.MessageService;
+import com.example.chatservice.store.UserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays what a reconnecting client missed in a room before live delivery takes over. The client sends
+ * the last sequence it has seen, per subscription as a {@code lastSeq} header on SUBSCRIBE to
+ * {@code /topic/rooms/{roomId}}, or for several rooms at once as {@code resume: roomId:seq,roomId:seq} on
+ * CONNECT, which then applies to the matching subscriptions.
+ *
+ * <p>The replay runs right after the broker has registered the subscription. Anything persisted by then is
+ * read back, and anything persisted later is broadcast to the new subscription, so nothing falls in
+ * between; a message may arrive twice, and clients drop sequences they already have. Replayed events go
+ * to that one subscription only, followed by a {@code RESUMED} marker, or a single {@code RESYNC_REQUIRED}
+ * if the gap is larger than {@code app.resume.max-replay} and the client should reload history instead.
+ *
+ * <p>Only users who may read the room get a replay; anyone else gets an ERROR on {@code /user/queue/errors}
+ * and no history.
+ */
+@Component
+public class ResumeInterceptor implements ExecutorChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumeInterceptor.class);
+
+    static final String LAST_SEQ_HEADER = "lastSeq";
+    static final String RESUME_HEADER = "resume";
+    private static final String RESUME_ATTRIBUTE = ResumeInterceptor.class.getName() + ".resume";
+    private static final String ROOM_TOPIC = "/topic/rooms/";
+
+    private final int maxReplay;
+    private final UserStore userStore;
+    // Resolved lazily: these depend on the broker configuration this interceptor is part of
+    private final ObjectProvider<MessageService> messageService;
+    private final ObjectProvider<ChatRoomService> chatRoomService;
+    private final ObjectProvider<MessageChannel> clientOutboundChannel;
+    private final ObjectProvider<SimpMessagingTemplate> brokerTemplate;
+    private volatile SimpMessagingTemplate sessionTemplate;
+
+    public ResumeInterceptor(@Value("${app.resume.max-replay:500}") int maxReplay,
+                             UserStore userStore,
+                             ObjectProvider<MessageService> messageService,
+                             ObjectProvider<ChatRoomService> chatRoomService,
+                             @Qualifier("clientOutboundChannel") ObjectProvider<MessageChannel> clientOutboundChannel,
+                             ObjectProvider<SimpMessagingTemplate> brokerTemplate) {
+        this.maxReplay = maxReplay;
+        this.userStore = userStore;
+        this.messageService = messageService;
+        this.chatRoomService = chatRoomService;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.brokerTemplate = brokerTemplate;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+        String resume = accessor.getFirstNativeHeader(RESUME_HEADER);
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (resume == null || resume.isBlank() || attributes == null) {
+            return message;
+        }
+        Map<String, Long> positions = new HashMap<>();
+        for (String entry : resume.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            Long seq = parseSeq(entry.substring(colon + 1));
+            if (seq != null) {
+                positions.put(entry.substring(0, colon).trim(), seq);
+            }
+        }
+        attributes.put(RESUME_ATTRIBUTE, positions);
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(@NonNull Message<?> message, @NonNull MessageChannel channel,
+                                    @NonNull MessageHandler handler, Exception ex) {
+        if (ex != null || !(handler instanceof AbstractBrokerMessageHandler)
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.SUBSCRIBE) {
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(ROOM_TOPIC)
+                || destination.indexOf('/', ROOM_TOPIC.length()) >= 0) {
+            return;
+        }
+        String roomId = destination.substring(ROOM_TOPIC.length());
+        Long lastSeq = lastSeq(accessor, roomId);
+        if (lastSeq == null) {
+            return;
+        }
+
+        try {
+            String userId = userId(accessor.getUser());
+            if (userId == null || !chatRoomService.getObject().canUserAccessRoom(userId, roomId)) {
+                log.warn("🚫 Refused replay of room {} to session {}", roomId, accessor.getSessionId());
+                refuse(accessor.getUser(), roomId);
+                return;
+            }
+            replay(roomId, lastSeq, accessor.getSessionId(), accessor.getSubscriptionId(), destination, userId);
+        } catch (Exception e) {
+            log.warn("❌ Failed to replay room {} after seq {} for session {}: {}",
+                    roomId, lastSeq, accessor.getSessionId(), e.getMessage());
+        }
+    }
+
+    private void replay(String roomId, long lastSeq, String sessionId, String subscriptionId, String destination,
+                        String userId) {
+        MessageService messages = messageService.getObject();
+        List<com.example.chatservice.Model.Message> missed = messages.getMessagesAfter(roomId, lastSeq, maxReplay + 1);
+
+        Map<String, Object> marker = new HashMap<>();
+        marker.put("roomId", roomId);
+        marker.put("fromSeq", lastSeq);
+        marker.put("timestamp", System.currentTimeMillis());
+        if (missed.size() > maxReplay) {
+            log.debug("⏭️ Gap in room {} after seq {} is too large to replay", roomId, lastSeq);
+            marker.put("type", "RESYNC_REQUIRED");
+            sendToSubscription(sessionId, subscriptionId, destination, marker);
+            return;
+        }
+
+        long toSeq = lastSeq;
+        int sent = 0;
+        for (com.example.chatservice.Model.Message missedMessage : missed) {
+            toSeq = missedMessage.getSeq();
+            if (missedMessage.getDeletedForUsers() != null && missedMessage.getDeletedForUsers().contains(userId)) {
+                continue;
+            }
+            Map<String, Object> event = messages.toMessageEvent(missedMessage, missedMessage.getSender(),
+                    messages.decrypt(missedMessage.getEncryptedContent()));
+            event.put("replayed", true);
+            sendToSubscription(sessionId, subscriptionId, destination, event);
+            sent++;
+        }
+        marker.put("type", "RESUMED");
+        marker.put("toSeq", toSeq);
+        marker.put("count", sent);
+        sendToSubscription(sessionId, subscriptionId, destination, marker);
+        log.debug("🔁 Replayed {} messages in room {} after seq {} to session {}", sent, roomId, lastSeq, sessionId);
+    }
+
+    private void refuse(Principal user, String roomId) {
+        if (user == null) {
+            return;
+        }
+        Map<String, Object> error = Map.of(
+                "type", "ERROR",
+                "roomId", roomId,
+                "message", "You cannot read this room's history",
+                "timestamp", System.currentTimeMillis());
+        brokerTemplate.getObject().convertAndSendToUser(user.getName(), "/queue/errors", error);
+    }
+
+    /**
+     * Sends straight to the client outbound channel, addressed to one subscription, so only the resuming
+     * session receives the replay.
+     */
+    private void sendToSubscription(String sessionId, String subscriptionId, String destination, Object payload) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setSubscriptionId(subscriptionId);
+        headers.setLeaveMutable(true);
+        template().convertAndSend(destination, payload, headers.getMessageHeaders());
+    }
+
+    private SimpMessagingTemplate template() {
+        SimpMessagingTemplate template = sessionTemplate;
+        if (template == null) {
+            template = new SimpMessagingTemplate(clientOutboundChannel.getObject());
+            template.setMessageConverter(brokerTemplate.getObject().getMessageConverter());
+            sessionTemplate = template;
+        }
+        return template;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Long lastSeq(StompHeaderAccessor accessor, String roomId) {
+        String header = accessor.getFirstNativeHeader(LAST_SEQ_HEADER);
+        if (header != null) {
+            return parseSeq(header);
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        Object positions = attributes != null ? attributes.get(RESUME_ATTRIBUTE) : null;
+        return positions instanceof Map<?, ?> map ? ((Map<String, Long>) map).get(roomId) : null;
+    }
+
+    private static Long parseSeq(String value) {
+        try {
+            long seq = Long.parseLong(value.trim());
+            return seq >= 0 ? seq : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String userId(Principal user) {
+        if (user instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.getId();
+        }
+        return user != null ? userStore.findByUsername(user.getName()).map(User::getId).orElse(null) : null;
+    }
+}
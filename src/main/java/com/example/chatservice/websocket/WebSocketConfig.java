@@ -3,9 +3,11 @@ package com.example.chatservice.websocket;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.lang.NonNull;
 
 @Configuration
@@ -13,9 +15,19 @@ import org.springframework.lang.NonNull;
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketJwtInterceptor jwtInterceptor;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final MessagingMetrics messagingMetrics;
+    private final OutboundScheduler outboundScheduler;
+    private final ResumeInterceptor resumeInterceptor;
 
-    public WebSocketConfig(WebSocketJwtInterceptor jwtInterceptor) {
+    public WebSocketConfig(WebSocketJwtInterceptor jwtInterceptor, RateLimitInterceptor rateLimitInterceptor,
+                           MessagingMetrics messagingMetrics, OutboundScheduler outboundScheduler,
+                           ResumeInterceptor resumeInterceptor) {
         this.jwtInterceptor = jwtInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.resumeInterceptor = resumeInterceptor;
+        this.messagingMetrics = messagingMetrics;
+        this.outboundScheduler = outboundScheduler;
         System.out.println("✅ WebSocketConfig initialized!");
     }
 
@@ -24,6 +36,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        config.configureBrokerChannel()
+                .interceptors(new MessagingMetricsInterceptor(messagingMetrics, MessagingMetricsInterceptor.Channel.BROKER));
     }
 
     @Override
@@ -33,8 +47,44 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .withSockJS();
     }
 
+    /**
+     * Per-session priority lanes sit under Spring's own session decorator. Our sends return immediately, so
+     * Spring's buffer stays empty; its limits are set to the same values so both layers agree on when a
+     * client counts as too slow.
+     */
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(outboundScheduler.sendTimeLimitMillis());
+        registration.setSendBufferSizeLimit(outboundScheduler.bufferSizeLimitBytes());
+        registration.addDecoratorFactory(outboundScheduler::decorate);
+    }
+
     @Override
     public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
-        registration.interceptors(jwtInterceptor);
+        registration.taskExecutor(channelExecutor("clientInboundChannel"));
+        registration.interceptors(jwtInterceptor, rateLimitInterceptor, resumeInterceptor,
+                new MessagingMetricsInterceptor(messagingMetrics, MessagingMetricsInterceptor.Channel.INBOUND));
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        registration.taskExecutor(channelExecutor("clientOutboundChannel"));
+        registration.interceptors(
+                new MessagingMetricsInterceptor(messagingMetrics, MessagingMetricsInterceptor.Channel.OUTBOUND));
+    }
+
+    /**
+     * Same sizing as Spring's default channel executors, plus a task decorator that records queue wait
+     * and run time. The executor is initialized by the channel executor bean that returns it.
+     */
+    private ThreadPoolTaskExecutor channelExecutor(String name) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        executor.setMaxPoolSize(Integer.MAX_VALUE);
+        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix(name + "-");
+        executor.setTaskDecorator(messagingMetrics.taskDecorator(name));
+        return executor;
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.example.chatservice.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditRingTest {
+
+    private static AuditRecord record(long n) {
+        return new AuditRecord(n, Instant.EPOCH, AuditAction.MEMBER_REMOVED, "room", "actor", "target", null);
+    }
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        AuditRing ring = new AuditRing(5);
+
+        for (int i = 0; i < 8; i++) {
+            assertThat(ring.offer(record(i))).isTrue();
+        }
+        assertThat(ring.offer(record(8))).isFalse();
+        assertThat(ring.size()).isEqualTo(8);
+    }
+
+    @Test
+    void exactPowerOfTwoIsKept() {
+        AuditRing ring = new AuditRing(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(record(i))).isTrue();
+        }
+        assertThat(ring.offer(record(4))).isFalse();
+    }
+
+    @Test
+    void pollReturnsRecordsInOrderAcrossTheWrap() {
+        AuditRing ring = new AuditRing(4);
+        assertThat(ring.poll()).isNull();
+
+        long next = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertThat(ring.offer(record(next + i))).isTrue();
+            }
+            for (int i = 0; i < 3; i++) {
+                assertThat(ring.poll().sequence()).isEqualTo(next++);
+            }
+            assertThat(ring.poll()).isNull();
+        }
+        assertThat(ring.size()).isZero();
+    }
+
+    @Test
+    void fullRingAcceptsAgainOncePolled() {
+        AuditRing ring = new AuditRing(4);
+        for (int i = 0; i < 4; i++) {
+            ring.offer(record(i));
+        }
+        assertThat(ring.offer(record(4))).isFalse();
+
+        assertThat(ring.poll().sequence()).isZero();
+
+        assertThat(ring.offer(record(5))).isTrue();
+        for (long expected : new long[]{1, 2, 3, 5}) {
+            assertThat(ring.poll().sequence()).isEqualTo(expected);
+        }
+        assertThat(ring.poll()).isNull();
+    }
+
+    @Test
+    void concurrentProducersLoseNothingThatWasAccepted() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50_000;
+        AuditRing ring = new AuditRing(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    while (!ring.offer(record(base + i))) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        Set<Long> seen = new HashSet<>();
+        long[] lastPerProducer = new long[producers];
+        Arrays.fill(lastPerProducer, -1);
+        while (seen.size() < producers * perProducer) {
+            AuditRecord polled = ring.poll();
+            if (polled == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertThat(seen.add(polled.sequence())).isTrue();
+            int producer = (int) (polled.sequence() / perProducer);
+            // Each producer's records come out in the order it offered them
+            assertThat(polled.sequence()).isGreaterThan(lastPerProducer[producer]);
+            lastPerProducer[producer] = polled.sequence();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(ring.poll()).isNull();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.chatservice.expiry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    // Spans of the levels, as laid out by TimingWheel
+    private static final long LEVEL_1 = 1L << 6;
+    private static final long LEVEL_2 = 1L << 12;
+    private static final long LEVEL_3 = 1L << 18;
+    private static final long WHEEL = 1L << 24;
+
+    /**
+     * Advances one tick at a time and records the tick each item came due on.
+     */
+    private static List<long[]> run(TimingWheel<Long> wheel, long from, long to) {
+        List<long[]> fired = new ArrayList<>();
+        for (long tick = from + 1; tick <= to; tick++) {
+            long now = tick;
+            wheel.advance(tick, item -> fired.add(new long[]{item, now}));
+        }
+        return fired;
+    }
+
+    @Test
+    void firesOnItsDeadlineAtEveryLevelBoundary() {
+        long start = 0;
+        TimingWheel<Long> wheel = new TimingWheel<>(start);
+        long[] deadlines = {
+                1, LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 1,
+                LEVEL_2 - 1, LEVEL_2, LEVEL_2 + 1,
+                LEVEL_3 - 1, LEVEL_3, LEVEL_3 + 1,
+                WHEEL - 1
+        };
+        for (long deadline : deadlines) {
+            assertThat(wheel.schedule(deadline, deadline)).isTrue();
+        }
+        assertThat(wheel.size()).isEqualTo(deadlines.length);
+
+        List<long[]> fired = run(wheel, start, WHEEL);
+
+        assertThat(fired).hasSize(deadlines.length);
+        for (long[] firing : fired) {
+            assertThat(firing[1]).as("tick item %d fired on", firing[0]).isEqualTo(firing[0]);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlineOnTheStartOfAHigherSlotFiresWhenItIsCascaded() {
+        // Not aligned, so the timer sits in a level 2 slot that starts on its deadline
+        long start = 3 * LEVEL_2 + 17;
+        long deadline = 5 * LEVEL_2;
+        TimingWheel<Long> wheel = new TimingWheel<>(start);
+        wheel.schedule(deadline, deadline);
+
+        List<Long> early = new ArrayList<>();
+        wheel.advance(deadline - 1, early::add);
+        assertThat(early).isEmpty();
+
+        List<Long> due = new ArrayList<>();
+        wheel.advance(deadline, due::add);
+        assertThat(due).containsExactly(deadline);
+    }
+
+    @Test
+    void advancingPastSeveralDeadlinesAtOnceFiresThemAllInOrder() {
+        TimingWheel<Long> wheel = new TimingWheel<>(0);
+        for (long deadline : new long[]{LEVEL_2 + 5, 3, LEVEL_1 + 2}) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> due = new ArrayList<>();
+        wheel.advance(LEVEL_2 + 10, due::add);
+
+        assertThat(due).containsExactly(3L, LEVEL_1 + 2, LEVEL_2 + 5);
+    }
+
+    @Test
+    void overflowIsPlacedOnceTheWheelComesAround() {
+        long start = WHEEL - 10;
+        long near = WHEEL + 5;
+        long far = 2 * WHEEL + 3;
+        TimingWheel<Long> wheel = new TimingWheel<>(start);
+        wheel.schedule(near, near);
+        wheel.schedule(far, far);
+        assertThat(wheel.size()).isEqualTo(2);
+
+        List<Long> due = new ArrayList<>();
+        wheel.advance(near - 1, due::add);
+        assertThat(due).isEmpty();
+        wheel.advance(near, due::add);
+        assertThat(due).containsExactly(near);
+
+        // Still beyond the wheel after the first wrap, so back into overflow until the second
+        wheel.advance(far - 1, due::add);
+        assertThat(due).containsExactly(near);
+        wheel.advance(far, due::add);
+        assertThat(due).containsExactly(near, far);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastOrCurrentDeadlineIsRefused() {
+        TimingWheel<Long> wheel = new TimingWheel<>(100);
+
+        assertThat(wheel.schedule(99L, 99)).isFalse();
+        assertThat(wheel.schedule(100L, 100)).isFalse();
+        assertThat(wheel.schedule(101L, 101)).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    void itemsSharingADeadlineAllFire() {
+        TimingWheel<Long> wheel = new TimingWheel<>(0);
+        for (long item = 0; item < 3; item++) {
+            wheel.schedule(item, LEVEL_2 + 1);
+        }
+
+        List<Long> due = new ArrayList<>();
+        wheel.advance(LEVEL_2 + 1, due::add);
+
+        assertThat(due).containsExactlyInAnyOrder(0L, 1L, 2L);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.chatservice.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long INTERVAL = 1_000;
+
+    @Test
+    void admitsABurstThenReportsTheWait() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 5_000_000;
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(now, INTERVAL, 3)).isZero();
+        }
+        assertThat(bucket.tryAcquire(now, INTERVAL, 3)).isEqualTo(INTERVAL);
+        assertThat(bucket.tryAcquire(now + 400, INTERVAL, 3)).isEqualTo(INTERVAL - 400);
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 0;
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(now, INTERVAL, 3);
+        }
+
+        assertThat(bucket.tryAcquire(now + INTERVAL - 1, INTERVAL, 3)).isEqualTo(1);
+        assertThat(bucket.tryAcquire(now + INTERVAL, INTERVAL, 3)).isZero();
+        assertThat(bucket.tryAcquire(now + INTERVAL, INTERVAL, 3)).isPositive();
+    }
+
+    @Test
+    void aLongPauseRefillsNoMoreThanTheBurst() {
+        TokenBucket bucket = new TokenBucket();
+        bucket.tryAcquire(0, INTERVAL, 2);
+
+        long later = 1_000 * INTERVAL;
+        assertThat(bucket.tryAcquire(later, INTERVAL, 2)).isZero();
+        assertThat(bucket.tryAcquire(later, INTERVAL, 2)).isZero();
+        assertThat(bucket.tryAcquire(later, INTERVAL, 2)).isPositive();
+    }
+
+    @Test
+    void burstOfOneAllowsOnePerInterval() {
+        TokenBucket bucket = new TokenBucket();
+
+        assertThat(bucket.tryAcquire(0, INTERVAL, 1)).isZero();
+        assertThat(bucket.tryAcquire(0, INTERVAL, 1)).isEqualTo(INTERVAL);
+        assertThat(bucket.tryAcquire(INTERVAL, INTERVAL, 1)).isZero();
+    }
+
+    @Test
+    void worksWithNegativeNanoTime() {
+        // System.nanoTime() may be negative
+        TokenBucket bucket = new TokenBucket();
+        long now = -10 * INTERVAL;
+
+        assertThat(bucket.tryAcquire(now, INTERVAL, 2)).isZero();
+        assertThat(bucket.tryAcquire(now, INTERVAL, 2)).isZero();
+        assertThat(bucket.tryAcquire(now, INTERVAL, 2)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void isIdleOnceFullyRefilled() {
+        TokenBucket bucket = new TokenBucket();
+        assertThat(bucket.isIdle(0)).isTrue();
+
+        bucket.tryAcquire(0, INTERVAL, 3);
+        bucket.tryAcquire(0, INTERVAL, 3);
+
+        assertThat(bucket.isIdle(INTERVAL)).isFalse();
+        assertThat(bucket.isIdle(2 * INTERVAL)).isTrue();
+    }
+
+    @Test
+    void rejectionNoticeIsClaimedOncePerQuietPeriod() {
+        TokenBucket bucket = new TokenBucket();
+
+        assertThat(bucket.claimRejectionNotice(100, 50)).isTrue();
+        assertThat(bucket.claimRejectionNotice(120, 50)).isFalse();
+        assertThat(bucket.claimRejectionNotice(149, 50)).isFalse();
+        assertThat(bucket.claimRejectionNotice(150, 50)).isTrue();
+    }
+
+    @Test
+    void concurrentCallersTakeExactlyTheBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket();
+        int burst = 100;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    // Time stands still, so only the burst can be admitted
+                    if (bucket.tryAcquire(0, INTERVAL, burst) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(admitted).hasValue(burst);
+    }
+}